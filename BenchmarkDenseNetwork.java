@@ -0,0 +1,61 @@
+import com.aiassistant.core.ai.neural.DenseNetwork;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures training steps per second (forward + backward + Adam step) of the
+ * pure-Java DenseNetwork at batch sizes 1, 32 and 256.
+ */
+public class BenchmarkDenseNetwork {
+    private static final int[] LAYERS = {128, 64, 64, 9};
+    private static final long TARGET_NANOS = 2000000000L;
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking DenseNetwork " + Arrays.toString(LAYERS) + "...");
+
+        int[] batchSizes = {1, 32, 256};
+        for (int batchSize : batchSizes) {
+            DenseNetwork network = new DenseNetwork(LAYERS, DenseNetwork.Activation.RELU,
+                    DenseNetwork.Activation.LINEAR, batchSize, 42);
+
+            Random random = new Random(7);
+            float[] input = new float[batchSize * LAYERS[0]];
+            float[] gradient = new float[batchSize * LAYERS[LAYERS.length - 1]];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = random.nextFloat();
+            }
+            for (int i = 0; i < gradient.length; i++) {
+                gradient[i] = (random.nextFloat() - 0.5f) / batchSize;
+            }
+
+            // Warm up the JIT
+            for (int i = 0; i < 500; i++) {
+                trainStep(network, input, gradient, batchSize);
+            }
+
+            long steps = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (int i = 0; i < 50; i++) {
+                    trainStep(network, input, gradient, batchSize);
+                }
+                steps += 50;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < TARGET_NANOS);
+
+            double stepsPerSecond = steps / (elapsed / 1e9);
+            System.out.println(String.format("batch %3d: %,10.0f steps/s (%,12.0f samples/s)",
+                    batchSize, stepsPerSecond, stepsPerSecond * batchSize));
+        }
+
+        System.out.println("DenseNetwork benchmark completed.");
+    }
+
+    private static void trainStep(DenseNetwork network, float[] input, float[] gradient, int batchSize) {
+        network.forward(input, batchSize);
+        network.backward(gradient);
+        network.step();
+    }
+}
@@ -0,0 +1,137 @@
+import com.aiassistant.core.orchestration.EventDispatcher;
+import com.aiassistant.core.orchestration.OrchestrationEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures sustained asynchronous event throughput: the old router's
+ * one-task-per-event dispatch on a cached thread pool against EventDispatcher
+ * with BLOCK (lossless, so every published event is delivered), several
+ * producers and event types, and COALESCE over a small key set.
+ *
+ * Events are built up front and republished, so the figures are dispatch
+ * cost only; throughput counts delivered events, including the time to
+ * drain what is still queued when publishing stops.
+ */
+public class BenchmarkEventDispatch {
+    private static final long TARGET_NANOS = 1000000000L;
+    private static final int DISTINCT_EVENTS = 1024;
+
+    private static class CountingSubscriber implements EventDispatcher.Subscriber {
+        final LongAdder received = new LongAdder();
+
+        @Override
+        public void onEvent(OrchestrationEvent event) {
+            received.increment();
+        }
+
+        @Override
+        public void onEvents(List<OrchestrationEvent> events) {
+            received.add(events.size());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Benchmarking event dispatch (" + cores + " cores)...");
+
+        report("cached pool, task per event", runCachedPool());
+        runDispatcher("dispatcher, 1 producer", 1, 1, EventDispatcher.OverflowPolicy.BLOCK, 1);
+        runDispatcher("dispatcher, 2 producers/types", 2, 2, EventDispatcher.OverflowPolicy.BLOCK, 2);
+        runDispatcher("dispatcher, 4 producers/types", 4, 2, EventDispatcher.OverflowPolicy.BLOCK, 4);
+        runDispatcher("dispatcher, coalesce 64 keys", 1, 1, EventDispatcher.OverflowPolicy.COALESCE, 1);
+        System.out.println("Event dispatch benchmark completed.");
+    }
+
+    /**
+     * One Runnable per event on a cached thread pool, as EventRouter.publish did before
+     */
+    private static long[] runCachedPool() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CountingSubscriber subscriber = new CountingSubscriber();
+        OrchestrationEvent[] events = buildEvents("bench.type0");
+        long published = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            OrchestrationEvent event = events[(int) (published++ & (DISTINCT_EVENTS - 1))];
+            executor.execute(() -> subscriber.onEvent(event));
+        }
+        executor.shutdown();
+        executor.awaitTermination(60, TimeUnit.SECONDS);
+        return new long[]{published, subscriber.received.sum(), System.nanoTime() - start};
+    }
+
+    private static void runDispatcher(String name, int producers, int workers,
+                                      EventDispatcher.OverflowPolicy policy, int types) throws InterruptedException {
+        EventDispatcher dispatcher = new EventDispatcher(workers, (type, e) -> e.printStackTrace());
+        CountingSubscriber[] subscribers = new CountingSubscriber[types];
+        for (int t = 0; t < types; t++) {
+            subscribers[t] = new CountingSubscriber();
+            dispatcher.subscribe("bench.type" + t, subscribers[t], policy, EventDispatcher.DEFAULT_CAPACITY,
+                    event -> event.getData("key"));
+        }
+
+        LongAdder published = new LongAdder();
+        Thread[] threads = new Thread[producers];
+        long start = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            OrchestrationEvent[] events = buildEvents("bench.type" + (p % types));
+            threads[p] = new Thread(() -> {
+                long count = 0;
+                while (System.nanoTime() - start < TARGET_NANOS) {
+                    // Check the clock every 256 events
+                    for (int i = 0; i < 256; i++) {
+                        dispatcher.dispatch(events[(int) (count++ & (DISTINCT_EVENTS - 1))]);
+                    }
+                }
+                published.add(count);
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Wait for the workers to drain what is still queued
+        long delivered = 0;
+        long last = -1;
+        while (delivered != last) {
+            last = delivered;
+            Thread.sleep(20);
+            delivered = 0;
+            for (CountingSubscriber subscriber : subscribers) {
+                delivered += subscriber.received.sum();
+            }
+        }
+        long elapsed = System.nanoTime() - start - TimeUnit.MILLISECONDS.toNanos(20);
+        Map<String, Object> stats = dispatcher.getStats().get("bench.type0");
+        dispatcher.shutdown();
+        report(name, new long[]{published.sum(), delivered, elapsed});
+        System.out.println(String.format("    bench.type0: dropped %s, coalesced %s, avg batch %.1f, avg latency %.1f us",
+                stats.get("dropped"), stats.get("coalesced"), (Double) stats.get("avgBatch"),
+                (Double) stats.get("avgLatencyMicros")));
+    }
+
+    private static OrchestrationEvent[] buildEvents(String type) {
+        OrchestrationEvent[] events = new OrchestrationEvent[DISTINCT_EVENTS];
+        for (int i = 0; i < DISTINCT_EVENTS; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("key", "component" + (i & 63));
+            data.put("value", i);
+            events[i] = new OrchestrationEvent(type, "benchmark", data);
+        }
+        return events;
+    }
+
+    private static void report(String name, long[] result) {
+        double seconds = result[2] / 1e9;
+        System.out.println(String.format("%-30s published %,11d (%,10.0f/s) | delivered %,11d (%,10.0f/s)",
+                name, result[0], result[0] / seconds, result[1], result[1] / seconds));
+    }
+}
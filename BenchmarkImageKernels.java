@@ -0,0 +1,221 @@
+import com.aiassistant.utils.ArgbImage;
+import com.aiassistant.utils.ConnectedComponents;
+import com.aiassistant.utils.ImageKernels;
+import com.aiassistant.utils.RegionStats;
+import com.aiassistant.utils.TiledFrameAnalyzer;
+
+import java.util.Random;
+
+/**
+ * Measures the bulk-array image kernels on 1080x1920 synthetic frames, and
+ * compares a luma pass through a per-pixel accessor against the bulk
+ * conversion. On a device the per-pixel path is Bitmap.getPixel, a native
+ * call per pixel; the JVM accessor here only models the call overhead, so
+ * the on-device gap is larger than the one reported.
+ *
+ * Also measures building RegionStats tables and scoring candidate windows
+ * from them against scanning each window's pixels, and connected-component
+ * labeling of colour masks at the detectors' sampling steps, and a
+ * multi-scale window search run on one thread against the same search split
+ * into tiles on a pool of every available core.
+ */
+public class BenchmarkImageKernels {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final long TARGET_NANOS = 1000000000L;
+
+    private interface PixelSource {
+        int getPixel(int x, int y);
+    }
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking image kernels on " + WIDTH + "x" + HEIGHT + " frames...");
+        int count = WIDTH * HEIGHT;
+        int[] frame = syntheticFrame(new Random(42));
+        int[] nextFrame = frame.clone();
+        Random random = new Random(7);
+        for (int i = 0; i < count / 20; i++) {
+            nextFrame[random.nextInt(count)] ^= 0x00FFFFFF;
+        }
+
+        byte[] luma = new byte[count];
+        byte[] scratch = new byte[count];
+        byte[] mask = new byte[count];
+        ImageKernels.toLuma(frame, WIDTH, HEIGHT, luma);
+        byte[] nextLuma = ImageKernels.toLuma(nextFrame, WIDTH, HEIGHT, null);
+
+        PixelSource source = (x, y) -> {
+            if (x < 0 || y < 0 || x >= WIDTH || y >= HEIGHT) {
+                throw new IllegalArgumentException("x or y out of bounds");
+            }
+            return frame[y * WIDTH + x];
+        };
+
+        double perPixel = measure(i -> {
+            long sum = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int pixel = source.getPixel(x, y);
+                    sum += (int) (0.299 * ((pixel >> 16) & 0xFF) + 0.587 * ((pixel >> 8) & 0xFF)
+                            + 0.114 * (pixel & 0xFF));
+                }
+            }
+            return sum;
+        });
+        double bulkLuma = measure(i -> ImageKernels.toLuma(frame, WIDTH, HEIGHT, scratch)[i % count]);
+        report("luma, per-pixel accessor", perPixel);
+        report("luma, bulk array", bulkLuma);
+        report("sobel", measure(i -> ImageKernels.sobel(luma, WIDTH, HEIGHT, scratch)[i % count]));
+        report("rgb histogram (32 bins)", measure(i -> ImageKernels.rgbHistogram(frame, count, 32)[i % 96]));
+        report("luma histogram (256 bins)", measure(i -> ImageKernels.lumaHistogram(luma, count, 256)[i % 256]));
+        report("integral", measure(i -> ImageKernels.integral(luma, WIDTH, HEIGHT)[i % count]));
+        report("integral of squares", measure(i -> ImageKernels.integralSquares(luma, WIDTH, HEIGHT)[i % count]));
+        report("box filter (r=8)", measure(i -> ImageKernels.boxFilter(luma, WIDTH, HEIGHT, 8, scratch)[i % count]));
+        report("frame difference (argb)", measure(i -> ImageKernels.frameDifference(frame, nextFrame, count, 50, mask)));
+        report("frame difference (luma)", measure(i -> ImageKernels.lumaDifference(luma, nextLuma, count, 16, mask)));
+        report("color mask (step 1)", measure(i -> ImageKernels.colorMask(frame, WIDTH, HEIGHT, 1, 0xFFFF0000, 60, mask)));
+
+        System.out.println(String.format("Bulk luma is %.1fx the per-pixel accessor", perPixel / bulkLuma));
+
+        ArgbImage image = new ArgbImage(frame, WIDTH, HEIGHT);
+        report("region stats build (cell 1)", measure(i -> new RegionStats(image, 1).getCellSize()));
+        report("region stats build (cell 4)", measure(i -> new RegionStats(image, 4).getCellSize()));
+
+        // Button-sized windows (the detectors' base grid is about 108 px) at random positions
+        RegionStats stats = new RegionStats(image, 4);
+        int windowWidth = 216;
+        int windowHeight = 108;
+        int[] lefts = new int[1024];
+        int[] tops = new int[1024];
+        for (int i = 0; i < lefts.length; i++) {
+            lefts[i] = random.nextInt(WIDTH - windowWidth);
+            tops[i] = random.nextInt(HEIGHT - windowHeight);
+        }
+        double scan = measure(i -> {
+            int left = lefts[i & 1023];
+            int top = tops[i & 1023];
+            long sum = 0;
+            long squares = 0;
+            for (int y = top; y < top + windowHeight; y++) {
+                for (int x = left; x < left + windowWidth; x++) {
+                    int l = ImageKernels.luma(frame[y * WIDTH + x]);
+                    sum += l;
+                    squares += l * l;
+                }
+            }
+            return sum + squares;
+        });
+        double table = measure(i -> {
+            int left = lefts[i & 1023];
+            int top = tops[i & 1023];
+            return (long) stats.lumaVariance(left, top, left + windowWidth, top + windowHeight)
+                    + stats.surroundColorContrast(left, top, left + windowWidth, top + windowHeight, 10);
+        });
+        System.out.println(String.format("%-28s %9.3f us/window", "window variance, pixel scan", scan));
+        System.out.println(String.format("%-28s %9.3f us/window (variance + surround contrast)",
+                "window score, region stats", table));
+
+        // Masks of every synthetic rectangle's colour family (tolerance 90) at blob sampling steps
+        ConnectedComponents labeler = new ConnectedComponents();
+        for (int step : new int[]{10, 4, 1}) {
+            int maskWidth = (WIDTH + step - 1) / step;
+            int maskHeight = (HEIGHT + step - 1) / step;
+            byte[] blobMask = new byte[maskWidth * maskHeight];
+            ImageKernels.colorMask(frame, WIDTH, HEIGHT, step, 0xFF808080, 90, blobMask);
+            int components = labeler.label(blobMask, maskWidth, maskHeight, 1).size();
+            double micros = measure(i -> labeler.label(blobMask, maskWidth, maskHeight, 1).size());
+            System.out.println(String.format("%-28s %9.1f us/mask (%dx%d, %d components)",
+                    "labeling, step " + step, micros, maskWidth, maskHeight, components));
+        }
+
+        // The game detector's contrast search: square windows at three scales, quarter-window steps
+        int[] divisors = {16, 10, 6};
+        int maxSize = Math.min(WIDTH, HEIGHT) / divisors[divisors.length - 1];
+        TiledFrameAnalyzer.TileKernel search = (tile, out) -> {
+            for (int divisor : divisors) {
+                int size = Math.min(WIDTH, HEIGHT) / divisor;
+                int step = size / 4;
+                for (int y = TiledFrameAnalyzer.Tile.alignUp(tile.top, 0, step); y + size <= tile.bottom; y += step) {
+                    for (int x = TiledFrameAnalyzer.Tile.alignUp(tile.left, 0, step); x + size <= tile.right; x += step) {
+                        if (!tile.owns(x, y, x + size, y + size)) {
+                            continue;
+                        }
+                        int contrast = stats.surroundColorContrast(x, y, x + size, y + size, step);
+                        if (contrast >= 60) {
+                            out.add(new RegionStats.Candidate(x, y, x + size, y + size, contrast / 765.0f));
+                        }
+                    }
+                }
+            }
+        };
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            for (TiledFrameAnalyzer.DeviceClass deviceClass : TiledFrameAnalyzer.DeviceClass.values()) {
+                TiledFrameAnalyzer analyzer = new TiledFrameAnalyzer(parallelism, deviceClass.getTileSize());
+                double micros = measure(i -> analyzer.analyze(WIDTH, HEIGHT, maxSize, search, 0.3f, 10).size());
+                System.out.println(String.format("%-28s %9.1f us/frame (tile %d, %d threads)",
+                        "tiled contrast search", micros, deviceClass.getTileSize(), parallelism));
+            }
+        }
+        System.out.println("Image kernel benchmark completed.");
+    }
+
+    /**
+     * Gradient background with flat-coloured rectangles, roughly like a game HUD
+     */
+    private static int[] syntheticFrame(Random random) {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = x * 255 / WIDTH;
+                int g = y * 255 / HEIGHT;
+                int b = (x + y) & 0xFF;
+                pixels[y * WIDTH + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        for (int i = 0; i < 40; i++) {
+            int w = 40 + random.nextInt(200);
+            int h = 20 + random.nextInt(120);
+            int left = random.nextInt(WIDTH - w);
+            int top = random.nextInt(HEIGHT - h);
+            int color = 0xFF000000 | random.nextInt(0x1000000);
+            for (int y = top; y < top + h; y++) {
+                for (int x = left; x < left + w; x++) {
+                    pixels[y * WIDTH + x] = color;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    private static void report(String name, double micros) {
+        double megapixelsPerSec = WIDTH * HEIGHT / micros;
+        System.out.println(String.format("%-28s %9.1f us/frame (%,8.0f Mpx/s)", name, micros, megapixelsPerSec));
+    }
+
+    private interface Operation {
+        long run(int iteration);
+    }
+
+    /**
+     * Run an operation repeatedly for about TARGET_NANOS
+     *
+     * @return Mean microseconds per operation
+     */
+    private static double measure(Operation operation) {
+        long sink = 0;
+        for (int i = 0; i < 10; i++) {
+            sink += operation.run(i);
+        }
+        int count = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            sink += operation.run(count);
+            count++;
+        }
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (System.nanoTime() - start) / 1e3 / count;
+    }
+}
@@ -0,0 +1,85 @@
+import com.aiassistant.core.ml.cache.InferenceResultCache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Measures the cost of content-addressing model inputs: xxHash64 over a
+ * direct buffer and a float[] of typical input sizes, and InferenceResultCache
+ * lookups (hit with collision check, miss) at a working set larger than the
+ * byte budget.
+ */
+public class BenchmarkInferenceCache {
+    // 224x224x3 floats (image model) down to a small feature vector
+    private static final int[] INPUT_FLOATS = { 150528, 16384, 256 };
+    private static final int DISTINCT_INPUTS = 64;
+    private static final long TARGET_NANOS = 1000000000L;
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking inference result cache...");
+        Random random = new Random(42);
+
+        for (int floats : INPUT_FLOATS) {
+            float[][] inputs = new float[DISTINCT_INPUTS][floats];
+            ByteBuffer[] buffers = new ByteBuffer[DISTINCT_INPUTS];
+            for (int i = 0; i < DISTINCT_INPUTS; i++) {
+                for (int j = 0; j < floats; j++) {
+                    inputs[i][j] = random.nextFloat();
+                }
+                buffers[i] = ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.LITTLE_ENDIAN);
+                buffers[i].asFloatBuffer().put(inputs[i]);
+            }
+
+            // Budget holds half the distinct inputs, so the second half of each sweep misses
+            long budget = (long) floats * 4 * DISTINCT_INPUTS / 2 + 64 * 1024;
+            InferenceResultCache cache = new InferenceResultCache(budget, 0);
+            int[] hot = new int[1];
+
+            double hashBuffer = measure(i -> InferenceResultCache.hashOf(buffers[i % DISTINCT_INPUTS]));
+            double hashArray = measure(i -> InferenceResultCache.hashOf(inputs[i % DISTINCT_INPUTS]));
+            cache.put("model", buffers[0], new float[10], 40);
+            double hit = measure(i -> cache.get("model", buffers[0]) != null ? 1 : 0);
+            double mixed = measure(i -> {
+                ByteBuffer input = buffers[(hot[0]++) % DISTINCT_INPUTS];
+                if (cache.get("model", input) == null) {
+                    cache.put("model", input, new float[10], 40);
+                    return 0;
+                }
+                return 1;
+            });
+
+            double mbPerSec = floats * 4 / hashBuffer;
+            System.out.println(String.format("%,7d floats: hash buffer %8.1f us (%,.0f MB/s) | hash float[] %8.1f us"
+                    + " | hit %8.1f us | sweep %8.1f us", floats, hashBuffer, mbPerSec, hashArray, hit, mixed));
+            System.out.println("               " + cache.getStats());
+        }
+        System.out.println("Inference cache benchmark completed.");
+    }
+
+    private interface Operation {
+        long run(int iteration);
+    }
+
+    /**
+     * Run an operation repeatedly for about TARGET_NANOS
+     *
+     * @return Mean microseconds per operation
+     */
+    private static double measure(Operation operation) {
+        long sink = 0;
+        for (int i = 0; i < 100; i++) {
+            sink += operation.run(i);
+        }
+        int count = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            sink += operation.run(count);
+            count++;
+        }
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (System.nanoTime() - start) / 1e3 / count;
+    }
+}
@@ -0,0 +1,130 @@
+import com.aiassistant.core.memory.LongTermMemoryItem;
+import com.aiassistant.core.memory.MemoryLogStore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares per-operation store/retrieve latency of the old persistence scheme
+ * (rewrite every memory on each change) against MemoryLogStore, at growing
+ * memory counts.
+ */
+public class BenchmarkLongTermMemory {
+    private static final int[] SIZES = { 1000, 10000, 100000 };
+    private static final long TARGET_NANOS = 1000000000L;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Benchmarking long-term memory persistence...");
+        File root = new File(System.getProperty("java.io.tmpdir"), "bench_ltm");
+
+        for (int size : SIZES) {
+            deleteRecursively(root);
+            root.mkdirs();
+            MemoryLogStore store = new MemoryLogStore(new File(root, "store"));
+            Map<String, LongTermMemoryItem> legacy = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                LongTermMemoryItem item = new LongTermMemoryItem("key_" + i, "value of memory " + i, 0.5f);
+                store.put(item);
+                legacy.put(item.getKey(), item);
+            }
+            store.compact();
+            File legacyFile = new File(root, "legacy.bin");
+            Random random = new Random(42);
+
+            double legacyStore = measure(() -> {
+                LongTermMemoryItem item = new LongTermMemoryItem(
+                        "key_" + random.nextInt(size), "updated value", 0.7f);
+                legacy.put(item.getKey(), item);
+                writeAll(legacyFile, legacy);
+            });
+            double legacyRetrieve = measure(() -> {
+                legacy.get("key_" + random.nextInt(size)).incrementAccessCount();
+                writeAll(legacyFile, legacy);
+            });
+            double logStore = measure(() -> {
+                store.put(new LongTermMemoryItem("key_" + random.nextInt(size), "updated value", 0.7f));
+                if (store.needsCompaction()) {
+                    store.compact();
+                }
+            });
+            double logRetrieve = measure(() -> {
+                store.touch("key_" + random.nextInt(size));
+                if (store.needsCompaction()) {
+                    store.compact();
+                }
+            });
+            store.close();
+
+            long start = System.nanoTime();
+            MemoryLogStore reopened = new MemoryLogStore(new File(root, "store"));
+            double recovery = (System.nanoTime() - start) / 1e6;
+            if (reopened.size() != size) {
+                throw new IllegalStateException("Recovered " + reopened.size() + " of " + size + " memories");
+            }
+            reopened.close();
+
+            System.out.println(String.format("%,7d memories: store  rewrite-all %10.1f us  log %6.1f us (%.0fx)",
+                    size, legacyStore, logStore, legacyStore / logStore));
+            System.out.println(String.format("                 retrieve rewrite-all %10.1f us  log %6.1f us (%.0fx)"
+                    + "  | reopen %.1f ms", legacyRetrieve, logRetrieve, legacyRetrieve / logRetrieve, recovery));
+        }
+
+        deleteRecursively(root);
+        System.out.println("Long-term memory benchmark completed.");
+    }
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    /**
+     * Run an operation repeatedly for about TARGET_NANOS
+     *
+     * @return Mean microseconds per operation
+     */
+    private static double measure(Operation operation) throws IOException {
+        for (int i = 0; i < 3; i++) {
+            operation.run();
+        }
+        long count = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            operation.run();
+            count++;
+        }
+        return (System.nanoTime() - start) / 1e3 / count;
+    }
+
+    /**
+     * Stand-in for the old SharedPreferences save: serialize every memory on each change
+     */
+    private static void writeAll(File file, Map<String, LongTermMemoryItem> items) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(items.size());
+            for (LongTermMemoryItem item : items.values()) {
+                out.writeUTF(item.getKey());
+                out.writeUTF(item.getValue());
+                out.writeFloat(item.getImportance());
+                out.writeLong(item.getCreationTime());
+                out.writeLong(item.getLastAccessTime());
+                out.writeInt(item.getAccessCount());
+            }
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,93 @@
+import com.aiassistant.core.memory.InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares memory search latency of a linear toLowerCase().contains() scan
+ * against InvertedIndex (BM25 top-10 and all-terms match) as the number of
+ * stored memories grows.
+ */
+public class BenchmarkMemorySearch {
+    private static final int[] SIZES = { 1000, 10000, 100000 };
+    private static final int VOCABULARY = 20000;
+    private static final int WORDS_PER_MEMORY = 12;
+    private static final long TARGET_NANOS = 1000000000L;
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking memory search...");
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            vocabulary[i] = "word" + Integer.toString(i, 36);
+        }
+
+        for (int size : SIZES) {
+            List<String> contents = new ArrayList<>(size);
+            InvertedIndex index = new InvertedIndex();
+            for (int i = 0; i < size; i++) {
+                StringBuilder text = new StringBuilder();
+                for (int w = 0; w < WORDS_PER_MEMORY; w++) {
+                    text.append(vocabulary[zipf(random)]).append(' ');
+                }
+                contents.add(text.toString());
+                index.add("memory_" + i, text.toString());
+            }
+            String[] queries = new String[256];
+            for (int i = 0; i < queries.length; i++) {
+                queries[i] = vocabulary[zipf(random)] + " " + vocabulary[zipf(random)];
+            }
+
+            double scan = measure(queries, query -> {
+                String normalized = query.toLowerCase();
+                int matches = 0;
+                for (String content : contents) {
+                    if (content.toLowerCase().contains(normalized)) {
+                        matches++;
+                    }
+                }
+                return matches;
+            });
+            double ranked = measure(queries, query -> index.search(query, 10).size());
+            double findAll = measure(queries, query -> index.findAll(query).size());
+
+            System.out.println(String.format("%,7d memories: linear scan %9.1f us | BM25 top-10 %7.1f us (%.0fx)"
+                    + " | all-terms %6.1f us", size, scan, ranked, scan / ranked, findAll));
+        }
+        System.out.println("Memory search benchmark completed.");
+    }
+
+    private interface Query {
+        int run(String query);
+    }
+
+    /**
+     * Run queries round-robin for about TARGET_NANOS
+     *
+     * @return Mean microseconds per query
+     */
+    private static double measure(String[] queries, Query query) {
+        int sink = 0;
+        for (int i = 0; i < queries.length; i++) {
+            sink += query.run(queries[i]);
+        }
+        long count = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            sink += query.run(queries[(int) (count % queries.length)]);
+            count++;
+        }
+        if (sink == Integer.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (System.nanoTime() - start) / 1e3 / count;
+    }
+
+    /**
+     * Roughly Zipf-distributed word rank, so common words have long postings lists
+     */
+    private static int zipf(Random random) {
+        return (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+    }
+}
@@ -0,0 +1,101 @@
+import com.aiassistant.core.ai.storage.ModelCheckpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares save/load time of a ~10 MB RL model stored with Java serialization
+ * (a String-keyed Q-table map, and a plain float[]) against ModelCheckpoint.
+ */
+public class BenchmarkModelCheckpoint {
+    private static final int ACTIONS = 9;
+    private static final int STATES = 290000; // 290000 * 9 floats = ~10 MB
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Benchmarking model save/load (" + (STATES * ACTIONS * 4L / (1024 * 1024)) + " MB of values)...");
+
+        Random random = new Random(42);
+        float[] values = new float[STATES * ACTIONS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat();
+        }
+        HashMap<String, Map<Integer, Float>> table = new HashMap<>();
+        for (int s = 0; s < STATES; s++) {
+            Map<Integer, Float> row = new HashMap<>();
+            for (int a = 0; a < ACTIONS; a++) {
+                row.put(a, values[s * ACTIONS + a]);
+            }
+            table.put("state_" + s, row);
+        }
+
+        File dir = new File(System.getProperty("java.io.tmpdir"));
+        File mapFile = new File(dir, "bench_qtable.model");
+        File arrayFile = new File(dir, "bench_array.model");
+        File checkpointFile = new File(dir, "bench_model.ckpt");
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            writeObject(mapFile, table);
+            long mapSave = System.nanoTime() - start;
+            start = System.nanoTime();
+            Object loadedMap = readObject(mapFile);
+            long mapLoad = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            writeObject(arrayFile, values);
+            long arraySave = System.nanoTime() - start;
+            start = System.nanoTime();
+            float[] loadedArray = (float[]) readObject(arrayFile);
+            long arrayLoad = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ModelCheckpoint checkpoint = new ModelCheckpoint(1, 16, ACTIONS);
+            checkpoint.putArray("qtable", values);
+            checkpoint.write(checkpointFile);
+            long checkpointSave = System.nanoTime() - start;
+            start = System.nanoTime();
+            ModelCheckpoint loaded = ModelCheckpoint.read(checkpointFile);
+            long checkpointOpen = System.nanoTime() - start;
+            float[] loadedValues = loaded.getArray("qtable");
+            long checkpointLoad = System.nanoTime() - start;
+
+            if (loadedValues[values.length - 1] != values[values.length - 1]
+                    || loadedArray.length != values.length || loadedMap == null) {
+                throw new IllegalStateException("Round trip mismatch");
+            }
+
+            System.out.println(String.format("round %d: serialized map  save %7.1f ms  load %7.1f ms", round + 1,
+                    mapSave / 1e6, mapLoad / 1e6));
+            System.out.println(String.format("         serialized array save %7.1f ms  load %7.1f ms",
+                    arraySave / 1e6, arrayLoad / 1e6));
+            System.out.println(String.format("         checkpoint      save %7.1f ms  load %7.1f ms (open %.2f ms)",
+                    checkpointSave / 1e6, checkpointLoad / 1e6, checkpointOpen / 1e6));
+        }
+
+        mapFile.delete();
+        arrayFile.delete();
+        checkpointFile.delete();
+        System.out.println("Checkpoint benchmark completed.");
+    }
+
+    private static void writeObject(File file, Object value) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeObject(value);
+        }
+    }
+
+    private static Object readObject(File file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import com.aiassistant.core.ai.neural.PPOTrainer;
+import com.aiassistant.learning.models.PPORolloutBuffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures PPO training throughput: the GAE pass over an object-per-step list
+ * against the flat PPORolloutBuffer, and full update samples per second
+ * (GAE + shuffled minibatch epochs through PPOTrainer).
+ */
+public class BenchmarkPPOUpdate {
+    private static final int STATE_SIZE = 32;
+    private static final int ACTIONS = 9;
+    private static final int NUM_ENVS = 16;
+    private static final int STEPS = 128;
+    private static final int EPOCHS = 4;
+    private static final int MINIBATCH = 64;
+    private static final float GAMMA = 0.99f;
+    private static final float LAMBDA = 0.95f;
+    private static final long TARGET_NANOS = 2000000000L;
+
+    /**
+     * Per-step record as kept by a List-based rollout
+     */
+    private static class Step {
+        float[] state;
+        int action;
+        float logProb;
+        float value;
+        float reward;
+        boolean done;
+        float advantage;
+        float discountedReturn;
+    }
+
+    public static void main(String[] args) {
+        int samples = NUM_ENVS * STEPS;
+        System.out.println("Benchmarking PPO update (" + samples + " samples, " + EPOCHS + " epochs, minibatch "
+                + MINIBATCH + ")...");
+
+        Random random = new Random(42);
+        PPORolloutBuffer buffer = new PPORolloutBuffer(STEPS, NUM_ENVS, STATE_SIZE);
+        List<Step> steps = new ArrayList<>();
+        float[] states = new float[NUM_ENVS * STATE_SIZE];
+        int[] actions = new int[NUM_ENVS];
+        float[] logProbs = new float[NUM_ENVS];
+        float[] values = new float[NUM_ENVS];
+        float[] rewards = new float[NUM_ENVS];
+        boolean[] dones = new boolean[NUM_ENVS];
+        for (int t = 0; t < STEPS; t++) {
+            for (int e = 0; e < NUM_ENVS; e++) {
+                for (int i = 0; i < STATE_SIZE; i++) {
+                    states[e * STATE_SIZE + i] = random.nextFloat();
+                }
+                actions[e] = random.nextInt(ACTIONS);
+                logProbs[e] = (float) Math.log(1.0 / ACTIONS);
+                values[e] = random.nextFloat();
+                rewards[e] = random.nextFloat() - 0.5f;
+                dones[e] = random.nextInt(50) == 0;
+
+                Step step = new Step();
+                step.state = new float[STATE_SIZE];
+                System.arraycopy(states, e * STATE_SIZE, step.state, 0, STATE_SIZE);
+                step.action = actions[e];
+                step.logProb = logProbs[e];
+                step.value = values[e];
+                step.reward = rewards[e];
+                step.done = dones[e];
+                steps.add(step);
+            }
+            buffer.addStep(states, actions, logProbs, values, rewards, dones);
+        }
+        float[] lastValues = new float[NUM_ENVS];
+
+        for (int round = 0; round < 3; round++) {
+            double listRate = runListGae(steps, lastValues);
+            double flatRate = runFlatGae(buffer, lastValues);
+            System.out.println(String.format("round %d: GAE list %,14.0f samples/s | flat %,14.0f samples/s (%.1fx)",
+                    round + 1, listRate, flatRate, flatRate / listRate));
+        }
+
+        PPOTrainer trainer = new PPOTrainer(STATE_SIZE, ACTIONS, 64, MINIBATCH, 0.0003f, 7);
+        for (int round = 0; round < 3; round++) {
+            long updates = 0;
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < TARGET_NANOS) {
+                buffer.computeAdvantages(lastValues, GAMMA, LAMBDA);
+                buffer.normalizeAdvantages();
+                trainer.update(buffer, EPOCHS, random);
+                updates++;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("round %d: full update %,10.0f samples/s (%,.0f sample-epochs/s)",
+                    round + 1, updates * samples / seconds, updates * samples * EPOCHS / seconds));
+        }
+
+        System.out.println("PPO benchmark completed.");
+    }
+
+    /**
+     * GAE over a List of per-step objects, grouped per environment and shuffled by copying
+     */
+    private static double runListGae(List<Step> steps, float[] lastValues) {
+        long passes = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS / 4) {
+            for (int e = 0; e < NUM_ENVS; e++) {
+                float gae = 0.0f;
+                for (int t = STEPS - 1; t >= 0; t--) {
+                    Step step = steps.get(t * NUM_ENVS + e);
+                    float nextValue = t == STEPS - 1 ? lastValues[e] : steps.get((t + 1) * NUM_ENVS + e).value;
+                    float nonTerminal = step.done ? 0.0f : 1.0f;
+                    float delta = step.reward + GAMMA * nextValue * nonTerminal - step.value;
+                    gae = delta + GAMMA * LAMBDA * nonTerminal * gae;
+                    step.advantage = gae;
+                    step.discountedReturn = gae + step.value;
+                }
+            }
+            List<Step> shuffled = new ArrayList<>(steps);
+            Collections.shuffle(shuffled);
+            passes++;
+        }
+        return passes * steps.size() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * GAE over the flat buffer plus an index-permutation shuffle
+     */
+    private static double runFlatGae(PPORolloutBuffer buffer, float[] lastValues) {
+        Random random = new Random(1);
+        long passes = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS / 4) {
+            buffer.computeAdvantages(lastValues, GAMMA, LAMBDA);
+            buffer.shuffle(random);
+            passes++;
+        }
+        return passes * buffer.size() / ((System.nanoTime() - start) / 1e9);
+    }
+}
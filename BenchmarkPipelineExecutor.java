@@ -0,0 +1,112 @@
+import com.aiassistant.core.orchestration.PipelineExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures pipeline wall time when stages run one after another, as the
+ * old sequential executor did, against PipelineExecutor running the same
+ * stages as a DAG. Stages sleep for a fixed time to stand in for component
+ * work, so the figures show scheduling overlap rather than CPU speed. Also
+ * checks that an overrunning critical stage cancels its run.
+ */
+public class BenchmarkPipelineExecutor {
+    private static final long TARGET_NANOS = 1000000000L;
+    private static final Map<String, Long> DURATIONS = new HashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Benchmarking pipeline execution...");
+        PipelineExecutor executor = new PipelineExecutor(4);
+
+        // game_analysis: GameAnalyzer and BehaviorDetector feed ActionRecommender
+        List<PipelineExecutor.Stage> game = Arrays.asList(
+                stage("GameAnalyzer", 8),
+                stage("BehaviorDetector", 6),
+                stage("ActionRecommender", 3, "GameAnalyzer", "BehaviorDetector"));
+        // A wider graph: four independent analyzers and two joins
+        List<PipelineExecutor.Stage> wide = Arrays.asList(
+                stage("Capture", 2),
+                stage("Ocr", 6, "Capture"),
+                stage("Objects", 8, "Capture"),
+                stage("Audio", 5),
+                stage("Context", 4, "Audio"),
+                stage("Decide", 3, "Ocr", "Objects", "Context"));
+
+        measure(executor, "game_analysis", game);
+        measure(executor, "wide 6-stage graph", wide);
+        checkCancellation(executor);
+
+        executor.shutdown();
+        System.out.println("Pipeline benchmark completed.");
+    }
+
+    private static void measure(PipelineExecutor executor, String name, List<PipelineExecutor.Stage> stages)
+            throws InterruptedException {
+        PipelineExecutor.StageTask task = (stage, input) -> {
+            Thread.sleep(DURATIONS.get(stage.name));
+            return Collections.singletonMap(stage.name, Boolean.TRUE);
+        };
+
+        long serialRuns = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            Map<String, Object> data = new HashMap<>();
+            for (PipelineExecutor.Stage stage : stages) {
+                try {
+                    data.putAll(task.run(stage, data));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            serialRuns++;
+        }
+        double serialMs = (System.nanoTime() - start) / 1e6 / serialRuns;
+
+        long dagRuns = 0;
+        Map<String, Object> report = null;
+        start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            PipelineExecutor.PipelineRun run = executor.execute(name, stages, new HashMap<>(), task, null);
+            if (!run.await(5, TimeUnit.SECONDS) || run.isCancelled()) {
+                throw new IllegalStateException("run did not complete: " + run.getReport());
+            }
+            if (!Boolean.TRUE.equals(run.getStageOutput(stages.get(0).name).get(stages.get(0).name))) {
+                throw new IllegalStateException("missing stage output");
+            }
+            report = run.getReport();
+            dagRuns++;
+        }
+        double dagMs = (System.nanoTime() - start) / 1e6 / dagRuns;
+
+        System.out.println(String.format("%-20s serial %6.2f ms | DAG %6.2f ms | critical path %s %.1f ms of %.1f ms stage time",
+                name, serialMs, dagMs, report.get("criticalPath"), (Double) report.get("criticalPathMs"),
+                (Double) report.get("stageSumMs")));
+    }
+
+    private static void checkCancellation(PipelineExecutor executor) throws InterruptedException {
+        List<PipelineExecutor.Stage> stages = Arrays.asList(
+                new PipelineExecutor.Stage("Slow", true, 20, Collections.<String>emptyList()),
+                new PipelineExecutor.Stage("Sibling", false, 1000, Collections.<String>emptyList()),
+                new PipelineExecutor.Stage("After", true, 1000, Arrays.asList("Slow", "Sibling")));
+        long start = System.nanoTime();
+        PipelineExecutor.PipelineRun run = executor.execute("cancel", stages, null, (stage, input) -> {
+            Thread.sleep(500);
+            return new HashMap<>();
+        }, null);
+        run.await(5, TimeUnit.SECONDS);
+        double elapsedMs = (System.nanoTime() - start) / 1e6;
+        System.out.println(String.format("critical timeout     %s / %s / %s after %.1f ms (%s)",
+                run.getStageStatus("Slow"), run.getStageStatus("Sibling"), run.getStageStatus("After"),
+                elapsedMs, run.getReport().get("cancelReason")));
+    }
+
+    private static PipelineExecutor.Stage stage(String name, long millis, String... dependsOn) {
+        DURATIONS.put(name, millis);
+        return new PipelineExecutor.Stage(name, true, 1000, new ArrayList<>(Arrays.asList(dependsOn)));
+    }
+}
@@ -0,0 +1,100 @@
+import com.aiassistant.core.ai.algorithms.HashedQTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares SARSA update throughput of the legacy String-keyed nested HashMap
+ * Q-table against HashedQTable.
+ */
+public class BenchmarkQTable {
+    private static final int ACTIONS = 9;
+    private static final int FEATURES = 8;
+    private static final int DISTINCT_STATES = 20000;
+    private static final int UPDATES = 2000000;
+    private static final float ALPHA = 0.1f;
+    private static final float GAMMA = 0.9f;
+    private static final int ROUNDS = 7;
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking Q-table updates (" + DISTINCT_STATES + " distinct states)...");
+
+        float[][] states = new float[DISTINCT_STATES][FEATURES];
+        Random random = new Random(42);
+        for (float[] state : states) {
+            for (int i = 0; i < FEATURES; i++) {
+                state[i] = random.nextFloat();
+            }
+        }
+        int[] stateOrder = new int[UPDATES + 1];
+        int[] actions = new int[UPDATES];
+        for (int i = 0; i < UPDATES; i++) {
+            stateOrder[i] = random.nextInt(DISTINCT_STATES);
+            actions[i] = random.nextInt(ACTIONS);
+        }
+        stateOrder[UPDATES] = 0;
+
+        // Rounds swing with JIT and GC activity, so report the median ratio
+        double[] ratios = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            double legacy = runLegacy(states, stateOrder, actions);
+            double hashed = runHashed(states, stateOrder, actions);
+            ratios[round] = hashed / legacy;
+            System.out.println(String.format("round %d: legacy %,12.0f updates/s | hashed %,12.0f updates/s (%.1fx)",
+                    round + 1, legacy, hashed, ratios[round]));
+        }
+        Arrays.sort(ratios);
+        System.out.println(String.format("median speedup %.1fx (min %.1fx, max %.1fx)",
+                ratios[ROUNDS / 2], ratios[0], ratios[ROUNDS - 1]));
+
+        System.out.println("Q-table benchmark completed.");
+    }
+
+    private static double runLegacy(float[][] states, int[] order, int[] actions) {
+        Map<String, Map<Integer, Float>> table = new HashMap<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            String key = legacyKey(states[order[i]]);
+            String nextKey = legacyKey(states[order[i + 1]]);
+            Map<Integer, Float> row = table.get(key);
+            if (row == null) {
+                row = new HashMap<>();
+                table.put(key, row);
+            }
+            float nextQ = 0.0f;
+            Map<Integer, Float> nextRow = table.get(nextKey);
+            if (nextRow != null) {
+                for (Float value : nextRow.values()) {
+                    nextQ = Math.max(nextQ, value);
+                }
+            }
+            float current = row.getOrDefault(actions[i], 0.0f);
+            row.put(actions[i], current + ALPHA * (1.0f + GAMMA * nextQ - current));
+        }
+        return UPDATES / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static String legacyKey(float[] features) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < Math.min(features.length, 5); i++) {
+            key.append(Math.round(features[i] * 10) / 10.0f).append("_");
+        }
+        return key.toString();
+    }
+
+    private static double runHashed(float[][] states, int[] order, int[] actions) {
+        HashedQTable table = new HashedQTable(ACTIONS, 100000, 0.1f, 5,
+                HashedQTable.EvictionPolicy.LEAST_RECENTLY_USED);
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            long key = table.hashState(states[order[i]]);
+            float nextQ = table.maxValue(table.hashState(states[order[i + 1]]));
+            int slot = table.findOrInsert(key);
+            float current = table.getAt(slot, actions[i]);
+            table.setAt(slot, actions[i], current + ALPHA * (1.0f + GAMMA * nextQ - current));
+        }
+        return UPDATES / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,74 @@
+import com.aiassistant.learning.models.ExperienceReplay;
+import com.aiassistant.learning.models.PrioritizedExperienceReplay;
+
+import java.util.Random;
+
+/**
+ * Compares sampling throughput of uniform and prioritized experience replay
+ * at 10k, 100k and 1M stored transitions.
+ */
+public class BenchmarkReplaySampling {
+    private static final int STATE_SIZE = 16;
+    private static final int BATCH_SIZE = 32;
+    private static final int WARMUP_BATCHES = 2000;
+    private static final int MEASURED_BATCHES = 20000;
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking replay sampling (state size " + STATE_SIZE
+                + ", batch size " + BATCH_SIZE + ")...");
+
+        int[] sizes = {10000, 100000, 1000000};
+        for (int size : sizes) {
+            ExperienceReplay uniform = fill(new ExperienceReplay(size, STATE_SIZE), size);
+            ExperienceReplay prioritized = fill(new PrioritizedExperienceReplay(size, STATE_SIZE), size);
+
+            double uniformRate = measure(uniform);
+            double prioritizedRate = measure(prioritized);
+
+            System.out.println(String.format("%,9d entries: uniform %,12.0f samples/s | prioritized %,12.0f samples/s",
+                    size, uniformRate, prioritizedRate));
+        }
+
+        System.out.println("Replay benchmark completed.");
+    }
+
+    private static ExperienceReplay fill(ExperienceReplay replay, int count) {
+        Random random = new Random(42);
+        float[] state = new float[STATE_SIZE];
+        float[] nextState = new float[STATE_SIZE];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < STATE_SIZE; j++) {
+                state[j] = random.nextFloat();
+                nextState[j] = random.nextFloat();
+            }
+            replay.add(state, random.nextInt(8), random.nextFloat(), nextState, random.nextInt(100) == 0);
+        }
+        return replay;
+    }
+
+    private static double measure(ExperienceReplay replay) {
+        Random random = new Random(7);
+        float[] tdErrors = new float[BATCH_SIZE];
+
+        for (int i = 0; i < WARMUP_BATCHES; i++) {
+            step(replay, random, tdErrors);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_BATCHES; i++) {
+            step(replay, random, tdErrors);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        return (double) MEASURED_BATCHES * BATCH_SIZE / (elapsed / 1e9);
+    }
+
+    private static void step(ExperienceReplay replay, Random random, float[] tdErrors) {
+        // Sample and feed back priorities, as a training step would
+        ExperienceReplay.Batch batch = replay.sample(BATCH_SIZE);
+        for (int i = 0; i < batch.size; i++) {
+            tdErrors[i] = (float) random.nextGaussian();
+        }
+        replay.updatePriorities(batch.indices, tdErrors, batch.size);
+    }
+}
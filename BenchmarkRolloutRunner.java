@@ -0,0 +1,188 @@
+import com.aiassistant.core.ai.neural.DenseNetwork;
+import com.aiassistant.core.ai.training.GameSimulator;
+import com.aiassistant.core.ai.training.VectorizedRolloutRunner;
+import com.aiassistant.learning.models.ExperienceReplay;
+
+import java.util.Random;
+
+/**
+ * Compares headless rollout throughput (environment steps per second, with
+ * policy evaluation and replay insertion) of a single environment stepped one
+ * action at a time against VectorizedRolloutRunner with batched policy calls.
+ */
+public class BenchmarkRolloutRunner {
+    private static final int STATE_SIZE = 16;
+    private static final int ACTIONS = 9;
+    private static final int MAX_STEPS = 200;
+    private static final long TARGET_NANOS = 2000000000L;
+
+    /**
+     * Toy pursuit game: move an agent on the unit square towards a drifting target
+     */
+    private static class ChaseSimulator implements GameSimulator {
+        private final Random random;
+        private float x, y, targetX, targetY, velocityX, velocityY;
+        private boolean done;
+
+        ChaseSimulator(int seed) {
+            this.random = new Random(seed);
+        }
+
+        public int getStateSize() {
+            return STATE_SIZE;
+        }
+
+        public int getActionSize() {
+            return ACTIONS;
+        }
+
+        public void reset(float[] observation, int offset) {
+            x = random.nextFloat();
+            y = random.nextFloat();
+            targetX = random.nextFloat();
+            targetY = random.nextFloat();
+            velocityX = (random.nextFloat() - 0.5f) * 0.02f;
+            velocityY = (random.nextFloat() - 0.5f) * 0.02f;
+            done = false;
+            observe(observation, offset);
+        }
+
+        public float step(int action, float[] observation, int offset) {
+            float before = distance();
+            if (action < 8) {
+                double angle = action * Math.PI / 4.0;
+                x = clamp(x + 0.03f * (float) Math.cos(angle));
+                y = clamp(y + 0.03f * (float) Math.sin(angle));
+            }
+            targetX = clamp(targetX + velocityX);
+            targetY = clamp(targetY + velocityY);
+            float after = distance();
+            done = after < 0.03f;
+            observe(observation, offset);
+            return (before - after) * 10.0f + (done ? 1.0f : -0.01f);
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        private float distance() {
+            float dx = targetX - x;
+            float dy = targetY - y;
+            return (float) Math.sqrt(dx * dx + dy * dy);
+        }
+
+        private void observe(float[] observation, int offset) {
+            float dx = targetX - x;
+            float dy = targetY - y;
+            float[] base = {x, y, targetX, targetY, dx, dy, velocityX * 50.0f, velocityY * 50.0f};
+            for (int i = 0; i < 8; i++) {
+                observation[offset + i] = base[i];
+                observation[offset + 8 + i] = (float) Math.sin(base[i] * (i + 1));
+            }
+        }
+
+        private static float clamp(float value) {
+            return Math.max(0.0f, Math.min(1.0f, value));
+        }
+    }
+
+    public static void main(String[] args) {
+        int workers = Runtime.getRuntime().availableProcessors();
+        System.out.println("Benchmarking rollouts (" + workers + " worker threads available)...");
+
+        for (int round = 0; round < 3; round++) {
+            double single = runSingle();
+            System.out.println(String.format("round %d: single env %,12.0f steps/s", round + 1, single));
+            for (int envs : new int[]{16, 64, 256}) {
+                double vectorized = runVectorized(envs, workers);
+                System.out.println(String.format("         %3d envs   %,12.0f steps/s (%.1fx)",
+                        envs, vectorized, vectorized / single));
+            }
+        }
+
+        System.out.println("Rollout benchmark completed.");
+    }
+
+    private static DenseNetwork createPolicy(int maxBatchSize) {
+        return new DenseNetwork(new int[]{STATE_SIZE, 64, 64, ACTIONS}, DenseNetwork.Activation.RELU,
+                DenseNetwork.Activation.LINEAR, maxBatchSize, 42);
+    }
+
+    private static double runSingle() {
+        DenseNetwork network = createPolicy(1);
+        ExperienceReplay replay = new ExperienceReplay(100000, STATE_SIZE);
+        ChaseSimulator environment = new ChaseSimulator(1);
+        float[] state = new float[STATE_SIZE];
+        float[] nextState = new float[STATE_SIZE];
+        float[] qValues = new float[ACTIONS];
+        environment.reset(state, 0);
+
+        long steps = 0;
+        int episodeSteps = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            network.predict(state, qValues);
+            int action = argmax(qValues, 0);
+            float reward = environment.step(action, nextState, 0);
+            boolean done = environment.isDone();
+            replay.add(state, action, reward, nextState, done);
+            steps++;
+            if (done || ++episodeSteps >= MAX_STEPS) {
+                environment.reset(state, 0);
+                episodeSteps = 0;
+            } else {
+                float[] swap = state;
+                state = nextState;
+                nextState = swap;
+            }
+        }
+        return steps / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static double runVectorized(int envs, int workers) {
+        final DenseNetwork network = createPolicy(envs);
+        final ExperienceReplay replay = new ExperienceReplay(100000, STATE_SIZE);
+        VectorizedRolloutRunner runner = new VectorizedRolloutRunner(new GameSimulator.Factory() {
+            public GameSimulator create(int index) {
+                return new ChaseSimulator(index + 1);
+            }
+        }, envs, workers);
+        runner.setMaxStepsPerEpisode(MAX_STEPS);
+
+        VectorizedRolloutRunner.Policy policy = new VectorizedRolloutRunner.Policy() {
+            public void selectActions(float[] states, int count, int[] actions) {
+                float[] q = network.forward(states, count);
+                for (int i = 0; i < count; i++) {
+                    actions[i] = argmax(q, i * ACTIONS);
+                }
+            }
+        };
+        VectorizedRolloutRunner.TransitionSink sink = new VectorizedRolloutRunner.TransitionSink() {
+            public void addTransitions(float[] states, int[] actions, float[] rewards, float[] nextStates,
+                                       boolean[] dones, int count) {
+                replay.addBatch(states, actions, rewards, nextStates, dones, count, STATE_SIZE);
+            }
+        };
+
+        try {
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < TARGET_NANOS) {
+                runner.step(policy, sink);
+            }
+            return runner.getTotalSteps() / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    private static int argmax(float[] values, int offset) {
+        int best = 0;
+        for (int a = 1; a < ACTIONS; a++) {
+            if (values[offset + a] > values[offset + best]) {
+                best = a;
+            }
+        }
+        return best;
+    }
+}
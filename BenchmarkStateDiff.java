@@ -0,0 +1,80 @@
+import com.aiassistant.core.orchestration.ComponentStateSnapshot;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Measures the cost of detecting a one-field change in a component's state:
+ * rebuilding a snapshot and comparing every field, as DiffEngine did before,
+ * against put() on a tracked snapshot and re-comparing its dirty fields.
+ */
+public class BenchmarkStateDiff {
+    private static final long TARGET_NANOS = 1000000000L;
+
+    public static void main(String[] args) {
+        System.out.println("Benchmarking state diffing...");
+        for (int fields : new int[]{16, 256, 4096}) {
+            Map<String, Object> state = new HashMap<>();
+            for (int i = 0; i < fields; i++) {
+                state.put("field" + i, "value" + i);
+            }
+            double full = measureFullCompare(state);
+            double incremental = measureIncremental(state);
+            System.out.println(String.format("%5d fields | full compare %,10.0f ns | put + dirty diff %,7.0f ns | %.0fx",
+                    fields, full, incremental, full / incremental));
+        }
+        System.out.println("State diff benchmark completed.");
+    }
+
+    private static double measureFullCompare(Map<String, Object> state) {
+        ComponentStateSnapshot expected = new ComponentStateSnapshot("c", 1, state);
+        Map<String, Object> actualState = new HashMap<>(state);
+        long iterations = 0;
+        int mismatches = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            actualState.put("field0", "changed" + (iterations & 7));
+            ComponentStateSnapshot actual = new ComponentStateSnapshot("c", 1, actualState);
+            Map<String, Object> expectedMap = expected.getState();
+            Map<String, Object> actualMap = actual.getState();
+            Set<String> keys = new HashSet<>(expectedMap.keySet());
+            keys.addAll(actualMap.keySet());
+            for (String key : keys) {
+                if (!Objects.equals(expectedMap.get(key), actualMap.get(key))) {
+                    mismatches++;
+                }
+            }
+            iterations++;
+        }
+        return check(mismatches, iterations, start);
+    }
+
+    private static double measureIncremental(Map<String, Object> state) {
+        ComponentStateSnapshot expected = new ComponentStateSnapshot("c", 1, state);
+        ComponentStateSnapshot actual = new ComponentStateSnapshot("c", 1, state);
+        actual.drainDirtyFields();
+        long iterations = 0;
+        int mismatches = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TARGET_NANOS) {
+            actual.put("field0", "changed" + (iterations & 7));
+            for (String key : actual.drainDirtyFields()) {
+                if (!Objects.equals(expected.getState(key), actual.getState(key))) {
+                    mismatches++;
+                }
+            }
+            iterations++;
+        }
+        return check(mismatches, iterations, start);
+    }
+
+    private static double check(int mismatches, long iterations, long start) {
+        if (mismatches == 0) {
+            throw new IllegalStateException("no mismatches detected");
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+}
@@ -0,0 +1,209 @@
+import com.aiassistant.utils.FrameBufferPool;
+import com.aiassistant.utils.FrameQueue;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Desktop test of frame lease refcounting and pool exhaustion/recycling,
+ * using synthetic RGBA planes in place of captured images.
+ *
+ * Run: javac -d out -sourcepath app/src/main/java TestFrameBufferPool.java
+ *      java -cp out TestFrameBufferPool
+ */
+public class TestFrameBufferPool {
+    private static final int WIDTH = 5;
+    private static final int HEIGHT = 3;
+
+    public static void main(String[] args) {
+        System.out.println("Testing FrameBufferPool...");
+
+        testPlaneCopy(4, WIDTH * 4 + 12);
+        testPlaneCopy(4, WIDTH * 4 + 6);
+        testPlaneCopy(8, WIDTH * 8 + 4);
+        testRefCounting();
+        testExhaustionAndRecycling();
+        testQueueDropsOldest();
+        testCopyingConsumerKeepsCapturePoolFree();
+
+        System.out.println("FrameBufferPool test completed.");
+    }
+
+    /**
+     * RGBA plane with row padding and the given pixel stride
+     */
+    private static ByteBuffer syntheticPlane(int pixelStride, int rowStride) {
+        ByteBuffer plane = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int p = y * rowStride + x * pixelStride;
+                plane.put(p, (byte) (x * 40));
+                plane.put(p + 1, (byte) (y * 80));
+                plane.put(p + 2, (byte) (x + y));
+                plane.put(p + 3, (byte) 0xFF);
+            }
+        }
+        return plane;
+    }
+
+    private static int expectedPixel(int x, int y) {
+        return 0xFF000000 | ((x * 40) & 0xFF) << 16 | ((y * 80) & 0xFF) << 8 | ((x + y) & 0xFF);
+    }
+
+    private static void testPlaneCopy(int pixelStride, int rowStride) {
+        FrameBufferPool pool = new FrameBufferPool(1);
+        ByteBuffer plane = syntheticPlane(pixelStride, rowStride);
+        FrameBufferPool.Frame frame = pool.acquire(WIDTH, HEIGHT);
+        frame.copyFromRgbaPlane(plane, rowStride, pixelStride);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                check(frame.getPixel(x, y) == expectedPixel(x, y),
+                        "pixel (" + x + "," + y + ") with pixelStride " + pixelStride
+                        + ", rowStride " + rowStride);
+            }
+        }
+        check(plane.position() == 0, "plane position untouched");
+        frame.release();
+        System.out.println("Plane copy (pixelStride " + pixelStride + ", rowStride " + rowStride + "): OK");
+    }
+
+    private static void testRefCounting() {
+        FrameBufferPool pool = new FrameBufferPool(2);
+        FrameBufferPool.Frame frame = pool.acquire(WIDTH, HEIGHT);
+        check(frame.getRefCount() == 1, "new lease has one reference");
+        check(pool.getFreeCount() == 1, "acquired frame leaves the pool");
+
+        frame.retain();
+        frame.retain();
+        check(frame.getRefCount() == 3, "retain adds references");
+
+        frame.release();
+        frame.release();
+        check(pool.getFreeCount() == 1, "frame stays leased while references remain");
+
+        frame.release();
+        check(frame.getRefCount() == 0, "last release drops to zero");
+        check(pool.getFreeCount() == 2, "last release returns the frame");
+
+        expectIllegalState(frame::release, "release after the last release");
+        expectIllegalState(frame::retain, "retain after the last release");
+        check(pool.getFreeCount() == 2, "failed release does not recycle twice");
+
+        FrameBufferPool.Frame unpooled = FrameBufferPool.allocate(WIDTH, HEIGHT);
+        unpooled.release();
+        check(pool.getFreeCount() == 2, "unpooled frame never enters a pool");
+        System.out.println("Reference counting: OK");
+    }
+
+    private static void testExhaustionAndRecycling() {
+        FrameBufferPool pool = new FrameBufferPool(3);
+        FrameBufferPool.Frame[] frames = new FrameBufferPool.Frame[3];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = pool.acquire(WIDTH, HEIGHT);
+            check(frames[i] != null, "acquire " + i + " within capacity");
+        }
+
+        check(pool.acquire(WIDTH, HEIGHT) == null, "acquire fails when every frame is leased");
+        check(pool.getExhaustedCount() == 1, "exhaustion is counted");
+
+        frames[1].release();
+        FrameBufferPool.Frame reused = pool.acquire(WIDTH * 2, HEIGHT * 2);
+        check(reused == frames[1], "released buffer is handed out again");
+        check(reused.getRefCount() == 1, "recycled frame starts with one lease");
+        check(reused.getWidth() == WIDTH * 2 && reused.getPixels().length >= WIDTH * HEIGHT * 4,
+                "recycled frame is resized");
+
+        reused.release();
+        frames[0].release();
+        frames[2].release();
+        check(pool.getFreeCount() == 3, "every frame returned");
+        check(pool.getAcquiredCount() == 4, "successful acquires are counted");
+        System.out.println("Exhaustion and recycling: OK");
+    }
+
+    private static void testQueueDropsOldest() {
+        FrameBufferPool pool = new FrameBufferPool(4);
+        FrameQueue queue = new FrameQueue(2);
+        FrameBufferPool.Frame first = pool.acquire(WIDTH, HEIGHT);
+        queue.offer(first);
+        queue.offer(pool.acquire(WIDTH, HEIGHT));
+        queue.offer(pool.acquire(WIDTH, HEIGHT));
+
+        check(queue.getDroppedCount() == 1, "full queue drops one frame");
+        check(first.getRefCount() == 0, "dropped frame is released");
+        check(pool.getFreeCount() == 2, "dropped frame returns to the pool");
+
+        FrameBufferPool.Frame taken = queue.poll();
+        check(taken != null && taken.getRefCount() == 1, "taken frame keeps the queue's lease");
+        taken.release();
+        queue.clear();
+        check(pool.getFreeCount() == 4, "clear releases queued frames");
+        System.out.println("Queue drops oldest: OK");
+    }
+
+    /**
+     * A consumer keeping a long history must copy frames out; retaining them
+     * would starve a capture pool smaller than the history
+     */
+    private static void testCopyingConsumerKeepsCapturePoolFree() {
+        int history = 10;
+        FrameBufferPool capturePool = new FrameBufferPool(6);
+        FrameBufferPool consumerPool = new FrameBufferPool(history + 1);
+        FrameBufferPool.Frame[] kept = new FrameBufferPool.Frame[history];
+        ByteBuffer plane = syntheticPlane(4, WIDTH * 4);
+
+        for (int i = 0; i < history * 3; i++) {
+            FrameBufferPool.Frame captured = capturePool.acquire(WIDTH, HEIGHT);
+            check(captured != null, "capture frame " + i + " available");
+            captured.copyFromRgbaPlane(plane, WIDTH * 4, 4);
+
+            int slot = i % history;
+            if (kept[slot] != null) {
+                kept[slot].release();
+            }
+            FrameBufferPool.Frame copy = consumerPool.acquire(WIDTH, HEIGHT);
+            check(copy != null, "consumer buffer " + i + " available");
+            copy.copyFromArgb(captured.getPixels(), 0, WIDTH);
+            kept[slot] = copy;
+
+            captured.release();
+        }
+
+        check(capturePool.getExhaustedCount() == 0, "capture never ran out of buffers");
+        check(kept[0].getPixel(WIDTH - 1, HEIGHT - 1) == expectedPixel(WIDTH - 1, HEIGHT - 1),
+                "copied frame holds the captured pixels");
+
+        // Retaining instead of copying exhausts the capture pool
+        FrameBufferPool.Frame[] retained = new FrameBufferPool.Frame[history];
+        int captured = 0;
+        for (int i = 0; i < history; i++) {
+            FrameBufferPool.Frame frame = capturePool.acquire(WIDTH, HEIGHT);
+            if (frame == null) {
+                break;
+            }
+            retained[i] = frame.retain();
+            frame.release();
+            captured++;
+        }
+        check(captured == capturePool.getCapacity(), "retaining stops capture at pool capacity");
+        for (int i = 0; i < captured; i++) {
+            retained[i].release();
+        }
+        System.out.println("Copying consumer keeps capture pool free: OK");
+    }
+
+    private static void expectIllegalState(Runnable action, String what) {
+        try {
+            action.run();
+        } catch (IllegalStateException expected) {
+            return;
+        }
+        throw new AssertionError("Expected IllegalStateException: " + what);
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError("Failed: " + what);
+        }
+    }
+}
@@ -64,6 +64,15 @@ public class AIAssistantCore {
     // Singleton instance
     private static AIAssistantCore instance;
     
+    // Frame analysis budget (one frame at 30 fps) and per-analyzer deadline within it
+    private static final long FRAME_DEADLINE_MS = 33;
+    private static final long ANALYZER_DEADLINE_MS = 25;
+    
+    // Game analysis features run per frame, in registration order
+    private static final String[] FRAME_ANALYZERS = {
+            "combat", "movement", "environment", "tactical", "resource", "behavior"
+    };
+    
     private final Context context;
     private final AIFeatureInitializer featureInitializer;
     private final AIStateManager stateManager;
@@ -130,6 +139,9 @@ public class AIAssistantCore {
     // Service executor
     private final ScheduledExecutorService scheduler;
     
+    // Runs the per-frame analyzers concurrently
+    private final FrameAnalysisScheduler<byte[]> frameAnalysisScheduler;
+    
     // Listeners
     private final List<AIAssistantListener> listeners;
     
@@ -158,10 +170,15 @@ public class AIAssistantCore {
         
         this.featureStates = new HashMap<>();
         this.scheduler = Executors.newScheduledThreadPool(2);
+        this.frameAnalysisScheduler = new FrameAnalysisScheduler<>(
+                Math.min(FRAME_ANALYZERS.length, Runtime.getRuntime().availableProcessors()));
         this.listeners = new ArrayList<>();
         
         // Set default feature settings
         initializeDefaultSettings();
+        
+        // Register the per-frame analyzers
+        registerFrameAnalyzers();
     }
     
     /**
@@ -303,8 +320,9 @@ public class AIAssistantCore {
         Log.d(TAG, "Shutting down AI Assistant Core");
         
         try {
-            // Stop system updates
+            // Stop system updates and frame analysis
             scheduler.shutdown();
+            frameAnalysisScheduler.shutdown();
             
             // Shutdown features
             shutdownAllFeatures();
@@ -426,32 +444,23 @@ public class AIAssistantCore {
         securityContext.setCurrentFeatureActive("game_analysis");
         
         try {
-            GameAnalysisResults results = new GameAnalysisResults();
-            
-            // Process with each enabled feature
-            if (isFeatureEnabled("combat") && combatAnalysisManager != null) {
-                results.setCombatAnalysis(combatAnalysisManager.analyzeFrame(gameData));
-            }
-            
-            if (isFeatureEnabled("movement") && movementAnalysisManager != null) {
-                results.setMovementAnalysis(movementAnalysisManager.analyzeMovement(gameData));
-            }
-            
-            if (isFeatureEnabled("environment") && environmentalAnalysisManager != null) {
-                results.setEnvironmentalAnalysis(environmentalAnalysisManager.analyzeEnvironment(gameData));
-            }
-            
-            if (isFeatureEnabled("tactical") && tacticalOverlayManager != null) {
-                results.setTacticalOverlay(tacticalOverlayManager.generateOverlay(gameData));
-            }
-            
-            if (isFeatureEnabled("resource") && resourceManagementManager != null) {
-                results.setResourceManagement(resourceManagementManager.analyzeResources(gameData));
+            // Run each enabled feature concurrently on the same frame data
+            List<String> active = new ArrayList<>();
+            for (String analyzer : FRAME_ANALYZERS) {
+                if (isFeatureEnabled(analyzer) && hasFrameAnalyzer(analyzer)) {
+                    active.add(analyzer);
+                }
             }
+            Map<String, Object> analyses = frameAnalysisScheduler.analyzeFrame(
+                    gameData, active, FRAME_DEADLINE_MS);
             
-            if (isFeatureEnabled("behavior") && behaviorDetectionManager != null) {
-                results.setBehaviorDetection(behaviorDetectionManager.detectBehavior(gameData));
-            }
+            GameAnalysisResults results = new GameAnalysisResults();
+            results.setCombatAnalysis(analyses.get("combat"));
+            results.setMovementAnalysis(analyses.get("movement"));
+            results.setEnvironmentalAnalysis(analyses.get("environment"));
+            results.setTacticalOverlay(analyses.get("tactical"));
+            results.setResourceManagement(analyses.get("resource"));
+            results.setBehaviorDetection(analyses.get("behavior"));
             
             // Update feature usage
             updateFeatureState("game_analysis", true);
@@ -462,6 +471,67 @@ public class AIAssistantCore {
         }
     }
     
+    /**
+     * Register the game analysis managers as independent frame analyzers.
+     * Managers are created later, in initializeFeatures, so each analyzer
+     * reads its manager when it runs
+     */
+    private void registerFrameAnalyzers() {
+        frameAnalysisScheduler.register("combat", ANALYZER_DEADLINE_MS,
+                (frame, upstream) -> combatAnalysisManager.analyzeFrame(frame));
+        frameAnalysisScheduler.register("movement", ANALYZER_DEADLINE_MS,
+                (frame, upstream) -> movementAnalysisManager.analyzeMovement(frame));
+        frameAnalysisScheduler.register("environment", ANALYZER_DEADLINE_MS,
+                (frame, upstream) -> environmentalAnalysisManager.analyzeEnvironment(frame));
+        frameAnalysisScheduler.register("tactical", ANALYZER_DEADLINE_MS,
+                (frame, upstream) -> tacticalOverlayManager.generateOverlay(frame));
+        frameAnalysisScheduler.register("resource", ANALYZER_DEADLINE_MS,
+                (frame, upstream) -> resourceManagementManager.analyzeResources(frame));
+        frameAnalysisScheduler.register("behavior", ANALYZER_DEADLINE_MS,
+                (frame, upstream) -> behaviorDetectionManager.detectBehavior(frame));
+    }
+    
+    /**
+     * Check whether the manager behind a frame analyzer exists
+     * @param analyzer Analyzer (feature) name
+     * @return true if the manager has been created
+     */
+    private boolean hasFrameAnalyzer(String analyzer) {
+        switch (analyzer) {
+            case "combat":
+                return combatAnalysisManager != null;
+            case "movement":
+                return movementAnalysisManager != null;
+            case "environment":
+                return environmentalAnalysisManager != null;
+            case "tactical":
+                return tacticalOverlayManager != null;
+            case "resource":
+                return resourceManagementManager != null;
+            case "behavior":
+                return behaviorDetectionManager != null;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Set the deadline of one frame analyzer; past it the analyzer's previous result is used
+     * @param analyzer Analyzer (feature) name
+     * @param deadlineMs Deadline from frame start in milliseconds
+     */
+    public void setFrameAnalyzerDeadline(String analyzer, long deadlineMs) {
+        frameAnalysisScheduler.setDeadline(analyzer, deadlineMs);
+    }
+    
+    /**
+     * Get frame analysis statistics, including per-analyzer timing
+     * @return Frame analysis statistics
+     */
+    public Map<String, Object> getFrameAnalysisStats() {
+        return frameAnalysisScheduler.getStats();
+    }
+    
     /**
      * Set feature enabled
      * @param featureName Feature name
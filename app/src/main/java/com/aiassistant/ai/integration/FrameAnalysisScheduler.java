@@ -0,0 +1,417 @@
+package com.aiassistant.ai.integration;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs per-frame analyzers as a dependency graph on a bounded thread pool
+ *
+ * Analyzers are registered once, each after the analyzers it depends on.
+ * For every frame, each active analyzer is submitted as soon as its
+ * dependencies are resolved, so independent analyzers run concurrently and
+ * all read the same frame object.
+ *
+ * An analyzer is resolved when it completes, fails, passes its deadline or
+ * is still busy with an earlier frame; in the last three cases its previous
+ * result stands in for this frame, so one slow analyzer stalls neither the
+ * frame nor its dependents. A result that arrives late becomes the previous
+ * result for the next frame. Deadlines are measured from the start of the
+ * frame, and analyzeFrame returns once every active analyzer is resolved or
+ * the frame deadline passes.
+ *
+ * @param <F> Frame type shared by the analyzers
+ */
+public class FrameAnalysisScheduler<F> {
+    private static final String TAG = "FrameAnalysisScheduler";
+
+    // Bound on queued analyzer runs; each analyzer has at most one outstanding
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Node<F>> nodes = new LinkedHashMap<>();
+
+    // Statistics
+    private long frames;
+    private long frameNanos;
+    private long frameDeadlineMisses;
+
+    /**
+     * Analysis step run once per frame
+     * @param <F> Frame type
+     */
+    public interface Analyzer<F> {
+        /**
+         * Analyze a frame
+         * @param frame Frame shared with the other analyzers; must not be modified
+         * @param upstream Results of this analyzer's dependencies by name
+         * @return Analysis result
+         * @throws Exception If analysis fails; the previous result is used instead
+         */
+        Object analyze(F frame, Map<String, Object> upstream) throws Exception;
+    }
+
+    /**
+     * Constructor
+     * @param threads Maximum number of analyzers running at once
+     */
+    public FrameAnalysisScheduler(int threads) {
+        int size = Math.max(1, threads);
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "frame-analysis-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), factory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Register an analyzer
+     * @param name Analyzer name, unique within this scheduler
+     * @param deadlineMs Time from frame start after which the previous result is used
+     * @param analyzer Analysis step
+     * @param dependencies Names of already registered analyzers whose results this one reads
+     */
+    public synchronized void register(String name, long deadlineMs, Analyzer<F> analyzer, String... dependencies) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Analyzer already registered: " + name);
+        }
+        // Dependencies must already exist, so the graph stays acyclic and
+        // registration order is a topological order
+        List<Node<F>> upstream = new ArrayList<>();
+        for (String dependency : dependencies) {
+            Node<F> node = nodes.get(dependency);
+            if (node == null) {
+                throw new IllegalArgumentException("Unknown dependency " + dependency + " of " + name);
+            }
+            upstream.add(node);
+        }
+
+        Node<F> node = new Node<>(name, analyzer, upstream);
+        node.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        for (Node<F> dependency : upstream) {
+            dependency.dependents.add(node);
+        }
+        nodes.put(name, node);
+    }
+
+    /**
+     * Change an analyzer's deadline
+     * @param name Analyzer name
+     * @param deadlineMs Time from frame start after which the previous result is used
+     */
+    public synchronized void setDeadline(String name, long deadlineMs) {
+        Node<F> node = nodes.get(name);
+        if (node != null) {
+            node.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        }
+    }
+
+    /**
+     * Run the active analyzers on a frame
+     * @param frame Frame to analyze
+     * @param active Names of the analyzers to run; inactive dependencies
+     *               contribute their previous result
+     * @param frameDeadlineMs Time after which the frame is assembled regardless
+     * @return Result per active analyzer, the previous result where it did
+     *         not finish in time (null if it never has)
+     */
+    public Map<String, Object> analyzeFrame(F frame, Collection<String> active, long frameDeadlineMs) {
+        long start = System.nanoTime();
+        List<Node<F>> order;
+        synchronized (this) {
+            order = new ArrayList<>(nodes.values());
+        }
+
+        FrameRun run = new FrameRun(frame, start);
+        Map<String, Object> results = new HashMap<>();
+        boolean missed = false;
+        run.lock.lock();
+        try {
+            for (Node<F> node : order) {
+                if (active.contains(node.name)) {
+                    run.active.add(node);
+                }
+            }
+            for (Node<F> node : run.active) {
+                int pending = 0;
+                for (Node<F> dependency : node.dependencies) {
+                    if (run.active.contains(dependency)) {
+                        pending++;
+                    }
+                }
+                run.pending.put(node, pending);
+            }
+            for (Node<F> node : run.active) {
+                if (run.pending.get(node) == 0) {
+                    run.launch(node);
+                }
+            }
+            run.awaitResolved(start + TimeUnit.MILLISECONDS.toNanos(frameDeadlineMs));
+
+            for (Node<F> node : run.active) {
+                if (run.values.containsKey(node)) {
+                    results.put(node.name, run.values.get(node));
+                } else {
+                    // Still running at the frame deadline
+                    results.put(node.name, node.previous);
+                    node.recordLate();
+                    missed = true;
+                }
+            }
+            run.closed = true;
+        } finally {
+            run.lock.unlock();
+        }
+
+        synchronized (this) {
+            frames++;
+            frameNanos += System.nanoTime() - start;
+            if (missed) {
+                frameDeadlineMisses++;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Get scheduling statistics, including per-analyzer timing
+     * @return Map of statistic name to value; "analyzers" maps each analyzer
+     *         name to its own statistics
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("frames", frames);
+        stats.put("avgFrameMillis", frames > 0 ? frameNanos / 1e6 / frames : 0.0);
+        stats.put("frameDeadlineMisses", frameDeadlineMisses);
+        stats.put("threads", executor.getMaximumPoolSize());
+
+        Map<String, Object> analyzers = new HashMap<>();
+        for (Node<F> node : nodes.values()) {
+            analyzers.put(node.name, node.getStats());
+        }
+        stats.put("analyzers", analyzers);
+        return stats;
+    }
+
+    /**
+     * Stop the worker threads; running analyzers finish, queued ones are dropped
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Registered analyzer with its last result and timing
+     */
+    private static class Node<F> {
+        final String name;
+        final Analyzer<F> analyzer;
+        final List<Node<F>> dependencies;
+        final List<Node<F>> dependents = new ArrayList<>();
+        volatile long deadlineNanos;
+
+        // Last successful result, and whether a run is outstanding
+        volatile Object previous;
+        volatile boolean inFlight;
+
+        // Statistics
+        private long runs;
+        private long runNanos;
+        private long maxRunNanos;
+        private long late;
+        private long skipped;
+        private long failures;
+
+        Node(String name, Analyzer<F> analyzer, List<Node<F>> dependencies) {
+            this.name = name;
+            this.analyzer = analyzer;
+            this.dependencies = dependencies;
+        }
+
+        synchronized void recordRun(long nanos, boolean succeeded) {
+            runs++;
+            runNanos += nanos;
+            maxRunNanos = Math.max(maxRunNanos, nanos);
+            if (!succeeded) {
+                failures++;
+            }
+        }
+
+        synchronized void recordLate() {
+            late++;
+        }
+
+        synchronized void recordSkipped() {
+            skipped++;
+        }
+
+        synchronized Map<String, Object> getStats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("runs", runs);
+            stats.put("avgRunMillis", runs > 0 ? runNanos / 1e6 / runs : 0.0);
+            stats.put("maxRunMillis", maxRunNanos / 1e6);
+            stats.put("late", late);
+            stats.put("skipped", skipped);
+            stats.put("failures", failures);
+            return stats;
+        }
+    }
+
+    /**
+     * State of one frame's pass through the graph
+     */
+    private class FrameRun {
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition changed = lock.newCondition();
+        final F frame;
+        final long start;
+        final Set<Node<F>> active = new LinkedHashSet<>();
+        final Map<Node<F>, Integer> pending = new HashMap<>();
+        final Set<Node<F>> launched = new HashSet<>();
+        final Map<Node<F>, Object> values = new HashMap<>();
+        boolean closed;
+
+        FrameRun(F frame, long start) {
+            this.frame = frame;
+            this.start = start;
+        }
+
+        /**
+         * Submit an analyzer whose dependencies are resolved; called with the lock held
+         */
+        void launch(Node<F> node) {
+            if (!launched.add(node)) {
+                return;
+            }
+            if (node.inFlight) {
+                // Still working on an earlier frame; don't queue behind it
+                node.recordSkipped();
+                resolve(node, node.previous);
+                return;
+            }
+
+            Map<String, Object> upstream = new HashMap<>();
+            for (Node<F> dependency : node.dependencies) {
+                upstream.put(dependency.name,
+                        values.containsKey(dependency) ? values.get(dependency) : dependency.previous);
+            }
+            node.inFlight = true;
+            try {
+                executor.execute(() -> run(node, upstream));
+            } catch (RejectedExecutionException e) {
+                Log.e(TAG, "Analyzer " + node.name + " rejected", e);
+                node.inFlight = false;
+                node.recordSkipped();
+                resolve(node, node.previous);
+            }
+        }
+
+        /**
+         * Run an analyzer on a worker thread and publish its result
+         */
+        void run(Node<F> node, Map<String, Object> upstream) {
+            long begin = System.nanoTime();
+            Object result = null;
+            boolean succeeded = false;
+            try {
+                result = node.analyzer.analyze(frame, upstream);
+                succeeded = true;
+            } catch (Exception e) {
+                Log.e(TAG, "Analyzer " + node.name + " failed", e);
+            }
+            node.recordRun(System.nanoTime() - begin, succeeded);
+            if (succeeded) {
+                node.previous = result;
+            }
+            node.inFlight = false;
+
+            lock.lock();
+            try {
+                if (!closed) {
+                    resolve(node, succeeded ? result : node.previous);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Fix an analyzer's value for this frame and release its dependents;
+         * called with the lock held
+         */
+        void resolve(Node<F> node, Object value) {
+            if (values.containsKey(node)) {
+                return;
+            }
+            values.put(node, value);
+            for (Node<F> dependent : node.dependents) {
+                if (!active.contains(dependent)) {
+                    continue;
+                }
+                int remaining = pending.get(dependent) - 1;
+                pending.put(dependent, remaining);
+                if (remaining == 0) {
+                    launch(dependent);
+                }
+            }
+            changed.signalAll();
+        }
+
+        /**
+         * Wait until every active analyzer is resolved, resolving those past
+         * their deadline with their previous result; called with the lock held
+         */
+        void awaitResolved(long frameDeadline) {
+            while (values.size() < active.size()) {
+                long now = System.nanoTime();
+                if (now - frameDeadline >= 0) {
+                    return;
+                }
+
+                long next = frameDeadline;
+                for (Node<F> node : active) {
+                    if (values.containsKey(node)) {
+                        continue;
+                    }
+                    long deadline = start + node.deadlineNanos;
+                    if (now - deadline >= 0) {
+                        node.recordLate();
+                        resolve(node, node.previous);
+                    } else if (deadline - next < 0) {
+                        next = deadline;
+                    }
+                }
+                if (values.size() >= active.size()) {
+                    return;
+                }
+
+                try {
+                    changed.awaitNanos(next - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
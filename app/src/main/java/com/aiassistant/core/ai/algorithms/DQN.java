@@ -5,8 +5,17 @@ import android.util.Log;
 
 import com.aiassistant.data.models.AIAction;
 import com.aiassistant.data.models.AIActionReward;
+import com.aiassistant.core.ai.neural.DenseNetwork;
+import com.aiassistant.core.ai.neural.QNetworkTrainer;
+import com.aiassistant.core.ai.storage.ModelCheckpoint;
+import com.aiassistant.core.ai.storage.ModelStorage;
+import com.aiassistant.core.ai.training.VectorizedRolloutRunner;
 import com.aiassistant.data.models.GameState;
+import com.aiassistant.learning.models.ExperienceReplay;
+import com.aiassistant.learning.models.PrioritizedExperienceReplay;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -16,6 +25,8 @@ import java.util.Random;
  */
 public class DQN extends ReinforcementLearningAlgorithm {
     private static final String TAG = "DQN";
+    private static final int HIDDEN_SIZE = 64;
+    private static final String CHECKPOINT_PARAMETERS = "online";
     
     private int stateSize;
     private int actionSize;
@@ -26,30 +37,12 @@ public class DQN extends ReinforcementLearningAlgorithm {
     private int targetNetworkUpdateFrequency;
     private int trainingSteps;
     private int replayBufferSize;
+    private boolean usePrioritizedReplay;
     
-    // Placeholder for neural network components
-    private Object qNetwork;
-    private Object targetNetwork;
-    private List<Experience> replayBuffer;
-    
-    /**
-     * Experience class for replay buffer
-     */
-    private static class Experience {
-        float[] state;
-        int action;
-        float reward;
-        float[] nextState;
-        boolean done;
-        
-        public Experience(float[] state, int action, float reward, float[] nextState, boolean done) {
-            this.state = state;
-            this.action = action;
-            this.reward = reward;
-            this.nextState = nextState;
-            this.done = done;
-        }
-    }
+    // Online/target Q-networks and replay
+    private QNetworkTrainer qNetwork;
+    private ExperienceReplay replayBuffer;
+    private float[] qValues;
     
     /**
      * Constructor
@@ -63,7 +56,8 @@ public class DQN extends ReinforcementLearningAlgorithm {
         this.targetNetworkUpdateFrequency = 10;
         this.trainingSteps = 0;
         this.replayBufferSize = 10000;
-        this.replayBuffer = new ArrayList<>();
+        this.usePrioritizedReplay = false;
+        this.replayBuffer = createReplayBuffer();
     }
     
     /**
@@ -75,10 +69,44 @@ public class DQN extends ReinforcementLearningAlgorithm {
     public void initialize(int stateSize, int actionSize) {
         this.stateSize = stateSize;
         this.actionSize = actionSize;
+        this.replayBuffer = createReplayBuffer();
+        this.qNetwork = new QNetworkTrainer(stateSize, actionSize, HIDDEN_SIZE, batchSize, learningRate);
+        this.qNetwork.syncTargetNetwork();
+        this.qValues = new float[actionSize];
         
         Log.d(TAG, "Initializing DQN with state size: " + stateSize + ", action size: " + actionSize);
-        
-        // In a full implementation, this would initialize the neural networks
+    }
+    
+    /**
+     * Enable or disable prioritized experience replay.
+     * Switching modes discards the experiences collected so far.
+     * 
+     * @param enabled True to sample by TD-error priority, false for uniform sampling
+     */
+    public void setUsePrioritizedReplay(boolean enabled) {
+        if (enabled != usePrioritizedReplay) {
+            usePrioritizedReplay = enabled;
+            replayBuffer = createReplayBuffer();
+        }
+    }
+    
+    /**
+     * Check whether prioritized experience replay is enabled
+     * 
+     * @return True if sampling is prioritized
+     */
+    public boolean isUsingPrioritizedReplay() {
+        return usePrioritizedReplay;
+    }
+    
+    /**
+     * Create the replay buffer for the configured sampling mode
+     */
+    private ExperienceReplay createReplayBuffer() {
+        if (usePrioritizedReplay) {
+            return new PrioritizedExperienceReplay(replayBufferSize, stateSize);
+        }
+        return new ExperienceReplay(replayBufferSize, stateSize);
     }
     
     @Override
@@ -158,6 +186,10 @@ public class DQN extends ReinforcementLearningAlgorithm {
             return;
         }
         
+        if (state.getFeatures() != null) {
+            ensureInitialized(state.getFeatures().length);
+        }
+        
         // Get action index for the taken action
         int actionIndex = getActionIndex(action, state);
         
@@ -190,22 +222,8 @@ public class DQN extends ReinforcementLearningAlgorithm {
             return;
         }
         
-        // Create the experience
-        Experience exp = new Experience(
-            state,
-            action,
-            reward,
-            nextState != null ? nextState : new float[stateSize],
-            done
-        );
-        
-        // Add to buffer
-        replayBuffer.add(exp);
-        
-        // Limit buffer size
-        if (replayBuffer.size() > replayBufferSize) {
-            replayBuffer.remove(0);
-        }
+        // Ring buffer overwrites the oldest experience once full
+        replayBuffer.add(state, action, reward, nextState, done);
     }
     
     /**
@@ -213,38 +231,43 @@ public class DQN extends ReinforcementLearningAlgorithm {
      */
     private void trainOnBatch() {
         // Sample batch of experiences
-        List<Experience> batch = sampleBatch();
+        ExperienceReplay.Batch batch = sampleBatch();
+        
+        // Gradient step on the online network
+        float loss = qNetwork.train(batch, discountFactor);
         
-        // In a full implementation, this would update the neural network
-        // For now, just log training progress
-        Log.d(TAG, "Training on batch of " + batch.size() + " experiences");
+        // Feed TD errors back so prioritized replay can re-rank the sampled transitions
+        replayBuffer.updatePriorities(batch.indices, qNetwork.getTdErrors(), batch.size);
+        
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Trained on batch of " + batch.size + " experiences, loss: " + loss);
+        }
     }
     
     /**
      * Sample a random batch from the replay buffer
      */
-    private List<Experience> sampleBatch() {
-        List<Experience> batch = new ArrayList<>();
-        
-        // Simple random sampling with replacement
-        for (int i = 0; i < Math.min(batchSize, replayBuffer.size()); i++) {
-            int index = random.nextInt(replayBuffer.size());
-            batch.add(replayBuffer.get(index));
+    private ExperienceReplay.Batch sampleBatch() {
+        // Simple random sampling with replacement into a reused batch
+        return replayBuffer.sample(batchSize);
+    }
+    
+    /**
+     * Lazily size the networks from the first state seen if initialize() was not called
+     */
+    private void ensureInitialized(int featureSize) {
+        if (qNetwork == null) {
+            initialize(featureSize, actionSize > 0 ? actionSize : getActionSpaceSize());
         }
-        
-        return batch;
     }
     
     /**
-     * Forward pass through Q-network
+     * Forward pass through Q-network.
+     * The returned array is reused by the next call.
      */
     private float[] forward(float[] state) {
-        // In a full implementation, this would run the neural network
-        // For now, just return random Q-values
-        float[] qValues = new float[actionSize];
-        for (int i = 0; i < actionSize; i++) {
-            qValues[i] = random.nextFloat();
-        }
+        ensureInitialized(state.length);
+        qNetwork.predict(state, qValues);
         return qValues;
     }
     
@@ -252,7 +275,7 @@ public class DQN extends ReinforcementLearningAlgorithm {
      * Update the target network with the current Q-network weights
      */
     private void updateTargetNetwork() {
-        // In a full implementation, this would copy Q-network weights to target network
+        qNetwork.syncTargetNetwork();
         Log.d(TAG, "Updating target network");
     }
     
@@ -273,6 +296,19 @@ public class DQN extends ReinforcementLearningAlgorithm {
         return maxIndex;
     }
     
+    /**
+     * Find index of maximum value in one row of a flat array
+     */
+    private int argmax(float[] array, int offset, int length) {
+        int maxIndex = 0;
+        for (int i = 1; i < length; i++) {
+            if (array[offset + i] > array[offset + maxIndex]) {
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
+    }
+    
     /**
      * Sort array indices by values
      */
@@ -323,24 +359,110 @@ public class DQN extends ReinforcementLearningAlgorithm {
     
     @Override
     public boolean saveModel(String path) {
-        // In a full implementation, this would save the neural network
-        Log.d(TAG, "Saving model to " + path);
-        return true;
+        if (qNetwork == null) {
+            Log.w(TAG, "No network to save");
+            return false;
+        }
+        
+        DenseNetwork online = qNetwork.getOnlineNetwork();
+        float[] parameters = new float[online.getParameterCount()];
+        online.getParameters(parameters);
+        ModelCheckpoint checkpoint = new ModelCheckpoint(ModelStorage.ALGORITHM_DQN, stateSize, actionSize);
+        checkpoint.putArray(CHECKPOINT_PARAMETERS, parameters);
+        
+        try {
+            checkpoint.write(new File(path));
+            Log.d(TAG, "Saved model to " + path);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving model to " + path + ": " + e.getMessage(), e);
+            return false;
+        }
     }
     
     @Override
     public boolean loadModel(String path) {
-        // In a full implementation, this would load the neural network
-        Log.d(TAG, "Loading model from " + path);
-        return true;
+        try {
+            ModelCheckpoint checkpoint = ModelCheckpoint.read(new File(path));
+            if (checkpoint.getAlgorithmType() != ModelStorage.ALGORITHM_DQN) {
+                Log.e(TAG, "Not a DQN checkpoint: " + path);
+                return false;
+            }
+            if (qNetwork == null || stateSize != checkpoint.getStateSize()
+                    || actionSize != checkpoint.getActionSize()) {
+                initialize(checkpoint.getStateSize(), checkpoint.getActionSize());
+            }
+            
+            DenseNetwork online = qNetwork.getOnlineNetwork();
+            float[] parameters = checkpoint.getArray(CHECKPOINT_PARAMETERS);
+            if (parameters == null || parameters.length != online.getParameterCount()) {
+                Log.e(TAG, "Checkpoint network shape does not match: " + path);
+                return false;
+            }
+            online.setParameters(parameters);
+            qNetwork.syncTargetNetwork();
+            
+            Log.d(TAG, "Loaded model from " + path);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading model from " + path + ": " + e.getMessage(), e);
+            return false;
+        }
     }
     
     @Override
     public float train(int numEpisodes, int maxStepsPerEpisode) {
-        // This would train the model using episodes and simulation
-        // For now, just return a dummy average reward
-        Log.d(TAG, "Training for " + numEpisodes + " episodes with " + maxStepsPerEpisode + " steps per episode");
-        return 0.5f;
+        final VectorizedRolloutRunner runner = createRolloutRunner();
+        if (runner == null) {
+            Log.w(TAG, "No training environment set, skipping training");
+            return 0.0f;
+        }
+        
+        Log.d(TAG, "Training for " + numEpisodes + " episodes with " + maxStepsPerEpisode
+                + " steps per episode on " + runner.getNumEnvironments() + " environments");
+        try {
+            if (qNetwork == null || stateSize != runner.getStateSize() || actionSize != runner.getActionSize()) {
+                initialize(runner.getStateSize(), runner.getActionSize());
+            }
+            final float[] batchQValues = new float[runner.getNumEnvironments() * actionSize];
+            
+            VectorizedRolloutRunner.Policy policy = new VectorizedRolloutRunner.Policy() {
+                @Override
+                public void selectActions(float[] states, int count, int[] actions) {
+                    qNetwork.predictBatch(states, count, batchQValues);
+                    for (int i = 0; i < count; i++) {
+                        if (random.nextFloat() < epsilon) {
+                            actions[i] = random.nextInt(actionSize);
+                        } else {
+                            actions[i] = argmax(batchQValues, i * actionSize, actionSize);
+                        }
+                    }
+                    // Decay once per lockstep so the schedule does not depend on the environment count
+                    if (epsilon > epsilonMin) {
+                        epsilon *= epsilonDecay;
+                    }
+                }
+            };
+            
+            VectorizedRolloutRunner.TransitionSink sink = new VectorizedRolloutRunner.TransitionSink() {
+                @Override
+                public void addTransitions(float[] states, int[] actions, float[] rewards, float[] nextStates,
+                                           boolean[] dones, int count) {
+                    replayBuffer.addBatch(states, actions, rewards, nextStates, dones, count, stateSize);
+                    if (replayBuffer.size() >= batchSize) {
+                        trainOnBatch();
+                        trainingSteps++;
+                        if (trainingSteps % targetNetworkUpdateFrequency == 0) {
+                            updateTargetNetwork();
+                        }
+                    }
+                }
+            };
+            
+            return runner.runEpisodes(policy, sink, numEpisodes, maxStepsPerEpisode);
+        } finally {
+            runner.shutdown();
+        }
     }
     
     @Override
@@ -350,7 +472,10 @@ public class DQN extends ReinforcementLearningAlgorithm {
         trainingSteps = 0;
         replayBuffer.clear();
         
-        // In a full implementation, this would reset the neural networks
+        if (stateSize > 0 && actionSize > 0) {
+            qNetwork = new QNetworkTrainer(stateSize, actionSize, HIDDEN_SIZE, batchSize, learningRate);
+            qNetwork.syncTargetNetwork();
+        }
         Log.d(TAG, "Resetting DQN model");
     }
 }
@@ -2,8 +2,10 @@ package com.aiassistant.core.ai.algorithms;
 
 import android.util.Log;
 
+import com.aiassistant.core.ai.neural.QNetworkTrainer;
 import com.aiassistant.data.models.AIAction;
 import com.aiassistant.data.models.GameState;
+import com.aiassistant.learning.models.ExperienceReplay;
 import com.aiassistant.utils.Constants;
 
 import java.util.Random;
@@ -13,14 +15,27 @@ import java.util.Random;
  */
 public class DQNAlgorithm {
     private static final String TAG = "DQNAlgorithm";
+    private static final int HIDDEN_SIZE = 64;
+    private static final int BATCH_SIZE = 32;
+    private static final int REPLAY_CAPACITY = 10000;
+    private static final int TARGET_UPDATE_FREQUENCY = 100;
+    private static final int DEFAULT_SCREEN_WIDTH = 1080;
+    private static final int DEFAULT_SCREEN_HEIGHT = 1920;
     
     private int stateSize;
     private int actionSize;
     private float learningRate;
     private float discountFactor;
     private float epsilon;
+    private float epsilonMin;
+    private float epsilonDecay;
     private Random random;
     
+    private QNetworkTrainer qNetwork;
+    private ExperienceReplay replayBuffer;
+    private float[] qValues;
+    private int trainingSteps;
+    
     /**
      * Constructor
      */
@@ -30,6 +45,8 @@ public class DQNAlgorithm {
         this.learningRate = Constants.LEARNING_RATE;
         this.discountFactor = Constants.DISCOUNT_FACTOR;
         this.epsilon = 1.0f;
+        this.epsilonMin = 0.01f;
+        this.epsilonDecay = 0.995f;
         this.random = new Random();
         
         Log.d(TAG, "DQNAlgorithm created with state size: " + stateSize + ", action size: " + actionSize);
@@ -47,6 +64,8 @@ public class DQNAlgorithm {
         this.learningRate = Constants.LEARNING_RATE;
         this.discountFactor = Constants.DISCOUNT_FACTOR;
         this.epsilon = 1.0f;
+        this.epsilonMin = 0.01f;
+        this.epsilonDecay = 0.995f;
         this.random = new Random();
         
         Log.d(TAG, "DQNAlgorithm created with state size: " + stateSize + ", action size: " + actionSize);
@@ -60,10 +79,11 @@ public class DQNAlgorithm {
     public boolean initialize() {
         Log.d(TAG, "Initializing DQNAlgorithm");
         
-        // In a full implementation, this would initialize:
-        // - Neural network model
-        // - Experience replay buffer
-        // - Target network
+        qNetwork = new QNetworkTrainer(stateSize, actionSize, HIDDEN_SIZE, BATCH_SIZE, learningRate);
+        qNetwork.syncTargetNetwork();
+        replayBuffer = new ExperienceReplay(REPLAY_CAPACITY, stateSize);
+        qValues = new float[actionSize];
+        trainingSteps = 0;
         
         return true;
     }
@@ -80,22 +100,34 @@ public class DQNAlgorithm {
             return createRandomAction();
         }
         
-        // In a full implementation, this would:
-        // - Run state through neural network
-        // - Get Q-values for each action
-        // - Select best action (possibly with epsilon-greedy)
+        if (qNetwork == null) {
+            initialize();
+        }
         
-        // For demonstration, return random action
+        // Epsilon-greedy over the Q-network's action values
         if (random.nextFloat() < epsilon) {
-            // Exploration: random action
             return createRandomAction();
-        } else {
-            // Exploitation: best action
-            // (In this stub, we're still returning random)
-            AIAction action = createRandomAction();
-            action.setConfidence(0.8f + random.nextFloat() * 0.2f);  // High confidence
-            return action;
         }
+        
+        qNetwork.predict(state.getFeatures(), qValues);
+        int bestIndex = 0;
+        for (int i = 1; i < actionSize; i++) {
+            if (qValues[i] > qValues[bestIndex]) {
+                bestIndex = i;
+            }
+        }
+        
+        int screenWidth = state.getScreenWidth() > 0 ? state.getScreenWidth() : DEFAULT_SCREEN_WIDTH;
+        int screenHeight = state.getScreenHeight() > 0 ? state.getScreenHeight() : DEFAULT_SCREEN_HEIGHT;
+        int gridSize = getGridSize();
+        int cellWidth = screenWidth / gridSize;
+        int cellHeight = screenHeight / gridSize;
+        
+        AIAction action = AIAction.createTapAction(
+                (bestIndex % gridSize) * cellWidth + cellWidth / 2,
+                (bestIndex / gridSize) * cellHeight + cellHeight / 2);
+        action.setExpectedReward(qValues[bestIndex]);
+        return action;
     }
     
     /**
@@ -113,13 +145,60 @@ public class DQNAlgorithm {
             return;
         }
         
-        // In a full implementation, this would:
-        // - Store transition in replay buffer
-        // - Sample mini-batch from replay buffer
-        // - Compute target Q-values
-        // - Update neural network
+        if (qNetwork == null) {
+            initialize();
+        }
+        
+        // Store transition in replay buffer
+        float[] nextFeatures = nextState != null ? nextState.getFeatures() : null;
+        replayBuffer.add(state.getFeatures(), getActionIndex(action, state), reward, nextFeatures, done);
         
-        Log.d(TAG, "DQNAlgorithm updated with reward: " + reward + ", done: " + done);
+        // Train on a sampled mini-batch once enough transitions are collected
+        if (replayBuffer.size() >= BATCH_SIZE) {
+            float loss = qNetwork.train(replayBuffer.sample(BATCH_SIZE), discountFactor);
+            trainingSteps++;
+            
+            if (trainingSteps % TARGET_UPDATE_FREQUENCY == 0) {
+                qNetwork.syncTargetNetwork();
+            }
+            
+            Log.d(TAG, "DQNAlgorithm updated with reward: " + reward + ", done: " + done + ", loss: " + loss);
+        }
+        
+        if (done && epsilon > epsilonMin) {
+            epsilon *= epsilonDecay;
+        }
+    }
+    
+    /**
+     * Map a tap action to a cell of the action grid
+     * 
+     * @param action Action taken
+     * @param state State the action was taken in
+     * @return Action index
+     */
+    private int getActionIndex(AIAction action, GameState state) {
+        try {
+            int x = Integer.parseInt(action.getParameter("x"));
+            int y = Integer.parseInt(action.getParameter("y"));
+            
+            int screenWidth = state.getScreenWidth() > 0 ? state.getScreenWidth() : DEFAULT_SCREEN_WIDTH;
+            int screenHeight = state.getScreenHeight() > 0 ? state.getScreenHeight() : DEFAULT_SCREEN_HEIGHT;
+            int gridSize = getGridSize();
+            
+            int gridX = Math.max(0, Math.min(x * gridSize / screenWidth, gridSize - 1));
+            int gridY = Math.max(0, Math.min(y * gridSize / screenHeight, gridSize - 1));
+            return Math.min(gridY * gridSize + gridX, actionSize - 1);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Get the side length of the square action grid
+     */
+    private int getGridSize() {
+        return Math.max(1, (int) Math.sqrt(actionSize));
     }
     
     /**
@@ -0,0 +1,425 @@
+package com.aiassistant.core.ai.algorithms;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tabular Q-value store keyed by a 64-bit hash of a quantized feature vector.
+ *
+ * States live in an open-addressing table (linear probing, backward-shift
+ * deletion) of primitive arrays. Each slot's key, last access and visit count
+ * are interleaved in one long array so a probe touches a single cache line,
+ * and a contiguous block of actionSize floats holds the state's Q-values.
+ * Key 0 marks an empty slot; hashState never returns it. Lookups and updates
+ * do not allocate. Once maxStates states are stored, inserting a new state evicts
+ * an existing one chosen by sampling a few occupied slots and picking the least
+ * recently used or least visited among them.
+ */
+public class HashedQTable {
+
+    /**
+     * Which state to drop when the table is full
+     */
+    public enum EvictionPolicy {
+        LEAST_RECENTLY_USED,
+        LEAST_VISITED
+    }
+
+    private static final int FILE_MAGIC = 0x51544231; // "QTB1"
+    private static final int FILE_VERSION = 1;
+    private static final int EVICTION_SAMPLES = 8;
+
+    // Reserved key of an empty slot
+    private static final long EMPTY = 0L;
+
+    // Longs per slot in the slot array: key, last access, visits
+    private static final int SLOT_STRIDE = 3;
+    private static final int LAST_ACCESS = 1;
+    private static final int VISITS = 2;
+
+    private final int actionSize;
+    private final int maxStates;
+    private final float quantizationStep;
+    private final float inverseStep;
+    private final int quantizedFeatures;
+    private final EvictionPolicy evictionPolicy;
+
+    private final int mask;
+    private final long[] slots;
+    private final float[] values;
+
+    private int size;
+    private long clock;
+    private long evictions;
+    private final Random random = new Random();
+
+    /**
+     * Constructor
+     *
+     * @param actionSize Number of actions per state
+     * @param maxStates Maximum number of states kept before eviction
+     * @param quantizationStep Bucket width used to quantize each feature
+     * @param quantizedFeatures Number of leading features that form the state key (0 for all)
+     * @param evictionPolicy Which state to evict when the table is full
+     */
+    public HashedQTable(int actionSize, int maxStates, float quantizationStep, int quantizedFeatures,
+                        EvictionPolicy evictionPolicy) {
+        if (actionSize <= 0 || maxStates <= 0 || quantizationStep <= 0.0f) {
+            throw new IllegalArgumentException("Action size, max states and quantization step must be positive");
+        }
+        this.actionSize = actionSize;
+        this.maxStates = maxStates;
+        this.quantizationStep = quantizationStep;
+        this.inverseStep = 1.0f / quantizationStep;
+        this.quantizedFeatures = quantizedFeatures;
+        this.evictionPolicy = evictionPolicy;
+
+        // Keep the load factor at or below one half
+        int capacity = 2;
+        while (capacity < maxStates * 2) {
+            capacity <<= 1;
+        }
+        this.mask = capacity - 1;
+        this.slots = new long[capacity * SLOT_STRIDE];
+        this.values = new float[capacity * actionSize];
+    }
+
+    /**
+     * Hash a feature vector into a state key. Each feature is quantized to the
+     * nearest multiple of quantizationStep before being mixed in.
+     *
+     * @param features State features (null or empty hashes to a fixed key)
+     * @return 64-bit state key, never 0 (already well mixed, so its low bits
+     *         index the table directly)
+     */
+    public long hashState(float[] features) {
+        long hash = 0x9E3779B97F4A7C15L;
+        if (features == null) {
+            return nonEmpty(mix(hash));
+        }
+        int count = quantizedFeatures > 0 ? Math.min(quantizedFeatures, features.length) : features.length;
+        for (int i = 0; i < count; i++) {
+            float scaled = features[i] * inverseStep;
+            long bucket = (long) (scaled >= 0.0f ? scaled + 0.5f : scaled - 0.5f);
+            hash = (hash ^ bucket) * 0x100000001B3L;
+        }
+        return nonEmpty(mix(hash ^ count));
+    }
+
+    /**
+     * Move the one key that would read as an empty slot elsewhere
+     */
+    private static long nonEmpty(long key) {
+        return key != EMPTY ? key : 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * 64-bit finalizer (MurmurHash3 fmix64)
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Find the slot of a state without inserting it
+     *
+     * @param key State key from hashState
+     * @return Slot index, or -1 if the state is not stored
+     */
+    public int find(long key) {
+        int slot = (int) key & mask;
+        long stored;
+        while ((stored = slots[slot * SLOT_STRIDE]) != EMPTY) {
+            if (stored == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the slot of a state, inserting it with zero Q-values if absent.
+     * Counts as a visit for the eviction policy.
+     *
+     * @param key State key from hashState
+     * @return Slot index
+     * @throws IllegalArgumentException If key is 0, which marks empty slots
+     */
+    public int findOrInsert(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            if (key == EMPTY) {
+                throw new IllegalArgumentException("Key 0 is reserved for empty slots");
+            }
+            if (size >= maxStates) {
+                evictOne();
+            }
+            slot = (int) key & mask;
+            while (slots[slot * SLOT_STRIDE] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot * SLOT_STRIDE] = key;
+            slots[slot * SLOT_STRIDE + VISITS] = 0;
+            Arrays.fill(values, slot * actionSize, (slot + 1) * actionSize, 0.0f);
+            size++;
+        }
+        int base = slot * SLOT_STRIDE;
+        slots[base + VISITS]++;
+        slots[base + LAST_ACCESS] = ++clock;
+        return slot;
+    }
+
+    /**
+     * Get a Q-value; states that are not stored read as 0
+     *
+     * @param key State key
+     * @param action Action index
+     * @return Q-value
+     */
+    public float get(long key, int action) {
+        int slot = find(key);
+        return slot < 0 ? 0.0f : values[slot * actionSize + action];
+    }
+
+    /**
+     * Get a Q-value from a slot returned by find/findOrInsert
+     */
+    public float getAt(int slot, int action) {
+        return values[slot * actionSize + action];
+    }
+
+    /**
+     * Set a Q-value in a slot returned by findOrInsert
+     */
+    public void setAt(int slot, int action, float value) {
+        values[slot * actionSize + action] = value;
+    }
+
+    /**
+     * Set a Q-value, inserting the state if needed
+     *
+     * @param key State key
+     * @param action Action index
+     * @param value Q-value
+     */
+    public void set(long key, int action, float value) {
+        setAt(findOrInsert(key), action, value);
+    }
+
+    /**
+     * Get the greedy action for a state
+     *
+     * @param key State key
+     * @return Best action index, or -1 if the state is not stored
+     */
+    public int bestAction(long key) {
+        int slot = find(key);
+        return slot < 0 ? -1 : bestActionAt(slot);
+    }
+
+    /**
+     * Get the largest Q-value of a state
+     *
+     * @param key State key
+     * @return Maximum Q-value, or 0 if the state is not stored
+     */
+    public float maxValue(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0.0f;
+        }
+        int offset = slot * actionSize;
+        int end = offset + actionSize;
+        float best = values[offset];
+        for (int i = offset + 1; i < end; i++) {
+            float value = values[i];
+            if (value > best) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the greedy action in a slot
+     */
+    private int bestActionAt(int slot) {
+        int offset = slot * actionSize;
+        int best = 0;
+        for (int a = 1; a < actionSize; a++) {
+            if (values[offset + a] > values[offset + best]) {
+                best = a;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Evict one state chosen by sampling occupied slots
+     */
+    private void evictOne() {
+        int victim = -1;
+        long victimScore = Long.MAX_VALUE;
+        int sampled = 0;
+        int slot = random.nextInt(mask + 1);
+        // Walk from a random position; at load <= 0.5 occupied slots are found quickly
+        int scoreField = evictionPolicy == EvictionPolicy.LEAST_VISITED ? VISITS : LAST_ACCESS;
+        for (int probed = 0; probed <= mask && sampled < EVICTION_SAMPLES; probed++) {
+            if (slots[slot * SLOT_STRIDE] != EMPTY) {
+                long score = slots[slot * SLOT_STRIDE + scoreField];
+                if (score < victimScore) {
+                    victimScore = score;
+                    victim = slot;
+                }
+                sampled++;
+                slot = random.nextInt(mask + 1);
+            } else {
+                slot = (slot + 1) & mask;
+            }
+        }
+        if (victim >= 0) {
+            removeAt(victim);
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove the state in a slot using backward-shift deletion
+     */
+    private void removeAt(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        long key;
+        while ((key = slots[next * SLOT_STRIDE]) != EMPTY) {
+            int home = (int) key & mask;
+            // Move the entry back if the hole lies between its home slot and its current slot
+            boolean movable = (next > hole) ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (movable) {
+                System.arraycopy(slots, next * SLOT_STRIDE, slots, hole * SLOT_STRIDE, SLOT_STRIDE);
+                System.arraycopy(values, next * actionSize, values, hole * actionSize, actionSize);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[hole * SLOT_STRIDE] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Remove all states
+     */
+    public void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        clock = 0;
+    }
+
+    /**
+     * Write the table in a compact binary form
+     *
+     * @param output Stream to write to (not closed)
+     * @throws IOException If writing fails
+     */
+    public void save(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(actionSize);
+        out.writeFloat(quantizationStep);
+        out.writeInt(quantizedFeatures);
+        out.writeInt(size);
+        for (int slot = 0; slot <= mask; slot++) {
+            long key = slots[slot * SLOT_STRIDE];
+            if (key != EMPTY) {
+                out.writeLong(key);
+                out.writeInt((int) slots[slot * SLOT_STRIDE + VISITS]);
+                int offset = slot * actionSize;
+                for (int a = 0; a < actionSize; a++) {
+                    out.writeFloat(values[offset + a]);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Replace the contents of the table with a saved one
+     *
+     * @param input Stream to read from (not closed)
+     * @throws IOException If the data is malformed or was saved with a different shape
+     */
+    public void load(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("Not a Q-table file");
+        }
+        int version = in.readInt();
+        if (version != FILE_VERSION) {
+            throw new IOException("Unsupported Q-table version: " + version);
+        }
+        int savedActions = in.readInt();
+        float savedStep = in.readFloat();
+        int savedFeatures = in.readInt();
+        if (savedActions != actionSize || savedStep != quantizationStep || savedFeatures != quantizedFeatures) {
+            throw new IOException("Q-table shape mismatch: actions=" + savedActions
+                    + ", step=" + savedStep + ", features=" + savedFeatures);
+        }
+
+        clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long key = in.readLong();
+            int savedVisits = in.readInt();
+            if (key == EMPTY) {
+                throw new IOException("Q-table file holds the reserved key 0");
+            }
+            int slot = findOrInsert(key);
+            slots[slot * SLOT_STRIDE + VISITS] = savedVisits;
+            int offset = slot * actionSize;
+            for (int a = 0; a < actionSize; a++) {
+                values[offset + a] = in.readFloat();
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getActionSize() {
+        return actionSize;
+    }
+
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    public float getQuantizationStep() {
+        return quantizationStep;
+    }
+
+    public int getQuantizedFeatures() {
+        return quantizedFeatures;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+}
@@ -287,6 +287,14 @@ public class MetaLearningAlgorithm extends ReinforcementLearningAlgorithm {
         float totalReward = 0.0f;
         
         for (RLAlgorithm algorithm : algorithms) {
+            // Share our training environment with algorithms that have none of their own
+            if (simulatorFactory != null && algorithm instanceof ReinforcementLearningAlgorithm) {
+                ReinforcementLearningAlgorithm rlAlgorithm = (ReinforcementLearningAlgorithm) algorithm;
+                if (!rlAlgorithm.hasTrainingEnvironment()) {
+                    rlAlgorithm.setTrainingEnvironment(simulatorFactory, numEnvironments, numRolloutWorkers);
+                }
+            }
+            
             float reward = algorithm.train(numEpisodes, maxStepsPerEpisode);
             totalReward += reward;
             
@@ -2,12 +2,18 @@ package com.aiassistant.core.ai.algorithms;
 
 import android.util.Log;
 
+import com.aiassistant.core.ai.neural.DenseNetwork;
+import com.aiassistant.core.ai.neural.PPOTrainer;
+import com.aiassistant.core.ai.storage.ModelCheckpoint;
+import com.aiassistant.core.ai.storage.ModelStorage;
+import com.aiassistant.core.ai.training.VectorizedRolloutRunner;
 import com.aiassistant.data.models.AIAction;
 import com.aiassistant.data.models.GameState;
+import com.aiassistant.learning.models.PPORolloutBuffer;
 import com.aiassistant.utils.Constants;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
 
 /**
@@ -15,6 +21,9 @@ import java.util.Random;
  */
 public class PPOAlgorithm {
     private static final String TAG = "PPOAlgorithm";
+    private static final int HIDDEN_SIZE = 64;
+    private static final String CHECKPOINT_ACTOR = "actor";
+    private static final String CHECKPOINT_CRITIC = "critic";
     
     private int stateSize;
     private int actionSize;
@@ -26,38 +35,18 @@ public class PPOAlgorithm {
     private int batchSize;
     private Random random;
     
-    // Neural network components
-    private Object actorNetwork;
-    private Object criticNetwork;
+    // Actor/critic networks and on-policy rollout storage
+    private PPOTrainer trainer;
+    private PPORolloutBuffer rolloutBuffer;
+    private int rolloutLength;
+    
+    // Reusable buffers for inference
+    private float[] actionProbabilities;
+    private final float[] lastValue = new float[1];
     
     // Hyperparameters
     private float entropyCoefficient;
     
-    // Buffers for training
-    private List<TrainingData> trainingBuffer;
-    
-    /**
-     * Training data class
-     */
-    private static class TrainingData {
-        float[] state;
-        int action;
-        float reward;
-        float[] nextState;
-        boolean done;
-        float advantage;
-        float discountedReturn;
-        float[] actionProbabilities;
-        
-        public TrainingData(float[] state, int action, float reward, float[] nextState, boolean done) {
-            this.state = state;
-            this.action = action;
-            this.reward = reward;
-            this.nextState = nextState;
-            this.done = done;
-        }
-    }
-    
     /**
      * Default constructor
      */
@@ -70,9 +59,9 @@ public class PPOAlgorithm {
         this.gamma = 0.99f;
         this.lambda = 0.95f;
         this.batchSize = 64;
+        this.rolloutLength = 256;
         this.entropyCoefficient = 0.01f;
         this.random = new Random();
-        this.trainingBuffer = new ArrayList<>();
         
         Log.d(TAG, "PPOAlgorithm created with state size: " + stateSize + ", action size: " + actionSize);
     }
@@ -96,7 +85,11 @@ public class PPOAlgorithm {
     public boolean initialize() {
         Log.d(TAG, "Initializing PPOAlgorithm");
         
-        // In a full implementation, this would initialize the neural networks
+        trainer = new PPOTrainer(stateSize, actionSize, HIDDEN_SIZE, batchSize, learningRate, System.nanoTime());
+        trainer.setClipEpsilon(clipEpsilon);
+        trainer.setEntropyCoefficient(entropyCoefficient);
+        rolloutBuffer = new PPORolloutBuffer(Math.max(rolloutLength, batchSize), 1, stateSize);
+        actionProbabilities = new float[actionSize];
         
         return true;
     }
@@ -114,16 +107,18 @@ public class PPOAlgorithm {
         }
         
         try {
-            // In a full implementation, this would:
-            // - Get the action probabilities from the actor network
-            // - Sample an action based on those probabilities
-            
+            // Sample an action from the actor's policy
             float[] features = state.toFeatureVector();
+            float[] probs = forwardActor(features);
+            int actionIndex = sampleAction(probs, 0);
             
-            // For demonstration, return random action
-            AIAction action = createRandomAction();
+            int screenWidth = state.getScreenWidth() > 0 ? state.getScreenWidth() : 1080;
+            int screenHeight = state.getScreenHeight() > 0 ? state.getScreenHeight() : 1920;
+            int[] coordinates = actionIndexToCoordinates(actionIndex, screenWidth, screenHeight);
+            
+            AIAction action = AIAction.createTapAction(coordinates[0], coordinates[1]);
             action.setGameState(state);
-            action.setConfidence(0.8f + random.nextFloat() * 0.2f);  // High confidence
+            action.setConfidence(probs[actionIndex]);
             
             return action;
             
@@ -164,36 +159,20 @@ public class PPOAlgorithm {
         }
         
         try {
-            // In a full implementation, this would:
-            // - Store the transition in the buffer
-            // - Calculate advantages and returns when the episode is done
-            // - Train the networks when enough data is collected
-            
+            // Store the transition together with the behaviour policy's log-probability
+            // and value, which the clipped objective and GAE need
             float[] stateFeatures = state.toFeatureVector();
             int actionIndex = getActionIndex(action);
+            float[] probs = forwardActor(stateFeatures);
+            float logProb = (float) Math.log(Math.max(probs[actionIndex], 1e-8f));
+            float value = trainer.predictValue(stateFeatures);
+            rolloutBuffer.add(stateFeatures, actionIndex, logProb, value, reward, done);
             
-            // Store transition
-            float[] nextStateFeatures = (nextState != null) ? nextState.toFeatureVector() : null;
-            TrainingData data = new TrainingData(stateFeatures, actionIndex, reward, nextStateFeatures, done);
-            trainingBuffer.add(data);
-            
-            // Calculate value
-            float value = forwardCritic(stateFeatures)[0];
-            
-            // Calculate next value
-            float nextValue = 0.0f;
-            if (!done && nextState != null) {
-                nextValue = forwardCritic(nextState.toFeatureVector())[0];
-            }
-            
-            // Calculate TD error
-            float tdError = reward + gamma * nextValue - value;
-            
-            Log.d(TAG, "Update: reward=" + reward + ", value=" + value + ", nextValue=" + nextValue + ", tdError=" + tdError);
-            
-            // If buffer is large enough or episode is done, train
-            if (trainingBuffer.size() >= batchSize || done) {
-                train(3);
+            // If buffer is full or episode is done, train
+            if (rolloutBuffer.isFull() || done) {
+                // Bootstrap the last step from the next state unless the episode ended
+                lastValue[0] = (!done && nextState != null) ? trainer.predictValue(nextState.toFeatureVector()) : 0.0f;
+                train(epochs);
             }
             
         } catch (Exception e) {
@@ -202,68 +181,112 @@ public class PPOAlgorithm {
     }
     
     /**
-     * Train the algorithm
+     * Train the algorithm on the transitions collected by update()
      * 
      * @param epochs Number of epochs
      * @return True if training is successful
      */
     public boolean train(int epochs) {
-        if (trainingBuffer.size() < batchSize) {
-            Log.d(TAG, "Not enough data to train: " + trainingBuffer.size() + " < " + batchSize);
+        if (rolloutBuffer == null || rolloutBuffer.size() < batchSize) {
+            Log.d(TAG, "Not enough data to train: " + (rolloutBuffer != null ? rolloutBuffer.size() : 0)
+                    + " < " + batchSize);
             return false;
         }
         
-        Log.d(TAG, "Training PPO with " + trainingBuffer.size() + " samples for " + epochs + " epochs");
+        Log.d(TAG, "Training PPO with " + rolloutBuffer.size() + " samples for " + epochs + " epochs");
         
         try {
-            // In a full implementation, this would:
-            // - Calculate advantages and returns
-            // - Train the actor and critic networks
-            
-            // Calculate advantages and returns
-            calculateAdvantagesAndReturns();
-            
-            // Train for multiple epochs
-            for (int epoch = 0; epoch < epochs; epoch++) {
-                // In a full implementation, this would train the networks
-                Log.d(TAG, "Epoch " + (epoch + 1) + "/" + epochs);
-            }
-            
-            // Clear buffer after training
-            trainingBuffer.clear();
-            
+            optimize(rolloutBuffer, lastValue, epochs);
             return true;
             
         } catch (Exception e) {
             Log.e(TAG, "Error training: " + e.getMessage());
             return false;
+        } finally {
+            rolloutBuffer.clear();
         }
     }
     
     /**
-     * Calculate advantages and returns for all training data
-     */
-    private void calculateAdvantagesAndReturns() {
-        if (trainingBuffer.isEmpty()) {
-            return;
+     * Train on simulated environments. Each iteration collects a rollout of
+     * about rolloutLength transitions from all environments in lockstep, with
+     * one batched actor/critic evaluation per step, then runs the PPO update.
+     * 
+     * @param runner Steps the environments; its sizes replace the configured ones if they differ
+     * @param iterations Number of rollout/update cycles
+     * @return Average return of the episodes the runner has completed
+     */
+    public float train(VectorizedRolloutRunner runner, int iterations) {
+        if (trainer == null || stateSize != runner.getStateSize() || actionSize != runner.getActionSize()) {
+            stateSize = runner.getStateSize();
+            actionSize = runner.getActionSize();
+            initialize();
         }
         
-        try {
-            // In a full implementation, this would:
-            // - Calculate advantages using Generalized Advantage Estimation (GAE)
-            // - Calculate discounted returns
-            
-            Log.d(TAG, "Calculating advantages and returns for " + trainingBuffer.size() + " samples");
-            
-            // For demonstration, set random advantages and returns
-            for (TrainingData data : trainingBuffer) {
-                data.advantage = random.nextFloat() * 2.0f - 1.0f;  // -1.0 to 1.0
-                data.discountedReturn = data.reward + random.nextFloat() * 0.5f;  // Reward + small random value
+        final int numEnvs = runner.getNumEnvironments();
+        int stepsPerRollout = Math.max(1, rolloutLength / numEnvs);
+        final PPORolloutBuffer buffer = new PPORolloutBuffer(stepsPerRollout, numEnvs, stateSize);
+        final float[] stepProbabilities = new float[numEnvs * actionSize];
+        final float[] stepValues = new float[numEnvs];
+        final float[] stepLogProbs = new float[numEnvs];
+        final boolean[] stepTruncated = new boolean[numEnvs];
+        final float[] stepFinalValues = new float[numEnvs];
+        float[] lastValues = new float[numEnvs];
+        
+        VectorizedRolloutRunner.Policy policy = new VectorizedRolloutRunner.Policy() {
+            @Override
+            public void selectActions(float[] states, int count, int[] actions) {
+                trainer.predictBatch(states, count, stepProbabilities, stepValues);
+                for (int i = 0; i < count; i++) {
+                    int offset = i * actionSize;
+                    actions[i] = sampleAction(stepProbabilities, offset);
+                    stepLogProbs[i] = (float) Math.log(Math.max(stepProbabilities[offset + actions[i]], 1e-8f));
+                }
             }
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error calculating advantages: " + e.getMessage());
+        };
+        
+        VectorizedRolloutRunner.TransitionSink sink = new VectorizedRolloutRunner.TransitionSink() {
+            @Override
+            public void addTransitions(float[] states, int[] actions, float[] rewards, float[] nextStates,
+                                       boolean[] dones, int count) {
+                // Truncated episodes bootstrap from their own final state,
+                // which only nextStates still holds
+                boolean anyTruncated = false;
+                for (int i = 0; i < count; i++) {
+                    stepTruncated[i] = runner.isTruncated(i);
+                    anyTruncated |= stepTruncated[i];
+                }
+                if (anyTruncated) {
+                    trainer.predictBatch(nextStates, count, null, stepFinalValues);
+                }
+                buffer.addStep(states, actions, stepLogProbs, stepValues, rewards, dones,
+                               stepTruncated, stepFinalValues);
+            }
+        };
+        
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            buffer.clear();
+            runner.runSteps(policy, sink, stepsPerRollout);
+            trainer.predictBatch(runner.getStates(), numEnvs, null, lastValues);
+            optimize(buffer, lastValues, epochs);
         }
+        
+        return runner.getAverageReturn();
+    }
+    
+    /**
+     * Compute advantages for a filled buffer and run the PPO epochs over it
+     * 
+     * @param buffer Rollout buffer
+     * @param lastValues Bootstrap value per environment for the step after the last one stored
+     * @param epochs Number of epochs
+     */
+    private void optimize(PPORolloutBuffer buffer, float[] lastValues, int epochs) {
+        buffer.computeAdvantages(lastValues, gamma, lambda);
+        buffer.normalizeAdvantages();
+        trainer.update(buffer, epochs, random);
+        Log.d(TAG, "PPO update on " + buffer.size() + " samples: policy loss=" + trainer.getLastPolicyLoss()
+                + ", value loss=" + trainer.getLastValueLoss());
     }
     
     /**
@@ -315,55 +338,41 @@ public class PPOAlgorithm {
     /**
      * Forward pass through the actor network
      * @param state State features
-     * @return Action probabilities
+     * @return Action probabilities (reused by the next call)
      */
     private float[] forwardActor(float[] state) {
-        // In a full implementation, this would pass the state through the actor network
-        // For demonstration, return random probabilities that sum to 1.0
-        float[] probs = new float[actionSize];
-        float sum = 0.0f;
-        
-        for (int i = 0; i < actionSize; i++) {
-            probs[i] = random.nextFloat();
-            sum += probs[i];
-        }
-        
-        // Normalize to sum to 1.0
-        for (int i = 0; i < actionSize; i++) {
-            probs[i] /= sum;
-        }
-        
-        return probs;
+        ensureInitialized();
+        trainer.predictPolicy(state, actionProbabilities);
+        return actionProbabilities;
     }
     
     /**
-     * Forward pass through the critic network
-     * @param state State features
-     * @return Value estimate
+     * Create the networks if initialize() has not been called yet
      */
-    private float[] forwardCritic(float[] state) {
-        // In a full implementation, this would pass the state through the critic network
-        // For demonstration, return a random value
-        return new float[] { random.nextFloat() * 2.0f - 1.0f };  // -1.0 to 1.0
+    private void ensureInitialized() {
+        if (trainer == null) {
+            initialize();
+        }
     }
     
     /**
      * Sample an action from probabilities
-     * @param probs Action probabilities
+     * @param probs Action probabilities (one or more rows of actionSize)
+     * @param offset Start of the row to sample from
      * @return Sampled action index
      */
-    private int sampleAction(float[] probs) {
+    private int sampleAction(float[] probs, int offset) {
         float value = random.nextFloat();
         float sum = 0.0f;
         
-        for (int i = 0; i < probs.length; i++) {
-            sum += probs[i];
+        for (int i = 0; i < actionSize; i++) {
+            sum += probs[offset + i];
             if (value <= sum) {
                 return i;
             }
         }
         
-        return probs.length - 1;  // Default to last action
+        return actionSize - 1;  // Default to last action
     }
     
     /**
@@ -436,6 +445,9 @@ public class PPOAlgorithm {
      */
     public void setLearningRate(float learningRate) {
         this.learningRate = learningRate;
+        if (trainer != null) {
+            trainer.setLearningRate(learningRate);
+        }
     }
     
     /**
@@ -452,6 +464,9 @@ public class PPOAlgorithm {
      */
     public void setClipEpsilon(float clipEpsilon) {
         this.clipEpsilon = clipEpsilon;
+        if (trainer != null) {
+            trainer.setClipEpsilon(clipEpsilon);
+        }
     }
     
     /**
@@ -511,13 +526,30 @@ public class PPOAlgorithm {
     }
     
     /**
-     * Set the batch size
+     * Set the minibatch size. Takes effect on the next initialize().
      * @param batchSize Batch size
      */
     public void setBatchSize(int batchSize) {
         this.batchSize = batchSize;
     }
     
+    /**
+     * Get the number of transitions collected per PPO update
+     * @return Rollout length
+     */
+    public int getRolloutLength() {
+        return rolloutLength;
+    }
+    
+    /**
+     * Set the number of transitions collected per PPO update.
+     * Takes effect on the next initialize() for update(); train(runner, ...) reads it per call.
+     * @param rolloutLength Rollout length
+     */
+    public void setRolloutLength(int rolloutLength) {
+        this.rolloutLength = Math.max(1, rolloutLength);
+    }
+    
     /**
      * Get the entropy coefficient
      * @return Entropy coefficient
@@ -532,6 +564,9 @@ public class PPOAlgorithm {
      */
     public void setEntropyCoefficient(float entropyCoefficient) {
         this.entropyCoefficient = entropyCoefficient;
+        if (trainer != null) {
+            trainer.setEntropyCoefficient(entropyCoefficient);
+        }
     }
     
     /**
@@ -540,11 +575,22 @@ public class PPOAlgorithm {
      * @return True if successful
      */
     public boolean save(String path) {
-        Log.d(TAG, "Saving model to " + path);
-        
-        // In a full implementation, this would save the neural networks
+        if (trainer == null) {
+            Log.w(TAG, "No model to save");
+            return false;
+        }
         
-        return true;
+        ModelCheckpoint checkpoint = new ModelCheckpoint(ModelStorage.ALGORITHM_PPO, stateSize, actionSize);
+        checkpoint.putArray(CHECKPOINT_ACTOR, getParameters(trainer.getActorNetwork()));
+        checkpoint.putArray(CHECKPOINT_CRITIC, getParameters(trainer.getCriticNetwork()));
+        try {
+            checkpoint.write(new File(path));
+            Log.d(TAG, "Saved model to " + path);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving model to " + path + ": " + e.getMessage(), e);
+            return false;
+        }
     }
     
     /**
@@ -553,10 +599,45 @@ public class PPOAlgorithm {
      * @return True if successful
      */
     public boolean load(String path) {
-        Log.d(TAG, "Loading model from " + path);
-        
-        // In a full implementation, this would load the neural networks
-        
-        return true;
+        try {
+            ModelCheckpoint checkpoint = ModelCheckpoint.read(new File(path));
+            if (checkpoint.getAlgorithmType() != ModelStorage.ALGORITHM_PPO) {
+                Log.e(TAG, "Not a PPO checkpoint: " + path);
+                return false;
+            }
+            if (trainer == null || stateSize != checkpoint.getStateSize()
+                    || actionSize != checkpoint.getActionSize()) {
+                stateSize = checkpoint.getStateSize();
+                actionSize = checkpoint.getActionSize();
+                initialize();
+            }
+            
+            float[] actor = checkpoint.getArray(CHECKPOINT_ACTOR);
+            float[] critic = checkpoint.getArray(CHECKPOINT_CRITIC);
+            DenseNetwork actorNetwork = trainer.getActorNetwork();
+            DenseNetwork criticNetwork = trainer.getCriticNetwork();
+            if (actor == null || critic == null || actor.length != actorNetwork.getParameterCount()
+                    || critic.length != criticNetwork.getParameterCount()) {
+                Log.e(TAG, "Checkpoint network shape does not match: " + path);
+                return false;
+            }
+            actorNetwork.setParameters(actor);
+            criticNetwork.setParameters(critic);
+            
+            Log.d(TAG, "Loaded model from " + path);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading model from " + path + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Copy a network's parameters into a new array
+     */
+    private static float[] getParameters(DenseNetwork network) {
+        float[] parameters = new float[network.getParameterCount()];
+        network.getParameters(parameters);
+        return parameters;
     }
 }
@@ -2,18 +2,36 @@ package com.aiassistant.core.ai.algorithms;
 
 import android.util.Log;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.aiassistant.core.ai.storage.ModelCheckpoint;
+import com.aiassistant.core.ai.storage.ModelStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * Implementation of Q-Learning reinforcement learning algorithm.
  * This is a linear approximation version suitable for continuous state spaces.
+ *
+ * States are first encoded by a {@link TileCoder} into a sparse set of active
+ * indices. Weights are stored as weights[index * actionDim + action], so all
+ * action values are computed in one pass over the active indices and an update
+ * touches only the weights of those indices for the action taken.
  */
 public class QLearning {
     
     private static final String TAG = "QLearning";
     
+    // Default tile coding for features in [0, 1]
+    private static final int DEFAULT_NUM_TILINGS = 8;
+    private static final int DEFAULT_TILES_PER_DIMENSION = 8;
+    private static final int DEFAULT_GROUP_SIZE = 2;
+    private static final int DEFAULT_MEMORY_SIZE = 1 << 16;
+    private static final String CHECKPOINT_WEIGHTS = "weights";
+    private static final String CHECKPOINT_TILE_CODING = "tile_coding";
+    
     // Hyperparameters
     private float learningRate = 0.1f;
     private float gamma = 0.95f;        // Discount factor
@@ -23,31 +41,48 @@ public class QLearning {
     private int stateDim;
     private int actionDim;
     
-    // Q-values (linear function approximation weights)
-    private float[][] weights;
+    // Tile coder and linear weights over its hashed features
+    private TileCoder tileCoder;
+    private float[] weights;
+    
+    // Reusable buffers for active indices and action values
+    private int[] activeIndices;
+    private int[] nextActiveIndices;
+    private float[] qValues;
     
     // Random number generator
     private final Random random = new Random();
     
     /**
-     * Initialize the Q-Learning algorithm
+     * Initialize the Q-Learning algorithm with default tile coding
      * @param stateDim Dimension of state (observation) vector
      * @param actionDim Dimension of action space (number of possible actions)
      */
     public void initialize(int stateDim, int actionDim) {
+        initialize(stateDim, actionDim, new TileCoder(stateDim, DEFAULT_NUM_TILINGS,
+                DEFAULT_TILES_PER_DIMENSION, DEFAULT_GROUP_SIZE, DEFAULT_MEMORY_SIZE, 0.0f, 1.0f));
+    }
+    
+    /**
+     * Initialize the Q-Learning algorithm with a custom tile coder
+     * @param stateDim Dimension of state (observation) vector
+     * @param actionDim Dimension of action space (number of possible actions)
+     * @param tileCoder Encoder from state vectors to active feature indices
+     */
+    public void initialize(int stateDim, int actionDim, TileCoder tileCoder) {
         this.stateDim = stateDim;
         this.actionDim = actionDim;
+        this.tileCoder = tileCoder;
         
-        // Initialize weights with small random values
-        weights = new float[stateDim][actionDim];
-        for (int i = 0; i < stateDim; i++) {
-            for (int j = 0; j < actionDim; j++) {
-                weights[i][j] = (random.nextFloat() * 2 - 1) * 0.01f;
-            }
-        }
+        // Zero weights: optimistic-neutral start, and untouched tiles cost nothing
+        weights = new float[tileCoder.getMemorySize() * actionDim];
+        activeIndices = new int[tileCoder.getActiveCount()];
+        nextActiveIndices = new int[tileCoder.getActiveCount()];
+        qValues = new float[actionDim];
         
         Log.d(TAG, "Q-Learning initialized with state dim " + stateDim + 
-                ", action dim " + actionDim);
+                ", action dim " + actionDim + ", active tiles " + tileCoder.getActiveCount() +
+                ", memory " + tileCoder.getMemorySize());
     }
     
     /**
@@ -75,8 +110,13 @@ public class QLearning {
      * @param done Whether the episode is done
      */
     public void update(float[] state, int action, float reward, float[] nextState, boolean done) {
+        int activeCount = tileCoder.encode(state, activeIndices);
+        
         // Calculate current Q-value
-        float currentQ = calculateQ(state, action);
+        float currentQ = 0.0f;
+        for (int i = 0; i < activeCount; i++) {
+            currentQ += weights[activeIndices[i] * actionDim + action];
+        }
         
         // Calculate target Q-value
         float targetQ;
@@ -84,37 +124,37 @@ public class QLearning {
             targetQ = reward;
         } else {
             // Get maximum Q-value for next state
-            float maxNextQ = Float.NEGATIVE_INFINITY;
-            for (int a = 0; a < actionDim; a++) {
-                float q = calculateQ(nextState, a);
-                if (q > maxNextQ) {
-                    maxNextQ = q;
-                }
-            }
-            targetQ = reward + gamma * maxNextQ;
+            int nextCount = tileCoder.encode(nextState, nextActiveIndices);
+            calculateAllQ(nextActiveIndices, nextCount, qValues);
+            targetQ = reward + gamma * qValues[argmax(qValues)];
         }
         
         // Calculate TD error
         float tdError = targetQ - currentQ;
         
-        // Update weights
-        for (int i = 0; i < stateDim; i++) {
-            weights[i][action] += learningRate * tdError * state[i];
+        // Update only the weights of the active tiles, splitting the step between them
+        float step = learningRate * tdError / activeCount;
+        for (int i = 0; i < activeCount; i++) {
+            weights[activeIndices[i] * actionDim + action] += step;
         }
     }
     
     /**
-     * Calculate Q-value for a state-action pair using linear approximation
-     * @param state State vector
-     * @param action Action index
-     * @return Q-value
+     * Calculate the Q-values of all actions in one pass over the active indices
+     * @param indices Active tile indices
+     * @param count Number of active indices
+     * @param out Array of actionDim elements to receive the Q-values
      */
-    private float calculateQ(float[] state, int action) {
-        float q = 0;
-        for (int i = 0; i < stateDim; i++) {
-            q += state[i] * weights[i][action];
+    private void calculateAllQ(int[] indices, int count, float[] out) {
+        for (int a = 0; a < actionDim; a++) {
+            out[a] = 0.0f;
+        }
+        for (int i = 0; i < count; i++) {
+            int offset = indices[i] * actionDim;
+            for (int a = 0; a < actionDim; a++) {
+                out[a] += weights[offset + a];
+            }
         }
-        return q;
     }
     
     /**
@@ -123,18 +163,22 @@ public class QLearning {
      * @return Best action index
      */
     private int getBestAction(float[] state) {
-        int bestAction = 0;
-        float bestValue = Float.NEGATIVE_INFINITY;
-        
-        for (int a = 0; a < actionDim; a++) {
-            float q = calculateQ(state, a);
-            if (q > bestValue) {
-                bestValue = q;
-                bestAction = a;
+        int activeCount = tileCoder.encode(state, activeIndices);
+        calculateAllQ(activeIndices, activeCount, qValues);
+        return argmax(qValues);
+    }
+    
+    /**
+     * Find index of maximum value in array
+     */
+    private int argmax(float[] values) {
+        int best = 0;
+        for (int a = 1; a < values.length; a++) {
+            if (values[a] > values[best]) {
+                best = a;
             }
         }
-        
-        return bestAction;
+        return best;
     }
     
     /**
@@ -158,19 +202,77 @@ public class QLearning {
      * @return Success status
      */
     public boolean saveModel(String path) {
-        // Implementation would serialize the weights to a file
-        Log.d(TAG, "Saving Q-Learning model to " + path);
-        return true;
+        if (weights == null) {
+            Log.w(TAG, "No Q-Learning model to save");
+            return false;
+        }
+        
+        ModelCheckpoint checkpoint = new ModelCheckpoint(ModelStorage.ALGORITHM_Q_LEARNING, stateDim, actionDim);
+        checkpoint.putArray(CHECKPOINT_WEIGHTS, weights);
+        checkpoint.putArray(CHECKPOINT_TILE_CODING, tileCodingParameters());
+        try {
+            checkpoint.write(new File(path));
+            Log.d(TAG, "Saved Q-Learning model to " + path);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving Q-Learning model to " + path + ": " + e.getMessage(), e);
+            return false;
+        }
     }
     
     /**
-     * Load model from a file
+     * Load model from a file. The model must have been saved with the same
+     * tile coding as this instance was initialized with.
      * @param path File path
      * @return Success status
      */
     public boolean loadModel(String path) {
-        // Implementation would deserialize the weights from a file
-        Log.d(TAG, "Loading Q-Learning model from " + path);
-        return true;
+        if (weights == null) {
+            Log.w(TAG, "Initialize Q-Learning before loading a model");
+            return false;
+        }
+        
+        try {
+            ModelCheckpoint checkpoint = ModelCheckpoint.read(new File(path));
+            FloatBuffer saved = checkpoint.getArrayBuffer(CHECKPOINT_WEIGHTS);
+            if (checkpoint.getAlgorithmType() != ModelStorage.ALGORITHM_Q_LEARNING
+                    || checkpoint.getStateSize() != stateDim
+                    || checkpoint.getActionSize() != actionDim
+                    || saved == null || saved.remaining() != weights.length) {
+                Log.e(TAG, "Q-Learning checkpoint does not match this model: " + path);
+                return false;
+            }
+            // Same weight count can still come from a different tiling, which
+            // would map every state to the wrong weights
+            float[] tileCoding = checkpoint.getArray(CHECKPOINT_TILE_CODING);
+            if (!Arrays.equals(tileCoding, tileCodingParameters())) {
+                Log.e(TAG, "Q-Learning checkpoint was saved with a different tile coding: "
+                        + Arrays.toString(tileCoding) + " vs " + Arrays.toString(tileCodingParameters()));
+                return false;
+            }
+            // Copy straight from the file mapping into the existing weights
+            saved.get(weights);
+            Log.d(TAG, "Loaded Q-Learning model from " + path);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading Q-Learning model from " + path + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Tile coding parameters that must match for saved weights to be reusable
+     * @return State dim, tilings, tiles per dimension, group size, memory size and value range
+     */
+    private float[] tileCodingParameters() {
+        return new float[] {
+                tileCoder.getStateDim(),
+                tileCoder.getNumTilings(),
+                tileCoder.getTilesPerDimension(),
+                tileCoder.getGroupSize(),
+                tileCoder.getMemorySize(),
+                tileCoder.getMinValue(),
+                tileCoder.getMaxValue()
+        };
     }
 }
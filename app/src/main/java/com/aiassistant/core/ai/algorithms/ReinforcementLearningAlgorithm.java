@@ -5,6 +5,8 @@ import android.graphics.Point;
 import android.util.Log;
 
 import com.aiassistant.core.ai.detection.DetectedEnemy;
+import com.aiassistant.core.ai.training.GameSimulator;
+import com.aiassistant.core.ai.training.VectorizedRolloutRunner;
 import com.aiassistant.data.models.AIAction;
 import com.aiassistant.data.models.AIActionReward;
 import com.aiassistant.data.models.GameState;
@@ -28,6 +30,11 @@ public abstract class ReinforcementLearningAlgorithm implements RLAlgorithm {
     protected final Context context;
     protected final Random random;
     
+    // Offline training environment used by train()
+    protected GameSimulator.Factory simulatorFactory;
+    protected int numEnvironments = 1;
+    protected int numRolloutWorkers = 1;
+    
     /**
      * Constructor
      * 
@@ -41,6 +48,42 @@ public abstract class ReinforcementLearningAlgorithm implements RLAlgorithm {
         this.random = new Random();
     }
     
+    /**
+     * Set the simulated environment that train() steps. Each training call
+     * steps numEnvironments simulators in lockstep on numWorkers threads.
+     * 
+     * @param factory Creates the simulators (null to disable offline training)
+     * @param numEnvironments Number of environments stepped together
+     * @param numWorkers Number of threads stepping them, including the caller
+     */
+    public void setTrainingEnvironment(GameSimulator.Factory factory, int numEnvironments, int numWorkers) {
+        this.simulatorFactory = factory;
+        this.numEnvironments = Math.max(1, numEnvironments);
+        this.numRolloutWorkers = Math.max(1, numWorkers);
+    }
+    
+    /**
+     * Check whether a training environment has been set
+     * 
+     * @return True if train() can run
+     */
+    public boolean hasTrainingEnvironment() {
+        return simulatorFactory != null;
+    }
+    
+    /**
+     * Create a rollout runner over the training environment.
+     * The caller must shut it down when done.
+     * 
+     * @return The runner, or null if no training environment is set
+     */
+    protected VectorizedRolloutRunner createRolloutRunner() {
+        if (simulatorFactory == null) {
+            return null;
+        }
+        return new VectorizedRolloutRunner(simulatorFactory, numEnvironments, numRolloutWorkers);
+    }
+    
     /**
      * Generate action mask based on available UI elements
      * 
@@ -6,8 +6,13 @@ import com.aiassistant.data.models.AIAction;
 import com.aiassistant.data.models.GameState;
 import com.aiassistant.utils.Constants;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Random;
 
 /**
@@ -16,7 +21,12 @@ import java.util.Random;
 public class SARSAAlgorithm {
     private static final String TAG = "SARSAAlgorithm";
     
-    private Map<String, Map<Integer, Float>> qTable;
+    // Default Q-table shape: first 5 features quantized to 0.1
+    private static final int DEFAULT_MAX_STATES = 100000;
+    private static final float DEFAULT_QUANTIZATION_STEP = 0.1f;
+    private static final int DEFAULT_QUANTIZED_FEATURES = 5;
+    
+    private HashedQTable qTable;
     private float learningRate;
     private float discountFactor;
     private float epsilon;
@@ -28,13 +38,14 @@ public class SARSAAlgorithm {
      * Constructor
      */
     public SARSAAlgorithm() {
-        this.qTable = new HashMap<>();
         this.learningRate = 0.1f;
         this.discountFactor = 0.9f;
         this.epsilon = 0.1f;
         this.stateSize = Constants.FEATURE_VECTOR_SIZE;
         this.actionSize = 9;  // Default 3x3 grid
         this.random = new Random();
+        this.qTable = new HashedQTable(actionSize, DEFAULT_MAX_STATES, DEFAULT_QUANTIZATION_STEP,
+                DEFAULT_QUANTIZED_FEATURES, HashedQTable.EvictionPolicy.LEAST_RECENTLY_USED);
         
         Log.d(TAG, "SARSAAlgorithm created with state size: " + stateSize + ", action size: " + actionSize);
     }
@@ -52,6 +63,21 @@ public class SARSAAlgorithm {
                   ", discountFactor=" + discountFactor + ", epsilon=" + epsilon);
     }
     
+    /**
+     * Reconfigure the Q-table. Existing Q-values are discarded.
+     * 
+     * @param maxStates Maximum number of states kept before eviction
+     * @param quantizationStep Bucket width used to quantize each feature
+     * @param quantizedFeatures Number of leading features that form the state key (0 for all)
+     * @param evictionPolicy Which state to evict when the table is full
+     */
+    public void configureQTable(int maxStates, float quantizationStep, int quantizedFeatures,
+                                HashedQTable.EvictionPolicy evictionPolicy) {
+        this.qTable = new HashedQTable(actionSize, maxStates, quantizationStep, quantizedFeatures, evictionPolicy);
+        Log.d(TAG, "Q-table configured: maxStates=" + maxStates + ", step=" + quantizationStep
+                + ", features=" + quantizedFeatures + ", eviction=" + evictionPolicy);
+    }
+    
     /**
      * Initialize the algorithm
      * 
@@ -78,7 +104,7 @@ public class SARSAAlgorithm {
         
         // Get state key
         float[] stateFeatures = state.toFeatureVector();
-        String stateKey = getStateKey(stateFeatures);
+        long stateKey = getStateKey(stateFeatures);
         
         // Epsilon-greedy policy
         if (random.nextFloat() < epsilon) {
@@ -112,28 +138,28 @@ public class SARSAAlgorithm {
         
         try {
             // Get state keys and action indices
-            String stateKey = getStateKey(state.toFeatureVector());
+            long stateKey = getStateKey(state.toFeatureVector());
             int actionIndex = actionToActionIndex(action);
             
-            // Get current Q-value
-            float currentQ = getQValue(stateKey, actionIndex);
-            
-            // Calculate next Q-value
+            // Calculate next Q-value (read before inserting, since insertion may evict)
             float nextQ = 0.0f;
             if (nextState != null && nextAction != null) {
-                String nextStateKey = getStateKey(nextState.toFeatureVector());
+                long nextStateKey = getStateKey(nextState.toFeatureVector());
                 int nextActionIndex = actionToActionIndex(nextAction);
-                nextQ = getQValue(nextStateKey, nextActionIndex);
+                nextQ = qTable.get(nextStateKey, nextActionIndex);
             }
             
-            // SARSA update rule
+            // SARSA update rule applied in place
+            int slot = qTable.findOrInsert(stateKey);
+            float currentQ = qTable.getAt(slot, actionIndex);
             float updatedQ = currentQ + learningRate * (reward + discountFactor * nextQ - currentQ);
+            qTable.setAt(slot, actionIndex, updatedQ);
             
-            // Update Q-table
-            setQValue(stateKey, actionIndex, updatedQ);
-            
-            Log.d(TAG, "Updated Q-value: state=" + stateKey + ", action=" + actionIndex + 
-                      ", reward=" + reward + ", currentQ=" + currentQ + ", updatedQ=" + updatedQ);
+            // Only build the log line when debug logging is on, keeping updates allocation-free
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Updated Q-value: state=" + stateKey + ", action=" + actionIndex + 
+                          ", reward=" + reward + ", currentQ=" + currentQ + ", updatedQ=" + updatedQ);
+            }
             
         } catch (Exception e) {
             Log.e(TAG, "Error updating Q-value: " + e.getMessage());
@@ -157,30 +183,27 @@ public class SARSAAlgorithm {
         
         try {
             // Get state keys and action indices
-            String stateKey = getStateKey(state.toFeatureVector());
+            long stateKey = getStateKey(state.toFeatureVector());
             int actionIndex = actionToActionIndex(action);
             
-            // Get current Q-value
-            float currentQ = getQValue(stateKey, actionIndex);
-            
-            // Calculate next Q-value
+            // Calculate next Q-value (read before inserting, since insertion may evict)
             float nextQ = 0.0f;
             if (!done && nextState != null) {
-                String nextStateKey = getStateKey(nextState.toFeatureVector());
-                
                 // For this simplified update, we use the best next action
-                int nextActionIndex = getBestActionIndex(nextStateKey);
-                nextQ = getQValue(nextStateKey, nextActionIndex);
+                nextQ = qTable.maxValue(getStateKey(nextState.toFeatureVector()));
             }
             
-            // SARSA update rule
+            // SARSA update rule applied in place
+            int slot = qTable.findOrInsert(stateKey);
+            float currentQ = qTable.getAt(slot, actionIndex);
             float updatedQ = currentQ + learningRate * (reward + discountFactor * nextQ - currentQ);
+            qTable.setAt(slot, actionIndex, updatedQ);
             
-            // Update Q-table
-            setQValue(stateKey, actionIndex, updatedQ);
-            
-            Log.d(TAG, "Updated Q-value: state=" + stateKey + ", action=" + actionIndex + 
-                      ", reward=" + reward + ", currentQ=" + currentQ + ", updatedQ=" + updatedQ);
+            // Only build the log line when debug logging is on, keeping updates allocation-free
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "Updated Q-value: state=" + stateKey + ", action=" + actionIndex + 
+                          ", reward=" + reward + ", currentQ=" + currentQ + ", updatedQ=" + updatedQ);
+            }
             
         } catch (Exception e) {
             Log.e(TAG, "Error updating Q-value: " + e.getMessage());
@@ -220,61 +243,10 @@ public class SARSAAlgorithm {
      * Get a state key from features
      * 
      * @param features State features
-     * @return State key
-     */
-    private String getStateKey(float[] features) {
-        if (features == null || features.length == 0) {
-            return "default";
-        }
-        
-        // For simplicity, use first few features to create a key
-        // In a real implementation, you would use a better state representation
-        StringBuilder key = new StringBuilder();
-        for (int i = 0; i < Math.min(features.length, 5); i++) {
-            key.append(Math.round(features[i] * 10) / 10.0f).append("_");
-        }
-        
-        return key.toString();
-    }
-    
-    /**
-     * Get the Q-value for a state-action pair
-     * 
-     * @param stateKey State key
-     * @param actionIndex Action index
-     * @return Q-value
-     */
-    private float getQValue(String stateKey, int actionIndex) {
-        // Ensure state exists in Q-table
-        if (!qTable.containsKey(stateKey)) {
-            qTable.put(stateKey, new HashMap<>());
-        }
-        
-        // Get action map for state
-        Map<Integer, Float> actionMap = qTable.get(stateKey);
-        
-        // Return Q-value or default value if not present
-        return actionMap.getOrDefault(actionIndex, 0.0f);
-    }
-    
-    /**
-     * Set the Q-value for a state-action pair
-     * 
-     * @param stateKey State key
-     * @param actionIndex Action index
-     * @param value Q-value
+     * @return 64-bit hash of the quantized features
      */
-    private void setQValue(String stateKey, int actionIndex, float value) {
-        // Ensure state exists in Q-table
-        if (!qTable.containsKey(stateKey)) {
-            qTable.put(stateKey, new HashMap<>());
-        }
-        
-        // Get action map for state
-        Map<Integer, Float> actionMap = qTable.get(stateKey);
-        
-        // Set Q-value
-        actionMap.put(actionIndex, value);
+    private long getStateKey(float[] features) {
+        return qTable.hashState(features);
     }
     
     /**
@@ -283,33 +255,11 @@ public class SARSAAlgorithm {
      * @param stateKey State key
      * @return Best action index
      */
-    private int getBestActionIndex(String stateKey) {
-        // Ensure state exists in Q-table
-        if (!qTable.containsKey(stateKey)) {
-            qTable.put(stateKey, new HashMap<>());
-        }
-        
-        // Get action map for state
-        Map<Integer, Float> actionMap = qTable.get(stateKey);
+    private int getBestActionIndex(long stateKey) {
+        int bestAction = qTable.bestAction(stateKey);
         
-        // If no actions have been tried, return random action
-        if (actionMap.isEmpty()) {
-            return random.nextInt(actionSize);
-        }
-        
-        // Find action with highest Q-value
-        int bestAction = -1;
-        float bestValue = Float.NEGATIVE_INFINITY;
-        
-        for (Map.Entry<Integer, Float> entry : actionMap.entrySet()) {
-            if (entry.getValue() > bestValue) {
-                bestValue = entry.getValue();
-                bestAction = entry.getKey();
-            }
-        }
-        
-        // If no best action found, return random action
-        if (bestAction == -1) {
+        // If the state has not been seen, return random action
+        if (bestAction < 0) {
             return random.nextInt(actionSize);
         }
         
@@ -387,11 +337,7 @@ public class SARSAAlgorithm {
      * @return Number of state-action pairs in the Q-table
      */
     public int getQTableSize() {
-        int size = 0;
-        for (Map<Integer, Float> actionMap : qTable.values()) {
-            size += actionMap.size();
-        }
-        return size;
+        return qTable.size() * actionSize;
     }
     
     /**
@@ -466,9 +412,17 @@ public class SARSAAlgorithm {
     public boolean save(String path) {
         Log.d(TAG, "Saving model to " + path);
         
-        // In a full implementation, this would save the Q-table to a file
-        
-        return true;
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(new File(path));
+            qTable.save(out);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving Q-table: " + e.getMessage());
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
     }
     
     /**
@@ -480,9 +434,30 @@ public class SARSAAlgorithm {
     public boolean load(String path) {
         Log.d(TAG, "Loading model from " + path);
         
-        // In a full implementation, this would load the Q-table from a file
-        
-        return true;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(new File(path));
+            qTable.load(in);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading Q-table: " + e.getMessage());
+            return false;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+    
+    /**
+     * Close a stream, ignoring errors
+     */
+    private void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing stream: " + e.getMessage());
+            }
+        }
     }
     
     /**
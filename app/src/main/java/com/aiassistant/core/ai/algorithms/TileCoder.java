@@ -0,0 +1,146 @@
+package com.aiassistant.core.ai.algorithms;
+
+/**
+ * Hashed tile coding for continuous feature vectors.
+ *
+ * The state vector is split into groups of consecutive features. Each of the
+ * numTilings tilings lays a grid of tilesPerDimension cells per feature over
+ * every group, offset from the other tilings by a fraction of a cell (with
+ * different offsets per dimension so the tilings do not line up). Each
+ * (tiling, group, cell) triple is hashed into [0, memorySize), giving a sparse
+ * binary feature vector with exactly numTilings * numGroups active indices.
+ *
+ * With groupSize equal to the state size this is classic tile coding over the
+ * whole vector; smaller groups trade conjunctions between distant features for
+ * better generalization on high-dimensional inputs.
+ */
+public class TileCoder {
+    private final int stateDim;
+    private final int numTilings;
+    private final int tilesPerDimension;
+    private final int groupSize;
+    private final int numGroups;
+    private final int memoryMask;
+    private final float minValue;
+    private final float maxValue;
+    private final float scale;
+
+    /**
+     * Constructor
+     *
+     * @param stateDim Length of the state vectors to encode
+     * @param numTilings Number of offset tilings
+     * @param tilesPerDimension Grid cells per feature within one tiling
+     * @param groupSize Consecutive features tiled together
+     * @param memorySize Size of the hashed index space (rounded up to a power of two)
+     * @param minValue Smallest expected feature value
+     * @param maxValue Largest expected feature value
+     */
+    public TileCoder(int stateDim, int numTilings, int tilesPerDimension, int groupSize,
+                     int memorySize, float minValue, float maxValue) {
+        if (stateDim <= 0 || numTilings <= 0 || tilesPerDimension <= 0 || groupSize <= 0 || memorySize <= 0) {
+            throw new IllegalArgumentException("Tile coder dimensions must be positive");
+        }
+        if (maxValue <= minValue) {
+            throw new IllegalArgumentException("Feature range is empty: [" + minValue + ", " + maxValue + "]");
+        }
+        int memory = 1;
+        while (memory < memorySize) {
+            memory <<= 1;
+        }
+        this.stateDim = stateDim;
+        this.numTilings = numTilings;
+        this.tilesPerDimension = tilesPerDimension;
+        this.groupSize = Math.min(groupSize, stateDim);
+        this.numGroups = (stateDim + this.groupSize - 1) / this.groupSize;
+        this.memoryMask = memory - 1;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.scale = tilesPerDimension / (maxValue - minValue);
+    }
+
+    /**
+     * Encode a state as active tile indices
+     *
+     * @param state State vector (missing trailing features read as minValue)
+     * @param activeIndices Array of at least getActiveCount() elements to receive the indices
+     * @return Number of indices written (always getActiveCount())
+     */
+    public int encode(float[] state, int[] activeIndices) {
+        int count = 0;
+        for (int tiling = 0; tiling < numTilings; tiling++) {
+            for (int group = 0; group < numGroups; group++) {
+                long hash = 0x9E3779B97F4A7C15L ^ ((long) tiling << 32) ^ group;
+                int start = group * groupSize;
+                int end = Math.min(start + groupSize, stateDim);
+                for (int d = start; d < end; d++) {
+                    float value = (state != null && d < state.length) ? state[d] : minValue;
+                    // Offset tiling t by t * (2k + 1) / numTilings of a cell in dimension k
+                    float offset = (float) (tiling * (2 * (d - start) + 1) % numTilings) / numTilings;
+                    float position = (value - minValue) * scale + offset;
+                    int cell = (int) position;
+                    if (position < cell) {
+                        cell--; // floor for negative positions
+                    }
+                    hash = (hash ^ cell) * 0x100000001B3L;
+                }
+                activeIndices[count++] = (int) mix(hash) & memoryMask;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 64-bit finalizer (MurmurHash3 fmix64)
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Get the number of active indices produced per state
+     *
+     * @return numTilings * numGroups
+     */
+    public int getActiveCount() {
+        return numTilings * numGroups;
+    }
+
+    /**
+     * Get the size of the hashed index space
+     *
+     * @return Memory size (a power of two)
+     */
+    public int getMemorySize() {
+        return memoryMask + 1;
+    }
+
+    public int getStateDim() {
+        return stateDim;
+    }
+
+    public int getNumTilings() {
+        return numTilings;
+    }
+
+    public int getTilesPerDimension() {
+        return tilesPerDimension;
+    }
+
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    public float getMinValue() {
+        return minValue;
+    }
+
+    public float getMaxValue() {
+        return maxValue;
+    }
+}
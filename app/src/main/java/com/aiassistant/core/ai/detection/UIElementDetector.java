@@ -12,6 +12,7 @@ import android.view.accessibility.AccessibilityNodeInfo;
 import com.aiassistant.data.models.UIElement;
 import com.aiassistant.services.AIAccessibilityService;
 import com.aiassistant.utils.AccessibilityUtils;
+import com.aiassistant.utils.PerceptualFrameCache;
 
 import org.tensorflow.lite.Interpreter;
 
@@ -52,6 +53,7 @@ public class UIElementDetector {
     // Processing state
     private final AtomicBoolean isProcessing = new AtomicBoolean(false);
     private final List<UIElement> cachedElements = new ArrayList<>();
+    private final PerceptualFrameCache<List<UIElement>> frameCache = new PerceptualFrameCache<>();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
     // Element mappings (for specific games)
@@ -151,62 +153,14 @@ public class UIElementDetector {
         // Only allow one detection process at a time
         if (isProcessing.compareAndSet(false, true)) {
             try {
-                List<UIElement> detectedElements = new ArrayList<>();
-                
-                // First, try to get elements from accessibility tree
-                List<UIElement> accessibilityElements = getElementsFromAccessibilityTree();
-                detectedElements.addAll(accessibilityElements);
-                
-                // If we got enough elements from accessibility, we might not need vision
-                if (detectedElements.size() < 3) {
-                    // Next, try to detect from template matching (for known games)
-                    String currentPackage = AIAccessibilityService.getInstance() != null ?
-                            AIAccessibilityService.getInstance().getCurrentPackage() : null;
-                            
-                    if (currentPackage != null && gameElementTemplates.containsKey(currentPackage)) {
-                        List<UIElement> templateElements = detectElementsFromTemplates(currentPackage, screenshot);
-                        for (UIElement element : templateElements) {
-                            // Avoid duplicates
-                            boolean isDuplicate = false;
-                            for (UIElement existing : detectedElements) {
-                                if (elementsOverlap(element, existing)) {
-                                    isDuplicate = true;
-                                    break;
-                                }
-                            }
-                            
-                            if (!isDuplicate) {
-                                detectedElements.add(element);
-                            }
-                        }
-                    }
-                }
-                
-                // If ML model is available and we still need more elements, use vision detection
-                if (tfLiteInterpreter != null && detectedElements.size() < 5) {
-                    List<UIElement> mlElements = detectElementsWithML(screenshot);
-                    for (UIElement element : mlElements) {
-                        // Avoid duplicates
-                        boolean isDuplicate = false;
-                        for (UIElement existing : detectedElements) {
-                            if (elementsOverlap(element, existing)) {
-                                isDuplicate = true;
-                                break;
-                            }
-                        }
-                        
-                        if (!isDuplicate) {
-                            detectedElements.add(element);
-                        }
-                    }
-                }
+                // Reuse the result of a near-identical recent screenshot
+                List<UIElement> detectedElements = frameCache.getOrCompute(screenshot, this::analyzeScreenshot);
                 
                 // Update cached elements
                 cachedElements.clear();
                 cachedElements.addAll(detectedElements);
                 
-                Log.d(TAG, "Detected " + detectedElements.size() + " UI elements");
-                return detectedElements;
+                return new ArrayList<>(detectedElements);
             } finally {
                 isProcessing.set(false);
             }
@@ -217,6 +171,83 @@ public class UIElementDetector {
         }
     }
     
+    /**
+     * Run full detection on a screenshot
+     * 
+     * @param screenshot The screenshot to analyze
+     * @return List of detected UI elements
+     */
+    private List<UIElement> analyzeScreenshot(Bitmap screenshot) {
+        List<UIElement> detectedElements = new ArrayList<>();
+        
+        // First, try to get elements from accessibility tree
+        List<UIElement> accessibilityElements = getElementsFromAccessibilityTree();
+        detectedElements.addAll(accessibilityElements);
+        
+        // If we got enough elements from accessibility, we might not need vision
+        if (detectedElements.size() < 3) {
+            // Next, try to detect from template matching (for known games)
+            String currentPackage = AIAccessibilityService.getInstance() != null ?
+                    AIAccessibilityService.getInstance().getCurrentPackage() : null;
+                    
+            if (currentPackage != null && gameElementTemplates.containsKey(currentPackage)) {
+                List<UIElement> templateElements = detectElementsFromTemplates(currentPackage, screenshot);
+                for (UIElement element : templateElements) {
+                    // Avoid duplicates
+                    boolean isDuplicate = false;
+                    for (UIElement existing : detectedElements) {
+                        if (elementsOverlap(element, existing)) {
+                            isDuplicate = true;
+                            break;
+                        }
+                    }
+                    
+                    if (!isDuplicate) {
+                        detectedElements.add(element);
+                    }
+                }
+            }
+        }
+        
+        // If ML model is available and we still need more elements, use vision detection
+        if (tfLiteInterpreter != null && detectedElements.size() < 5) {
+            List<UIElement> mlElements = detectElementsWithML(screenshot);
+            for (UIElement element : mlElements) {
+                // Avoid duplicates
+                boolean isDuplicate = false;
+                for (UIElement existing : detectedElements) {
+                    if (elementsOverlap(element, existing)) {
+                        isDuplicate = true;
+                        break;
+                    }
+                }
+                
+                if (!isDuplicate) {
+                    detectedElements.add(element);
+                }
+            }
+        }
+        
+        Log.d(TAG, "Detected " + detectedElements.size() + " UI elements");
+        return detectedElements;
+    }
+    
+    /**
+     * Set how different a screenshot may be from a recent one and still reuse its result
+     * 
+     * @param maxDistance Maximum Hamming distance between frame hashes (0 disables near matches)
+     */
+    public void setFrameCacheDistance(int maxDistance) {
+        frameCache.setMaxDistance(maxDistance);
+    }
+    
+    /**
+     * Get frame cache statistics, including the fraction of screenshots skipped
+     */
+    public Map<String, Object> getFrameCacheStats() {
+        return frameCache.getStats();
+    }
+    
     /**
      * Get UI elements from accessibility service
      */
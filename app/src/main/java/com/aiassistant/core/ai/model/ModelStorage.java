@@ -4,23 +4,30 @@ import android.content.Context;
 import android.util.Log;
 
 import com.aiassistant.core.ai.algorithms.RLAlgorithm;
+import com.aiassistant.core.ai.storage.ModelCheckpoint;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
-import java.util.Arrays;
 
 /**
- * Storage for AI models
+ * Storage for AI models.
+ *
+ * Weights and hyperparameters are saved as a {@link ModelCheckpoint} through
+ * the shared checkpoint storage; model_N.dat files from older versions are
+ * still read.
  */
 public class ModelStorage {
     
     private static final String TAG = "ModelStorage";
     
+    private static final String WEIGHTS = "weights";
+    
+    // Learning rate, discount factor, exploration rate
+    private static final String HYPERPARAMETERS = "hyperparameters";
+    
     private final Context context;
+    private final com.aiassistant.core.ai.storage.ModelStorage checkpoints;
     
     /**
      * Constructor
@@ -29,6 +36,7 @@ public class ModelStorage {
      */
     public ModelStorage(Context context) {
         this.context = context.getApplicationContext();
+        this.checkpoints = com.aiassistant.core.ai.storage.ModelStorage.getInstance(context);
     }
     
     /**
@@ -40,59 +48,36 @@ public class ModelStorage {
      * @return Whether the save was successful
      */
     public boolean saveModel(String gameId, int algorithmType, RLAlgorithm algorithm) {
-        try {
-            // Create models directory if it doesn't exist
-            File modelsDir = new File(context.getFilesDir(), "models");
-            if (!modelsDir.exists()) {
-                modelsDir.mkdirs();
-            }
-            
-            // Create game directory if it doesn't exist
-            File gameDir = new File(modelsDir, sanitizeFileName(gameId));
-            if (!gameDir.exists()) {
-                gameDir.mkdirs();
-            }
-            
-            // Create model file
-            File modelFile = new File(gameDir, "model_" + algorithmType + ".dat");
-            
-            // Get model weights
-            float[] weights = algorithm.getWeights();
-            if (weights == null || weights.length == 0) {
-                Log.e(TAG, "No weights to save");
-                return false;
-            }
-            
-            try (FileOutputStream fos = new FileOutputStream(modelFile)) {
-                // Write header (algorithm type, weight count)
-                ByteBuffer headerBuffer = ByteBuffer.allocate(8);
-                headerBuffer.putInt(algorithmType);
-                headerBuffer.putInt(weights.length);
-                fos.write(headerBuffer.array());
-                
-                // Write weights
-                ByteBuffer weightBuffer = ByteBuffer.allocate(weights.length * 4);
-                FloatBuffer floatBuffer = weightBuffer.asFloatBuffer();
-                floatBuffer.put(weights);
-                fos.write(weightBuffer.array());
-                
-                // Write hyperparameters
-                ByteBuffer paramBuffer = ByteBuffer.allocate(12);
-                paramBuffer.putFloat(algorithm.getLearningRate());
-                paramBuffer.putFloat(algorithm.getDiscountFactor());
-                paramBuffer.putFloat(algorithm.getExplorationRate());
-                fos.write(paramBuffer.array());
-            }
-            
-            Log.d(TAG, "Saved model for " + gameId + ", type " + algorithmType + 
-                  ", weights: " + weights.length);
-            
-            return true;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving model: " + e.getMessage(), e);
+        // Get model weights
+        float[] weights = algorithm.getWeights();
+        if (weights == null || weights.length == 0) {
+            Log.e(TAG, "No weights to save");
+            return false;
+        }
+        
+        // The algorithm interface does not expose state/action sizes
+        ModelCheckpoint checkpoint = new ModelCheckpoint(algorithmType, 0, 0);
+        checkpoint.putArray(WEIGHTS, weights.clone());
+        checkpoint.putArray(HYPERPARAMETERS, new float[] {
+            algorithm.getLearningRate(),
+            algorithm.getDiscountFactor(),
+            algorithm.getExplorationRate()
+        });
+        
+        if (!checkpoints.saveCheckpoint(sanitizeFileName(gameId), algorithmType, checkpoint)) {
             return false;
         }
+        
+        // The checkpoint supersedes any old-format file
+        File legacyFile = getModelFile(gameId, algorithmType);
+        if (legacyFile.exists() && !legacyFile.delete()) {
+            Log.w(TAG, "Failed to delete old model file: " + legacyFile.getPath());
+        }
+        
+        Log.d(TAG, "Saved model for " + gameId + ", type " + algorithmType + 
+              ", weights: " + weights.length);
+        
+        return true;
     }
     
     /**
@@ -104,6 +89,35 @@ public class ModelStorage {
      * @return Whether the load was successful
      */
     public boolean loadModel(String gameId, int algorithmType, RLAlgorithm algorithm) {
+        ModelCheckpoint checkpoint = checkpoints.loadCheckpoint(sanitizeFileName(gameId), algorithmType);
+        if (checkpoint == null) {
+            return loadLegacyModel(gameId, algorithmType, algorithm);
+        }
+        
+        float[] weights = checkpoint.getArray(WEIGHTS);
+        float[] hyperparameters = checkpoint.getArray(HYPERPARAMETERS);
+        if (checkpoint.getAlgorithmType() != algorithmType || weights == null
+                || hyperparameters == null || hyperparameters.length < 3) {
+            Log.e(TAG, "Invalid model checkpoint for " + gameId + ", type " + algorithmType);
+            return false;
+        }
+        
+        // The cached checkpoint keeps its own copy
+        algorithm.setWeights(weights.clone());
+        algorithm.setLearningRate(hyperparameters[0]);
+        algorithm.setDiscountFactor(hyperparameters[1]);
+        algorithm.setExplorationRate(hyperparameters[2]);
+        
+        Log.d(TAG, "Loaded model for " + gameId + ", type " + algorithmType + 
+              ", weights: " + weights.length);
+        
+        return true;
+    }
+    
+    /**
+     * Load a model saved in the old model_N.dat format
+     */
+    private boolean loadLegacyModel(String gameId, int algorithmType, RLAlgorithm algorithm) {
         try {
             File modelFile = getModelFile(gameId, algorithmType);
             if (!modelFile.exists()) {
@@ -179,7 +193,8 @@ public class ModelStorage {
      * @return Whether the model exists
      */
     public boolean modelExists(String gameId, int algorithmType) {
-        return getModelFile(gameId, algorithmType).exists();
+        return checkpoints.modelExists(sanitizeFileName(gameId), algorithmType)
+                || getModelFile(gameId, algorithmType).exists();
     }
     
     /**
@@ -190,11 +205,12 @@ public class ModelStorage {
      * @return Whether the deletion was successful
      */
     public boolean deleteModel(String gameId, int algorithmType) {
+        boolean deleted = checkpoints.deleteModel(sanitizeFileName(gameId), algorithmType);
         File modelFile = getModelFile(gameId, algorithmType);
         if (modelFile.exists()) {
-            return modelFile.delete();
+            deleted &= modelFile.delete();
         }
-        return true;
+        return deleted;
     }
     
     /**
@@ -204,6 +220,8 @@ public class ModelStorage {
      * @return Whether the deletion was successful
      */
     public boolean deleteAllModels(String gameId) {
+        checkpoints.deleteAllModels(sanitizeFileName(gameId));
+        
         File gameDir = new File(new File(context.getFilesDir(), "models"), 
                               sanitizeFileName(gameId));
         if (gameDir.exists()) {
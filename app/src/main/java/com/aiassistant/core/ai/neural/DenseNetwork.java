@@ -0,0 +1,555 @@
+package com.aiassistant.core.ai.neural;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Small fully connected network (MLP) that trains on the CPU without TFLite.
+ *
+ * Each layer keeps its weights in a flat row-major array where output neuron o
+ * reads its inputs from [o * inputSize, (o + 1) * inputSize), so every dot product
+ * walks contiguous memory. Activations, deltas, gradients and optimizer moments
+ * live in workspaces allocated once in the constructor; forward, backward and
+ * step never allocate.
+ *
+ * Batches are passed row-major as well: row r of a batch of width n occupies
+ * [r * n, (r + 1) * n). Arrays returned by {@link #forward} are workspaces owned
+ * by the network and are overwritten by the next forward pass.
+ *
+ * Not thread-safe.
+ */
+public class DenseNetwork {
+
+    /**
+     * Layer activation functions
+     */
+    public enum Activation {
+        LINEAR,
+        RELU,
+        TANH,
+        SOFTMAX
+    }
+
+    /**
+     * Gradient descent variants
+     */
+    public enum Optimizer {
+        SGD,
+        ADAM
+    }
+
+    private static final float ADAM_BETA1 = 0.9f;
+    private static final float ADAM_BETA2 = 0.999f;
+    private static final float ADAM_EPSILON = 1e-8f;
+
+    private final int[] layerSizes;
+    private final Activation[] activations;
+    private final int layerCount;
+    private final int maxBatchSize;
+
+    // Parameters per layer
+    private final float[][] weights;
+    private final float[][] biases;
+
+    // Gradients per layer, accumulated by backward() and cleared by step()
+    private final float[][] weightGradients;
+    private final float[][] biasGradients;
+
+    // Adam moments, allocated lazily when Adam is first used
+    private float[][] weightMoments;
+    private float[][] weightVelocities;
+    private float[][] biasMoments;
+    private float[][] biasVelocities;
+    private int adamSteps;
+
+    // Workspaces: outputs[0] is the input batch, outputs[l + 1] the activated output of layer l
+    private final float[][] outputs;
+    private final float[][] deltas;
+
+    private Optimizer optimizer;
+    private float learningRate;
+    private int lastBatchSize;
+
+    /**
+     * Constructor
+     *
+     * @param layerSizes Sizes of every layer, input first and output last
+     * @param hiddenActivation Activation used by all hidden layers
+     * @param outputActivation Activation used by the output layer
+     * @param maxBatchSize Largest batch that will be passed to forward()
+     * @param seed Seed for weight initialization
+     */
+    public DenseNetwork(int[] layerSizes, Activation hiddenActivation, Activation outputActivation,
+                        int maxBatchSize, long seed) {
+        if (layerSizes == null || layerSizes.length < 2) {
+            throw new IllegalArgumentException("Network needs at least an input and an output layer");
+        }
+        if (hiddenActivation == Activation.SOFTMAX) {
+            throw new IllegalArgumentException("Softmax is only supported on the output layer");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        }
+
+        this.layerSizes = layerSizes.clone();
+        this.layerCount = layerSizes.length - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.activations = new Activation[layerCount];
+        for (int l = 0; l < layerCount; l++) {
+            activations[l] = (l == layerCount - 1) ? outputActivation : hiddenActivation;
+        }
+
+        this.weights = new float[layerCount][];
+        this.biases = new float[layerCount][];
+        this.weightGradients = new float[layerCount][];
+        this.biasGradients = new float[layerCount][];
+        this.outputs = new float[layerCount + 1][];
+        this.deltas = new float[layerCount][];
+
+        outputs[0] = new float[maxBatchSize * layerSizes[0]];
+        for (int l = 0; l < layerCount; l++) {
+            int in = layerSizes[l];
+            int out = layerSizes[l + 1];
+            weights[l] = new float[out * in];
+            biases[l] = new float[out];
+            weightGradients[l] = new float[out * in];
+            biasGradients[l] = new float[out];
+            outputs[l + 1] = new float[maxBatchSize * out];
+            deltas[l] = new float[maxBatchSize * out];
+        }
+
+        this.optimizer = Optimizer.ADAM;
+        this.learningRate = 0.001f;
+
+        initializeWeights(new Random(seed));
+    }
+
+    /**
+     * Initialize weights (He for ReLU layers, Xavier otherwise) and zero biases
+     */
+    private void initializeWeights(Random random) {
+        for (int l = 0; l < layerCount; l++) {
+            int in = layerSizes[l];
+            int out = layerSizes[l + 1];
+            float[] w = weights[l];
+            if (activations[l] == Activation.RELU) {
+                float std = (float) Math.sqrt(2.0 / in);
+                for (int i = 0; i < w.length; i++) {
+                    w[i] = (float) random.nextGaussian() * std;
+                }
+            } else {
+                float limit = (float) Math.sqrt(6.0 / (in + out));
+                for (int i = 0; i < w.length; i++) {
+                    w[i] = (random.nextFloat() * 2.0f - 1.0f) * limit;
+                }
+            }
+            Arrays.fill(biases[l], 0.0f);
+        }
+    }
+
+    /**
+     * Run a batch through the network
+     *
+     * @param input Row-major batch of inputs, at least batchSize * inputSize long
+     * @param batchSize Number of rows
+     * @return Row-major outputs (workspace, valid until the next forward pass)
+     */
+    public float[] forward(float[] input, int batchSize) {
+        return forward(input, 0, batchSize);
+    }
+
+    /**
+     * Run a batch of rows taken from the middle of a larger row-major array
+     *
+     * @param input Row-major inputs
+     * @param inputOffset Index of the first element of the first row
+     * @param batchSize Number of rows
+     * @return Row-major outputs (workspace, valid until the next forward pass)
+     */
+    public float[] forward(float[] input, int inputOffset, int batchSize) {
+        checkBatchSize(batchSize);
+        System.arraycopy(input, inputOffset, outputs[0], 0, batchSize * layerSizes[0]);
+        return forwardFromWorkspace(batchSize);
+    }
+
+    /**
+     * Run a single input through the network. The input is truncated or
+     * zero-padded to the network's input size.
+     *
+     * @param input Input vector
+     * @param output Array of at least outputSize elements to receive the result
+     */
+    public void predict(float[] input, float[] output) {
+        int inputSize = layerSizes[0];
+        int length = Math.min(input.length, inputSize);
+        System.arraycopy(input, 0, outputs[0], 0, length);
+        if (length < inputSize) {
+            Arrays.fill(outputs[0], length, inputSize, 0.0f);
+        }
+        float[] result = forwardFromWorkspace(1);
+        System.arraycopy(result, 0, output, 0, getOutputSize());
+    }
+
+    /**
+     * Forward pass over the batch already in outputs[0]
+     */
+    private float[] forwardFromWorkspace(int batchSize) {
+        for (int l = 0; l < layerCount; l++) {
+            int in = layerSizes[l];
+            int out = layerSizes[l + 1];
+            float[] x = outputs[l];
+            float[] y = outputs[l + 1];
+            float[] w = weights[l];
+            float[] b = biases[l];
+
+            for (int r = 0; r < batchSize; r++) {
+                int xOffset = r * in;
+                int yOffset = r * out;
+                for (int o = 0; o < out; o++) {
+                    int wOffset = o * in;
+                    float sum = b[o];
+                    for (int i = 0; i < in; i++) {
+                        sum += x[xOffset + i] * w[wOffset + i];
+                    }
+                    y[yOffset + o] = sum;
+                }
+                activate(activations[l], y, yOffset, out);
+            }
+        }
+        lastBatchSize = batchSize;
+        return outputs[layerCount];
+    }
+
+    /**
+     * Apply an activation in place to one row
+     */
+    private static void activate(Activation activation, float[] values, int offset, int length) {
+        int end = offset + length;
+        switch (activation) {
+            case RELU:
+                for (int i = offset; i < end; i++) {
+                    if (values[i] < 0.0f) {
+                        values[i] = 0.0f;
+                    }
+                }
+                break;
+            case TANH:
+                for (int i = offset; i < end; i++) {
+                    values[i] = (float) Math.tanh(values[i]);
+                }
+                break;
+            case SOFTMAX:
+                float max = values[offset];
+                for (int i = offset + 1; i < end; i++) {
+                    if (values[i] > max) {
+                        max = values[i];
+                    }
+                }
+                float sum = 0.0f;
+                for (int i = offset; i < end; i++) {
+                    values[i] = (float) Math.exp(values[i] - max);
+                    sum += values[i];
+                }
+                for (int i = offset; i < end; i++) {
+                    values[i] /= sum;
+                }
+                break;
+            case LINEAR:
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Backpropagate a loss gradient through the batch from the last forward pass
+     * and accumulate parameter gradients. Any 1/batchSize averaging must already
+     * be folded into the supplied gradient.
+     *
+     * @param outputGradient Row-major dLoss/dOutput for the last forward batch
+     */
+    public void backward(float[] outputGradient) {
+        int batchSize = lastBatchSize;
+        int last = layerCount - 1;
+
+        // Output layer delta: dLoss/dPreActivation
+        int outSize = layerSizes[layerCount];
+        float[] y = outputs[layerCount];
+        float[] delta = deltas[last];
+        for (int r = 0; r < batchSize; r++) {
+            int offset = r * outSize;
+            if (activations[last] == Activation.SOFTMAX) {
+                // Softmax Jacobian-vector product: y_j * (g_j - sum_k g_k * y_k)
+                float dot = 0.0f;
+                for (int o = 0; o < outSize; o++) {
+                    dot += outputGradient[offset + o] * y[offset + o];
+                }
+                for (int o = 0; o < outSize; o++) {
+                    delta[offset + o] = y[offset + o] * (outputGradient[offset + o] - dot);
+                }
+            } else {
+                for (int o = 0; o < outSize; o++) {
+                    delta[offset + o] = outputGradient[offset + o]
+                            * derivative(activations[last], y[offset + o]);
+                }
+            }
+        }
+
+        for (int l = last; l >= 0; l--) {
+            int in = layerSizes[l];
+            int out = layerSizes[l + 1];
+            float[] x = outputs[l];
+            float[] d = deltas[l];
+            float[] w = weights[l];
+            float[] wGrad = weightGradients[l];
+            float[] bGrad = biasGradients[l];
+
+            // Parameter gradients
+            for (int r = 0; r < batchSize; r++) {
+                int xOffset = r * in;
+                int dOffset = r * out;
+                for (int o = 0; o < out; o++) {
+                    float g = d[dOffset + o];
+                    if (g == 0.0f) {
+                        continue;
+                    }
+                    bGrad[o] += g;
+                    int wOffset = o * in;
+                    for (int i = 0; i < in; i++) {
+                        wGrad[wOffset + i] += g * x[xOffset + i];
+                    }
+                }
+            }
+
+            // Propagate to the previous layer
+            if (l > 0) {
+                float[] previous = deltas[l - 1];
+                Arrays.fill(previous, 0, batchSize * in, 0.0f);
+                for (int r = 0; r < batchSize; r++) {
+                    int pOffset = r * in;
+                    int dOffset = r * out;
+                    for (int o = 0; o < out; o++) {
+                        float g = d[dOffset + o];
+                        if (g == 0.0f) {
+                            continue;
+                        }
+                        int wOffset = o * in;
+                        for (int i = 0; i < in; i++) {
+                            previous[pOffset + i] += g * w[wOffset + i];
+                        }
+                    }
+                    for (int i = 0; i < in; i++) {
+                        previous[pOffset + i] *= derivative(activations[l - 1], x[pOffset + i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Derivative of an element-wise activation expressed in terms of its output
+     */
+    private static float derivative(Activation activation, float output) {
+        switch (activation) {
+            case RELU:
+                return output > 0.0f ? 1.0f : 0.0f;
+            case TANH:
+                return 1.0f - output * output;
+            case LINEAR:
+            default:
+                return 1.0f;
+        }
+    }
+
+    /**
+     * Apply the accumulated gradients with the configured optimizer and clear them
+     */
+    public void step() {
+        if (optimizer == Optimizer.ADAM) {
+            stepAdam();
+        } else {
+            stepSgd();
+        }
+        zeroGradients();
+    }
+
+    private void stepSgd() {
+        for (int l = 0; l < layerCount; l++) {
+            float[] w = weights[l];
+            float[] wGrad = weightGradients[l];
+            for (int i = 0; i < w.length; i++) {
+                w[i] -= learningRate * wGrad[i];
+            }
+            float[] b = biases[l];
+            float[] bGrad = biasGradients[l];
+            for (int i = 0; i < b.length; i++) {
+                b[i] -= learningRate * bGrad[i];
+            }
+        }
+    }
+
+    private void stepAdam() {
+        if (weightMoments == null) {
+            weightMoments = new float[layerCount][];
+            weightVelocities = new float[layerCount][];
+            biasMoments = new float[layerCount][];
+            biasVelocities = new float[layerCount][];
+            for (int l = 0; l < layerCount; l++) {
+                weightMoments[l] = new float[weights[l].length];
+                weightVelocities[l] = new float[weights[l].length];
+                biasMoments[l] = new float[biases[l].length];
+                biasVelocities[l] = new float[biases[l].length];
+            }
+        }
+
+        adamSteps++;
+        float correction1 = 1.0f - (float) Math.pow(ADAM_BETA1, adamSteps);
+        float correction2 = 1.0f - (float) Math.pow(ADAM_BETA2, adamSteps);
+        float stepSize = learningRate * (float) Math.sqrt(correction2) / correction1;
+
+        for (int l = 0; l < layerCount; l++) {
+            adamUpdate(weights[l], weightGradients[l], weightMoments[l], weightVelocities[l], stepSize);
+            adamUpdate(biases[l], biasGradients[l], biasMoments[l], biasVelocities[l], stepSize);
+        }
+    }
+
+    private static void adamUpdate(float[] params, float[] grads, float[] m, float[] v, float stepSize) {
+        for (int i = 0; i < params.length; i++) {
+            float g = grads[i];
+            m[i] = ADAM_BETA1 * m[i] + (1.0f - ADAM_BETA1) * g;
+            v[i] = ADAM_BETA2 * v[i] + (1.0f - ADAM_BETA2) * g * g;
+            params[i] -= stepSize * m[i] / ((float) Math.sqrt(v[i]) + ADAM_EPSILON);
+        }
+    }
+
+    /**
+     * Clear accumulated gradients
+     */
+    public void zeroGradients() {
+        for (int l = 0; l < layerCount; l++) {
+            Arrays.fill(weightGradients[l], 0.0f);
+            Arrays.fill(biasGradients[l], 0.0f);
+        }
+    }
+
+    /**
+     * Copy all weights and biases from a network of identical shape
+     * (used to refresh target networks)
+     *
+     * @param source Network to copy from
+     */
+    public void copyWeightsFrom(DenseNetwork source) {
+        checkSameShape(source);
+        for (int l = 0; l < layerCount; l++) {
+            System.arraycopy(source.weights[l], 0, weights[l], 0, weights[l].length);
+            System.arraycopy(source.biases[l], 0, biases[l], 0, biases[l].length);
+        }
+    }
+
+    /**
+     * Move weights towards another network: this = tau * source + (1 - tau) * this
+     *
+     * @param source Network to blend from
+     * @param tau Blend factor in [0, 1]
+     */
+    public void softUpdateFrom(DenseNetwork source, float tau) {
+        checkSameShape(source);
+        for (int l = 0; l < layerCount; l++) {
+            blend(source.weights[l], weights[l], tau);
+            blend(source.biases[l], biases[l], tau);
+        }
+    }
+
+    private static void blend(float[] source, float[] target, float tau) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] = tau * source[i] + (1.0f - tau) * target[i];
+        }
+    }
+
+    /**
+     * Get the total number of weights and biases
+     *
+     * @return Parameter count
+     */
+    public int getParameterCount() {
+        int count = 0;
+        for (int l = 0; l < layerCount; l++) {
+            count += weights[l].length + biases[l].length;
+        }
+        return count;
+    }
+
+    /**
+     * Copy all parameters into a flat array, layer by layer (weights then biases)
+     *
+     * @param out Array of at least getParameterCount() elements
+     */
+    public void getParameters(float[] out) {
+        int offset = 0;
+        for (int l = 0; l < layerCount; l++) {
+            System.arraycopy(weights[l], 0, out, offset, weights[l].length);
+            offset += weights[l].length;
+            System.arraycopy(biases[l], 0, out, offset, biases[l].length);
+            offset += biases[l].length;
+        }
+    }
+
+    /**
+     * Load all parameters from a flat array in the layout of getParameters()
+     *
+     * @param in Array of at least getParameterCount() elements
+     */
+    public void setParameters(float[] in) {
+        int offset = 0;
+        for (int l = 0; l < layerCount; l++) {
+            System.arraycopy(in, offset, weights[l], 0, weights[l].length);
+            offset += weights[l].length;
+            System.arraycopy(in, offset, biases[l], 0, biases[l].length);
+            offset += biases[l].length;
+        }
+    }
+
+    private void checkBatchSize(int batchSize) {
+        if (batchSize <= 0 || batchSize > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + batchSize + " outside [1, " + maxBatchSize + "]");
+        }
+    }
+
+    private void checkSameShape(DenseNetwork other) {
+        if (!Arrays.equals(layerSizes, other.layerSizes)) {
+            throw new IllegalArgumentException("Network shapes differ: " + Arrays.toString(layerSizes)
+                    + " vs " + Arrays.toString(other.layerSizes));
+        }
+    }
+
+    public int getInputSize() {
+        return layerSizes[0];
+    }
+
+    public int getOutputSize() {
+        return layerSizes[layerCount];
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int[] getLayerSizes() {
+        return layerSizes.clone();
+    }
+
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+    }
+
+    public float getLearningRate() {
+        return learningRate;
+    }
+
+    public void setLearningRate(float learningRate) {
+        this.learningRate = learningRate;
+    }
+}
@@ -0,0 +1,242 @@
+package com.aiassistant.core.ai.neural;
+
+import com.aiassistant.learning.models.PPORolloutBuffer;
+
+import java.util.Random;
+
+/**
+ * Actor/critic network pair with the PPO clipped-surrogate update.
+ *
+ * The actor maps a state to action probabilities (softmax output), the critic
+ * to a scalar value. update() runs several epochs over a filled
+ * {@link PPORolloutBuffer}: each epoch reshuffles the buffer's index
+ * permutation and steps both networks once per minibatch. All workspaces are
+ * allocated up front, so an update does not allocate.
+ */
+public class PPOTrainer {
+    private static final float MIN_PROBABILITY = 1e-8f;
+
+    private final DenseNetwork actorNetwork;
+    private final DenseNetwork criticNetwork;
+    private final int stateSize;
+    private final int actionSize;
+    private final int minibatchSize;
+
+    private float clipEpsilon = 0.2f;
+    private float entropyCoefficient = 0.01f;
+
+    // Reusable minibatch buffers
+    private final float[] minibatchStates;
+    private final float[] actorGradient;
+    private final float[] criticGradient;
+    private final float[] valueOutput = new float[1];
+
+    // Statistics of the last update
+    private float lastPolicyLoss;
+    private float lastValueLoss;
+
+    /**
+     * Constructor
+     *
+     * @param stateSize Length of the state vector
+     * @param actionSize Number of discrete actions
+     * @param hiddenSize Width of each of the two hidden layers
+     * @param minibatchSize Rows per gradient step (also the largest inference batch)
+     * @param learningRate Adam learning rate for both networks
+     * @param seed Weight initialization seed
+     */
+    public PPOTrainer(int stateSize, int actionSize, int hiddenSize, int minibatchSize,
+                      float learningRate, long seed) {
+        this.actorNetwork = new DenseNetwork(new int[] { stateSize, hiddenSize, hiddenSize, actionSize },
+                DenseNetwork.Activation.TANH, DenseNetwork.Activation.SOFTMAX, minibatchSize, seed);
+        this.criticNetwork = new DenseNetwork(new int[] { stateSize, hiddenSize, hiddenSize, 1 },
+                DenseNetwork.Activation.TANH, DenseNetwork.Activation.LINEAR, minibatchSize, seed + 1);
+        this.actorNetwork.setLearningRate(learningRate);
+        this.criticNetwork.setLearningRate(learningRate);
+        this.stateSize = stateSize;
+        this.actionSize = actionSize;
+        this.minibatchSize = minibatchSize;
+        this.minibatchStates = new float[minibatchSize * stateSize];
+        this.actorGradient = new float[minibatchSize * actionSize];
+        this.criticGradient = new float[minibatchSize];
+    }
+
+    /**
+     * Compute action probabilities for a single state
+     *
+     * @param state State vector (truncated or zero-padded to the state size)
+     * @param probabilities Array of at least actionSize elements
+     */
+    public void predictPolicy(float[] state, float[] probabilities) {
+        actorNetwork.predict(state, probabilities);
+    }
+
+    /**
+     * Compute the value of a single state
+     *
+     * @param state State vector (truncated or zero-padded to the state size)
+     * @return Value estimate
+     */
+    public float predictValue(float[] state) {
+        criticNetwork.predict(state, valueOutput);
+        return valueOutput[0];
+    }
+
+    /**
+     * Compute action probabilities and values for many states, in chunks of at
+     * most the minibatch size
+     *
+     * @param states Row-major states, count * stateSize long
+     * @param count Number of states
+     * @param probabilities Array of at least count * actionSize elements (may be null)
+     * @param values Array of at least count elements (may be null)
+     */
+    public void predictBatch(float[] states, int count, float[] probabilities, float[] values) {
+        for (int start = 0; start < count; start += minibatchSize) {
+            int rows = Math.min(minibatchSize, count - start);
+            if (probabilities != null) {
+                float[] p = actorNetwork.forward(states, start * stateSize, rows);
+                System.arraycopy(p, 0, probabilities, start * actionSize, rows * actionSize);
+            }
+            if (values != null) {
+                float[] v = criticNetwork.forward(states, start * stateSize, rows);
+                System.arraycopy(v, 0, values, start, rows);
+            }
+        }
+    }
+
+    /**
+     * Run the PPO update over a buffer whose advantages have been computed
+     *
+     * @param buffer Filled rollout buffer
+     * @param epochs Number of passes over the buffer
+     * @param random Random source for minibatch shuffling
+     * @return Mean policy loss of the last epoch
+     */
+    public float update(PPORolloutBuffer buffer, int epochs, Random random) {
+        int size = buffer.size();
+        if (size == 0) {
+            return 0.0f;
+        }
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            buffer.shuffle(random);
+            float policyLoss = 0.0f;
+            float valueLoss = 0.0f;
+            int minibatches = 0;
+            for (int start = 0; start < size; start += minibatchSize) {
+                int rows = Math.min(minibatchSize, size - start);
+                buffer.gatherStates(start, rows, minibatchStates);
+                policyLoss += trainActorMinibatch(buffer, start, rows);
+                valueLoss += trainCriticMinibatch(buffer, start, rows);
+                minibatches++;
+            }
+            lastPolicyLoss = policyLoss / minibatches;
+            lastValueLoss = valueLoss / minibatches;
+        }
+        return lastPolicyLoss;
+    }
+
+    /**
+     * One clipped-surrogate policy gradient step on the packed minibatch
+     *
+     * @return Mean policy loss for the minibatch
+     */
+    private float trainActorMinibatch(PPORolloutBuffer buffer, int start, int rows) {
+        float[] probs = actorNetwork.forward(minibatchStates, rows);
+        float scale = 1.0f / rows;
+        float loss = 0.0f;
+
+        for (int r = 0; r < rows; r++) {
+            int row = buffer.rowAt(start + r);
+            int action = buffer.getAction(row);
+            float advantage = buffer.getAdvantage(row);
+            int offset = r * actionSize;
+            float prob = Math.max(probs[offset + action], MIN_PROBABILITY);
+            float ratio = (float) Math.exp(Math.log(prob) - buffer.getLogProb(row));
+            float clippedRatio = Math.max(1.0f - clipEpsilon, Math.min(1.0f + clipEpsilon, ratio));
+            float surrogate = ratio * advantage;
+            float clippedSurrogate = clippedRatio * advantage;
+            loss -= Math.min(surrogate, clippedSurrogate);
+
+            // Entropy bonus: loss -= c * H, dH/dp_j = -(log p_j + 1)
+            for (int a = 0; a < actionSize; a++) {
+                float p = Math.max(probs[offset + a], MIN_PROBABILITY);
+                float logP = (float) Math.log(p);
+                loss += entropyCoefficient * p * logP;
+                actorGradient[offset + a] = entropyCoefficient * (logP + 1.0f) * scale;
+            }
+
+            // The clipped branch has zero gradient, so only the unclipped one contributes:
+            // d(ratio * A)/dp = ratio * A / p
+            if (surrogate <= clippedSurrogate) {
+                actorGradient[offset + action] -= ratio * advantage / prob * scale;
+            }
+        }
+
+        actorNetwork.backward(actorGradient);
+        actorNetwork.step();
+        return loss * scale;
+    }
+
+    /**
+     * One value regression step on the packed minibatch
+     *
+     * @return Mean squared value error for the minibatch
+     */
+    private float trainCriticMinibatch(PPORolloutBuffer buffer, int start, int rows) {
+        float[] values = criticNetwork.forward(minibatchStates, rows);
+        float scale = 1.0f / rows;
+        float loss = 0.0f;
+
+        for (int r = 0; r < rows; r++) {
+            float error = values[r] - buffer.getReturn(buffer.rowAt(start + r));
+            loss += 0.5f * error * error;
+            criticGradient[r] = error * scale;
+        }
+
+        criticNetwork.backward(criticGradient);
+        criticNetwork.step();
+        return loss * scale;
+    }
+
+    public DenseNetwork getActorNetwork() {
+        return actorNetwork;
+    }
+
+    public DenseNetwork getCriticNetwork() {
+        return criticNetwork;
+    }
+
+    public int getMinibatchSize() {
+        return minibatchSize;
+    }
+
+    public float getClipEpsilon() {
+        return clipEpsilon;
+    }
+
+    public void setClipEpsilon(float clipEpsilon) {
+        this.clipEpsilon = clipEpsilon;
+    }
+
+    public float getEntropyCoefficient() {
+        return entropyCoefficient;
+    }
+
+    public void setEntropyCoefficient(float entropyCoefficient) {
+        this.entropyCoefficient = entropyCoefficient;
+    }
+
+    public void setLearningRate(float learningRate) {
+        actorNetwork.setLearningRate(learningRate);
+        criticNetwork.setLearningRate(learningRate);
+    }
+
+    public float getLastPolicyLoss() {
+        return lastPolicyLoss;
+    }
+
+    public float getLastValueLoss() {
+        return lastValueLoss;
+    }
+}
@@ -0,0 +1,156 @@
+package com.aiassistant.core.ai.neural;
+
+import com.aiassistant.learning.models.ExperienceReplay;
+
+import java.util.Arrays;
+
+/**
+ * Online/target Q-network pair with a batched DQN training step.
+ *
+ * The online network is trained on replay batches against targets
+ * r + gamma * max_a' Q_target(s', a') using a Huber loss scaled by each
+ * sample's importance-sampling weight. TD errors from the last batch are kept
+ * so prioritized replay can update its priorities.
+ */
+public class QNetworkTrainer {
+    private final DenseNetwork onlineNetwork;
+    private final DenseNetwork targetNetwork;
+    private final int actionSize;
+
+    // Reusable per-batch buffers
+    private final float[] targets;
+    private final float[] tdErrors;
+    private final float[] outputGradient;
+
+    /**
+     * Constructor
+     *
+     * @param stateSize Length of the state vector
+     * @param actionSize Number of actions (Q-values per state)
+     * @param hiddenSize Width of each of the two hidden layers
+     * @param maxBatchSize Largest training batch
+     * @param learningRate Adam learning rate
+     */
+    public QNetworkTrainer(int stateSize, int actionSize, int hiddenSize, int maxBatchSize, float learningRate) {
+        int[] layers = {stateSize, hiddenSize, hiddenSize, actionSize};
+        long seed = System.nanoTime();
+        this.onlineNetwork = new DenseNetwork(layers, DenseNetwork.Activation.RELU,
+                DenseNetwork.Activation.LINEAR, maxBatchSize, seed);
+        this.targetNetwork = new DenseNetwork(layers, DenseNetwork.Activation.RELU,
+                DenseNetwork.Activation.LINEAR, maxBatchSize, seed);
+        this.onlineNetwork.setLearningRate(learningRate);
+        this.actionSize = actionSize;
+        this.targets = new float[maxBatchSize];
+        this.tdErrors = new float[maxBatchSize];
+        this.outputGradient = new float[maxBatchSize * actionSize];
+    }
+
+    /**
+     * Compute Q-values for a single state with the online network
+     *
+     * @param state State vector (truncated or zero-padded to the state size)
+     * @param qValues Array of at least actionSize elements to receive the Q-values
+     */
+    public void predict(float[] state, float[] qValues) {
+        onlineNetwork.predict(state, qValues);
+    }
+
+    /**
+     * Compute Q-values for many states with the online network, in chunks of
+     * at most the network's batch size
+     *
+     * @param states Row-major states, count * stateSize long
+     * @param count Number of states
+     * @param qValues Array of at least count * actionSize elements to receive the Q-values
+     */
+    public void predictBatch(float[] states, int count, float[] qValues) {
+        int stateSize = onlineNetwork.getInputSize();
+        int chunk = onlineNetwork.getMaxBatchSize();
+        for (int start = 0; start < count; start += chunk) {
+            int rows = Math.min(chunk, count - start);
+            float[] q = onlineNetwork.forward(states, start * stateSize, rows);
+            System.arraycopy(q, 0, qValues, start * actionSize, rows * actionSize);
+        }
+    }
+
+    /**
+     * Run one gradient step on a replay batch
+     *
+     * @param batch Sampled transitions
+     * @param discountFactor Discount applied to bootstrapped next-state values
+     * @return Mean weighted Huber loss over the batch
+     */
+    public float train(ExperienceReplay.Batch batch, float discountFactor) {
+        int n = batch.size;
+        if (n == 0) {
+            return 0.0f;
+        }
+
+        // Bootstrapped targets from the target network
+        float[] nextQ = targetNetwork.forward(batch.nextStates, n);
+        for (int r = 0; r < n; r++) {
+            float target = batch.rewards[r];
+            if (!batch.dones[r]) {
+                int offset = r * actionSize;
+                float best = nextQ[offset];
+                for (int a = 1; a < actionSize; a++) {
+                    if (nextQ[offset + a] > best) {
+                        best = nextQ[offset + a];
+                    }
+                }
+                target += discountFactor * best;
+            }
+            targets[r] = target;
+        }
+
+        // Online predictions and Huber loss gradient on the taken action only
+        float[] q = onlineNetwork.forward(batch.states, n);
+        Arrays.fill(outputGradient, 0, n * actionSize, 0.0f);
+        float loss = 0.0f;
+        float scale = 1.0f / n;
+        for (int r = 0; r < n; r++) {
+            int index = r * actionSize + batch.actions[r];
+            float error = targets[r] - q[index];
+            tdErrors[r] = error;
+
+            float absError = Math.abs(error);
+            float weight = batch.weights[r];
+            if (absError <= 1.0f) {
+                loss += weight * 0.5f * error * error;
+                outputGradient[index] = -weight * error * scale;
+            } else {
+                loss += weight * (absError - 0.5f);
+                outputGradient[index] = -weight * Math.signum(error) * scale;
+            }
+        }
+
+        onlineNetwork.backward(outputGradient);
+        onlineNetwork.step();
+
+        return loss * scale;
+    }
+
+    /**
+     * Get the TD errors from the last training batch
+     *
+     * @return TD error per row (valid for the first batch.size entries)
+     */
+    public float[] getTdErrors() {
+        return tdErrors;
+    }
+
+    /**
+     * Copy the online weights into the target network
+     */
+    public void syncTargetNetwork() {
+        targetNetwork.copyWeightsFrom(onlineNetwork);
+    }
+
+    public DenseNetwork getOnlineNetwork() {
+        return onlineNetwork;
+    }
+
+    public DenseNetwork getTargetNetwork() {
+        return targetNetwork;
+    }
+}
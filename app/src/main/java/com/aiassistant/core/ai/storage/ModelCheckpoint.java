@@ -0,0 +1,337 @@
+package com.aiassistant.core.ai.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary checkpoint of an RL model: a small header followed by
+ * named raw float arrays.
+ *
+ * File layout (all little-endian):
+ * <pre>
+ *   int    magic "AIMC"
+ *   int    schema version
+ *   int    algorithm type, state size, action size
+ *   int    array count
+ *   per array: short name length, UTF-8 name, long data offset, int float count
+ *   padding to a multiple of 8, then the raw float data of every array
+ * </pre>
+ *
+ * Writing goes to a temporary file through a FileChannel and is renamed over
+ * the target only once fully written, so a crash never leaves a truncated
+ * checkpoint. Reading memory-maps the file and parses only the header; an
+ * array is copied out of the mapping the first time it is requested, or can be
+ * read in place through {@link #getArrayBuffer(String)}.
+ */
+public class ModelCheckpoint {
+    public static final int SCHEMA_VERSION = 1;
+
+    private static final int MAGIC = 0x434D4941; // "AIMC" read little-endian
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int WRITE_CHUNK_BYTES = 64 * 1024;
+
+    private final int algorithmType;
+    private final int stateSize;
+    private final int actionSize;
+    private final int schemaVersion;
+
+    // Heap arrays, and {offset, length} of arrays still only in the file mapping
+    private final Map<String, float[]> arrays = new LinkedHashMap<>();
+    private final Map<String, long[]> mappedArrays = new LinkedHashMap<>();
+    private MappedByteBuffer mapping;
+
+    /**
+     * Constructor for a new checkpoint
+     *
+     * @param algorithmType Algorithm type (see ModelStorage.ALGORITHM_*)
+     * @param stateSize State vector size
+     * @param actionSize Number of actions
+     */
+    public ModelCheckpoint(int algorithmType, int stateSize, int actionSize) {
+        this(algorithmType, stateSize, actionSize, SCHEMA_VERSION);
+    }
+
+    private ModelCheckpoint(int algorithmType, int stateSize, int actionSize, int schemaVersion) {
+        this.algorithmType = algorithmType;
+        this.stateSize = stateSize;
+        this.actionSize = actionSize;
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * Add or replace a named array. The array is stored by reference.
+     *
+     * @param name Array name, e.g. "weights" or "qtable"
+     * @param data Values
+     */
+    public void putArray(String name, float[] data) {
+        mappedArrays.remove(name);
+        arrays.put(name, data);
+    }
+
+    /**
+     * Get a named array, copying it out of the file mapping on first access
+     *
+     * @param name Array name
+     * @return The values, or null if there is no such array
+     */
+    public float[] getArray(String name) {
+        float[] data = arrays.get(name);
+        if (data == null) {
+            FloatBuffer buffer = getMappedBuffer(name);
+            if (buffer != null) {
+                data = new float[buffer.remaining()];
+                buffer.get(data);
+                arrays.put(name, data);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Get a read-only view of a named array without copying it onto the heap
+     *
+     * @param name Array name
+     * @return Float buffer positioned at the first value, or null if there is no such array
+     */
+    public FloatBuffer getArrayBuffer(String name) {
+        float[] data = arrays.get(name);
+        if (data != null) {
+            return FloatBuffer.wrap(data).asReadOnlyBuffer();
+        }
+        return getMappedBuffer(name);
+    }
+
+    /**
+     * Slice the file mapping for an array
+     */
+    private FloatBuffer getMappedBuffer(String name) {
+        long[] location = mappedArrays.get(name);
+        if (location == null || mapping == null) {
+            return null;
+        }
+        ByteBuffer slice = mapping.duplicate();
+        slice.position((int) location[0]);
+        slice.limit((int) (location[0] + location[1] * 4));
+        return slice.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /**
+     * Check whether a named array exists
+     *
+     * @param name Array name
+     * @return True if present
+     */
+    public boolean hasArray(String name) {
+        return arrays.containsKey(name) || mappedArrays.containsKey(name);
+    }
+
+    /**
+     * Get the length of a named array without materializing it
+     *
+     * @param name Array name
+     * @return Number of floats, or -1 if there is no such array
+     */
+    public int getArrayLength(String name) {
+        float[] data = arrays.get(name);
+        if (data != null) {
+            return data.length;
+        }
+        long[] location = mappedArrays.get(name);
+        return location != null ? (int) location[1] : -1;
+    }
+
+    /**
+     * Get the names of all arrays in file order
+     *
+     * @return Array names
+     */
+    public List<String> getArrayNames() {
+        List<String> names = new ArrayList<>(mappedArrays.keySet());
+        for (String name : arrays.keySet()) {
+            if (!mappedArrays.containsKey(name)) {
+                names.add(name);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Get the total size of all array data, whether on the heap or still
+     * mapped; it only changes when arrays are added or replaced
+     *
+     * @return Bytes of array data
+     */
+    public long getDataBytes() {
+        long bytes = 0;
+        for (String name : getArrayNames()) {
+            bytes += 4L * getArrayLength(name);
+        }
+        return bytes;
+    }
+
+    /**
+     * Write the checkpoint to a file atomically
+     *
+     * @param file Target file
+     * @throws IOException If writing or the final rename fails
+     */
+    public void write(File file) throws IOException {
+        List<String> names = getArrayNames();
+        byte[][] encodedNames = new byte[names.size()][];
+        int headerBytes = 24;
+        for (int i = 0; i < names.size(); i++) {
+            encodedNames[i] = names.get(i).getBytes(UTF_8);
+            headerBytes += 2 + encodedNames[i].length + 8 + 4;
+        }
+        long dataOffset = (headerBytes + 7) & ~7L;
+
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(SCHEMA_VERSION);
+        header.putInt(algorithmType);
+        header.putInt(stateSize);
+        header.putInt(actionSize);
+        header.putInt(names.size());
+        long offset = dataOffset;
+        for (int i = 0; i < names.size(); i++) {
+            int length = getArrayLength(names.get(i));
+            header.putShort((short) encodedNames[i].length);
+            header.put(encodedNames[i]);
+            header.putLong(offset);
+            header.putInt(length);
+            offset += 4L * length;
+        }
+        header.position(0);
+
+        File temp = new File(file.getPath() + ".tmp");
+        boolean moved = false;
+        try {
+            FileOutputStream output = new FileOutputStream(temp);
+            try {
+                FileChannel channel = output.getChannel();
+                writeFully(channel, header);
+
+                ByteBuffer chunk = ByteBuffer.allocateDirect(WRITE_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                FloatBuffer chunkFloats = chunk.asFloatBuffer();
+                for (String name : names) {
+                    float[] data = arrays.get(name);
+                    FloatBuffer source = data == null ? getMappedBuffer(name) : null;
+                    int length = getArrayLength(name);
+                    for (int position = 0; position < length; ) {
+                        int count = Math.min(length - position, chunkFloats.capacity());
+                        chunkFloats.clear();
+                        if (data != null) {
+                            chunkFloats.put(data, position, count);
+                        } else {
+                            FloatBuffer part = source.duplicate();
+                            part.position(position);
+                            part.limit(position + count);
+                            chunkFloats.put(part);
+                        }
+                        position += count;
+                        chunk.clear();
+                        chunk.limit(count * 4);
+                        writeFully(channel, chunk);
+                    }
+                }
+                channel.force(true);
+            } finally {
+                output.close();
+            }
+
+            if (!temp.renameTo(file)) {
+                throw new IOException("Failed to move checkpoint into place: " + file);
+            }
+            moved = true;
+        } finally {
+            // Never leave a partial checkpoint behind
+            if (!moved) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read a checkpoint by memory-mapping a file. Only the header is parsed;
+     * array data stays in the mapping until requested.
+     *
+     * @param file Checkpoint file
+     * @return The checkpoint
+     * @throws IOException If the file cannot be read or is not a valid checkpoint
+     */
+    public static ModelCheckpoint read(File file) throws IOException {
+        MappedByteBuffer mapping;
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            // The mapping stays valid after the channel is closed
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            input.close();
+        }
+
+        ByteBuffer header = mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a model checkpoint: " + file);
+            }
+            int version = header.getInt();
+            if (version > SCHEMA_VERSION) {
+                throw new IOException("Unsupported checkpoint schema version " + version + ": " + file);
+            }
+            ModelCheckpoint checkpoint = new ModelCheckpoint(header.getInt(), header.getInt(), header.getInt(), version);
+            int count = header.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+                long offset = header.getLong();
+                int length = header.getInt();
+                if (length < 0 || offset < 0 || offset + 4L * length > mapping.capacity()) {
+                    throw new IOException("Corrupt checkpoint directory: " + file);
+                }
+                checkpoint.mappedArrays.put(new String(name, UTF_8), new long[] { offset, length });
+            }
+            checkpoint.mapping = mapping;
+            return checkpoint;
+        } catch (RuntimeException e) {
+            // BufferUnderflowException and friends on a truncated header
+            throw new IOException("Corrupt checkpoint header: " + file, e);
+        }
+    }
+
+    public int getAlgorithmType() {
+        return algorithmType;
+    }
+
+    public int getStateSize() {
+        return stateSize;
+    }
+
+    public int getActionSize() {
+        return actionSize;
+    }
+
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+}
@@ -2,6 +2,7 @@ package com.aiassistant.core.ai.storage;
 
 import android.content.Context;
 import android.util.Log;
+import android.util.LruCache;
 
 import com.aiassistant.core.ai.model.DQNModel;
 import com.aiassistant.core.ai.model.RLModel;
@@ -14,11 +15,14 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
- * Storage for AI models
+ * Storage for AI models.
+ *
+ * Checkpoints are stored in the compact {@link ModelCheckpoint} binary format
+ * (written atomically, loaded by memory-mapping); saveRLModel/loadRLModel
+ * keep Java serialization for other model objects. Loaded models are kept
+ * in an LRU cache bounded by their data size.
  */
 public class ModelStorage {
     
@@ -28,16 +32,23 @@ public class ModelStorage {
     public static final int ALGORITHM_DQN = 1;
     public static final int ALGORITHM_SARSA = 2;
     public static final int ALGORITHM_META = 3;
+    public static final int ALGORITHM_Q_LEARNING = 4;
+    public static final int ALGORITHM_PPO = 5;
     
-    // File name format: game_id_algorithm_type.model
+    // File name formats: game_id_algorithm_type.ckpt (binary) or .model (serialized)
     private static final String FILE_FORMAT = "%s_%d.model";
+    private static final String CHECKPOINT_FORMAT = "%s_%d.ckpt";
+    
+    // Cache budget in KB, and the size charged for models of unknown size
+    private static final int CACHE_SIZE_KB = 32 * 1024;
+    private static final int UNKNOWN_MODEL_SIZE_KB = 256;
     
     private static ModelStorage instance;
     private final Context context;
     private final File storageDir;
     
-    // Cache for loaded models
-    private final Map<String, Object> modelCache;
+    // Size-bounded cache for loaded models
+    private final LruCache<String, CachedModel> modelCache;
     
     /**
      * Get the singleton instance
@@ -60,7 +71,13 @@ public class ModelStorage {
     private ModelStorage(Context context) {
         this.context = context;
         this.storageDir = new File(context.getFilesDir(), Constants.MODEL_STORAGE_DIR);
-        this.modelCache = new HashMap<>();
+        this.modelCache = new LruCache<String, CachedModel>(CACHE_SIZE_KB) {
+            @Override
+            protected int sizeOf(String key, CachedModel entry) {
+                // Fixed when cached; LruCache requires it never to change
+                return entry.sizeKb;
+            }
+        };
         
         // Create storage directory if it doesn't exist
         if (!storageDir.exists()) {
@@ -94,7 +111,7 @@ public class ModelStorage {
             
             // Update cache
             String cacheKey = getCacheKey(gameId, algorithmType);
-            modelCache.put(cacheKey, model);
+            modelCache.put(cacheKey, new CachedModel(model));
             
             Log.d(TAG, "Saved model: " + fileName);
             return true;
@@ -105,6 +122,39 @@ public class ModelStorage {
         }
     }
     
+    /**
+     * Save a model checkpoint in the binary checkpoint format
+     * 
+     * @param gameId The game ID
+     * @param algorithmType The algorithm type
+     * @param checkpoint The checkpoint to save
+     * @return True if saved successfully
+     */
+    public boolean saveCheckpoint(String gameId, int algorithmType, ModelCheckpoint checkpoint) {
+        if (gameId == null || checkpoint == null) {
+            return false;
+        }
+        
+        String fileName = String.format(CHECKPOINT_FORMAT, gameId, algorithmType);
+        try {
+            checkpoint.write(new File(storageDir, fileName));
+            
+            // Drop any stale serialized copy; the checkpoint supersedes it
+            File legacy = new File(storageDir, String.format(FILE_FORMAT, gameId, algorithmType));
+            if (legacy.exists() && !legacy.delete()) {
+                Log.w(TAG, "Failed to delete superseded model: " + legacy.getName());
+            }
+            
+            modelCache.put(getCacheKey(gameId, algorithmType), new CachedModel(checkpoint));
+            Log.d(TAG, "Saved checkpoint: " + fileName);
+            return true;
+            
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving checkpoint " + fileName + ": " + e.getMessage(), e);
+            return false;
+        }
+    }
+    
     /**
      * Load a reinforcement learning model
      * 
@@ -119,8 +169,9 @@ public class ModelStorage {
         
         // Check cache first
         String cacheKey = getCacheKey(gameId, algorithmType);
-        if (modelCache.containsKey(cacheKey)) {
-            return modelCache.get(cacheKey);
+        CachedModel cached = modelCache.get(cacheKey);
+        if (cached != null && !(cached.model instanceof ModelCheckpoint)) {
+            return cached.model;
         }
         
         String fileName = String.format(FILE_FORMAT, gameId, algorithmType);
@@ -137,7 +188,7 @@ public class ModelStorage {
             Object model = ois.readObject();
             
             // Update cache
-            modelCache.put(cacheKey, model);
+            modelCache.put(cacheKey, new CachedModel(model));
             
             Log.d(TAG, "Loaded model: " + fileName);
             return model;
@@ -148,6 +199,43 @@ public class ModelStorage {
         }
     }
     
+    /**
+     * Load a binary model checkpoint. The file is memory-mapped and arrays are
+     * read lazily.
+     * 
+     * @param gameId The game ID
+     * @param algorithmType The algorithm type
+     * @return The checkpoint, or null if there is none or it cannot be read
+     */
+    public ModelCheckpoint loadCheckpoint(String gameId, int algorithmType) {
+        if (gameId == null) {
+            return null;
+        }
+        
+        String cacheKey = getCacheKey(gameId, algorithmType);
+        CachedModel cached = modelCache.get(cacheKey);
+        if (cached != null && cached.model instanceof ModelCheckpoint) {
+            return (ModelCheckpoint) cached.model;
+        }
+        
+        String fileName = String.format(CHECKPOINT_FORMAT, gameId, algorithmType);
+        File file = new File(storageDir, fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        
+        try {
+            ModelCheckpoint checkpoint = ModelCheckpoint.read(file);
+            modelCache.put(cacheKey, new CachedModel(checkpoint));
+            Log.d(TAG, "Loaded checkpoint: " + fileName);
+            return checkpoint;
+            
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading checkpoint " + fileName + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+    
     /**
      * Check if a model exists
      * 
@@ -162,14 +250,12 @@ public class ModelStorage {
         
         // Check cache first
         String cacheKey = getCacheKey(gameId, algorithmType);
-        if (modelCache.containsKey(cacheKey)) {
+        if (modelCache.get(cacheKey) != null) {
             return true;
         }
         
-        String fileName = String.format(FILE_FORMAT, gameId, algorithmType);
-        File file = new File(storageDir, fileName);
-        
-        return file.exists();
+        return new File(storageDir, String.format(CHECKPOINT_FORMAT, gameId, algorithmType)).exists()
+                || new File(storageDir, String.format(FILE_FORMAT, gameId, algorithmType)).exists();
     }
     
     /**
@@ -184,23 +270,26 @@ public class ModelStorage {
             return false;
         }
         
-        String fileName = String.format(FILE_FORMAT, gameId, algorithmType);
-        File file = new File(storageDir, fileName);
-        
-        if (!file.exists()) {
-            return true; // Already doesn't exist
-        }
-        
-        boolean deleted = file.delete();
+        // Remove from cache
+        modelCache.remove(getCacheKey(gameId, algorithmType));
         
-        if (deleted) {
-            // Remove from cache
-            String cacheKey = getCacheKey(gameId, algorithmType);
-            modelCache.remove(cacheKey);
+        boolean deleted = true;
+        String[] fileNames = {
+            String.format(CHECKPOINT_FORMAT, gameId, algorithmType),
+            String.format(FILE_FORMAT, gameId, algorithmType)
+        };
+        for (String fileName : fileNames) {
+            File file = new File(storageDir, fileName);
+            if (!file.exists()) {
+                continue; // Already doesn't exist
+            }
             
-            Log.d(TAG, "Deleted model: " + fileName);
-        } else {
-            Log.e(TAG, "Failed to delete model: " + fileName);
+            if (file.delete()) {
+                Log.d(TAG, "Deleted model: " + fileName);
+            } else {
+                Log.e(TAG, "Failed to delete model: " + fileName);
+                deleted = false;
+            }
         }
         
         return deleted;
@@ -234,6 +323,16 @@ public class ModelStorage {
             allDeleted &= deleteModel(gameId, ALGORITHM_META);
         }
         
+        // Delete Q-learning model
+        if (modelExists(gameId, ALGORITHM_Q_LEARNING)) {
+            allDeleted &= deleteModel(gameId, ALGORITHM_Q_LEARNING);
+        }
+        
+        // Delete PPO model
+        if (modelExists(gameId, ALGORITHM_PPO)) {
+            allDeleted &= deleteModel(gameId, ALGORITHM_PPO);
+        }
+        
         return allDeleted;
     }
     
@@ -295,6 +394,22 @@ public class ModelStorage {
      * Clear the model cache
      */
     public void clearCache() {
-        modelCache.clear();
+        modelCache.evictAll();
+    }
+    
+    /**
+     * Cached model with its size in KB, worked out once from the fixed array
+     * lengths so materializing mapped arrays later does not change it
+     */
+    private static class CachedModel {
+        final Object model;
+        final int sizeKb;
+        
+        CachedModel(Object model) {
+            this.model = model;
+            this.sizeKb = model instanceof ModelCheckpoint
+                    ? (int) Math.min(Integer.MAX_VALUE, ((ModelCheckpoint) model).getDataBytes() / 1024 + 1)
+                    : UNKNOWN_MODEL_SIZE_KB;
+        }
     }
 }
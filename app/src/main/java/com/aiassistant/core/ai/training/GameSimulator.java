@@ -0,0 +1,64 @@
+package com.aiassistant.core.ai.training;
+
+/**
+ * Headless game environment used for offline training.
+ *
+ * Observations are written straight into a caller-supplied row of a larger
+ * row-major array so a {@link VectorizedRolloutRunner} can step many
+ * simulators without copying. An instance is only ever stepped by one thread
+ * at a time, so implementations do not need to be thread-safe.
+ */
+public interface GameSimulator {
+
+    /**
+     * Creates one simulator per environment slot
+     */
+    interface Factory {
+        /**
+         * Create a simulator
+         *
+         * @param index Environment slot, useful for seeding
+         * @return A new, independent simulator
+         */
+        GameSimulator create(int index);
+    }
+
+    /**
+     * Get the length of the observation vector
+     *
+     * @return Observation size
+     */
+    int getStateSize();
+
+    /**
+     * Get the number of discrete actions
+     *
+     * @return Action space size
+     */
+    int getActionSize();
+
+    /**
+     * Start a new episode
+     *
+     * @param observation Array to receive the initial observation
+     * @param offset Index of the first element to write
+     */
+    void reset(float[] observation, int offset);
+
+    /**
+     * Apply an action and advance the game by one step
+     *
+     * @param action Action index in [0, getActionSize())
+     * @param observation Array to receive the resulting observation
+     * @param offset Index of the first element to write
+     * @return The reward for this step
+     */
+    float step(int action, float[] observation, int offset);
+
+    /**
+     * Check whether the last step ended the episode
+     *
+     * @return True if the episode reached a terminal state
+     */
+    boolean isDone();
+}
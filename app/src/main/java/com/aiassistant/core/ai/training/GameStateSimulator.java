@@ -0,0 +1,117 @@
+package com.aiassistant.core.ai.training;
+
+import com.aiassistant.data.models.GameState;
+
+/**
+ * Adapter for simulators that model the game as a {@link GameState}.
+ *
+ * Subclasses create and advance a GameState; its feature vector (truncated or
+ * zero-padded to the state size) becomes the observation.
+ */
+public abstract class GameStateSimulator implements GameSimulator {
+    private final int stateSize;
+    private final int actionSize;
+    private GameState state;
+
+    /**
+     * Constructor
+     *
+     * @param stateSize Length of the observation vector
+     * @param actionSize Number of discrete actions
+     */
+    protected GameStateSimulator(int stateSize, int actionSize) {
+        this.stateSize = stateSize;
+        this.actionSize = actionSize;
+    }
+
+    /**
+     * Create the state at the start of an episode
+     *
+     * @return The initial game state
+     */
+    protected abstract GameState createInitialState();
+
+    /**
+     * Apply an action to the game state. The current state must be left
+     * unchanged, since computeReward compares it with the result.
+     *
+     * @param state The current game state (not modified)
+     * @param action Action index
+     * @return A new game state object holding the result
+     */
+    protected abstract GameState applyAction(GameState state, int action);
+
+    /**
+     * Compute the reward for a transition
+     *
+     * @param previous State before the action
+     * @param action Action index
+     * @param next State after the action
+     * @return The reward
+     */
+    protected abstract float computeReward(GameState previous, int action, GameState next);
+
+    /**
+     * Check whether a state ends the episode
+     *
+     * @param state The game state
+     * @return True if terminal
+     */
+    protected abstract boolean isTerminal(GameState state);
+
+    @Override
+    public int getStateSize() {
+        return stateSize;
+    }
+
+    @Override
+    public int getActionSize() {
+        return actionSize;
+    }
+
+    @Override
+    public void reset(float[] observation, int offset) {
+        state = createInitialState();
+        writeFeatures(state, observation, offset);
+    }
+
+    @Override
+    public float step(int action, float[] observation, int offset) {
+        GameState previous = state;
+        state = applyAction(previous, action);
+        if (state == previous && previous != null) {
+            // An in-place update would hand computeReward the new state twice
+            throw new IllegalStateException("applyAction must return a new GameState");
+        }
+        writeFeatures(state, observation, offset);
+        return computeReward(previous, action, state);
+    }
+
+    @Override
+    public boolean isDone() {
+        return state == null || isTerminal(state);
+    }
+
+    /**
+     * Get the current game state
+     *
+     * @return The state, or null before the first reset
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Copy a state's features into an observation row
+     */
+    private void writeFeatures(GameState state, float[] observation, int offset) {
+        float[] features = state != null ? state.getFeatures() : null;
+        int length = features != null ? Math.min(features.length, stateSize) : 0;
+        if (length > 0) {
+            System.arraycopy(features, 0, observation, offset, length);
+        }
+        for (int i = length; i < stateSize; i++) {
+            observation[offset + i] = 0.0f;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.aiassistant.core.ai.training;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * Steps a set of simulated environments in lockstep.
+ *
+ * Each step the observations of all environments, stored row-major in one
+ * flat array, go to the policy in a single call; the chosen actions are then
+ * applied on a fixed pool of worker threads, each owning a contiguous slice of
+ * environments; and the resulting transitions are handed to the sink in one
+ * bulk call. Episodes that end (terminal or truncated at the step limit) are
+ * reset on the worker that stepped them, so the next observation row is always
+ * ready for the following step.
+ *
+ * The policy and sink are always called on the thread that calls step(), so
+ * they can share unsynchronized state such as a network and its replay buffer.
+ */
+public class VectorizedRolloutRunner {
+
+    /**
+     * Chooses actions for a batch of observations
+     */
+    public interface Policy {
+        /**
+         * Choose one action per observation row
+         *
+         * @param states Row-major observations, count * stateSize long
+         * @param count Number of rows
+         * @param actions Array to receive count actions
+         */
+        void selectActions(float[] states, int count, int[] actions);
+    }
+
+    /**
+     * Receives the transitions of one lockstep
+     */
+    public interface TransitionSink {
+        /**
+         * Consume a batch of transitions. The arrays are reused by the runner
+         * and must be copied if kept.
+         *
+         * @param states Row-major observations before the step
+         * @param actions Actions taken
+         * @param rewards Rewards received
+         * @param nextStates Row-major observations after the step
+         * @param dones Whether each environment reached a terminal state
+         *              (false for episodes cut off by the step limit)
+         * @param count Number of transitions
+         */
+        void addTransitions(float[] states, int[] actions, float[] rewards, float[] nextStates,
+                            boolean[] dones, int count);
+    }
+
+    private final GameSimulator[] environments;
+    private final int numEnvironments;
+    private final int stateSize;
+    private final int actionSize;
+    private final int numWorkers;
+
+    // Lockstep buffers, one row or element per environment
+    private float[] states;
+    private float[] nextStates;
+    private final float[] resetStates;
+    private final int[] actions;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final boolean[] episodeEnded;
+    private final float[] episodeReturns;
+    private final int[] episodeLengths;
+    private final float[] finishedReturns;
+    private int maxStepsPerEpisode = Integer.MAX_VALUE;
+
+    // Statistics
+    private boolean started;
+    private long totalSteps;
+    private int completedEpisodes;
+    private double completedReturnSum;
+
+    // Worker pool: the calling thread is party 0 and steps the first slice
+    private final Phaser phaser;
+    private final Thread[] workers;
+    private volatile boolean shutdown;
+    private volatile Throwable workerFailure;
+
+    /**
+     * Constructor
+     *
+     * @param factory Creates the simulated environments
+     * @param numEnvironments Number of environments stepped per lockstep
+     * @param numWorkers Number of threads stepping environments, including the caller
+     */
+    public VectorizedRolloutRunner(GameSimulator.Factory factory, int numEnvironments, int numWorkers) {
+        if (numEnvironments <= 0) {
+            throw new IllegalArgumentException("Number of environments must be positive: " + numEnvironments);
+        }
+        this.numEnvironments = numEnvironments;
+        this.numWorkers = Math.max(1, Math.min(numWorkers, numEnvironments));
+        this.environments = new GameSimulator[numEnvironments];
+        for (int i = 0; i < numEnvironments; i++) {
+            environments[i] = factory.create(i);
+        }
+        this.stateSize = environments[0].getStateSize();
+        this.actionSize = environments[0].getActionSize();
+        for (GameSimulator environment : environments) {
+            if (environment.getStateSize() != stateSize || environment.getActionSize() != actionSize) {
+                throw new IllegalArgumentException("All environments must have the same state and action sizes");
+            }
+        }
+
+        this.states = new float[numEnvironments * stateSize];
+        this.nextStates = new float[numEnvironments * stateSize];
+        this.resetStates = new float[numEnvironments * stateSize];
+        this.actions = new int[numEnvironments];
+        this.rewards = new float[numEnvironments];
+        this.dones = new boolean[numEnvironments];
+        this.episodeEnded = new boolean[numEnvironments];
+        this.episodeReturns = new float[numEnvironments];
+        this.episodeLengths = new int[numEnvironments];
+        this.finishedReturns = new float[numEnvironments];
+
+        this.phaser = new Phaser(this.numWorkers);
+        this.workers = new Thread[this.numWorkers - 1];
+        for (int w = 1; w < this.numWorkers; w++) {
+            final int worker = w;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    workerLoop(worker);
+                }
+            }, "RolloutWorker-" + w);
+            thread.setDaemon(true);
+            thread.start();
+            workers[w - 1] = thread;
+        }
+    }
+
+    /**
+     * Set the step limit after which an episode is truncated and reset
+     *
+     * @param maxStepsPerEpisode Maximum steps per episode (Integer.MAX_VALUE for none)
+     */
+    public void setMaxStepsPerEpisode(int maxStepsPerEpisode) {
+        this.maxStepsPerEpisode = Math.max(1, maxStepsPerEpisode);
+    }
+
+    /**
+     * Reset every environment and start new episodes
+     */
+    public void reset() {
+        for (int i = 0; i < numEnvironments; i++) {
+            environments[i].reset(states, i * stateSize);
+            episodeReturns[i] = 0.0f;
+            episodeLengths[i] = 0;
+        }
+        started = true;
+    }
+
+    /**
+     * Advance every environment by one step
+     *
+     * @param policy Chooses the actions for all environments in one call
+     * @param sink Receives the resulting transitions in one call (may be null)
+     * @return Number of episodes that ended during this step
+     */
+    public int step(Policy policy, TransitionSink sink) {
+        if (shutdown) {
+            throw new IllegalStateException("Rollout runner has been shut down");
+        }
+        if (!started) {
+            reset();
+        }
+
+        policy.selectActions(states, numEnvironments, actions);
+
+        // Step all slices in parallel; the caller takes slice 0
+        if (numWorkers > 1) {
+            phaser.arriveAndAwaitAdvance();
+            Throwable failure = null;
+            try {
+                stepSlice(0);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            // Always meet the workers at the barrier, or they would wait forever
+            phaser.arriveAndAwaitAdvance();
+            Throwable workerError = workerFailure;
+            workerFailure = null;
+            if (failure == null) {
+                failure = workerError;
+            } else if (workerError != null) {
+                failure.addSuppressed(workerError);
+            }
+            if (failure != null) {
+                rethrow(failure);
+            }
+        } else {
+            stepSlice(0);
+        }
+        totalSteps += numEnvironments;
+
+        if (sink != null) {
+            sink.addTransitions(states, actions, rewards, nextStates, dones, numEnvironments);
+        }
+
+        // The next observations become the current ones, except where an episode restarted
+        float[] previous = states;
+        states = nextStates;
+        nextStates = previous;
+        int ended = 0;
+        for (int i = 0; i < numEnvironments; i++) {
+            if (episodeEnded[i]) {
+                System.arraycopy(resetStates, i * stateSize, states, i * stateSize, stateSize);
+                completedReturnSum += finishedReturns[i];
+                completedEpisodes++;
+                ended++;
+            }
+        }
+        return ended;
+    }
+
+    /**
+     * Step until at least the given number of episodes have ended
+     *
+     * @param policy Chooses the actions
+     * @param sink Receives the transitions (may be null)
+     * @param numEpisodes Number of episodes to complete
+     * @param maxStepsPerEpisode Step limit after which an episode is truncated
+     * @return Average return of the episodes completed by this call
+     */
+    public float runEpisodes(Policy policy, TransitionSink sink, int numEpisodes, int maxStepsPerEpisode) {
+        setMaxStepsPerEpisode(maxStepsPerEpisode);
+        int startEpisodes = completedEpisodes;
+        double startReturnSum = completedReturnSum;
+        while (completedEpisodes - startEpisodes < numEpisodes) {
+            step(policy, sink);
+        }
+        int episodes = completedEpisodes - startEpisodes;
+        return episodes > 0 ? (float) ((completedReturnSum - startReturnSum) / episodes) : 0.0f;
+    }
+
+    /**
+     * Step every environment a fixed number of times
+     *
+     * @param policy Chooses the actions
+     * @param sink Receives the transitions (may be null)
+     * @param numSteps Number of lockstep steps
+     */
+    public void runSteps(Policy policy, TransitionSink sink, int numSteps) {
+        for (int s = 0; s < numSteps; s++) {
+            step(policy, sink);
+        }
+    }
+
+    /**
+     * Stop the worker threads. The runner cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        if (numWorkers > 1) {
+            // Release the workers waiting for the next step; they see the flag and exit
+            phaser.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * Worker thread body: wait for a step, step the owned slice, report completion
+     */
+    private void workerLoop(int worker) {
+        while (true) {
+            phaser.arriveAndAwaitAdvance();
+            if (shutdown) {
+                phaser.arriveAndDeregister();
+                return;
+            }
+            try {
+                stepSlice(worker);
+            } catch (Throwable t) {
+                // Errors too: the worker must still arrive so step() can rethrow
+                workerFailure = t;
+            }
+            phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    /**
+     * Rethrow a failure on the stepping thread, unchanged where possible
+     */
+    private static void rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IllegalStateException("Environment step failed", failure);
+    }
+
+    /**
+     * Step the environments owned by one worker
+     */
+    private void stepSlice(int worker) {
+        int start = (int) ((long) numEnvironments * worker / numWorkers);
+        int end = (int) ((long) numEnvironments * (worker + 1) / numWorkers);
+        for (int i = start; i < end; i++) {
+            GameSimulator environment = environments[i];
+            int offset = i * stateSize;
+            float reward = environment.step(actions[i], nextStates, offset);
+            boolean done = environment.isDone();
+            rewards[i] = reward;
+            dones[i] = done;
+            episodeReturns[i] += reward;
+            episodeLengths[i]++;
+
+            boolean ended = done || episodeLengths[i] >= maxStepsPerEpisode;
+            episodeEnded[i] = ended;
+            if (ended) {
+                finishedReturns[i] = episodeReturns[i];
+                episodeReturns[i] = 0.0f;
+                episodeLengths[i] = 0;
+                environment.reset(resetStates, offset);
+            }
+        }
+    }
+
+    /**
+     * Get the current observations, one row per environment.
+     * The array is swapped on every step; do not keep a reference to it.
+     *
+     * @return Row-major observations
+     */
+    public float[] getStates() {
+        return states;
+    }
+
+    /**
+     * Check whether an environment's latest step hit the step limit without
+     * reaching a terminal state. Valid inside the sink call, where that
+     * step's nextStates row still holds the episode's final observation.
+     *
+     * @param environment Environment index
+     * @return True if the episode was truncated by the latest step
+     */
+    public boolean isTruncated(int environment) {
+        return episodeEnded[environment] && !dones[environment];
+    }
+
+    public int getNumEnvironments() {
+        return numEnvironments;
+    }
+
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    public int getStateSize() {
+        return stateSize;
+    }
+
+    public int getActionSize() {
+        return actionSize;
+    }
+
+    public long getTotalSteps() {
+        return totalSteps;
+    }
+
+    public int getCompletedEpisodes() {
+        return completedEpisodes;
+    }
+
+    /**
+     * Get the average return over all episodes completed so far
+     *
+     * @return Average episode return, or 0 if none completed
+     */
+    public float getAverageReturn() {
+        return completedEpisodes > 0 ? (float) (completedReturnSum / completedEpisodes) : 0.0f;
+    }
+}
@@ -5,9 +5,19 @@ import android.graphics.Color;
 import android.graphics.Rect;
 import android.util.Log;
 
+import com.aiassistant.utils.ArgbImage;
+import com.aiassistant.utils.BitmapUtils;
+import com.aiassistant.utils.ConnectedComponents;
+import com.aiassistant.utils.ImageKernels;
+import com.aiassistant.utils.PerceptualFrameCache;
+import com.aiassistant.utils.RegionStats;
+import com.aiassistant.utils.TiledFrameAnalyzer;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 
 /**
  * Class that holds game element detection results
@@ -20,6 +30,31 @@ import java.util.Random;
 public class GameElementDetector {
     private static final String TAG = "GameElementDetector";
     
+    // Region statistics resolution; candidate windows are far larger than a cell
+    private static final int REGION_CELL_SIZE = 4;
+    
+    // High-contrast search windows, as the short frame side divided by each value
+    private static final int[] CONTRAST_WINDOW_DIVISORS = {16, 10, 6};
+    
+    // Minimum color distance between a region and its surroundings
+    private static final int MIN_REGION_CONTRAST = 60;
+    
+    // Luma standard deviation at which a region no longer counts as a single color
+    private static final float MAX_UNIFORM_STD_DEV = 40.0f;
+    
+    // Menu item scoring threshold and maximum detections per search
+    private static final float MENU_ITEM_THRESHOLD = 0.6f;
+    private static final int MAX_REGIONS = 10;
+    
+    // Sampling steps for blob masks: color blobs, highlights, and frame-to-frame motion
+    private static final int BLOB_STEP = 10;
+    private static final int HIGHLIGHT_STEP = 4;
+    private static final int MOTION_STEP = 8;
+    
+    // Luma at which a pixel counts as highlighted, and luma change that counts as motion
+    private static final int HIGHLIGHT_LUMA = 235;
+    private static final int MOTION_LUMA_CHANGE = 30;
+    
     /**
      * Game type enumeration for specialized detection
      */
@@ -44,6 +79,22 @@ public class GameElementDetector {
     // Game-specific templates and models would be loaded here
     private boolean initialized = false;
     
+    // Element positions go stale quickly, so a result is reused for at most
+    // two frame intervals at 30 fps
+    private static final long FRAME_CACHE_MAX_AGE_MS = 66;
+    
+    // Results of recent frames, reused for near-identical frames
+    private final PerceptualFrameCache<GameElementDetectionResult> frameCache = new PerceptualFrameCache<>(
+            PerceptualFrameCache.DEFAULT_CAPACITY, PerceptualFrameCache.DEFAULT_MAX_DISTANCE, FRAME_CACHE_MAX_AGE_MS);
+    
+    // Labels blob masks; not thread-safe, so used only while holding its lock
+    private final ConnectedComponents labeler = new ConnectedComponents();
+    
+    // Sampled luma of the previously analyzed frame, for motion detection
+    private byte[] previousMotionLuma;
+    private int previousMotionWidth;
+    private int previousMotionHeight;
+    
     /**
      * Constructor with game package
      * @param gamePackage The game package to detect elements for
@@ -134,26 +185,66 @@ public class GameElementDetector {
             return new GameElementDetectionResult("UNKNOWN", new ArrayList<>());
         }
         
+        // Skip analysis when the frame matches a recent one (menus, paused screens)
+        GameElementDetectionResult result = frameCache.getOrCompute(frame, this::analyzeFrame);
+        return new GameElementDetectionResult(result.getGameMode(), new ArrayList<>(result.getElements()));
+    }
+    
+    /**
+     * Set how different a frame may be from a recent one and still reuse its result
+     * @param maxDistance Maximum Hamming distance between frame hashes (0 disables near matches)
+     */
+    public void setFrameCacheDistance(int maxDistance) {
+        frameCache.setMaxDistance(maxDistance);
+    }
+    
+    /**
+     * Get frame cache statistics, including the fraction of frames skipped
+     * @return Frame cache statistics
+     */
+    public Map<String, Object> getFrameCacheStats() {
+        return frameCache.getStats();
+    }
+    
+    /**
+     * Get blob labeling statistics: labeling calls, components per call and time per call
+     * @return Labeling statistics
+     */
+    public Map<String, Object> getLabelingStats() {
+        synchronized (labeler) {
+            return labeler.getStats();
+        }
+    }
+    
+    /**
+     * Run full detection on a frame
+     * @param frame The video frame to analyze
+     * @return Detection result containing game elements and game mode
+     */
+    private GameElementDetectionResult analyzeFrame(Bitmap frame) {
         // Result to populate
         List<GameElement> detectedElements = new ArrayList<>();
         String gameMode = "UNKNOWN";
         
         try {
+            // Copy the pixels out once; every detector below reads the array
+            ArgbImage image = BitmapUtils.readPixels(frame);
+            
             // 1. Detect screen type/game mode
-            gameMode = detectGameMode(frame);
+            gameMode = detectGameMode(image);
             
             // 2. Detect specific game elements based on mode and game type
             if (gameType == GameType.UNIVERSAL) {
                 // Universal detection works with any game
-                detectUniversalGameElements(frame, gameMode, detectedElements);
+                detectUniversalGameElements(image, gameMode, detectedElements);
             } else {
                 // Specialized detection for known game types
                 if ("COMBAT".equals(gameMode)) {
-                    detectCombatElements(frame, detectedElements);
+                    detectCombatElements(image, detectedElements);
                 } else if ("MENU".equals(gameMode)) {
-                    detectMenuElements(frame, detectedElements);
+                    detectMenuElements(image, detectedElements);
                 } else if ("EXPLORATION".equals(gameMode)) {
-                    detectExplorationElements(frame, detectedElements);
+                    detectExplorationElements(image, detectedElements);
                 } else if ("LOADING".equals(gameMode)) {
                     // Usually no elements to detect in loading screens
                 }
@@ -174,7 +265,7 @@ public class GameElementDetector {
      * @param gameMode The detected game mode
      * @param elements List to populate with detected elements
      */
-    private void detectUniversalGameElements(Bitmap frame, String gameMode, List<GameElement> elements) {
+    private void detectUniversalGameElements(ArgbImage frame, String gameMode, List<GameElement> elements) {
         // This method uses advanced adaptive analysis that can work with any game
         // without prior knowledge of the specific game mechanics
         Log.d(TAG, "Using universal detection for game mode: " + gameMode);
@@ -238,7 +329,7 @@ public class GameElementDetector {
     /**
      * Detect action buttons that are common across games
      */
-    private List<Rect> detectActionButtons(Bitmap frame) {
+    private List<Rect> detectActionButtons(ArgbImage frame) {
         // Action buttons are typically at the bottom, with bright colors
         List<Rect> buttons = new ArrayList<>();
         int width = frame.getWidth();
@@ -269,7 +360,7 @@ public class GameElementDetector {
     /**
      * Detect status indicators common across games
      */
-    private List<Rect> detectStatusIndicators(Bitmap frame) {
+    private List<Rect> detectStatusIndicators(ArgbImage frame) {
         List<Rect> indicators = new ArrayList<>();
         int width = frame.getWidth();
         int height = frame.getHeight();
@@ -290,32 +381,43 @@ public class GameElementDetector {
     }
     
     /**
-     * Detect moving objects by comparing with previous frames
-     * Note: In a real implementation, this would use frame comparison
+     * Detect moving objects by comparing with the previously analyzed frame
+     * @param frame The frame to analyze
+     * @return Bounds of regions whose brightness changed, empty for the first frame
      */
-    private List<Rect> detectMovingObjects(Bitmap frame) {
-        // For now, provide some placeholder detection
+    private List<Rect> detectMovingObjects(ArgbImage frame) {
         List<Rect> objects = new ArrayList<>();
         int width = frame.getWidth();
         int height = frame.getHeight();
         
-        // Central area where game objects typically appear
-        int centerX = width / 2;
-        int centerY = height / 2;
+        // Compare a sampled luma grid with the one from the previous frame
+        int gridWidth = (width + MOTION_STEP - 1) / MOTION_STEP;
+        int gridHeight = (height + MOTION_STEP - 1) / MOTION_STEP;
+        byte[] luma = ImageKernels.sampleLuma(frame.getPixels(), width, height, MOTION_STEP, null);
+        
+        byte[] previous;
+        synchronized (this) {
+            previous = previousMotionLuma;
+            boolean sameSize = previousMotionWidth == width && previousMotionHeight == height;
+            previousMotionLuma = luma;
+            previousMotionWidth = width;
+            previousMotionHeight = height;
+            if (previous == null || !sameSize) {
+                return objects;
+            }
+        }
         
-        // Add some random potential objects
-        Random random = new Random();
-        for (int i = 0; i < 3; i++) {
-            int objectSize = 50 + random.nextInt(50);
-            int x = centerX - 100 + random.nextInt(200);
-            int y = centerY - 100 + random.nextInt(200);
-            
-            objects.add(new Rect(
-                    x - objectSize/2,
-                    y - objectSize/2,
-                    x + objectSize/2,
-                    y + objectSize/2
-            ));
+        byte[] mask = new byte[gridWidth * gridHeight];
+        if (ImageKernels.lumaDifference(previous, luma, mask.length, MOTION_LUMA_CHANGE, mask) == 0) {
+            return objects;
+        }
+        
+        // Moving objects are mid-sized; ignore single-cell noise and full-screen changes
+        for (ConnectedComponents.Component blob : labelBlobs(mask, gridWidth, gridHeight, 2)) {
+            Rect rect = toFrameRect(blob, MOTION_STEP, width, height);
+            if (rect.width() < width / 2 && rect.height() < height / 2) {
+                objects.add(rect);
+            }
         }
         
         return objects;
@@ -324,7 +426,7 @@ public class GameElementDetector {
     /**
      * Detect generic combat elements in any game
      */
-    private void detectGenericCombatElements(Bitmap frame, List<GameElement> elements) {
+    private void detectGenericCombatElements(ArgbImage frame, List<GameElement> elements) {
         int width = frame.getWidth();
         int height = frame.getHeight();
         
@@ -359,7 +461,7 @@ public class GameElementDetector {
     /**
      * Detect generic menu elements in any game
      */
-    private void detectGenericMenuElements(Bitmap frame, List<GameElement> elements) {
+    private void detectGenericMenuElements(ArgbImage frame, List<GameElement> elements) {
         // Menu screens typically have aligned buttons and text
         List<Rect> alignedRectangles = detectAlignedRectangles(frame);
         for (Rect rect : alignedRectangles) {
@@ -374,7 +476,7 @@ public class GameElementDetector {
     /**
      * Detect horizontal bars that might be health/progress indicators
      */
-    private List<Rect> detectHorizontalBars(Bitmap frame) {
+    private List<Rect> detectHorizontalBars(ArgbImage frame) {
         List<Rect> bars = new ArrayList<>();
         // In a real implementation, this would detect rectangular regions 
         // with specific width-to-height ratios and color patterns
@@ -395,20 +497,42 @@ public class GameElementDetector {
     /**
      * Detect regions with high contrast that might be important game elements
      */
-    private List<Rect> detectHighContrastRegions(Bitmap frame) {
-        // In a real implementation, this would use edge detection 
-        // and contour analysis to find distinct objects
-        List<Rect> regions = new ArrayList<>();
+    private List<Rect> detectHighContrastRegions(ArgbImage frame) {
+        // Square windows at several scales, each scored in constant time
+        // against the ring of pixels around it. Tiles score the windows
+        // centered in their core in parallel
+        RegionStats stats = frame.getRegionStats(REGION_CELL_SIZE);
         int width = frame.getWidth();
         int height = frame.getHeight();
+        int maxSize = Math.max(REGION_CELL_SIZE * 2,
+                Math.min(width, height) / CONTRAST_WINDOW_DIVISORS[CONTRAST_WINDOW_DIVISORS.length - 1]);
+        
+        List<RegionStats.Candidate> detections = TiledFrameAnalyzer.getShared().analyze(
+                width, height, maxSize, (tile, out) -> {
+            for (int divisor : CONTRAST_WINDOW_DIVISORS) {
+                int size = Math.max(REGION_CELL_SIZE * 2, Math.min(width, height) / divisor);
+                int step = Math.max(REGION_CELL_SIZE, size / 4);
+                int margin = Math.max(REGION_CELL_SIZE, size / 4);
+                
+                for (int y = TiledFrameAnalyzer.Tile.alignUp(tile.top, 0, step); y + size <= tile.bottom; y += step) {
+                    for (int x = TiledFrameAnalyzer.Tile.alignUp(tile.left, 0, step); x + size <= tile.right; x += step) {
+                        if (!tile.owns(x, y, x + size, y + size)) {
+                            continue;
+                        }
+                        int contrast = stats.surroundColorContrast(x, y, x + size, y + size, margin);
+                        if (contrast >= MIN_REGION_CONTRAST) {
+                            out.add(new RegionStats.Candidate(
+                                    x, y, x + size, y + size, Math.min(1.0f, contrast / 200.0f)));
+                        }
+                    }
+                }
+            }
+        }, 0.3f, MAX_REGIONS);
         
-        // For now, just return some regions in the central area
-        int centerX = width / 2;
-        int centerY = height / 2;
-        
-        regions.add(new Rect(centerX - 50, centerY - 50, centerX + 50, centerY + 50));
-        regions.add(new Rect(centerX - 100, centerY + 20, centerX - 20, centerY + 80));
-        regions.add(new Rect(centerX + 20, centerY - 80, centerX + 100, centerY - 20));
+        List<Rect> regions = new ArrayList<>();
+        for (RegionStats.Candidate candidate : detections) {
+            regions.add(new Rect(candidate.left, candidate.top, candidate.right, candidate.bottom));
+        }
         
         return regions;
     }
@@ -416,12 +540,62 @@ public class GameElementDetector {
     /**
      * Detect aligned rectangles that might be menu items
      */
-    private List<Rect> detectAlignedRectangles(Bitmap frame) {
-        List<Rect> rectangles = new ArrayList<>();
+    private List<Rect> detectAlignedRectangles(ArgbImage frame) {
         int width = frame.getWidth();
         int height = frame.getHeight();
+        RegionStats stats = frame.getRegionStats(REGION_CELL_SIZE);
+        
+        // Menu items are uniform bars that stand out from the background.
+        // Score bars of two heights and two widths, centered or left-aligned,
+        // at quarter-height steps down the screen
+        List<RegionStats.Candidate> candidates = new ArrayList<>();
+        for (int itemHeight : new int[]{height / 14, height / 10}) {
+            if (itemHeight < REGION_CELL_SIZE) {
+                continue;
+            }
+            int step = Math.max(REGION_CELL_SIZE, itemHeight / 4);
+            for (int itemWidth : new int[]{width / 2, width * 2 / 3}) {
+                for (int startX : new int[]{(width - itemWidth) / 2, width / 10}) {
+                    for (int startY = 0; startY + itemHeight <= height; startY += step) {
+                        int endX = startX + itemWidth;
+                        int endY = startY + itemHeight;
+                        float uniformity = Math.max(0.0f,
+                                1.0f - stats.lumaStdDev(startX, startY, endX, endY) / MAX_UNIFORM_STD_DEV);
+                        float contrast = Math.min(1.0f,
+                                stats.surroundColorContrast(startX, startY, endX, endY, itemHeight / 4) / 100.0f);
+                        float score = uniformity * 0.5f + contrast * 0.5f;
+                        if (score > MENU_ITEM_THRESHOLD) {
+                            candidates.add(new RegionStats.Candidate(startX, startY, endX, endY, score));
+                        }
+                    }
+                }
+            }
+        }
         
-        // Common vertical menu layout
+        // Keep the largest group of items sharing the same horizontal extent
+        List<RegionStats.Candidate> items = RegionStats.suppressOverlaps(candidates, 0.1f, MAX_REGIONS);
+        Map<Long, List<Rect>> columns = new HashMap<>();
+        List<Rect> rectangles = new ArrayList<>();
+        for (RegionStats.Candidate item : items) {
+            long column = ((long) item.left << 32) | item.right;
+            List<Rect> members = columns.get(column);
+            if (members == null) {
+                members = new ArrayList<>();
+                columns.put(column, members);
+            }
+            members.add(new Rect(item.left, item.top, item.right, item.bottom));
+            if (members.size() > rectangles.size()) {
+                rectangles = members;
+            }
+        }
+        
+        if (rectangles.size() >= 2) {
+            Collections.sort(rectangles, (a, b) -> Integer.compare(a.top, b.top));
+            return rectangles;
+        }
+        
+        // Fall back to a common vertical menu layout
+        rectangles = new ArrayList<>();
         int menuWidth = width / 2;
         int menuItemHeight = height / 10;
         int startX = width / 4;
@@ -444,7 +618,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @return The detected game mode
      */
-    private String detectGameMode(Bitmap frame) {
+    private String detectGameMode(ArgbImage frame) {
         // In a real implementation, this would use:
         // 1. Screen layout analysis
         // 2. UI element classification
@@ -511,7 +685,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @return Count of potential UI elements
      */
-    private int countUIElements(Bitmap frame) {
+    private int countUIElements(ArgbImage frame) {
         int width = frame.getWidth();
         int height = frame.getHeight();
         int count = 0;
@@ -561,7 +735,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @param elements List to populate with detected elements
      */
-    private void detectCombatElements(Bitmap frame, List<GameElement> elements) {
+    private void detectCombatElements(ArgbImage frame, List<GameElement> elements) {
         int width = frame.getWidth();
         int height = frame.getHeight();
         
@@ -606,7 +780,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @param elements List to populate with detected elements
      */
-    private void detectMenuElements(Bitmap frame, List<GameElement> elements) {
+    private void detectMenuElements(ArgbImage frame, List<GameElement> elements) {
         int width = frame.getWidth();
         int height = frame.getHeight();
         
@@ -636,7 +810,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @param elements List to populate with detected elements
      */
-    private void detectExplorationElements(Bitmap frame, List<GameElement> elements) {
+    private void detectExplorationElements(ArgbImage frame, List<GameElement> elements) {
         int width = frame.getWidth();
         int height = frame.getHeight();
         
@@ -680,58 +854,27 @@ public class GameElementDetector {
      * @param tolerance Color matching tolerance
      * @return List of rectangles containing color blobs
      */
-    private List<Rect> detectColorBlobs(Bitmap frame, int targetColor, int tolerance) {
+    private List<Rect> detectColorBlobs(ArgbImage frame, int targetColor, int tolerance) {
         List<Rect> blobs = new ArrayList<>();
         int width = frame.getWidth();
         int height = frame.getHeight();
         
-        // Color components of target
-        int targetR = Color.red(targetColor);
-        int targetG = Color.green(targetColor);
-        int targetB = Color.blue(targetColor);
-        
-        // Grid for detecting connected regions
-        boolean[][] colorGrid = new boolean[height/10 + 1][width/10 + 1];
-        boolean[][] visited = new boolean[height/10 + 1][width/10 + 1];
-        
-        // Detect points matching the target color
-        for (int y = 0; y < height; y += 10) {
-            for (int x = 0; x < width; x += 10) {
-                int pixel = frame.getPixel(x, y);
-                int r = Color.red(pixel);
-                int g = Color.green(pixel);
-                int b = Color.blue(pixel);
-                
-                // Check if color is within tolerance
-                if (Math.abs(r - targetR) <= tolerance &&
-                    Math.abs(g - targetG) <= tolerance &&
-                    Math.abs(b - targetB) <= tolerance) {
-                    colorGrid[y/10][x/10] = true;
-                }
-            }
+        // Detect points matching the target color, sampling every BLOB_STEP-th pixel
+        int maskWidth = (width + BLOB_STEP - 1) / BLOB_STEP;
+        int maskHeight = (height + BLOB_STEP - 1) / BLOB_STEP;
+        byte[] mask = new byte[maskWidth * maskHeight];
+        if (ImageKernels.colorMask(frame.getPixels(), width, height, BLOB_STEP, targetColor, tolerance, mask) == 0) {
+            return blobs;
         }
         
         // Find connected regions
-        for (int y = 0; y < height/10; y++) {
-            for (int x = 0; x < width/10; x++) {
-                if (colorGrid[y][x] && !visited[y][x]) {
-                    // Found a potential blob, flood fill to find its bounds
-                    int minX = x, maxX = x, minY = y, maxY = y;
-                    floodFill(colorGrid, visited, x, y, minX, maxX, minY, maxY, width/10, height/10);
-                    
-                    // Create rectangle for this blob
-                    Rect blobRect = new Rect(
-                            minX * 10,
-                            minY * 10,
-                            maxX * 10,
-                            maxY * 10);
-                    
-                    // Only add if it's a reasonably sized blob
-                    if (blobRect.width() > 20 && blobRect.height() > 20 &&
-                        blobRect.width() < width/3 && blobRect.height() < height/3) {
-                        blobs.add(blobRect);
-                    }
-                }
+        for (ConnectedComponents.Component blob : labelBlobs(mask, maskWidth, maskHeight, 1)) {
+            Rect blobRect = toFrameRect(blob, BLOB_STEP, width, height);
+            
+            // Only add if it's a reasonably sized blob
+            if (blobRect.width() > 20 && blobRect.height() > 20 &&
+                blobRect.width() < width/3 && blobRect.height() < height/3) {
+                blobs.add(blobRect);
             }
         }
         
@@ -739,32 +882,33 @@ public class GameElementDetector {
     }
     
     /**
-     * Flood fill to find connected region bounds
+     * Label connected regions of a sampled mask
+     * @param mask Mask with one cell per sampled pixel
+     * @param maskWidth Mask width
+     * @param maskHeight Mask height
+     * @param minArea Smallest region kept, in cells
+     * @return Connected regions
      */
-    private void floodFill(boolean[][] grid, boolean[][] visited, 
-                         int x, int y, int minX, int maxX, int minY, int maxY,
-                         int width, int height) {
-        
-        // Check bounds
-        if (x < 0 || y < 0 || x >= width || y >= height || 
-            !grid[y][x] || visited[y][x]) {
-            return;
+    private List<ConnectedComponents.Component> labelBlobs(byte[] mask, int maskWidth, int maskHeight, int minArea) {
+        synchronized (labeler) {
+            return labeler.label(mask, maskWidth, maskHeight, minArea);
         }
-        
-        // Mark as visited
-        visited[y][x] = true;
-        
-        // Update region bounds
-        minX = Math.min(minX, x);
-        maxX = Math.max(maxX, x);
-        minY = Math.min(minY, y);
-        maxY = Math.max(maxY, y);
-        
-        // Recursively check adjacent points
-        floodFill(grid, visited, x+1, y, minX, maxX, minY, maxY, width, height);
-        floodFill(grid, visited, x-1, y, minX, maxX, minY, maxY, width, height);
-        floodFill(grid, visited, x, y+1, minX, maxX, minY, maxY, width, height);
-        floodFill(grid, visited, x, y-1, minX, maxX, minY, maxY, width, height);
+    }
+    
+    /**
+     * Convert a region of a sampled mask to frame coordinates
+     * @param blob Region in mask cells
+     * @param step Sampling step of the mask
+     * @param width Frame width
+     * @param height Frame height
+     * @return Bounds in the frame, covering every sampled cell of the region
+     */
+    private static Rect toFrameRect(ConnectedComponents.Component blob, int step, int width, int height) {
+        return new Rect(
+                blob.minX * step,
+                blob.minY * step,
+                Math.min(width, (blob.maxX + 1) * step),
+                Math.min(height, (blob.maxY + 1) * step));
     }
     
     /**
@@ -772,7 +916,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @return List of rectangles representing UI elements
      */
-    private List<Rect> detectRectangularElements(Bitmap frame) {
+    private List<Rect> detectRectangularElements(ArgbImage frame) {
         List<Rect> elements = new ArrayList<>();
         int width = frame.getWidth();
         int height = frame.getHeight();
@@ -793,7 +937,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @return List of rectangles containing potential text
      */
-    private List<Rect> detectTextAreas(Bitmap frame) {
+    private List<Rect> detectTextAreas(ArgbImage frame) {
         List<Rect> textAreas = new ArrayList<>();
         int width = frame.getWidth();
         int height = frame.getHeight();
@@ -817,7 +961,7 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @return Rectangle containing the health bar, or null if not found
      */
-    private Rect detectHealthBar(Bitmap frame) {
+    private Rect detectHealthBar(ArgbImage frame) {
         int width = frame.getWidth();
         int height = frame.getHeight();
         
@@ -882,11 +1026,31 @@ public class GameElementDetector {
      * @param frame The frame to analyze
      * @return List of rectangles containing highlighted objects
      */
-    private List<Rect> detectHighlightedObjects(Bitmap frame) {
-        // In a real implementation, this would detect objects with glow effects
-        // or special highlight colors
+    private List<Rect> detectHighlightedObjects(ArgbImage frame) {
+        // Games mark interactive objects with glows and outlines that are
+        // brighter than the scene; find compact clusters of near-white pixels
+        List<Rect> objects = new ArrayList<>();
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        
+        int maskWidth = (width + HIGHLIGHT_STEP - 1) / HIGHLIGHT_STEP;
+        int maskHeight = (height + HIGHLIGHT_STEP - 1) / HIGHLIGHT_STEP;
+        byte[] luma = ImageKernels.sampleLuma(frame.getPixels(), width, height, HIGHLIGHT_STEP, null);
+        byte[] mask = new byte[luma.length];
+        if (ImageKernels.thresholdMask(luma, luma.length, HIGHLIGHT_LUMA, mask) == 0) {
+            return objects;
+        }
         
-        // For now, return an empty list
-        return new ArrayList<>();
+        for (ConnectedComponents.Component blob : labelBlobs(mask, maskWidth, maskHeight, 4)) {
+            Rect rect = toFrameRect(blob, HIGHLIGHT_STEP, width, height);
+            
+            // Skip large bright areas (sky, menus) and thin lines
+            if (rect.width() < width / 4 && rect.height() < height / 4 &&
+                rect.width() > 16 && rect.height() > 16) {
+                objects.add(rect);
+            }
+        }
+        
+        return objects;
     }
 }
@@ -8,10 +8,16 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.aiassistant.utils.ArgbImage;
+import com.aiassistant.utils.BitmapUtils;
 import com.aiassistant.utils.Constants;
+import com.aiassistant.utils.ImageKernels;
+import com.aiassistant.utils.RegionStats;
+import com.aiassistant.utils.TiledFrameAnalyzer;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -39,13 +45,14 @@ public class VideoProcessingUtils {
             Bitmap resizedBitmap = resizeBitmap(bitmap, FEATURE_SCALE_SIZE, FEATURE_SCALE_SIZE);
             
             // Convert to grayscale
-            Bitmap grayscaleBitmap = convertToGrayscale(resizedBitmap);
+            ArgbImage resized = BitmapUtils.readPixels(resizedBitmap);
+            byte[] luma = resized.getLuma();
             
             // Extract simple pixel-based features
-            float[] pixelFeatures = extractPixelFeatures(grayscaleBitmap);
+            float[] pixelFeatures = extractPixelFeatures(luma, resized.getWidth(), resized.getHeight());
             
             // Extract edge features
-            float[] edgeFeatures = extractEdgeFeatures(grayscaleBitmap);
+            float[] edgeFeatures = extractEdgeFeatures(luma, resized.getWidth(), resized.getHeight());
             
             // Extract histogram features
             float[] histogramFeatures = extractHistogramFeatures(bitmap);
@@ -75,56 +82,15 @@ public class VideoProcessingUtils {
         return Bitmap.createScaledBitmap(bitmap, width, height, true);
     }
     
-    /**
-     * Convert bitmap to grayscale
-     * 
-     * @param bitmap Input bitmap
-     * @return Grayscale bitmap
-     */
-    private static Bitmap convertToGrayscale(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        
-        Bitmap grayscaleBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(grayscaleBitmap);
-        
-        // Draw original bitmap on canvas
-        canvas.drawBitmap(bitmap, 0, 0, null);
-        
-        // Get pixel array
-        int[] pixels = new int[width * height];
-        grayscaleBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-        
-        // Convert to grayscale
-        for (int i = 0; i < pixels.length; i++) {
-            int pixel = pixels[i];
-            int r = Color.red(pixel);
-            int g = Color.green(pixel);
-            int b = Color.blue(pixel);
-            
-            // Compute grayscale value
-            int gray = (int) (0.299 * r + 0.587 * g + 0.114 * b);
-            
-            // Set new pixel value
-            pixels[i] = Color.rgb(gray, gray, gray);
-        }
-        
-        // Set pixel array back to bitmap
-        grayscaleBitmap.setPixels(pixels, 0, width, 0, 0, width, height);
-        
-        return grayscaleBitmap;
-    }
-    
     /**
      * Extract pixel-based features
      * 
-     * @param bitmap Input bitmap
+     * @param luma Grayscale pixels
+     * @param width Image width
+     * @param height Image height
      * @return Pixel features
      */
-    private static float[] extractPixelFeatures(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        
+    private static float[] extractPixelFeatures(byte[] luma, int width, int height) {
         // We'll divide the image into cells and compute average intensity
         int cellSize = 4;
         int cellsX = width / cellSize;
@@ -132,11 +98,8 @@ public class VideoProcessingUtils {
         
         float[] features = new float[cellsX * cellsY];
         
-        // Get pixel array
-        int[] pixels = new int[width * height];
-        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-        
         // Compute average intensity for each cell
+        int[] integral = ImageKernels.integral(luma, width, height);
         for (int cy = 0; cy < cellsY; cy++) {
             for (int cx = 0; cx < cellsX; cx++) {
                 int startX = cx * cellSize;
@@ -144,17 +107,8 @@ public class VideoProcessingUtils {
                 int endX = Math.min(startX + cellSize, width);
                 int endY = Math.min(startY + cellSize, height);
                 
-                int sum = 0;
-                int count = 0;
-                
-                for (int y = startY; y < endY; y++) {
-                    for (int x = startX; x < endX; x++) {
-                        int pixel = pixels[y * width + x];
-                        int intensity = Color.red(pixel); // Since it's grayscale, r=g=b
-                        sum += intensity;
-                        count++;
-                    }
-                }
+                long sum = ImageKernels.rectSum(integral, width, startX, startY, endX, endY);
+                int count = (endX - startX) * (endY - startY);
                 
                 float avgIntensity = count > 0 ? (float) sum / count / 255.0f : 0;
                 features[cy * cellsX + cx] = avgIntensity;
@@ -167,30 +121,22 @@ public class VideoProcessingUtils {
     /**
      * Extract edge features using simple gradient
      * 
-     * @param bitmap Input bitmap
+     * @param luma Grayscale pixels
+     * @param width Image width
+     * @param height Image height
      * @return Edge features
      */
-    private static float[] extractEdgeFeatures(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        
+    private static float[] extractEdgeFeatures(byte[] luma, int width, int height) {
         // Simple horizontal and vertical gradient
         float[] horizontalGradient = new float[(width - 1) * height];
         float[] verticalGradient = new float[width * (height - 1)];
         
-        // Get pixel array
-        int[] pixels = new int[width * height];
-        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-        
         // Compute horizontal gradient
         int idx = 0;
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width - 1; x++) {
-                int pixel1 = pixels[y * width + x];
-                int pixel2 = pixels[y * width + x + 1];
-                
-                int intensity1 = Color.red(pixel1);
-                int intensity2 = Color.red(pixel2);
+                int intensity1 = luma[y * width + x] & 0xFF;
+                int intensity2 = luma[y * width + x + 1] & 0xFF;
                 
                 float gradient = Math.abs(intensity2 - intensity1) / 255.0f;
                 horizontalGradient[idx++] = gradient;
@@ -201,11 +147,8 @@ public class VideoProcessingUtils {
         idx = 0;
         for (int y = 0; y < height - 1; y++) {
             for (int x = 0; x < width; x++) {
-                int pixel1 = pixels[y * width + x];
-                int pixel2 = pixels[(y + 1) * width + x];
-                
-                int intensity1 = Color.red(pixel1);
-                int intensity2 = Color.red(pixel2);
+                int intensity1 = luma[y * width + x] & 0xFF;
+                int intensity2 = luma[(y + 1) * width + x] & 0xFF;
                 
                 float gradient = Math.abs(intensity2 - intensity1) / 255.0f;
                 verticalGradient[idx++] = gradient;
@@ -247,42 +190,14 @@ public class VideoProcessingUtils {
         int numBins = 32;
         float[] histogramFeatures = new float[3 * numBins];
         
-        // Initialize histograms
-        int[] redHistogram = new int[numBins];
-        int[] greenHistogram = new int[numBins];
-        int[] blueHistogram = new int[numBins];
-        
-        // Get width and height
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        
-        // Get pixel array
-        int[] pixels = new int[width * height];
-        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-        
-        // Compute histograms
-        for (int pixel : pixels) {
-            int r = Color.red(pixel);
-            int g = Color.green(pixel);
-            int b = Color.blue(pixel);
-            
-            // Map to bins
-            int rBin = r * numBins / 256;
-            int gBin = g * numBins / 256;
-            int bBin = b * numBins / 256;
-            
-            // Increment histograms
-            redHistogram[rBin]++;
-            greenHistogram[gBin]++;
-            blueHistogram[bBin]++;
-        }
+        // Compute red, green and blue histograms
+        ArgbImage image = BitmapUtils.readPixels(bitmap);
+        int totalPixels = image.getWidth() * image.getHeight();
+        int[] histogram = ImageKernels.rgbHistogram(image.getPixels(), totalPixels, numBins);
         
         // Normalize histograms
-        int totalPixels = width * height;
-        for (int i = 0; i < numBins; i++) {
-            histogramFeatures[i] = (float) redHistogram[i] / totalPixels;
-            histogramFeatures[numBins + i] = (float) greenHistogram[i] / totalPixels;
-            histogramFeatures[2 * numBins + i] = (float) blueHistogram[i] / totalPixels;
+        for (int i = 0; i < histogramFeatures.length; i++) {
+            histogramFeatures[i] = (float) histogram[i] / totalPixels;
         }
         
         return histogramFeatures;
@@ -364,18 +279,30 @@ public class VideoProcessingUtils {
         int width = bitmap.getWidth();
         int height = bitmap.getHeight();
         
-        // Divide image into cells
-        int cellSize = width / 10;
-        
-        for (int y = 0; y < height; y += cellSize) {
-            for (int x = 0; x < width; x += cellSize) {
-                int endX = Math.min(x + cellSize, width);
-                int endY = Math.min(y + cellSize, height);
-                
-                if (isRegionOfInterest(bitmap, x, y, endX, endY)) {
-                    objects.add(new Rect(x, y, endX, endY));
+        // Divide image into cells; tiles test the cells centered in their core in parallel
+        int cellSize = Math.max(1, width / 10);
+        ArgbImage image = BitmapUtils.readPixels(bitmap);
+        int maxCells = ((width + cellSize - 1) / cellSize) * ((height + cellSize - 1) / cellSize);
+        
+        // Cells never overlap, so suppression only drops exact duplicates
+        List<RegionStats.Candidate> cells = TiledFrameAnalyzer.getShared().analyze(
+                width, height, cellSize, (tile, out) -> {
+            for (int y = TiledFrameAnalyzer.Tile.alignUp(tile.top, 0, cellSize); y < tile.bottom; y += cellSize) {
+                for (int x = TiledFrameAnalyzer.Tile.alignUp(tile.left, 0, cellSize); x < tile.right; x += cellSize) {
+                    int endX = Math.min(x + cellSize, width);
+                    int endY = Math.min(y + cellSize, height);
+                    
+                    if (tile.owns(x, y, endX, endY) && isRegionOfInterest(image, x, y, endX, endY)) {
+                        out.add(new RegionStats.Candidate(x, y, endX, endY, 1.0f));
+                    }
                 }
             }
+        }, 0.0f, maxCells);
+        
+        // Report cells in raster order, as a single scan would
+        Collections.sort(cells, (a, b) -> a.top != b.top ? a.top - b.top : a.left - b.left);
+        for (RegionStats.Candidate cell : cells) {
+            objects.add(new Rect(cell.left, cell.top, cell.right, cell.bottom));
         }
         
         return objects;
@@ -384,51 +311,44 @@ public class VideoProcessingUtils {
     /**
      * Check if a region is of interest (stub implementation)
      * 
-     * @param bitmap Input bitmap
+     * @param image Image pixels
      * @param startX Start X coordinate
      * @param startY Start Y coordinate
      * @param endX End X coordinate
      * @param endY End Y coordinate
      * @return True if region is of interest, false otherwise
      */
-    private static boolean isRegionOfInterest(Bitmap bitmap, int startX, int startY, int endX, int endY) {
+    private static boolean isRegionOfInterest(ArgbImage image, int startX, int startY, int endX, int endY) {
         // This is a stub implementation
         // In a real implementation, this would use more sophisticated image analysis
         
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-        
-        // Get pixel array for region
-        int[] pixels = new int[(endX - startX) * (endY - startY)];
-        bitmap.getPixels(pixels, 0, endX - startX, startX, startY, endX - startX, endY - startY);
+        int[] pixels = image.getPixels();
+        int width = image.getWidth();
         
         // Calculate average color and variance
-        int sumR = 0, sumG = 0, sumB = 0;
-        for (int pixel : pixels) {
-            sumR += Color.red(pixel);
-            sumG += Color.green(pixel);
-            sumB += Color.blue(pixel);
+        long sumR = 0, sumG = 0, sumB = 0;
+        long sumSquares = 0;
+        for (int y = startY; y < endY; y++) {
+            int row = y * width;
+            for (int x = startX; x < endX; x++) {
+                int pixel = pixels[row + x];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                sumR += r;
+                sumG += g;
+                sumB += b;
+                sumSquares += r * r + g * g + b * b;
+            }
         }
         
-        int count = pixels.length;
-        int avgR = sumR / count;
-        int avgG = sumG / count;
-        int avgB = sumB / count;
-        
-        int varSum = 0;
-        for (int pixel : pixels) {
-            int r = Color.red(pixel);
-            int g = Color.green(pixel);
-            int b = Color.blue(pixel);
-            
-            int dr = r - avgR;
-            int dg = g - avgG;
-            int db = b - avgB;
-            
-            varSum += dr * dr + dg * dg + db * db;
-        }
+        int count = (endX - startX) * (endY - startY);
+        long avgR = sumR / count;
+        long avgG = sumG / count;
+        long avgB = sumB / count;
         
-        int variance = varSum / count;
+        // Single pass: E[x^2] - E[x]^2 summed over the three channels
+        long variance = sumSquares / count - (avgR * avgR + avgG * avgG + avgB * avgB);
         
         // High variance or bright regions are of interest
         return variance > 1000 || (avgR + avgG + avgB) / 3 > 200;
@@ -1,25 +1,41 @@
 package com.aiassistant.core.gaming.vision;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.hardware.display.DisplayManager;
 import android.hardware.display.VirtualDisplay;
+import android.media.Image;
 import android.media.ImageReader;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.Display;
 import android.view.WindowManager;
 
+import com.aiassistant.utils.FrameBufferPool;
+import com.aiassistant.utils.FrameQueue;
+
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Manages high FPS screen capture for game analysis
+ * 
+ * The capture thread copies each image into a pooled frame buffer and queues
+ * it; a separate analysis thread hands queued frames to the callback. If
+ * analysis falls behind, the oldest queued frames are dropped so the
+ * callback always works on recent frames and capture keeps its rate.
  */
 public class HighFPSCaptureManager {
     private static final String TAG = "HighFPSCaptureManager";
     
+    // Frames waiting for analysis; older ones are dropped when full
+    private static final int FRAME_QUEUE_CAPACITY = 2;
+    
+    // Queued frames, one being captured, one in the callback and a few
+    // briefly retained by consumers; anything kept longer must be copied
+    private static final int FRAME_POOL_SIZE = FRAME_QUEUE_CAPACITY + 4;
+    
     // Screen capture
     private Context context;
     private DisplayMetrics metrics = new DisplayMetrics();
@@ -31,6 +47,9 @@ public class HighFPSCaptureManager {
     
     // Processing
     private Executor captureExecutor;
+    private Executor analysisExecutor;
+    private final FrameBufferPool framePool = new FrameBufferPool(FRAME_POOL_SIZE);
+    private final FrameQueue frameQueue = new FrameQueue(FRAME_QUEUE_CAPACITY);
     private AtomicBoolean isCapturing = new AtomicBoolean(false);
     private FrameCallback frameCallback;
     private int targetFPS = 30;
@@ -45,6 +64,7 @@ public class HighFPSCaptureManager {
         this.context = context;
         this.frameCallback = callback;
         this.captureExecutor = Executors.newSingleThreadExecutor();
+        this.analysisExecutor = Executors.newSingleThreadExecutor();
         this.frameIntervalMs = 1000 / targetFPS;
         
         initializeDisplayInfo();
@@ -75,8 +95,9 @@ public class HighFPSCaptureManager {
         
         isCapturing.set(true);
         
-        // Start capture loop
+        // Start capture and analysis loops
         captureExecutor.execute(this::captureLoop);
+        analysisExecutor.execute(this::analysisLoop);
     }
     
     /**
@@ -86,6 +107,14 @@ public class HighFPSCaptureManager {
         isCapturing.set(false);
     }
     
+    /**
+     * Get the number of frames dropped because analysis fell behind
+     * @return Dropped frame count
+     */
+    public long getDroppedFrameCount() {
+        return frameQueue.getDroppedCount();
+    }
+    
     /**
      * Capture loop
      */
@@ -107,13 +136,14 @@ public class HighFPSCaptureManager {
                 // Update frame time
                 lastFrameTime = System.currentTimeMillis();
                 
-                // Capture frame
-                Bitmap frame = captureFrame();
-                
-                // Process frame
-                if (frame != null && frameCallback != null) {
-                    frameCallback.onFrameCaptured(frame);
+                // Capture frame and hand it to the analysis thread
+                FrameBufferPool.Frame frame = captureFrame();
+                if (frame != null) {
+                    frameQueue.offer(frame);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             } catch (Exception e) {
                 Log.e(TAG, "Error in capture loop", e);
             }
@@ -121,13 +151,63 @@ public class HighFPSCaptureManager {
     }
     
     /**
-     * Capture frame
-     * @return Captured frame
+     * Analysis loop: deliver queued frames to the callback
+     */
+    private void analysisLoop() {
+        while (isCapturing.get()) {
+            FrameBufferPool.Frame frame;
+            try {
+                frame = frameQueue.poll(frameIntervalMs * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (frame == null) {
+                continue;
+            }
+            
+            try {
+                if (frameCallback != null) {
+                    frameCallback.onFrameCaptured(frame);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error in frame callback", e);
+            } finally {
+                frame.release();
+            }
+        }
+        
+        // Return anything still queued to the pool
+        frameQueue.clear();
+    }
+    
+    /**
+     * Capture frame into a pooled buffer
+     * @return Frame lease, or null if no image is available or the pool is exhausted
      */
-    private Bitmap captureFrame() {
-        // This would capture a frame from the screen
-        // For now, just return null
-        return null;
+    private FrameBufferPool.Frame captureFrame() {
+        if (imageReader == null) {
+            return null;
+        }
+        
+        Image image = imageReader.acquireLatestImage();
+        if (image == null) {
+            return null;
+        }
+        
+        try {
+            FrameBufferPool.Frame frame = framePool.acquire(image.getWidth(), image.getHeight());
+            if (frame == null) {
+                // Every buffer is leased; skip this frame rather than allocate
+                return null;
+            }
+            Image.Plane plane = image.getPlanes()[0];
+            frame.copyFromRgbaPlane(plane.getBuffer(), plane.getRowStride(), plane.getPixelStride());
+            frame.setTimestampNanos(image.getTimestamp());
+            return frame;
+        } finally {
+            image.close();
+        }
     }
     
     /**
@@ -168,9 +248,13 @@ public class HighFPSCaptureManager {
      */
     public interface FrameCallback {
         /**
-         * Called when frame is captured
+         * Called on the analysis thread for each captured frame. The frame is
+         * released when this returns; call retain() to keep it a little
+         * longer. Every retained frame is unavailable to capture, so copy
+         * frames that are kept across many captures (as MultiFrameAnalyzer
+         * does).
          * @param frame Captured frame
          */
-        void onFrameCaptured(Bitmap frame);
+        void onFrameCaptured(FrameBufferPool.Frame frame);
     }
 }
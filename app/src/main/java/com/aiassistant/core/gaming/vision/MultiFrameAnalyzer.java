@@ -11,6 +11,7 @@ import android.util.Pair;
 
 import com.aiassistant.core.gaming.GameEntity;
 import com.aiassistant.core.gaming.GameState;
+import com.aiassistant.utils.FrameBufferPool;
 import com.aiassistant.utils.ImageAnalysisUtils;
 
 import java.util.ArrayList;
@@ -32,6 +33,10 @@ public class MultiFrameAnalyzer {
     // Frame sequence
     private final List<FrameData> frameSequence = new ArrayList<>();
     
+    // Pixel buffers for the sequence, reused as old frames are trimmed; frames
+    // are copied in so the sequence never holds the capture pool's buffers
+    private final FrameBufferPool framePool = new FrameBufferPool(MAX_SEQUENCE_LENGTH + 1);
+    
     // Entity tracking
     private final Map<String, EntityTrackingData> entityTracking = new HashMap<>();
     
@@ -42,21 +47,36 @@ public class MultiFrameAnalyzer {
      * Class to store frame data
      */
     private static class FrameData {
-        public final Bitmap bitmap;
+        public final FrameBufferPool.Frame frame;
         public final GameState gameState;
         public final long timestamp;
         public final Map<String, Object> metadata = new HashMap<>();
         
-        public FrameData(Bitmap bitmap, GameState gameState, long timestamp) {
-            this.bitmap = bitmap.copy(bitmap.getConfig(), false);
+        // Created only when frame alignment or blending needs a Bitmap
+        private Bitmap bitmap;
+        
+        /**
+         * @param frame Frame lease, owned by this object from now on
+         */
+        public FrameData(FrameBufferPool.Frame frame, GameState gameState, long timestamp) {
+            this.frame = frame;
             this.gameState = gameState.copy();
             this.timestamp = timestamp;
         }
         
+        public Bitmap getBitmap() {
+            if (bitmap == null) {
+                bitmap = Bitmap.createBitmap(frame.getPixels(), 0, frame.getWidth(),
+                                             frame.getWidth(), frame.getHeight(), Bitmap.Config.ARGB_8888);
+            }
+            return bitmap;
+        }
+        
         public void recycle() {
             if (bitmap != null && !bitmap.isRecycled()) {
                 bitmap.recycle();
             }
+            frame.release();
         }
     }
     
@@ -89,30 +109,68 @@ public class MultiFrameAnalyzer {
             return;
         }
         
-        // Add to sequence
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        
         synchronized (frameSequence) {
-            // Remove old frames
-            long oldestAllowed = timestamp - MAX_FRAME_AGE_MS;
-            
-            while (!frameSequence.isEmpty() && frameSequence.get(0).timestamp < oldestAllowed) {
-                frameSequence.get(0).recycle();
-                frameSequence.remove(0);
+            // Make room first so the oldest frame's buffer can be reused
+            trimSequence(timestamp, MAX_SEQUENCE_LENGTH - 1);
+            FrameBufferPool.Frame frame = framePool.acquire(width, height);
+            if (frame == null) {
+                frame = FrameBufferPool.allocate(width, height);
             }
-            
-            // Add new frame
-            frameSequence.add(new FrameData(bitmap, gameState, timestamp));
-            
-            // Limit sequence length
-            while (frameSequence.size() > MAX_SEQUENCE_LENGTH) {
-                frameSequence.get(0).recycle();
-                frameSequence.remove(0);
+            bitmap.getPixels(frame.getPixels(), 0, width, 0, 0, width, height);
+            frameSequence.add(new FrameData(frame, gameState, timestamp));
+        }
+        
+        // Update entity tracking
+        updateEntityTracking(gameState, timestamp);
+    }
+    
+    /**
+     * Add a captured frame to the sequence
+     * @param frame Frame lease; its pixels are copied into the analyzer's own
+     *              buffers, so the caller keeps (and still releases) its lease
+     *              and capture's small pool is not held for the whole sequence
+     * @param gameState Game state
+     * @param timestamp Timestamp
+     */
+    public void addFrame(FrameBufferPool.Frame frame, GameState gameState, long timestamp) {
+        if (frame == null || gameState == null) {
+            return;
+        }
+        
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        
+        synchronized (frameSequence) {
+            trimSequence(timestamp, MAX_SEQUENCE_LENGTH - 1);
+            FrameBufferPool.Frame copy = framePool.acquire(width, height);
+            if (copy == null) {
+                copy = FrameBufferPool.allocate(width, height);
             }
+            copy.copyFromArgb(frame.getPixels(), 0, width);
+            copy.setTimestampNanos(frame.getTimestampNanos());
+            frameSequence.add(new FrameData(copy, gameState, timestamp));
         }
         
         // Update entity tracking
         updateEntityTracking(gameState, timestamp);
     }
     
+    /**
+     * Drop frames that are too old, then the oldest until at most maxFrames remain
+     */
+    private void trimSequence(long timestamp, int maxFrames) {
+        long oldestAllowed = timestamp - MAX_FRAME_AGE_MS;
+        
+        while (!frameSequence.isEmpty() && (frameSequence.get(0).timestamp < oldestAllowed
+                                            || frameSequence.size() > maxFrames)) {
+            frameSequence.get(0).recycle();
+            frameSequence.remove(0);
+        }
+    }
+    
     /**
      * Analyze frame sequence to detect entities
      * @return Enhanced game state with improved entity detection
@@ -146,7 +204,8 @@ public class MultiFrameAnalyzer {
             
             // If only one frame, return it
             if (frameSequence.size() == 1) {
-                return frameSequence.get(0).bitmap.copy(frameSequence.get(0).bitmap.getConfig(), false);
+                Bitmap bitmap = frameSequence.get(0).getBitmap();
+                return bitmap.copy(bitmap.getConfig(), false);
             }
             
             // Create enhanced frame from multiple frames
@@ -270,7 +329,7 @@ public class MultiFrameAnalyzer {
         
         // Use the latest frame as base
         FrameData latestFrame = frameSequence.get(frameSequence.size() - 1);
-        Bitmap baseBitmap = latestFrame.bitmap;
+        Bitmap baseBitmap = latestFrame.getBitmap();
         
         // Create output bitmap
         Bitmap output = Bitmap.createBitmap(
@@ -312,8 +371,8 @@ public class MultiFrameAnalyzer {
             
             // Align previous frame with current frame
             Pair<Matrix, Float> alignmentResult = alignFrames(
-                previousFrame.bitmap,
-                referenceFrame.bitmap
+                previousFrame.getBitmap(),
+                referenceFrame.getBitmap()
             );
             
             Matrix alignmentMatrix = alignmentResult.first;
@@ -329,7 +388,7 @@ public class MultiFrameAnalyzer {
             paint.setAlpha(80); // ~30% opacity
             
             // Draw aligned previous frame
-            canvas.drawBitmap(previousFrame.bitmap, alignmentMatrix, paint);
+            canvas.drawBitmap(previousFrame.getBitmap(), alignmentMatrix, paint);
         }
     }
     
@@ -0,0 +1,404 @@
+package com.aiassistant.core.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory full-text index over documents identified by string IDs
+ *
+ * Text is split into lowercase letter/digit tokens. Every term keeps a postings
+ * list of (document slot, term frequency) pairs, so a query only visits the
+ * documents that contain its terms instead of scanning every stored item.
+ * Two kinds of queries are supported: {@link #search(String, int)} ranks
+ * documents with BM25 and returns the best ones through a bounded heap, and
+ * {@link #findAll(String)} returns every document containing all query tokens
+ * (each token matching a term by prefix).
+ *
+ * Removal marks the document slot dead and fixes the document frequencies
+ * right away; the postings are purged in one pass once dead slots outnumber
+ * live ones, and only then are the slots reused.
+ *
+ * All methods are synchronized.
+ */
+public class InvertedIndex {
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Dead slots tolerated before the postings are purged
+    private static final int MIN_PURGE_SLOTS = 1024;
+
+    /**
+     * Postings of one term
+     */
+    private static class Term {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        int documentFrequency;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            documentFrequency++;
+        }
+    }
+
+    // Term dictionary, sorted for prefix lookups
+    private final TreeMap<String, Term> terms = new TreeMap<>();
+
+    // Document slots
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private String[] slotIds = new String[64];
+    private int[] slotLengths = new int[64];
+    private Term[][] slotTerms = new Term[64][];
+    private int slotCount;
+
+    // Slots removed but still referenced by postings, and slots free for reuse
+    private int[] deadSlots = new int[16];
+    private int deadCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    private long totalLength;
+
+    // Query workspaces, indexed by slot
+    private float[] scores = new float[64];
+    private int[] marks = new int[64];
+    private int[] touched = new int[64];
+
+    /**
+     * Add a document, replacing any previous document with the same ID
+     * @param id Document ID
+     * @param text Document text (null is indexed as empty)
+     */
+    public synchronized void add(String id, String text) {
+        remove(id);
+
+        // Count term frequencies
+        Map<String, int[]> counts = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(text)) {
+            int[] count = counts.get(token);
+            if (count == null) {
+                counts.put(token, new int[] { 1 });
+            } else {
+                count[0]++;
+            }
+            length++;
+        }
+
+        int slot = allocateSlot();
+        Term[] docTerms = new Term[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            Term term = terms.get(entry.getKey());
+            if (term == null) {
+                term = new Term();
+                terms.put(entry.getKey(), term);
+            }
+            term.add(slot, entry.getValue()[0]);
+            docTerms[i++] = term;
+        }
+
+        slotIds[slot] = id;
+        slotLengths[slot] = length;
+        slotTerms[slot] = docTerms;
+        slotsById.put(id, slot);
+        totalLength += length;
+    }
+
+    /**
+     * Remove a document
+     * @param id Document ID
+     * @return True if the document was indexed
+     */
+    public synchronized boolean remove(String id) {
+        Integer slot = id != null ? slotsById.remove(id) : null;
+        if (slot == null) {
+            return false;
+        }
+        for (Term term : slotTerms[slot]) {
+            term.documentFrequency--;
+        }
+        totalLength -= slotLengths[slot];
+        slotIds[slot] = null;
+        slotTerms[slot] = null;
+
+        if (deadCount == deadSlots.length) {
+            deadSlots = Arrays.copyOf(deadSlots, deadCount * 2);
+        }
+        deadSlots[deadCount++] = slot;
+        if (deadCount >= MIN_PURGE_SLOTS && deadCount > slotsById.size()) {
+            purgeDeadSlots();
+        }
+        return true;
+    }
+
+    /**
+     * Remove all documents
+     */
+    public synchronized void clear() {
+        terms.clear();
+        slotsById.clear();
+        Arrays.fill(slotIds, 0, slotCount, null);
+        Arrays.fill(slotTerms, 0, slotCount, null);
+        slotCount = 0;
+        deadCount = 0;
+        freeCount = 0;
+        totalLength = 0;
+    }
+
+    /**
+     * Get the number of indexed documents
+     * @return Document count
+     */
+    public synchronized int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Check whether a document is indexed
+     * @param id Document ID
+     * @return True if indexed
+     */
+    public synchronized boolean contains(String id) {
+        return slotsById.containsKey(id);
+    }
+
+    /**
+     * Rank documents against a query with BM25
+     * @param query Query text
+     * @param maxResults Maximum number of results (0 or less for all matches)
+     * @return IDs of matching documents, best first
+     */
+    public synchronized List<String> search(String query, int maxResults) {
+        List<String> tokens = uniqueTokens(query);
+        int documents = slotsById.size();
+        if (tokens.isEmpty() || documents == 0) {
+            return new ArrayList<>();
+        }
+        float averageLength = Math.max(1.0f, (float) totalLength / documents);
+
+        // Accumulate scores over the postings of each query term
+        int touchedCount = 0;
+        for (String token : tokens) {
+            Term term = terms.get(token);
+            if (term == null || term.documentFrequency == 0) {
+                continue;
+            }
+            float df = term.documentFrequency;
+            float idf = (float) Math.log(1.0 + (documents - df + 0.5f) / (df + 0.5f));
+            for (int p = 0; p < term.size; p++) {
+                int doc = term.docs[p];
+                if (slotIds[doc] == null) {
+                    continue;
+                }
+                float tf = term.freqs[p];
+                float norm = K1 * (1.0f - B + B * slotLengths[doc] / averageLength);
+                if (scores[doc] == 0.0f) {
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += idf * tf * (K1 + 1.0f) / (tf + norm);
+            }
+        }
+
+        // Keep the best matches in a min-heap of at most maxResults entries
+        int capacity = maxResults > 0 ? Math.min(maxResults, touchedCount) : touchedCount;
+        int[] heap = new int[capacity];
+        int heapSize = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (heapSize < capacity) {
+                heap[heapSize] = doc;
+                siftUp(heap, heapSize++);
+            } else if (capacity > 0 && scores[doc] > scores[heap[0]]) {
+                heap[0] = doc;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        // Pop worst-first into the result back to front
+        String[] ranked = new String[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ranked[i] = slotIds[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i);
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            scores[touched[i]] = 0.0f;
+        }
+        return new ArrayList<>(Arrays.asList(ranked));
+    }
+
+    /**
+     * Find documents containing every query token, where a token matches any
+     * term it is a prefix of
+     * @param query Query text
+     * @return IDs of matching documents, in no particular order
+     */
+    public synchronized List<String> findAll(String query) {
+        List<String> result = new ArrayList<>();
+        List<String> tokens = uniqueTokens(query);
+        if (tokens.isEmpty()) {
+            return result;
+        }
+
+        // marks[doc] counts the tokens matched so far; a document advances at
+        // most once per token even if several terms share the prefix
+        int touchedCount = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            SortedMap<String, Term> matches = terms.subMap(token, token + Character.MAX_VALUE);
+            for (Term term : matches.values()) {
+                for (int p = 0; p < term.size; p++) {
+                    int doc = term.docs[p];
+                    if (marks[doc] != t || slotIds[doc] == null) {
+                        continue;
+                    }
+                    if (t == 0) {
+                        touched[touchedCount++] = doc;
+                    }
+                    marks[doc] = t + 1;
+                }
+            }
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (marks[doc] == tokens.size()) {
+                result.add(slotIds[doc]);
+            }
+            marks[doc] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Split text into lowercase letter/digit tokens
+     * @param text Text (may be null)
+     * @return Tokens in order of appearance
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> uniqueTokens(String query) {
+        List<String> tokens = tokenize(query);
+        List<String> unique = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (!unique.contains(token)) {
+                unique.add(token);
+            }
+        }
+        return unique;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == slotIds.length) {
+            int capacity = slotCount * 2;
+            slotIds = Arrays.copyOf(slotIds, capacity);
+            slotLengths = Arrays.copyOf(slotLengths, capacity);
+            slotTerms = Arrays.copyOf(slotTerms, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            marks = Arrays.copyOf(marks, capacity);
+            touched = Arrays.copyOf(touched, capacity);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Drop postings of removed documents and make their slots reusable
+     */
+    private void purgeDeadSlots() {
+        Iterator<Term> iterator = terms.values().iterator();
+        while (iterator.hasNext()) {
+            Term term = iterator.next();
+            int kept = 0;
+            for (int p = 0; p < term.size; p++) {
+                if (slotIds[term.docs[p]] != null) {
+                    term.docs[kept] = term.docs[p];
+                    term.freqs[kept] = term.freqs[p];
+                    kept++;
+                }
+            }
+            term.size = kept;
+            if (kept == 0) {
+                iterator.remove();
+            }
+        }
+
+        if (freeCount + deadCount > freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount + deadCount);
+        }
+        System.arraycopy(deadSlots, 0, freeSlots, freeCount, deadCount);
+        freeCount += deadCount;
+        deadCount = 0;
+    }
+
+    private void siftUp(int[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[heap[index]] >= scores[heap[parent]]) {
+                break;
+            }
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && scores[heap[left]] < scores[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && scores[heap[right]] < scores[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
@@ -7,6 +7,8 @@ import android.util.Log;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -18,14 +20,19 @@ import java.util.concurrent.Executors;
 
 /**
  * Long-term memory implementation
- * Persistent memory that's stored in SharedPreferences
+ * Persistent memory backed by an append-only log with periodic snapshot
+ * compaction (see {@link MemoryLogStore}). Memories saved by earlier versions
+ * in SharedPreferences are migrated on first start.
  */
 public class LongTermMemory {
     private static final String TAG = "LongTermMemory";
     
-    // SharedPreferences file name
+    // Legacy SharedPreferences file name (migrated into the log store)
     private static final String PREFS_NAME = "ai_long_term_memory";
     
+    // Directory of the log store inside the app's files directory
+    private static final String STORE_DIR = "long_term_memory";
+    
     // Memory keys
     private static final String KEY_MEMORY = "memory_data";
     private static final String KEY_METADATA = "memory_metadata";
@@ -39,8 +46,15 @@ public class LongTermMemory {
     // Background thread executor
     private final Executor executor;
     
-    // Memory storage (key -> memory item)
-    private Map<String, MemoryItem> memoryMap;
+    // Durable store, or null if it could not be opened (memory is then not persisted)
+    private MemoryLogStore memoryStore;
+    
+    // Memory storage (key -> memory item); a read-only view of the store when persisted
+    private Map<String, LongTermMemoryItem> memoryMap;
+    
+    // Full-text indexes over keys and values
+    private final InvertedIndex keyIndex;
+    private final InvertedIndex valueIndex;
     
     /**
      * Constructor
@@ -50,8 +64,10 @@ public class LongTermMemory {
         this.context = context;
         this.gson = new Gson();
         this.executor = Executors.newSingleThreadExecutor();
+        this.keyIndex = new InvertedIndex();
+        this.valueIndex = new InvertedIndex();
         
-        // Load memory from SharedPreferences
+        // Recover memory from the log store
         loadMemory();
         
         Log.d(TAG, "Long-term memory initialized with " + memoryMap.size() + " items");
@@ -73,13 +89,10 @@ public class LongTermMemory {
         importance = Math.max(0.0f, Math.min(1.0f, importance));
         
         // Create memory item
-        MemoryItem item = new MemoryItem(key, value, importance);
-        
-        // Store in memory
-        memoryMap.put(key, item);
+        LongTermMemoryItem item = new LongTermMemoryItem(key, value, importance);
         
-        // Save to SharedPreferences
-        saveMemory();
+        // Store in memory and append to the log
+        persistPut(item);
         
         Log.d(TAG, "Stored in long-term memory: " + key + " (importance: " + importance + ")");
     }
@@ -95,16 +108,24 @@ public class LongTermMemory {
             return null;
         }
         
-        // Get memory item
-        MemoryItem item = memoryMap.get(key);
+        // Get memory item, updating access count and last access time.
+        // The store batches access updates instead of writing each one.
+        LongTermMemoryItem item;
+        if (memoryStore != null) {
+            try {
+                item = memoryStore.touch(key);
+            } catch (IOException e) {
+                Log.e(TAG, "Error persisting memory access: " + e.getMessage());
+                item = memoryStore.get(key);
+            }
+        } else {
+            item = memoryMap.get(key);
+            if (item != null) {
+                item.incrementAccessCount();
+            }
+        }
         
         if (item != null) {
-            // Update access count and last access time
-            item.incrementAccessCount();
-            
-            // Save to SharedPreferences (in background)
-            saveMemory();
-            
             Log.d(TAG, "Retrieved from long-term memory: " + key);
             return item.getValue();
         }
@@ -135,51 +156,74 @@ public class LongTermMemory {
             return;
         }
         
-        if (memoryMap.remove(key) != null) {
-            // Save to SharedPreferences
-            saveMemory();
+        if (persistRemove(key)) {
             Log.d(TAG, "Removed from long-term memory: " + key);
         }
     }
     
     /**
      * Search memory by key pattern
+     * Matches keys containing every word of the pattern (words match by prefix)
      * @param keyPattern Key pattern to search for
      * @return Map of matching key-value pairs
      */
     public Map<String, String> searchByKey(String keyPattern) {
-        Map<String, String> result = new HashMap<>();
-        
         if (keyPattern == null || keyPattern.isEmpty()) {
-            return result;
+            return new HashMap<>();
         }
         
-        // Check all keys
-        for (Map.Entry<String, MemoryItem> entry : memoryMap.entrySet()) {
-            if (entry.getKey().contains(keyPattern)) {
-                result.put(entry.getKey(), entry.getValue().getValue());
-            }
-        }
-        
-        return result;
+        return collectValues(keyIndex.findAll(keyPattern));
     }
     
     /**
      * Search memory by value pattern
+     * Matches values containing every word of the pattern (words match by prefix)
      * @param valuePattern Value pattern to search for
      * @return Map of matching key-value pairs
      */
     public Map<String, String> searchByValue(String valuePattern) {
-        Map<String, String> result = new HashMap<>();
-        
         if (valuePattern == null || valuePattern.isEmpty()) {
+            return new HashMap<>();
+        }
+        
+        return collectValues(valueIndex.findAll(valuePattern));
+    }
+    
+    /**
+     * Search memory values ranked by relevance (BM25)
+     * @param query Search query
+     * @param maxResults Maximum number of results
+     * @return List of matching memory items, most relevant first
+     */
+    public List<LongTermMemoryItem> searchRanked(String query, int maxResults) {
+        List<LongTermMemoryItem> result = new ArrayList<>();
+        
+        if (query == null || query.isEmpty()) {
             return result;
         }
         
-        // Check all values
-        for (Map.Entry<String, MemoryItem> entry : memoryMap.entrySet()) {
-            if (entry.getValue().getValue().contains(valuePattern)) {
-                result.put(entry.getKey(), entry.getValue().getValue());
+        for (String key : valueIndex.search(query, maxResults)) {
+            LongTermMemoryItem item = memoryMap.get(key);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Resolve index results to key-value pairs
+     * @param keys Matching keys
+     * @return Map of key-value pairs
+     */
+    private Map<String, String> collectValues(List<String> keys) {
+        Map<String, String> result = new HashMap<>();
+        
+        for (String key : keys) {
+            LongTermMemoryItem item = memoryMap.get(key);
+            if (item != null) {
+                result.put(key, item.getValue());
             }
         }
         
@@ -191,7 +235,7 @@ public class LongTermMemory {
      * @param key Memory key
      * @return Memory item or null if not found
      */
-    public MemoryItem getMemoryItem(String key) {
+    public LongTermMemoryItem getMemoryItem(String key) {
         if (key == null || key.isEmpty()) {
             return null;
         }
@@ -203,7 +247,7 @@ public class LongTermMemory {
      * Get all memory items
      * @return Map of memory items
      */
-    public Map<String, MemoryItem> getAllMemories() {
+    public Map<String, LongTermMemoryItem> getAllMemories() {
         return new HashMap<>(memoryMap);
     }
     
@@ -212,9 +256,9 @@ public class LongTermMemory {
      * @param count Maximum number of memories to return
      * @return List of most important memory items
      */
-    public List<MemoryItem> getMostImportantMemories(int count) {
+    public List<LongTermMemoryItem> getMostImportantMemories(int count) {
         // Sort by importance
-        List<MemoryItem> items = new ArrayList<>(memoryMap.values());
+        List<LongTermMemoryItem> items = new ArrayList<>(memoryMap.values());
         Collections.sort(items, (a, b) -> Float.compare(b.getImportance(), a.getImportance()));
         
         // Limit result size
@@ -230,9 +274,9 @@ public class LongTermMemory {
      * @param count Maximum number of memories to return
      * @return List of most frequently accessed memory items
      */
-    public List<MemoryItem> getMostAccessedMemories(int count) {
+    public List<LongTermMemoryItem> getMostAccessedMemories(int count) {
         // Sort by access count
-        List<MemoryItem> items = new ArrayList<>(memoryMap.values());
+        List<LongTermMemoryItem> items = new ArrayList<>(memoryMap.values());
         Collections.sort(items, (a, b) -> Integer.compare(b.getAccessCount(), a.getAccessCount()));
         
         // Limit result size
@@ -248,9 +292,9 @@ public class LongTermMemory {
      * @param count Maximum number of memories to return
      * @return List of most recently accessed memory items
      */
-    public List<MemoryItem> getMostRecentMemories(int count) {
+    public List<LongTermMemoryItem> getMostRecentMemories(int count) {
         // Sort by last access time
-        List<MemoryItem> items = new ArrayList<>(memoryMap.values());
+        List<LongTermMemoryItem> items = new ArrayList<>(memoryMap.values());
         Collections.sort(items, (a, b) -> Long.compare(b.getLastAccessTime(), a.getLastAccessTime()));
         
         // Limit result size
@@ -275,14 +319,14 @@ public class LongTermMemory {
         importance = Math.max(0.0f, Math.min(1.0f, importance));
         
         // Get memory item
-        MemoryItem item = memoryMap.get(key);
+        LongTermMemoryItem item = memoryMap.get(key);
         
         if (item != null) {
             // Update importance
             item.setImportance(importance);
             
-            // Save to SharedPreferences
-            saveMemory();
+            // Append the updated item to the log
+            persistPut(item);
             
             Log.d(TAG, "Updated importance of " + key + " to " + importance);
         }
@@ -300,164 +344,147 @@ public class LongTermMemory {
      * Clear all memory
      */
     public void clear() {
-        memoryMap.clear();
-        saveMemory();
+        if (memoryStore != null) {
+            try {
+                memoryStore.clear();
+            } catch (IOException e) {
+                Log.e(TAG, "Error clearing memory: " + e.getMessage());
+            }
+        } else {
+            memoryMap.clear();
+        }
+        keyIndex.clear();
+        valueIndex.clear();
         Log.d(TAG, "Cleared all long-term memory");
     }
     
     /**
-     * Load memory from SharedPreferences
+     * Write pending access-count updates to storage. Call when the app goes
+     * to the background so recent accesses are not lost.
+     */
+    public void flush() {
+        if (memoryStore == null) {
+            return;
+        }
+        try {
+            memoryStore.flushTouches();
+        } catch (IOException e) {
+            Log.e(TAG, "Error flushing memory: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Open the log store and migrate memories left in SharedPreferences
      */
     private void loadMemory() {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        try {
+            memoryStore = new MemoryLogStore(new File(context.getFilesDir(), STORE_DIR));
+            memoryMap = memoryStore.getItems();
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening memory store, memories will not persist: " + e.getMessage());
+            memoryStore = null;
+            memoryMap = new HashMap<>();
+            return;
+        }
         
-        // Get memory data
-        String memoryJson = prefs.getString(KEY_MEMORY, "{}");
+        migrateLegacyMemory();
         
-        // Parse JSON
-        Type memoryType = new TypeToken<HashMap<String, MemoryItem>>(){}.getType();
+        // Build the search indexes
+        for (LongTermMemoryItem item : memoryMap.values()) {
+            indexItem(item);
+        }
+    }
+    
+    /**
+     * Import memories saved in SharedPreferences by earlier versions
+     */
+    private void migrateLegacyMemory() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String memoryJson = prefs.getString(KEY_MEMORY, null);
+        if (memoryJson == null) {
+            return;
+        }
         
         try {
-            memoryMap = gson.fromJson(memoryJson, memoryType);
-            
-            // Initialize if null
-            if (memoryMap == null) {
-                memoryMap = new HashMap<>();
+            Type memoryType = new TypeToken<HashMap<String, LongTermMemoryItem>>(){}.getType();
+            Map<String, LongTermMemoryItem> legacy = gson.fromJson(memoryJson, memoryType);
+            if (legacy != null) {
+                for (LongTermMemoryItem item : legacy.values()) {
+                    if (item != null && item.getKey() != null && !memoryStore.contains(item.getKey())) {
+                        memoryStore.put(item);
+                    }
+                }
+                memoryStore.compact();
+                Log.d(TAG, "Migrated " + legacy.size() + " memories from SharedPreferences");
             }
+            prefs.edit().remove(KEY_MEMORY).apply();
         } catch (Exception e) {
-            Log.e(TAG, "Error loading memory: " + e.getMessage());
-            memoryMap = new HashMap<>();
+            Log.e(TAG, "Error migrating memory: " + e.getMessage());
         }
     }
     
     /**
-     * Save memory to SharedPreferences
+     * Store an item and append it to the log
      */
-    private void saveMemory() {
-        // Save on background thread
-        executor.execute(() -> {
-            try {
-                SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-                SharedPreferences.Editor editor = prefs.edit();
-                
-                // Convert to JSON
-                String memoryJson = gson.toJson(memoryMap);
-                
-                // Save to SharedPreferences
-                editor.putString(KEY_MEMORY, memoryJson);
-                editor.apply();
-                
-                Log.d(TAG, "Saved memory to SharedPreferences");
-            } catch (Exception e) {
-                Log.e(TAG, "Error saving memory: " + e.getMessage());
-            }
-        });
+    private void persistPut(LongTermMemoryItem item) {
+        indexItem(item);
+        if (memoryStore == null) {
+            memoryMap.put(item.getKey(), item);
+            return;
+        }
+        try {
+            memoryStore.put(item);
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving memory: " + e.getMessage());
+        }
+        compactIfNeeded();
     }
     
     /**
-     * Memory item class
+     * Remove an item and append the deletion to the log
+     * 
+     * @return True if the item existed
      */
-    public static class MemoryItem {
-        private final String key;
-        private final String value;
-        private float importance;
-        private final long creationTime;
-        private long lastAccessTime;
-        private int accessCount;
-        
-        /**
-         * Constructor
-         * @param key Memory key
-         * @param value Memory value
-         * @param importance Importance (0.0-1.0)
-         */
-        public MemoryItem(String key, String value, float importance) {
-            this.key = key;
-            this.value = value;
-            this.importance = Math.max(0.0f, Math.min(1.0f, importance));
-            this.creationTime = System.currentTimeMillis();
-            this.lastAccessTime = this.creationTime;
-            this.accessCount = 0;
-        }
-        
-        /**
-         * Get memory key
-         * @return Memory key
-         */
-        public String getKey() {
-            return key;
-        }
-        
-        /**
-         * Get memory value
-         * @return Memory value
-         */
-        public String getValue() {
-            return value;
-        }
-        
-        /**
-         * Get importance
-         * @return Importance (0.0-1.0)
-         */
-        public float getImportance() {
-            return importance;
-        }
-        
-        /**
-         * Set importance
-         * @param importance Importance (0.0-1.0)
-         */
-        public void setImportance(float importance) {
-            this.importance = Math.max(0.0f, Math.min(1.0f, importance));
-        }
-        
-        /**
-         * Get creation time
-         * @return Creation time in milliseconds
-         */
-        public long getCreationTime() {
-            return creationTime;
-        }
-        
-        /**
-         * Get last access time
-         * @return Last access time in milliseconds
-         */
-        public long getLastAccessTime() {
-            return lastAccessTime;
-        }
-        
-        /**
-         * Get access count
-         * @return Number of times this memory has been accessed
-         */
-        public int getAccessCount() {
-            return accessCount;
+    private boolean persistRemove(String key) {
+        keyIndex.remove(key);
+        valueIndex.remove(key);
+        if (memoryStore == null) {
+            return memoryMap.remove(key) != null;
         }
-        
-        /**
-         * Increment access count and update last access time
-         */
-        public void incrementAccessCount() {
-            this.accessCount++;
-            this.lastAccessTime = System.currentTimeMillis();
-        }
-        
-        /**
-         * Get age of memory
-         * @return Age in milliseconds
-         */
-        public long getAge() {
-            return System.currentTimeMillis() - creationTime;
+        try {
+            boolean removed = memoryStore.remove(key) != null;
+            compactIfNeeded();
+            return removed;
+        } catch (IOException e) {
+            Log.e(TAG, "Error removing memory: " + e.getMessage());
+            return false;
         }
-        
-        /**
-         * Get time since last access
-         * @return Time since last access in milliseconds
-         */
-        public long getTimeSinceLastAccess() {
-            return System.currentTimeMillis() - lastAccessTime;
+    }
+    
+    /**
+     * Add an item to the search indexes
+     */
+    private void indexItem(LongTermMemoryItem item) {
+        keyIndex.add(item.getKey(), item.getKey());
+        valueIndex.add(item.getKey(), item.getValue());
+    }
+    
+    /**
+     * Compact the log on the background thread once it has grown enough
+     */
+    private void compactIfNeeded() {
+        if (!memoryStore.needsCompaction()) {
+            return;
         }
+        executor.execute(() -> {
+            try {
+                if (memoryStore.needsCompaction()) {
+                    memoryStore.compact();
+                    Log.d(TAG, "Compacted long-term memory log (" + memoryStore.size() + " items)");
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error compacting memory: " + e.getMessage());
+            }
+        });
     }
 }
@@ -0,0 +1,129 @@
+package com.aiassistant.core.memory;
+
+/**
+ * Item stored in {@link LongTermMemory} and persisted by {@link MemoryLogStore}
+ */
+public class LongTermMemoryItem {
+    private final String key;
+    private final String value;
+    private float importance;
+    private final long creationTime;
+    private long lastAccessTime;
+    private int accessCount;
+    
+    /**
+     * Constructor
+     * @param key Memory key
+     * @param value Memory value
+     * @param importance Importance (0.0-1.0)
+     */
+    public LongTermMemoryItem(String key, String value, float importance) {
+        this.key = key;
+        this.value = value;
+        this.importance = Math.max(0.0f, Math.min(1.0f, importance));
+        this.creationTime = System.currentTimeMillis();
+        this.lastAccessTime = this.creationTime;
+        this.accessCount = 0;
+    }
+    
+    /**
+     * Constructor for items recovered from storage
+     */
+    LongTermMemoryItem(String key, String value, float importance, long creationTime,
+               long lastAccessTime, int accessCount) {
+        this.key = key;
+        this.value = value;
+        this.importance = importance;
+        this.creationTime = creationTime;
+        this.lastAccessTime = lastAccessTime;
+        this.accessCount = accessCount;
+    }
+    
+    /**
+     * Get memory key
+     * @return Memory key
+     */
+    public String getKey() {
+        return key;
+    }
+    
+    /**
+     * Get memory value
+     * @return Memory value
+     */
+    public String getValue() {
+        return value;
+    }
+    
+    /**
+     * Get importance
+     * @return Importance (0.0-1.0)
+     */
+    public float getImportance() {
+        return importance;
+    }
+    
+    /**
+     * Set importance
+     * @param importance Importance (0.0-1.0)
+     */
+    public void setImportance(float importance) {
+        this.importance = Math.max(0.0f, Math.min(1.0f, importance));
+    }
+    
+    /**
+     * Get creation time
+     * @return Creation time in milliseconds
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+    
+    /**
+     * Get last access time
+     * @return Last access time in milliseconds
+     */
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+    
+    /**
+     * Get access count
+     * @return Number of times this memory has been accessed
+     */
+    public int getAccessCount() {
+        return accessCount;
+    }
+    
+    /**
+     * Increment access count and update last access time
+     */
+    public void incrementAccessCount() {
+        this.accessCount++;
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * Restore the access statistics recorded in storage
+     */
+    void restoreAccess(int accessCount, long lastAccessTime) {
+        this.accessCount = accessCount;
+        this.lastAccessTime = lastAccessTime;
+    }
+    
+    /**
+     * Get age of memory
+     * @return Age in milliseconds
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - creationTime;
+    }
+    
+    /**
+     * Get time since last access
+     * @return Time since last access in milliseconds
+     */
+    public long getTimeSinceLastAccess() {
+        return System.currentTimeMillis() - lastAccessTime;
+    }
+}
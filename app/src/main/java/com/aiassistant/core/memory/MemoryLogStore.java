@@ -0,0 +1,441 @@
+package com.aiassistant.core.memory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Durable key/value store for {@link LongTermMemoryItem}s.
+ *
+ * Every change is appended to a log as a small checksummed record (put,
+ * delete, touch or clear), so a write costs O(1) instead of rewriting all
+ * memories. Access-count updates are coalesced in memory and written as one
+ * batch of touch records. When the log grows to twice the number of live
+ * memories it is compacted: the current state is written to a snapshot file
+ * (temp file + rename) and the log is truncated, which keeps the amortized
+ * cost per operation constant. On open the store loads the snapshot and
+ * replays the log, discarding a torn record at its tail. Records carry
+ * absolute values, so replaying a log over a snapshot that already includes
+ * it is harmless.
+ */
+public class MemoryLogStore implements Closeable {
+    private static final String SNAPSHOT_FILE = "memory.snapshot";
+    private static final String LOG_FILE = "memory.log";
+    private static final int SNAPSHOT_MAGIC = 0x4C544D53; // "LTMS"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    private static final byte RECORD_TOUCH = 3;
+    private static final byte RECORD_CLEAR = 4;
+
+    private static final int MIN_COMPACTION_RECORDS = 4096;
+    private static final int TOUCH_FLUSH_BATCH = 64;
+    private static final long TOUCH_FLUSH_INTERVAL_MS = 5000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File snapshotFile;
+    private final File logFile;
+    private final Map<String, LongTermMemoryItem> items = new HashMap<>();
+
+    // Log writer and a reusable record encoder
+    private DataOutputStream log;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+    private int logRecords;
+
+    // Keys whose access count changed since the last touch flush
+    private final Set<String> dirtyTouches = new LinkedHashSet<>();
+    private long lastTouchFlush;
+
+    /**
+     * Open a store, recovering its contents from the snapshot and log
+     *
+     * @param directory Directory holding the store files (created if missing)
+     * @throws IOException If the files cannot be read or opened for writing
+     */
+    public MemoryLogStore(File directory) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create memory store directory: " + directory);
+        }
+        this.snapshotFile = new File(directory, SNAPSHOT_FILE);
+        this.logFile = new File(directory, LOG_FILE);
+
+        if (snapshotFile.exists()) {
+            readSnapshot();
+        }
+        long validLength = logFile.exists() ? replayLog() : 0;
+        if (logFile.exists() && logFile.length() > validLength) {
+            // Drop a record torn by a crash mid-append
+            RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+            try {
+                file.setLength(validLength);
+            } finally {
+                file.close();
+            }
+        }
+        this.log = openLog(true);
+        this.lastTouchFlush = System.currentTimeMillis();
+    }
+
+    /**
+     * Get a memory item
+     *
+     * @param key Memory key
+     * @return The item, or null if absent
+     */
+    public synchronized LongTermMemoryItem get(String key) {
+        return items.get(key);
+    }
+
+    /**
+     * Check whether a key is stored
+     *
+     * @param key Memory key
+     * @return True if present
+     */
+    public synchronized boolean contains(String key) {
+        return items.containsKey(key);
+    }
+
+    /**
+     * Insert or replace a memory item
+     *
+     * @param item The item (its current fields are persisted)
+     * @throws IOException If appending to the log fails
+     */
+    public synchronized void put(LongTermMemoryItem item) throws IOException {
+        items.put(item.getKey(), item);
+        dirtyTouches.remove(item.getKey());
+        beginRecord(RECORD_PUT);
+        writeString(item.getKey());
+        writeString(item.getValue());
+        record.writeFloat(item.getImportance());
+        record.writeLong(item.getCreationTime());
+        record.writeLong(item.getLastAccessTime());
+        record.writeInt(item.getAccessCount());
+        appendRecord();
+        log.flush();
+    }
+
+    /**
+     * Record an access to a memory item. The new access count is kept in memory
+     * and persisted with the next batch of touches.
+     *
+     * @param key Memory key
+     * @return The item, or null if absent
+     * @throws IOException If a batch flush fails
+     */
+    public synchronized LongTermMemoryItem touch(String key) throws IOException {
+        LongTermMemoryItem item = items.get(key);
+        if (item == null) {
+            return null;
+        }
+        item.incrementAccessCount();
+        dirtyTouches.add(key);
+        if (dirtyTouches.size() >= TOUCH_FLUSH_BATCH
+                || item.getLastAccessTime() - lastTouchFlush >= TOUCH_FLUSH_INTERVAL_MS) {
+            flushTouches();
+        }
+        return item;
+    }
+
+    /**
+     * Remove a memory item
+     *
+     * @param key Memory key
+     * @return The removed item, or null if absent
+     * @throws IOException If appending to the log fails
+     */
+    public synchronized LongTermMemoryItem remove(String key) throws IOException {
+        LongTermMemoryItem item = items.remove(key);
+        if (item != null) {
+            dirtyTouches.remove(key);
+            beginRecord(RECORD_DELETE);
+            writeString(key);
+            appendRecord();
+            log.flush();
+        }
+        return item;
+    }
+
+    /**
+     * Remove all memory items
+     *
+     * @throws IOException If appending to the log fails
+     */
+    public synchronized void clear() throws IOException {
+        items.clear();
+        dirtyTouches.clear();
+        beginRecord(RECORD_CLEAR);
+        appendRecord();
+        log.flush();
+    }
+
+    /**
+     * Write the pending access-count updates to the log
+     *
+     * @throws IOException If appending to the log fails
+     */
+    public synchronized void flushTouches() throws IOException {
+        for (String key : dirtyTouches) {
+            LongTermMemoryItem item = items.get(key);
+            if (item != null) {
+                beginRecord(RECORD_TOUCH);
+                writeString(key);
+                record.writeLong(item.getLastAccessTime());
+                record.writeInt(item.getAccessCount());
+                appendRecord();
+            }
+        }
+        dirtyTouches.clear();
+        lastTouchFlush = System.currentTimeMillis();
+        log.flush();
+    }
+
+    /**
+     * Check whether the log has grown enough to be worth compacting
+     *
+     * @return True if compact() should run
+     */
+    public synchronized boolean needsCompaction() {
+        return logRecords >= MIN_COMPACTION_RECORDS && logRecords > 2 * items.size();
+    }
+
+    /**
+     * Write the current state to a new snapshot and truncate the log
+     *
+     * @throws IOException If writing the snapshot fails (the log is then left intact)
+     */
+    public synchronized void compact() throws IOException {
+        flushTouches();
+
+        File temp = new File(snapshotFile.getPath() + ".tmp");
+        FileOutputStream file = new FileOutputStream(temp);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(items.size());
+            for (LongTermMemoryItem item : items.values()) {
+                writeString(out, item.getKey());
+                writeString(out, item.getValue());
+                out.writeFloat(item.getImportance());
+                out.writeLong(item.getCreationTime());
+                out.writeLong(item.getLastAccessTime());
+                out.writeInt(item.getAccessCount());
+            }
+            out.flush();
+            file.getFD().sync();
+        } finally {
+            file.close();
+        }
+        if (!temp.renameTo(snapshotFile)) {
+            temp.delete();
+            throw new IOException("Failed to move memory snapshot into place");
+        }
+
+        // The snapshot now covers everything in the log
+        log.close();
+        log = openLog(false);
+        logRecords = 0;
+    }
+
+    /**
+     * Get a read-only view of all items. Callers must not iterate it while
+     * another thread modifies the store.
+     *
+     * @return Key to item map
+     */
+    public Map<String, LongTermMemoryItem> getItems() {
+        return Collections.unmodifiableMap(items);
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    public synchronized int getLogRecordCount() {
+        return logRecords;
+    }
+
+    /**
+     * Flush pending touches and close the log
+     *
+     * @throws IOException If the final flush fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            try {
+                flushTouches();
+            } finally {
+                log.close();
+                log = null;
+            }
+        }
+    }
+
+    private DataOutputStream openLog(boolean append) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, append), 16 * 1024));
+    }
+
+    private void beginRecord(byte type) throws IOException {
+        if (log == null) {
+            throw new IOException("Memory store is closed");
+        }
+        recordBytes.reset();
+        record.writeByte(type);
+    }
+
+    /**
+     * Frame the encoded record as [length][crc32][payload] and append it
+     */
+    private void appendRecord() throws IOException {
+        byte[] payload = recordBytes.toByteArray();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        log.writeInt(payload.length);
+        log.writeInt((int) crc.getValue());
+        log.write(payload);
+        logRecords++;
+    }
+
+    private void writeString(String value) throws IOException {
+        writeString(record, value);
+    }
+
+    /**
+     * Write a nullable string as a length-prefixed UTF-8 byte sequence (-1 for null)
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static LongTermMemoryItem readItem(DataInputStream in) throws IOException {
+        String key = readString(in);
+        String value = readString(in);
+        float importance = in.readFloat();
+        long creationTime = in.readLong();
+        long lastAccessTime = in.readLong();
+        int accessCount = in.readInt();
+        return new LongTermMemoryItem(key, value, importance, creationTime, lastAccessTime, accessCount);
+    }
+
+    private void readSnapshot() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 64 * 1024));
+        try {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a memory snapshot: " + snapshotFile);
+            }
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported memory snapshot version: " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                LongTermMemoryItem item = readItem(in);
+                items.put(item.getKey(), item);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Apply every intact log record to the items
+     *
+     * @return Length in bytes of the valid prefix of the log
+     */
+    private long replayLog() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile), 64 * 1024));
+        long validLength = 0;
+        try {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length <= 0 || length > logFile.length()) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                applyRecord(new DataInputStream(new ByteArrayInputStream(payload)));
+                validLength += 8 + payload.length;
+                logRecords++;
+            }
+        } finally {
+            in.close();
+        }
+        return validLength;
+    }
+
+    private void applyRecord(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case RECORD_PUT:
+                LongTermMemoryItem item = readItem(in);
+                items.put(item.getKey(), item);
+                break;
+            case RECORD_DELETE:
+                items.remove(readString(in));
+                break;
+            case RECORD_TOUCH:
+                LongTermMemoryItem touched = items.get(readString(in));
+                long lastAccessTime = in.readLong();
+                int accessCount = in.readInt();
+                if (touched != null) {
+                    touched.restoreAccess(accessCount, lastAccessTime);
+                }
+                break;
+            case RECORD_CLEAR:
+                items.clear();
+                break;
+            default:
+                throw new IOException("Unknown memory log record type: " + type);
+        }
+    }
+}
@@ -26,11 +26,17 @@ public class ShortTermMemory {
     // Memory storage (key -> memory item)
     private final ConcurrentHashMap<String, MemoryItem> memoryMap;
     
+    // Full-text indexes over keys and values
+    private final InvertedIndex keyIndex;
+    private final InvertedIndex valueIndex;
+    
     /**
      * Constructor
      */
     public ShortTermMemory() {
         this.memoryMap = new ConcurrentHashMap<>();
+        this.keyIndex = new InvertedIndex();
+        this.valueIndex = new InvertedIndex();
         Log.d(TAG, "Short-term memory initialized");
     }
     
@@ -69,8 +75,10 @@ public class ShortTermMemory {
         // Create memory item
         MemoryItem item = new MemoryItem(key, value, context, expirationMs);
         
-        // Store in memory
+        // Store in memory and index it
         memoryMap.put(key, item);
+        keyIndex.add(key, key);
+        valueIndex.add(key, value);
         
         // Check if we need to clear old items
         if (memoryMap.size() > MAX_MEMORY_ITEMS) {
@@ -98,7 +106,7 @@ public class ShortTermMemory {
             // Check if expired
             if (item.isExpired()) {
                 // Remove expired item
-                memoryMap.remove(key);
+                removeItem(key);
                 Log.d(TAG, "Removed expired memory: " + key);
                 return null;
             }
@@ -131,7 +139,7 @@ public class ShortTermMemory {
             // Check if expired
             if (item.isExpired()) {
                 // Remove expired item
-                memoryMap.remove(key);
+                removeItem(key);
                 return false;
             }
             
@@ -150,66 +158,84 @@ public class ShortTermMemory {
             return;
         }
         
-        memoryMap.remove(key);
+        removeItem(key);
         Log.d(TAG, "Forgot: " + key);
     }
     
     /**
      * Search memory by key pattern
+     * Matches keys containing every word of the pattern (words match by prefix)
      * @param keyPattern Key pattern to search for
      * @return List of matching memory items
      */
     public List<MemoryItem> searchByKey(String keyPattern) {
-        List<MemoryItem> result = new ArrayList<>();
-        
         if (keyPattern == null || keyPattern.isEmpty()) {
-            return result;
-        }
-        
-        // Check all keys
-        for (Map.Entry<String, MemoryItem> entry : memoryMap.entrySet()) {
-            if (entry.getKey().contains(keyPattern)) {
-                MemoryItem item = entry.getValue();
-                
-                // Skip expired items
-                if (item.isExpired()) {
-                    continue;
-                }
-                
-                result.add(item);
-            }
+            return new ArrayList<>();
         }
         
-        return result;
+        return collectUnexpired(keyIndex.findAll(keyPattern));
     }
     
     /**
      * Search memory by value pattern
+     * Matches values containing every word of the pattern (words match by prefix)
      * @param valuePattern Value pattern to search for
      * @return List of matching memory items
      */
     public List<MemoryItem> searchByValue(String valuePattern) {
-        List<MemoryItem> result = new ArrayList<>();
-        
         if (valuePattern == null || valuePattern.isEmpty()) {
-            return result;
+            return new ArrayList<>();
         }
         
-        // Check all values
-        for (MemoryItem item : memoryMap.values()) {
+        return collectUnexpired(valueIndex.findAll(valuePattern));
+    }
+    
+    /**
+     * Search memory values ranked by relevance (BM25)
+     * @param query Search query
+     * @param maxResults Maximum number of results
+     * @return List of matching memory items, most relevant first
+     */
+    public List<MemoryItem> searchRanked(String query, int maxResults) {
+        if (query == null || query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        return collectUnexpired(valueIndex.search(query, maxResults));
+    }
+    
+    /**
+     * Resolve index results to unexpired memory items
+     * @param keys Matching keys
+     * @return Memory items in the same order
+     */
+    private List<MemoryItem> collectUnexpired(List<String> keys) {
+        List<MemoryItem> result = new ArrayList<>(keys.size());
+        
+        for (String key : keys) {
+            MemoryItem item = memoryMap.get(key);
+            
             // Skip expired items
-            if (item.isExpired()) {
+            if (item == null || item.isExpired()) {
                 continue;
             }
             
-            if (item.getValue().contains(valuePattern)) {
-                result.add(item);
-            }
+            result.add(item);
         }
         
         return result;
     }
     
+    /**
+     * Remove an item from memory and from the indexes
+     * @param key Memory key
+     */
+    private void removeItem(String key) {
+        memoryMap.remove(key);
+        keyIndex.remove(key);
+        valueIndex.remove(key);
+    }
+    
     /**
      * Get memory item for key
      * @param key Memory key
@@ -227,7 +253,7 @@ public class ShortTermMemory {
             // Check if expired
             if (item.isExpired()) {
                 // Remove expired item
-                memoryMap.remove(key);
+                removeItem(key);
                 return null;
             }
             
@@ -250,7 +276,7 @@ public class ShortTermMemory {
             
             // Skip expired items
             if (item.isExpired()) {
-                memoryMap.remove(entry.getKey());
+                removeItem(entry.getKey());
                 continue;
             }
             
@@ -300,7 +326,7 @@ public class ShortTermMemory {
             
             // Remove expired items
             if (item.isExpired()) {
-                memoryMap.remove(entry.getKey());
+                removeItem(entry.getKey());
                 count++;
             }
         }
@@ -329,7 +355,7 @@ public class ShortTermMemory {
         // Clear oldest items
         int cleared = 0;
         for (int i = 0; i < count && i < entries.size(); i++) {
-            memoryMap.remove(entries.get(i).getKey());
+            removeItem(entries.get(i).getKey());
             cleared++;
         }
         
@@ -353,6 +379,8 @@ public class ShortTermMemory {
      */
     public void clear() {
         memoryMap.clear();
+        keyIndex.clear();
+        valueIndex.clear();
         Log.d(TAG, "Cleared all short-term memory");
     }
     
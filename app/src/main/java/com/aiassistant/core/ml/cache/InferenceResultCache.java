@@ -0,0 +1,408 @@
+package com.aiassistant.core.ml.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed cache of model outputs.
+ *
+ * Entries are keyed on the model ID and the xxHash64 of the model's input
+ * bytes, so identical inputs hit regardless of which object carries them.
+ * Each entry keeps a copy of its input, and a lookup only hits if the stored
+ * input is byte-for-byte equal, which makes a hash collision a miss rather
+ * than a wrong answer. The cache evicts least recently used entries to stay
+ * within a byte budget (inputs, results and a fixed per-entry overhead are
+ * all counted) and optionally an entry count. Each model may have a
+ * time-to-live after which its entries are ignored.
+ *
+ * All methods are thread-safe.
+ */
+public class InferenceResultCache {
+    private static final long HASH_SEED = 0;
+
+    // Rough heap cost of a map entry, key and bookkeeping
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    /**
+     * Key: model ID plus content hash
+     */
+    private static final class Key {
+        final String modelId;
+        final long hash;
+
+        Key(String modelId, long hash) {
+            this.modelId = modelId;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return hash == other.hash && modelId.equals(other.modelId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * modelId.hashCode() + (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    /**
+     * Cached value with the input it was computed from
+     */
+    private static final class Entry {
+        final Object input; // byte[] or float[] copy
+        final Object value;
+        final long bytes;
+        final long expiresAt;
+
+        Entry(Object input, Object value, long bytes, long expiresAt) {
+            this.input = input;
+            this.value = value;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> modelTtls = new ConcurrentHashMap<>();
+    private long maxBytes;
+    private int maxEntries;
+    private long currentBytes;
+
+    // Statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long collisions;
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes Byte budget for inputs and results
+     * @param maxEntries Maximum number of entries (0 for no limit)
+     */
+    public InferenceResultCache(long maxBytes, int maxEntries) {
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Set how long results of a model stay valid
+     *
+     * @param modelId Model ID
+     * @param ttlMs Time to live in milliseconds (0 or less for no expiry)
+     */
+    public void setModelTtl(String modelId, long ttlMs) {
+        if (ttlMs > 0) {
+            modelTtls.put(modelId, ttlMs);
+        } else {
+            modelTtls.remove(modelId);
+        }
+    }
+
+    /**
+     * Hash a buffer's content between its position and limit
+     *
+     * @param input Model input
+     * @return Content hash
+     */
+    public static long hashOf(ByteBuffer input) {
+        return XXHash64.hash(input, HASH_SEED);
+    }
+
+    /**
+     * Hash a float input
+     *
+     * @param input Model input
+     * @return Content hash
+     */
+    public static long hashOf(float[] input) {
+        return XXHash64.hash(input, HASH_SEED);
+    }
+
+    /**
+     * Look up the result for a buffer input
+     *
+     * @param modelId Model ID
+     * @param input Model input (bytes between position and limit; not modified)
+     * @return Cached value or null
+     */
+    public Object get(String modelId, ByteBuffer input) {
+        return get(modelId, hashOf(input), input);
+    }
+
+    /**
+     * Look up the result for a float input
+     *
+     * @param modelId Model ID
+     * @param input Model input
+     * @return Cached value or null
+     */
+    public Object get(String modelId, float[] input) {
+        return get(modelId, hashOf(input), input);
+    }
+
+    /**
+     * Look up a result with a precomputed hash
+     *
+     * @param modelId Model ID
+     * @param hash Content hash from hashOf()
+     * @param input Model input, a ByteBuffer or float[]
+     * @return Cached value or null
+     */
+    public synchronized Object get(String modelId, long hash, Object input) {
+        Key key = new Key(modelId, hash);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt != 0 && System.currentTimeMillis() >= entry.expiresAt) {
+            removeEntry(key, entry);
+            expirations++;
+            misses++;
+            return null;
+        }
+        if (!sameInput(entry.input, input)) {
+            collisions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Store the result for a buffer input
+     *
+     * @param modelId Model ID
+     * @param input Model input (bytes between position and limit are copied)
+     * @param value Result to cache
+     * @param valueBytes Approximate size of the result in bytes
+     */
+    public void put(String modelId, ByteBuffer input, Object value, long valueBytes) {
+        put(modelId, hashOf(input), input, value, valueBytes);
+    }
+
+    /**
+     * Store the result for a float input
+     *
+     * @param modelId Model ID
+     * @param input Model input (copied)
+     * @param value Result to cache
+     * @param valueBytes Approximate size of the result in bytes
+     */
+    public void put(String modelId, float[] input, Object value, long valueBytes) {
+        put(modelId, hashOf(input), input, value, valueBytes);
+    }
+
+    /**
+     * Store a result with a precomputed hash
+     *
+     * @param modelId Model ID
+     * @param hash Content hash from hashOf()
+     * @param input Model input, a ByteBuffer or float[] (copied)
+     * @param value Result to cache
+     * @param valueBytes Approximate size of the result in bytes
+     */
+    public void put(String modelId, long hash, Object input, Object value, long valueBytes) {
+        // Copy outside the lock; large inputs take a while
+        Object inputCopy = copyInput(input);
+        if (inputCopy == null) {
+            return;
+        }
+        long bytes = ENTRY_OVERHEAD_BYTES + inputBytes(inputCopy) + Math.max(0, valueBytes);
+        Long ttl = modelTtls.get(modelId);
+        long expiresAt = ttl != null ? System.currentTimeMillis() + ttl : 0;
+
+        synchronized (this) {
+            if (bytes > maxBytes) {
+                return;
+            }
+            Key key = new Key(modelId, hash);
+            Entry old = entries.remove(key);
+            if (old != null) {
+                currentBytes -= old.bytes;
+            }
+            entries.put(key, new Entry(inputCopy, value, bytes, expiresAt));
+            currentBytes += bytes;
+            trim();
+        }
+    }
+
+    /**
+     * Remove every entry of a model
+     *
+     * @param modelId Model ID
+     */
+    public synchronized void removeModel(String modelId) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> e = iterator.next();
+            if (e.getKey().modelId.equals(modelId)) {
+                currentBytes -= e.getValue().bytes;
+                iterator.remove();
+            }
+        }
+        modelTtls.remove(modelId);
+    }
+
+    /**
+     * Change the limits, evicting as needed
+     *
+     * @param maxBytes Byte budget
+     * @param maxEntries Maximum number of entries (0 for no limit)
+     */
+    public synchronized void resize(long maxBytes, int maxEntries) {
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        trim();
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get cache statistics
+     *
+     * @return Map of statistic name to value
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("bytes", currentBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("collisions", collisions);
+        return stats;
+    }
+
+    /**
+     * Evict least recently used entries until within both limits
+     */
+    private void trim() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()
+                && (currentBytes > maxBytes || (maxEntries > 0 && entries.size() > maxEntries))) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    private void removeEntry(Key key, Entry entry) {
+        entries.remove(key);
+        currentBytes -= entry.bytes;
+    }
+
+    private static Object copyInput(Object input) {
+        if (input instanceof float[]) {
+            return ((float[]) input).clone();
+        }
+        if (input instanceof ByteBuffer) {
+            ByteBuffer source = ((ByteBuffer) input).duplicate();
+            byte[] copy = new byte[source.remaining()];
+            source.get(copy);
+            return copy;
+        }
+        return null;
+    }
+
+    private static long inputBytes(Object copy) {
+        return copy instanceof float[] ? ((float[]) copy).length * 4L : ((byte[]) copy).length;
+    }
+
+    private static boolean sameInput(Object stored, Object input) {
+        if (stored instanceof float[] && input instanceof float[]) {
+            return Arrays.equals((float[]) stored, (float[]) input);
+        }
+        if (stored instanceof byte[] && input instanceof ByteBuffer) {
+            return ByteBuffer.wrap((byte[]) stored).equals(((ByteBuffer) input).duplicate());
+        }
+        // Float and buffer inputs hash alike; compare them as little-endian bytes
+        if (stored instanceof float[] && input instanceof ByteBuffer) {
+            return sameBytes((float[]) stored, (ByteBuffer) input);
+        }
+        if (stored instanceof byte[] && input instanceof float[]) {
+            return sameBytes((float[]) input, ByteBuffer.wrap((byte[]) stored));
+        }
+        return false;
+    }
+
+    private static boolean sameBytes(float[] values, ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() != values.length * 4) {
+            return false;
+        }
+        int base = in.position();
+        for (int i = 0; i < values.length; i++) {
+            if (in.getInt(base + i * 4) != Float.floatToRawIntBits(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimate the heap size of a cached result
+     *
+     * @param value Result object
+     * @return Approximate size in bytes
+     */
+    public static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof float[]) {
+            return ((float[]) value).length * 4L;
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof int[]) {
+            return ((int[]) value).length * 4L;
+        }
+        if (value instanceof ByteBuffer) {
+            return ((ByteBuffer) value).capacity();
+        }
+        // Rough estimate for other types
+        return 100;
+    }
+}
@@ -0,0 +1,155 @@
+package com.aiassistant.core.ml.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * xxHash64 over byte buffers and float arrays.
+ *
+ * A float[] hashes to the same value as its little-endian byte
+ * representation, so a float input and the equivalent direct buffer share
+ * cache keys. Buffers are read with absolute gets; their position and limit
+ * are not changed.
+ */
+public final class XXHash64 {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private XXHash64() {
+    }
+
+    /**
+     * Hash the bytes between a buffer's position and limit
+     *
+     * @param buffer Input bytes
+     * @param seed Hash seed
+     * @return 64-bit hash
+     */
+    public static long hash(ByteBuffer buffer, long seed) {
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int offset = in.position();
+        int length = in.remaining();
+        int end = offset + length;
+        int p = offset;
+        long h;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, in.getLong(p));
+                v2 = round(v2, in.getLong(p + 8));
+                v3 = round(v3, in.getLong(p + 16));
+                v4 = round(v4, in.getLong(p + 24));
+                p += 32;
+            } while (p <= limit);
+            h = mergeAccumulators(v1, v2, v3, v4);
+        } else {
+            h = seed + PRIME5;
+        }
+
+        h += length;
+        while (p + 8 <= end) {
+            h ^= round(0, in.getLong(p));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+            p += 8;
+        }
+        if (p + 4 <= end) {
+            h ^= (in.getInt(p) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            p += 4;
+        }
+        while (p < end) {
+            h ^= (in.get(p) & 0xFFL) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+            p++;
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * Hash a float array as its little-endian bytes
+     *
+     * @param values Input values
+     * @param seed Hash seed
+     * @return 64-bit hash
+     */
+    public static long hash(float[] values, long seed) {
+        int count = values.length;
+        long length = count * 4L;
+        int i = 0;
+        long h;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = count - 8;
+            do {
+                v1 = round(v1, pair(values, i));
+                v2 = round(v2, pair(values, i + 2));
+                v3 = round(v3, pair(values, i + 4));
+                v4 = round(v4, pair(values, i + 6));
+                i += 8;
+            } while (i <= limit);
+            h = mergeAccumulators(v1, v2, v3, v4);
+        } else {
+            h = seed + PRIME5;
+        }
+
+        h += length;
+        while (i + 2 <= count) {
+            h ^= round(0, pair(values, i));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+            i += 2;
+        }
+        if (i < count) {
+            h ^= (Float.floatToRawIntBits(values[i]) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+        }
+        return avalanche(h);
+    }
+
+    /**
+     * Two consecutive floats as one little-endian 64-bit lane
+     */
+    private static long pair(float[] values, int i) {
+        return (Float.floatToRawIntBits(values[i]) & 0xFFFFFFFFL)
+                | ((long) Float.floatToRawIntBits(values[i + 1]) << 32);
+    }
+
+    private static long round(long acc, long lane) {
+        acc += lane * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+
+    private static long mergeAccumulators(long v1, long v2, long v3, long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = mergeRound(h, v1);
+        h = mergeRound(h, v2);
+        h = mergeRound(h, v3);
+        return mergeRound(h, v4);
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+}
@@ -1,42 +1,69 @@
 package com.aiassistant.core.ml.concurrent;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.os.SystemClock;
 import android.util.Log;
 
+import com.aiassistant.core.ml.cache.InferenceResultCache;
+
 import java.io.Closeable;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Manages concurrent execution of multiple ML models
  * with advanced techniques to minimize latency
+ * 
+ * Tasks flow through a staged pipeline (preprocess -> inference ->
+ * postprocess). Each stage has its own worker threads and a bounded input
+ * queue, and every worker hands the task it just processed to the next
+ * stage, so a task is never picked up by a thread meant for another one.
  */
 public class ConcurrentModelExecutor implements Closeable {
     private static final String TAG = "ConcurrentModelExecutor";
     
-    // Thread pools for concurrent execution
-    private final ExecutorService inferenceThreadPool;
-    private final ExecutorService preprocessingThreadPool;
-    private final ExecutorService postprocessingThreadPool;
+    // Default pipeline sizing
+    private static final int DEFAULT_PREPROCESS_THREADS = 2;
+    private static final int DEFAULT_POSTPROCESS_THREADS = 2;
+    private static final int DEFAULT_STAGE_QUEUE_CAPACITY = 64;
+    
+    // Memory budget of the result cache (inputs and outputs)
+    private static final long DEFAULT_RESULT_CACHE_BYTES = 16L * 1024 * 1024;
+    
+    /**
+     * Pipeline stages, in execution order
+     */
+    public enum Stage {
+        PREPROCESS,
+        INFERENCE,
+        POSTPROCESS
+    }
+    
+    // Staged pipeline: preprocess -> inference -> postprocess
+    private final PipelineStage preprocessStage;
+    private final PipelineStage inferenceStage;
+    private final PipelineStage postprocessStage;
     
     // Model registry
     private final Map<String, ModelWrapper> modelRegistry = new ConcurrentHashMap<>();
     
-    // Work distribution system
-    private final Map<String, ModelExecutionQueue> executionQueues = new ConcurrentHashMap<>();
+    // Tasks of each model currently inside the pipeline
+    private final Map<String, AtomicInteger> inFlightCounts = new ConcurrentHashMap<>();
     
     // Performance tracking
     private final Map<String, PerformanceTracker> performanceTrackers = new ConcurrentHashMap<>();
@@ -50,8 +77,8 @@ public class ConcurrentModelExecutor implements Closeable {
     // Model batching
     private final Map<String, ModelBatcher> batcherMap = new ConcurrentHashMap<>();
     
-    // Cache system
-    private final ResultCache resultCache;
+    // Results keyed on preprocessed input content
+    private final InferenceResultCache resultCache;
     
     // Task scheduler
     private final PriorityTaskScheduler taskScheduler;
@@ -60,18 +87,35 @@ public class ConcurrentModelExecutor implements Closeable {
      * Constructor
      */
     public ConcurrentModelExecutor(Context context, int numInferenceThreads) {
+        this(context, numInferenceThreads, DEFAULT_PREPROCESS_THREADS, DEFAULT_POSTPROCESS_THREADS,
+             DEFAULT_STAGE_QUEUE_CAPACITY);
+    }
+    
+    /**
+     * Constructor with explicit pipeline sizing
+     * 
+     * @param numInferenceThreads Inference stage workers
+     * @param numPreprocessThreads Preprocess stage workers
+     * @param numPostprocessThreads Postprocess stage workers
+     * @param stageQueueCapacity Capacity of each stage's input queue
+     */
+    public ConcurrentModelExecutor(Context context, int numInferenceThreads, int numPreprocessThreads,
+                                   int numPostprocessThreads, int stageQueueCapacity) {
         this.context = context.getApplicationContext();
         
-        // Create thread pools
-        inferenceThreadPool = Executors.newFixedThreadPool(numInferenceThreads);
-        preprocessingThreadPool = Executors.newFixedThreadPool(2);
-        postprocessingThreadPool = Executors.newFixedThreadPool(2);
+        // Create the stages back to front so each can hand off to the next
+        postprocessStage = new PipelineStage(Stage.POSTPROCESS, numPostprocessThreads, stageQueueCapacity,
+                                             this::postprocess);
+        inferenceStage = new PipelineStage(Stage.INFERENCE, numInferenceThreads, stageQueueCapacity,
+                                           this::infer);
+        preprocessStage = new PipelineStage(Stage.PREPROCESS, numPreprocessThreads, stageQueueCapacity,
+                                            this::preprocess);
         
         // Create runtime optimizer
         runtimeOptimizer = new RuntimeOptimizer();
         
         // Create result cache
-        resultCache = new ResultCache(100); // Cache size
+        resultCache = new InferenceResultCache(DEFAULT_RESULT_CACHE_BYTES, 0);
         
         // Create task scheduler
         taskScheduler = new PriorityTaskScheduler();
@@ -94,10 +138,8 @@ public class ConcurrentModelExecutor implements Closeable {
             
             // Register model
             modelRegistry.put(modelId, model);
-            
-            // Create execution queue
-            ModelExecutionQueue queue = new ModelExecutionQueue(modelId, config.queueSize);
-            executionQueues.put(modelId, queue);
+            inFlightCounts.put(modelId, new AtomicInteger(0));
+            resultCache.setModelTtl(modelId, config.cacheTtlMs);
             
             // Create performance tracker
             PerformanceTracker tracker = new PerformanceTracker(modelId);
@@ -126,16 +168,7 @@ public class ConcurrentModelExecutor implements Closeable {
         // Create inference task
         InferenceTask<T> task = new InferenceTask<>(modelId, input, outputType, priority);
         
-        // Check cache first
-        String cacheKey = generateCacheKey(modelId, input);
-        CachedResult cachedResult = resultCache.get(cacheKey);
-        if (cachedResult != null && outputType.isInstance(cachedResult.result)) {
-            Log.d(TAG, "Cache hit for model " + modelId);
-            task.setResultFromCache(outputType.cast(cachedResult.result));
-            return task.getFuture();
-        }
-        
-        // Add to scheduler
+        // Add to scheduler; the result cache is consulted once the input is preprocessed
         taskScheduler.scheduleTask(task);
         
         return task.getFuture();
@@ -162,194 +195,292 @@ public class ConcurrentModelExecutor implements Closeable {
     
     /**
      * Process pending tasks
-     * This should be called regularly from a main loop or thread
+     * This should be called regularly from a main loop or thread. It never
+     * blocks: tasks are admitted only while the preprocess queue has room and
+     * their model is below its in-flight limit (ModelConfig.queueSize); the
+     * rest stay in the priority scheduler for the next call.
      */
     public void processPendingTasks() {
-        List<InferenceTask<?>> tasks = taskScheduler.getNextBatchOfTasks();
+        int capacity = preprocessStage.getRemainingCapacity();
+        if (capacity <= 0) {
+            return;
+        }
+        
+        List<InferenceTask<?>> tasks = taskScheduler.getNextBatchOfTasks(capacity, this::tryAdmit);
         for (InferenceTask<?> task : tasks) {
             processTask(task);
         }
     }
     
     /**
-     * Process a single task
+     * Reserve an in-flight slot for a task's model
      */
-    private <T> void processTask(InferenceTask<T> task) {
-        ModelExecutionQueue queue = executionQueues.get(task.modelId);
+    private boolean tryAdmit(InferenceTask<?> task) {
         ModelWrapper model = modelRegistry.get(task.modelId);
-        ModelConfig config = model.getConfig();
-        
-        // Track start time
-        long startTime = SystemClock.elapsedRealtimeNanos();
+        AtomicInteger inFlight = inFlightCounts.get(task.modelId);
+        if (model == null || inFlight == null) {
+            // Model was removed; let processTask fail the task
+            return true;
+        }
         
-        // Check if batching is enabled
-        if (config.enableBatching && task.input instanceof Bitmap) {
-            ModelBatcher batcher = batcherMap.get(task.modelId);
-            if (batcher != null) {
-                batcher.addToBatch(task);
-                // The batcher will handle execution when batch is ready
-                return;
+        int limit = Math.max(1, model.getConfig().queueSize);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
             }
         }
+    }
+    
+    /**
+     * Release a task's in-flight slot once it leaves the pipeline
+     */
+    private void completeTask(InferenceTask<?> task) {
+        AtomicInteger inFlight = inFlightCounts.get(task.modelId);
+        if (inFlight != null) {
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Hand a task to the preprocess stage
+     */
+    private void processTask(InferenceTask<?> task) {
+        if (!modelRegistry.containsKey(task.modelId)) {
+            task.setError(new IllegalStateException("Model " + task.modelId + " not registered"));
+            completeTask(task);
+            return;
+        }
         
-        // Normal (non-batched) execution
+        task.pipelineStartNanos = SystemClock.elapsedRealtimeNanos();
+        if (!preprocessStage.offer(new StageWork(task))) {
+            // Only possible if another thread filled the queue since the capacity check
+            taskScheduler.scheduleTask(task);
+            completeTask(task);
+        }
+    }
+    
+    /**
+     * Preprocess stage: convert the input, then pass the task (or a full batch) on to inference
+     */
+    private void preprocess(StageWork work, double waitMs, int depthOnArrival) throws InterruptedException {
         try {
-            // Submit preprocessing
-            preprocessingThreadPool.execute(() -> {
-                try {
-                    // Preprocess input
-                    long preprocessStart = SystemClock.elapsedRealtimeNanos();
-                    ByteBuffer processedInput = model.preprocessInput(task.input);
-                    long preprocessEnd = SystemClock.elapsedRealtimeNanos();
-                    
-                    task.preprocessingTime = (preprocessEnd - preprocessStart) / 1_000_000; // ms
-                    task.processedInput = processedInput;
-                    
-                    // Add to execution queue
-                    queue.addTask(task);
-                } catch (Exception e) {
-                    task.setError(e);
-                }
-            });
+            preprocessTask(work, waitMs, depthOnArrival);
+        } finally {
+            // Runs on every exit, including cancellations, cache hits and
+            // errors, so the last task to leave never strands a partial batch
+            flushPartialBatches();
+        }
+    }
+    
+    private void preprocessTask(StageWork work, double waitMs, int depthOnArrival) throws InterruptedException {
+        InferenceTask<?> task = work.tasks.get(0);
+        if (task.isCancelled()) {
+            completeTask(task);
+            return;
+        }
+        
+        ModelWrapper model = modelRegistry.get(task.modelId);
+        try {
+            long preprocessStart = SystemClock.elapsedRealtimeNanos();
+            task.processedInput = model.preprocessInput(task.input);
+            long preprocessEnd = SystemClock.elapsedRealtimeNanos();
             
-            // Submit inference (to be executed when preprocessing is done)
-            inferenceThreadPool.execute(() -> {
-                try {
-                    InferenceTask<?> nextTask = queue.takeTask();
-                    if (nextTask == null || nextTask.isCancelled()) {
-                        return;
-                    }
-                    
-                    // Check if task already has result (from cache)
-                    if (nextTask.hasResult()) {
-                        return;
-                    }
-                    
-                    // Execute inference
-                    long inferenceStart = SystemClock.elapsedRealtimeNanos();
-                    ByteBuffer outputBuffer = model.runInference(nextTask.processedInput);
-                    long inferenceEnd = SystemClock.elapsedRealtimeNanos();
-                    
-                    nextTask.inferenceTime = (inferenceEnd - inferenceStart) / 1_000_000; // ms
-                    nextTask.outputBuffer = outputBuffer;
-                    
-                    // Submit postprocessing
-                    submitPostprocessing(nextTask);
-                } catch (Exception e) {
-                    if (task != null) {
-                        task.setError(e);
-                    }
-                }
-            });
+            task.preprocessingTime = (preprocessEnd - preprocessStart) / 1e6; // ms
+            recordStage(task, Stage.PREPROCESS, waitMs, task.preprocessingTime, depthOnArrival);
+            
+            if (completeFromCache(task)) {
+                completeTask(task);
+                return;
+            }
         } catch (Exception e) {
             task.setError(e);
+            completeTask(task);
+            return;
+        }
+        
+        ModelBatcher batcher = batcherMap.get(task.modelId);
+        if (batcher == null) {
+            inferenceStage.submit(work);
+            return;
+        }
+        
+        List<InferenceTask<?>> fullBatch = batcher.addToBatch(task);
+        if (fullBatch != null) {
+            inferenceStage.submit(new StageWork(fullBatch));
         }
     }
     
     /**
-     * Submit postprocessing for a task
+     * Once nothing more is waiting to be preprocessed, partial batches will
+     * not grow soon: send them on rather than holding them back
      */
-    private <T> void submitPostprocessing(InferenceTask<T> task) {
-        ModelWrapper model = modelRegistry.get(task.modelId);
-        
-        postprocessingThreadPool.execute(() -> {
-            try {
-                // Postprocess output
-                long postprocessStart = SystemClock.elapsedRealtimeNanos();
-                T result = model.postprocessOutput(task.outputBuffer, task.outputType);
-                long postprocessEnd = SystemClock.elapsedRealtimeNanos();
-                
-                task.postprocessingTime = (postprocessEnd - postprocessStart) / 1_000_000; // ms
-                
-                // Cache result
-                String cacheKey = generateCacheKey(task.modelId, task.input);
-                resultCache.put(cacheKey, new CachedResult(result));
-                
-                // Set result
-                task.setResult(result);
-                
-                // Track performance
-                PerformanceTracker tracker = performanceTrackers.get(task.modelId);
-                if (tracker != null) {
-                    tracker.recordExecution(
-                        task.preprocessingTime,
-                        task.inferenceTime,
-                        task.postprocessingTime
-                    );
-                }
-            } catch (Exception e) {
-                task.setError(e);
+    private void flushPartialBatches() throws InterruptedException {
+        if (preprocessStage.getQueueDepth() != 0) {
+            return;
+        }
+        for (ModelBatcher pending : batcherMap.values()) {
+            List<InferenceTask<?>> partial = pending.drain();
+            if (partial != null) {
+                inferenceStage.submit(new StageWork(partial));
             }
-        });
+        }
     }
     
     /**
-     * Process a batch of tasks for the same model
+     * Inference stage: run one task, or one batch of tasks for the same model
      */
-    private <T> void processBatch(String modelId, List<InferenceTask<T>> batchTasks) {
-        if (batchTasks.isEmpty()) {
-            return;
-        }
-        
-        ModelWrapper model = modelRegistry.get(modelId);
-        ModelConfig config = model.getConfig();
-        
-        // Create input batch
-        List<ByteBuffer> inputBuffers = new ArrayList<>();
-        for (InferenceTask<T> task : batchTasks) {
-            if (task.processedInput != null) {
-                inputBuffers.add(task.processedInput);
+    private void infer(StageWork work, double waitMs, int depthOnArrival) throws InterruptedException {
+        List<InferenceTask<?>> tasks = new ArrayList<>(work.tasks.size());
+        for (InferenceTask<?> task : work.tasks) {
+            if (task.isCancelled()) {
+                completeTask(task);
+            } else {
+                tasks.add(task);
             }
         }
+        if (tasks.isEmpty()) {
+            return;
+        }
         
+        ModelWrapper model = modelRegistry.get(tasks.get(0).modelId);
         try {
-            // Execute batch inference
             long inferenceStart = SystemClock.elapsedRealtimeNanos();
-            List<ByteBuffer> outputBuffers = model.runBatchInference(inputBuffers);
-            long inferenceEnd = SystemClock.elapsedRealtimeNanos();
-            
-            long inferenceTime = (inferenceEnd - inferenceStart) / 1_000_000; // ms
+            if (tasks.size() == 1) {
+                tasks.get(0).outputBuffer = model.runInference(tasks.get(0).processedInput);
+            } else {
+                List<ByteBuffer> inputBuffers = new ArrayList<>(tasks.size());
+                for (InferenceTask<?> task : tasks) {
+                    inputBuffers.add(task.processedInput);
+                }
+                List<ByteBuffer> outputBuffers = model.runBatchInference(inputBuffers);
+                for (int i = 0; i < tasks.size(); i++) {
+                    tasks.get(i).outputBuffer = i < outputBuffers.size() ? outputBuffers.get(i) : null;
+                }
+            }
+            double inferenceTime = (SystemClock.elapsedRealtimeNanos() - inferenceStart) / 1e6; // ms
             
-            // Assign outputs to tasks
-            for (int i = 0; i < Math.min(batchTasks.size(), outputBuffers.size()); i++) {
-                InferenceTask<T> task = batchTasks.get(i);
+            for (InferenceTask<?> task : tasks) {
                 task.inferenceTime = inferenceTime;
-                task.outputBuffer = outputBuffers.get(i);
-                
-                // Submit postprocessing
-                submitPostprocessing(task);
+                recordStage(task, Stage.INFERENCE, waitMs, inferenceTime, depthOnArrival);
             }
         } catch (Exception e) {
-            // Set error for all tasks in batch
-            for (InferenceTask<T> task : batchTasks) {
+            // Set error for all tasks in the unit
+            for (InferenceTask<?> task : tasks) {
                 task.setError(e);
+                completeTask(task);
             }
+            return;
+        }
+        
+        for (InferenceTask<?> task : tasks) {
+            postprocessStage.submit(new StageWork(task));
         }
     }
     
     /**
-     * Generate cache key for input
+     * Postprocess stage: convert the output, cache it and complete the task
      */
-    private String generateCacheKey(String modelId, Object input) {
-        if (input instanceof Bitmap) {
-            Bitmap bitmap = (Bitmap) input;
-            return modelId + "_" + bitmap.getWidth() + "x" + bitmap.getHeight() + "_" + bitmap.hashCode();
-        } else {
-            return modelId + "_" + input.hashCode();
+    private void postprocess(StageWork work, double waitMs, int depthOnArrival) {
+        InferenceTask<?> task = work.tasks.get(0);
+        try {
+            finishTask(task, waitMs, depthOnArrival);
+        } catch (Exception e) {
+            task.setError(e);
+        } finally {
+            completeTask(task);
+        }
+    }
+    
+    private <T> void finishTask(InferenceTask<T> task, double waitMs, int depthOnArrival) {
+        ModelWrapper model = modelRegistry.get(task.modelId);
+        
+        // Postprocess output
+        long postprocessStart = SystemClock.elapsedRealtimeNanos();
+        T result = model.postprocessOutput(task.outputBuffer, task.outputType);
+        long postprocessEnd = SystemClock.elapsedRealtimeNanos();
+        
+        task.postprocessingTime = (postprocessEnd - postprocessStart) / 1e6; // ms
+        recordStage(task, Stage.POSTPROCESS, waitMs, task.postprocessingTime, depthOnArrival);
+        
+        // Cache result
+        if (result != null && task.cacheInput != null) {
+            resultCache.put(task.modelId, task.inputHash, task.cacheInput, result,
+                            InferenceResultCache.estimateBytes(result));
+        }
+        
+        // Set result
+        task.setResult(result);
+        
+        // Track performance
+        PerformanceTracker tracker = performanceTrackers.get(task.modelId);
+        if (tracker != null) {
+            tracker.recordExecution(
+                task.preprocessingTime,
+                task.inferenceTime,
+                task.postprocessingTime,
+                (postprocessEnd - task.pipelineStartNanos) / 1e6
+            );
         }
     }
     
+    /**
+     * Record a task's wait and service time in one stage
+     */
+    private void recordStage(InferenceTask<?> task, Stage stage, double waitMs, double serviceMs,
+                             int depthOnArrival) {
+        PerformanceTracker tracker = performanceTrackers.get(task.modelId);
+        if (tracker != null) {
+            tracker.recordStage(stage, waitMs, serviceMs, depthOnArrival);
+        }
+    }
+    
+    /**
+     * Look up a task's preprocessed input in the result cache and complete the
+     * task on a hit. On a miss, remember the input hash for the later put.
+     * 
+     * @return True if the task was completed from the cache
+     */
+    private <T> boolean completeFromCache(InferenceTask<T> task) {
+        // Snapshot position and limit; inference may consume the buffer
+        task.cacheInput = task.processedInput.duplicate();
+        task.inputHash = InferenceResultCache.hashOf(task.cacheInput);
+        
+        Object cached = resultCache.get(task.modelId, task.inputHash, task.cacheInput);
+        if (cached == null || !task.outputType.isInstance(cached)) {
+            return false;
+        }
+        task.setResultFromCache(task.outputType.cast(cached));
+        return true;
+    }
+    
     /**
      * Get performance statistics for a model
      */
     public Map<String, Object> getPerformanceStats(String modelId) {
         PerformanceTracker tracker = performanceTrackers.get(modelId);
         if (tracker != null) {
-            return tracker.getStats();
+            Map<String, Object> stats = tracker.getStats();
+            stats.put("stageQueueDepths", getStageQueueDepths());
+            return stats;
         }
         return new HashMap<>();
     }
     
+    /**
+     * Get the current number of units waiting in each stage's queue
+     */
+    public Map<String, Integer> getStageQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        depths.put(Stage.PREPROCESS.name(), preprocessStage.getQueueDepth());
+        depths.put(Stage.INFERENCE.name(), inferenceStage.getQueueDepth());
+        depths.put(Stage.POSTPROCESS.name(), postprocessStage.getQueueDepth());
+        return depths;
+    }
+    
     /**
      * Get overall performance statistics
      */
@@ -364,6 +495,8 @@ public class ConcurrentModelExecutor implements Closeable {
         stats.put("modelStats", modelStats);
         stats.put("cacheStats", resultCache.getStats());
         stats.put("totalModels", modelRegistry.size());
+        stats.put("stageQueueDepths", getStageQueueDepths());
+        stats.put("pendingTasks", taskScheduler.getPendingCount());
         
         return stats;
     }
@@ -377,10 +510,27 @@ public class ConcurrentModelExecutor implements Closeable {
     
     @Override
     public void close() {
-        // Shutdown thread pools
-        inferenceThreadPool.shutdown();
-        preprocessingThreadPool.shutdown();
-        postprocessingThreadPool.shutdown();
+        // Stop the stages front to back
+        preprocessStage.shutdown();
+        inferenceStage.shutdown();
+        postprocessStage.shutdown();
+        
+        // Fail tasks still waiting for their batch to fill
+        Exception closed = new IllegalStateException("Executor closed");
+        for (ModelBatcher batcher : batcherMap.values()) {
+            List<InferenceTask<?>> pending = batcher.drain();
+            if (pending != null) {
+                for (InferenceTask<?> task : pending) {
+                    failTask(task, closed);
+                }
+            }
+        }
+        
+        // Workers that were mid-task may have handed work on after their
+        // stage stopped
+        preprocessStage.failQueued();
+        inferenceStage.failQueued();
+        postprocessStage.failQueued();
         
         // Close models
         for (ModelWrapper model : modelRegistry.values()) {
@@ -388,13 +538,156 @@ public class ConcurrentModelExecutor implements Closeable {
         }
         
         modelRegistry.clear();
-        executionQueues.clear();
+        inFlightCounts.clear();
         performanceTrackers.clear();
         batcherMap.clear();
+        resultCache.clear();
         
         Log.d(TAG, "ConcurrentModelExecutor closed");
     }
     
+    /**
+     * Fail a task that has not completed and release its in-flight slot
+     */
+    private void failTask(InferenceTask<?> task, Exception error) {
+        if (!task.isDone()) {
+            task.setError(error);
+            completeTask(task);
+        }
+    }
+    
+    /**
+     * Handler run by a stage's workers for each unit of work
+     */
+    private interface StageHandler {
+        void handle(StageWork work, double waitMs, int depthOnArrival) throws Exception;
+    }
+    
+    /**
+     * Unit of work passed between stages: one task, or a batch for the same model
+     */
+    private static class StageWork {
+        final List<InferenceTask<?>> tasks;
+        long enqueueNanos;
+        int depthOnArrival;
+        
+        StageWork(InferenceTask<?> task) {
+            this.tasks = new ArrayList<>(1);
+            this.tasks.add(task);
+        }
+        
+        StageWork(List<InferenceTask<?>> tasks) {
+            this.tasks = tasks;
+        }
+    }
+    
+    /**
+     * One pipeline stage: a bounded input queue drained by its own worker threads.
+     * 
+     * Workers hand each unit straight to the next stage with a blocking put, so
+     * a slow stage fills its queue and pushes back on the stage before it. The
+     * stages form a chain without cycles and the last stage never blocks, so a
+     * full queue always drains.
+     */
+    private class PipelineStage {
+        private final Stage stage;
+        private final BlockingQueue<StageWork> queue;
+        private final StageHandler handler;
+        private final Thread[] workers;
+        private volatile boolean running = true;
+        
+        PipelineStage(Stage stage, int threads, int capacity, StageHandler handler) {
+            this.stage = stage;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            this.handler = handler;
+            this.workers = new Thread[Math.max(1, threads)];
+            
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread(this::runWorker, "Model" + stage.name() + "-" + i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+        }
+        
+        /**
+         * Queue a unit, blocking while the queue is full
+         */
+        void submit(StageWork work) throws InterruptedException {
+            work.depthOnArrival = queue.size();
+            work.enqueueNanos = SystemClock.elapsedRealtimeNanos();
+            queue.put(work);
+        }
+        
+        /**
+         * Queue a unit if there is room
+         * 
+         * @return False if the queue is full
+         */
+        boolean offer(StageWork work) {
+            work.depthOnArrival = queue.size();
+            work.enqueueNanos = SystemClock.elapsedRealtimeNanos();
+            return queue.offer(work);
+        }
+        
+        int getQueueDepth() {
+            return queue.size();
+        }
+        
+        int getRemainingCapacity() {
+            return queue.remainingCapacity();
+        }
+        
+        private void runWorker() {
+            while (running) {
+                StageWork work;
+                try {
+                    work = queue.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                
+                double waitMs = (SystemClock.elapsedRealtimeNanos() - work.enqueueNanos) / 1e6;
+                try {
+                    handler.handle(work, waitMs, work.depthOnArrival);
+                } catch (InterruptedException e) {
+                    failWork(work, e);
+                    break;
+                } catch (Exception e) {
+                    Log.e(TAG, "Error in " + stage + " stage", e);
+                    failWork(work, e);
+                }
+            }
+        }
+        
+        /**
+         * Stop the workers and fail everything still queued
+         */
+        void shutdown() {
+            running = false;
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            failQueued();
+        }
+        
+        /**
+         * Fail everything still in the queue
+         */
+        void failQueued() {
+            List<StageWork> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            for (StageWork work : remaining) {
+                failWork(work, new IllegalStateException("Executor closed"));
+            }
+        }
+        
+        private void failWork(StageWork work, Exception error) {
+            for (InferenceTask<?> task : work.tasks) {
+                failTask(task, error);
+            }
+        }
+    }
+    
     /**
      * Model configuration
      */
@@ -406,6 +699,7 @@ public class ConcurrentModelExecutor implements Closeable {
         public boolean useGPU = false;
         public boolean useNNAPI = false;
         public int priority = 0; // 0-3, higher is more important
+        public long cacheTtlMs = 0; // Result cache lifetime, 0 for no expiry
         
         public ModelConfig() {}
     }
@@ -461,27 +755,6 @@ public class ConcurrentModelExecutor implements Closeable {
         }
     }
     
-    /**
-     * Queue for model execution tasks
-     */
-    private static class ModelExecutionQueue {
-        private final String modelId;
-        private final BlockingQueue<InferenceTask<?>> queue;
-        
-        public ModelExecutionQueue(String modelId, int capacity) {
-            this.modelId = modelId;
-            this.queue = new LinkedBlockingQueue<>(capacity);
-        }
-        
-        public void addTask(InferenceTask<?> task) throws InterruptedException {
-            queue.put(task);
-        }
-        
-        public InferenceTask<?> takeTask() throws InterruptedException {
-            return queue.take();
-        }
-    }
-    
     /**
      * Task for model inference
      */
@@ -492,10 +765,13 @@ public class ConcurrentModelExecutor implements Closeable {
         public final int priority;
         
         public ByteBuffer processedInput;
+        public ByteBuffer cacheInput;
+        public long inputHash;
         public ByteBuffer outputBuffer;
-        public long preprocessingTime;
-        public long inferenceTime;
-        public long postprocessingTime;
+        public double preprocessingTime;
+        public double inferenceTime;
+        public double postprocessingTime;
+        public long pipelineStartNanos;
         
         private volatile boolean cancelled = false;
         private volatile boolean hasResult = false;
@@ -541,6 +817,10 @@ public class ConcurrentModelExecutor implements Closeable {
             return hasResult;
         }
         
+        public boolean isDone() {
+            return future.isDone();
+        }
+        
         public T getResult() {
             return result;
         }
@@ -615,28 +895,57 @@ public class ConcurrentModelExecutor implements Closeable {
         private double totalPreprocessingTime = 0;
         private double totalInferenceTime = 0;
         private double totalPostprocessingTime = 0;
+        private double totalLatency = 0;
         
         private double minExecutionTime = Double.MAX_VALUE;
         private double maxExecutionTime = 0;
         
+        // Per stage (indexed by Stage.ordinal()): queue wait, service time, queue depth seen on arrival
+        private final int[] stageCounts = new int[Stage.values().length];
+        private final double[] stageWaitTotals = new double[Stage.values().length];
+        private final double[] stageWaitMax = new double[Stage.values().length];
+        private final double[] stageServiceTotals = new double[Stage.values().length];
+        private final long[] stageDepthTotals = new long[Stage.values().length];
+        private final int[] stageDepthMax = new int[Stage.values().length];
+        
         public PerformanceTracker(String modelId) {
             this.modelId = modelId;
         }
         
+        /**
+         * Record a completed task
+         * 
+         * @param latency Time from entering the pipeline to completion, including queueing (ms)
+         */
         public synchronized void recordExecution(double preprocessingTime, 
                                            double inferenceTime, 
-                                           double postprocessingTime) {
+                                           double postprocessingTime,
+                                           double latency) {
             executionCount.incrementAndGet();
             
             totalPreprocessingTime += preprocessingTime;
             totalInferenceTime += inferenceTime;
             totalPostprocessingTime += postprocessingTime;
+            totalLatency += latency;
             
             double totalTime = preprocessingTime + inferenceTime + postprocessingTime;
             minExecutionTime = Math.min(minExecutionTime, totalTime);
             maxExecutionTime = Math.max(maxExecutionTime, totalTime);
         }
         
+        /**
+         * Record one task passing through a stage
+         */
+        public synchronized void recordStage(Stage stage, double waitMs, double serviceMs, int depthOnArrival) {
+            int i = stage.ordinal();
+            stageCounts[i]++;
+            stageWaitTotals[i] += waitMs;
+            stageWaitMax[i] = Math.max(stageWaitMax[i], waitMs);
+            stageServiceTotals[i] += serviceMs;
+            stageDepthTotals[i] += depthOnArrival;
+            stageDepthMax[i] = Math.max(stageDepthMax[i], depthOnArrival);
+        }
+        
         public synchronized Map<String, Object> getStats() {
             Map<String, Object> stats = new HashMap<>();
             int count = executionCount.get();
@@ -647,85 +956,35 @@ public class ConcurrentModelExecutor implements Closeable {
                 stats.put("avgInferenceTime", totalInferenceTime / count);
                 stats.put("avgPostprocessingTime", totalPostprocessingTime / count);
                 stats.put("avgTotalTime", (totalPreprocessingTime + totalInferenceTime + totalPostprocessingTime) / count);
+                stats.put("avgLatency", totalLatency / count);
                 stats.put("minExecutionTime", minExecutionTime == Double.MAX_VALUE ? 0 : minExecutionTime);
                 stats.put("maxExecutionTime", maxExecutionTime);
             } else {
                 stats.put("executionCount", 0);
             }
             
-            return stats;
-        }
-        
-        public String getModelId() {
-            return modelId;
-        }
-    }
-    
-    /**
-     * Cache for inference results
-     */
-    private static class ResultCache {
-        private final int capacity;
-        private final Map<String, CachedResult> cache = new HashMap<>();
-        private final List<String> lruKeys = new ArrayList<>();
-        
-        private int hits = 0;
-        private int misses = 0;
-        
-        public ResultCache(int capacity) {
-            this.capacity = capacity;
-        }
-        
-        public synchronized void put(String key, CachedResult result) {
-            if (cache.size() >= capacity && !cache.containsKey(key)) {
-                // Evict least recently used item
-                String evictKey = lruKeys.remove(0);
-                cache.remove(evictKey);
-            }
-            
-            cache.put(key, result);
-            
-            // Update LRU
-            lruKeys.remove(key);
-            lruKeys.add(key);
-        }
-        
-        public synchronized CachedResult get(String key) {
-            CachedResult result = cache.get(key);
-            
-            if (result != null) {
-                // Update LRU
-                lruKeys.remove(key);
-                lruKeys.add(key);
-                hits++;
-            } else {
-                misses++;
+            Map<String, Map<String, Object>> stages = new HashMap<>();
+            for (Stage stage : Stage.values()) {
+                int i = stage.ordinal();
+                Map<String, Object> stageStats = new HashMap<>();
+                int stageCount = stageCounts[i];
+                stageStats.put("count", stageCount);
+                if (stageCount > 0) {
+                    stageStats.put("avgQueueWait", stageWaitTotals[i] / stageCount);
+                    stageStats.put("maxQueueWait", stageWaitMax[i]);
+                    stageStats.put("avgServiceTime", stageServiceTotals[i] / stageCount);
+                    stageStats.put("avgQueueDepth", (double) stageDepthTotals[i] / stageCount);
+                    stageStats.put("maxQueueDepth", stageDepthMax[i]);
+                }
+                stages.put(stage.name(), stageStats);
             }
+            stats.put("stages", stages);
             
-            return result;
-        }
-        
-        public synchronized Map<String, Object> getStats() {
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("capacity", capacity);
-            stats.put("size", cache.size());
-            stats.put("hits", hits);
-            stats.put("misses", misses);
-            stats.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0);
             return stats;
         }
-    }
-    
-    /**
-     * Cached result
-     */
-    private static class CachedResult {
-        public final Object result;
-        public final long timestamp;
         
-        public CachedResult(Object result) {
-            this.result = result;
-            this.timestamp = System.currentTimeMillis();
+        public String getModelId() {
+            return modelId;
         }
     }
     
@@ -773,42 +1032,38 @@ public class ConcurrentModelExecutor implements Closeable {
         }
         
         @Override
-        public synchronized T get() throws Exception {
+        public synchronized T get() throws InterruptedException, ExecutionException {
             while (!isDone) {
                 wait();
             }
             
-            if (isCancelled) {
-                throw new Exception("Task was cancelled");
-            }
-            
-            if (error != null) {
-                throw error;
-            }
-            
-            return result;
+            return report();
         }
         
         @Override
         public synchronized T get(long timeout, java.util.concurrent.TimeUnit unit) 
-                throws Exception {
+                throws InterruptedException, ExecutionException, TimeoutException {
             long timeoutMillis = unit.toMillis(timeout);
             long endTime = System.currentTimeMillis() + timeoutMillis;
             
             while (!isDone) {
                 long remainingTime = endTime - System.currentTimeMillis();
                 if (remainingTime <= 0) {
-                    throw new Exception("Timeout waiting for result");
+                    throw new TimeoutException("Timeout waiting for result");
                 }
                 wait(remainingTime);
             }
             
+            return report();
+        }
+        
+        private T report() throws ExecutionException {
             if (isCancelled) {
-                throw new Exception("Task was cancelled");
+                throw new CancellationException("Task was cancelled");
             }
             
             if (error != null) {
-                throw error;
+                throw new ExecutionException(error);
             }
             
             return result;
@@ -820,12 +1075,12 @@ public class ConcurrentModelExecutor implements Closeable {
      */
     private class PriorityTaskScheduler {
         // Tasks by priority (0-3)
-        private final List<List<InferenceTask<?>>> taskQueues = new ArrayList<>();
+        private final List<LinkedList<InferenceTask<?>>> taskQueues = new ArrayList<>();
         
         public PriorityTaskScheduler() {
             // Initialize priority queues
             for (int i = 0; i < 4; i++) {
-                taskQueues.add(new ArrayList<>());
+                taskQueues.add(new LinkedList<>());
             }
         }
         
@@ -848,58 +1103,75 @@ public class ConcurrentModelExecutor implements Closeable {
             }
         }
         
-        public synchronized List<InferenceTask<?>> getNextBatchOfTasks() {
+        /**
+         * Take up to maxTasks tasks, highest priority first, that the
+         * admission check accepts; rejected tasks keep their place
+         */
+        public synchronized List<InferenceTask<?>> getNextBatchOfTasks(int maxTasks,
+                                                                   Predicate<InferenceTask<?>> admit) {
             List<InferenceTask<?>> batch = new ArrayList<>();
             
             // Get tasks from highest priority first
-            for (int i = 3; i >= 0; i--) {
-                List<InferenceTask<?>> queue = taskQueues.get(i);
-                if (!queue.isEmpty()) {
-                    // Take batch from this priority level
-                    int batchSize = Math.min(5, queue.size());
-                    for (int j = 0; j < batchSize; j++) {
-                        batch.add(queue.remove(0));
-                    }
-                    
-                    // Don't process lower priorities if we have high priority tasks
-                    if (!batch.isEmpty()) {
-                        break;
+            for (int i = 3; i >= 0 && batch.size() < maxTasks; i--) {
+                Iterator<InferenceTask<?>> iterator = taskQueues.get(i).iterator();
+                while (iterator.hasNext() && batch.size() < maxTasks) {
+                    InferenceTask<?> task = iterator.next();
+                    if (admit.test(task)) {
+                        iterator.remove();
+                        batch.add(task);
                     }
                 }
             }
             
             return batch;
         }
+        
+        public synchronized int getPendingCount() {
+            int count = 0;
+            for (List<InferenceTask<?>> queue : taskQueues) {
+                count += queue.size();
+            }
+            return count;
+        }
     }
     
     /**
      * Batch processor for model inference
+     * Collects preprocessed tasks for one model until the batch is full or
+     * the preprocess stage runs dry
      */
     private class ModelBatcher {
         private final String modelId;
         private final int maxBatchSize;
-        private final List<InferenceTask<?>> batchTasks = new ArrayList<>();
+        private List<InferenceTask<?>> batchTasks = new ArrayList<>();
         
         public ModelBatcher(String modelId, int maxBatchSize) {
             this.modelId = modelId;
-            this.maxBatchSize = maxBatchSize;
+            this.maxBatchSize = Math.max(1, maxBatchSize);
         }
         
-        public synchronized <T> void addToBatch(InferenceTask<T> task) {
+        /**
+         * Add a task
+         * 
+         * @return The full batch to run, or null if the batch is still filling
+         */
+        public synchronized List<InferenceTask<?>> addToBatch(InferenceTask<?> task) {
             batchTasks.add(task);
-            
-            if (batchTasks.size() >= maxBatchSize) {
-                // Batch is full, process it
-                List<InferenceTask<T>> taskBatch = new ArrayList<>();
-                for (InferenceTask<?> t : batchTasks) {
-                    @SuppressWarnings("unchecked")
-                    InferenceTask<T> typedTask = (InferenceTask<T>) t;
-                    taskBatch.add(typedTask);
-                }
-                
-                processBatch(modelId, taskBatch);
-                batchTasks.clear();
+            return batchTasks.size() >= maxBatchSize ? drain() : null;
+        }
+        
+        /**
+         * Take whatever has been collected
+         * 
+         * @return The pending tasks, or null if there are none
+         */
+        public synchronized List<InferenceTask<?>> drain() {
+            if (batchTasks.isEmpty()) {
+                return null;
             }
+            List<InferenceTask<?>> batch = batchTasks;
+            batchTasks = new ArrayList<>();
+            return batch;
         }
     }
     
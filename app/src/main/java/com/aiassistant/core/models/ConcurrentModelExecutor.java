@@ -12,36 +12,38 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import com.aiassistant.core.ml.cache.InferenceResultCache;
 import com.aiassistant.security.SecurityContext;
 
 /**
@@ -59,9 +61,8 @@ public class ConcurrentModelExecutor {
     
     // Core components
     private ModelRegistry modelRegistry;
-    private ModelCacheManager cacheManager;
+    private InferenceResultCache resultCache;
     private ExecutionDispatcher executionDispatcher;
-    private BatchingOptimizer batchingOptimizer;
     private ResourceMonitor resourceMonitor;
     
     // Thread pools
@@ -70,10 +71,10 @@ public class ConcurrentModelExecutor {
     private ExecutorService postprocessExecutor;
     private ScheduledExecutorService monitorExecutor;
     
-    // Execution queues
-    private PriorityBlockingQueue<InferenceRequest> highPriorityQueue;
-    private PriorityBlockingQueue<InferenceRequest> mediumPriorityQueue;
-    private PriorityBlockingQueue<InferenceRequest> lowPriorityQueue;
+    // Order of pending requests within a model's batch queue
+    private static final Comparator<InferenceRequest> REQUEST_ORDER =
+        Comparator.comparingInt(InferenceRequest::getPriority).reversed()
+            .thenComparing(InferenceRequest::getTimestamp);
     
     // Active requests
     private ConcurrentHashMap<String, InferenceRequest> activeRequests;
@@ -141,22 +142,6 @@ public class ConcurrentModelExecutor {
             new PriorityThreadFactory("ResourceMonitor", Thread.NORM_PRIORITY - 1)
         );
         
-        // Initialize queues
-        highPriorityQueue = new PriorityBlockingQueue<>(20, 
-            Comparator.comparingInt(InferenceRequest::getPriority).reversed()
-                .thenComparing(InferenceRequest::getTimestamp)
-        );
-        
-        mediumPriorityQueue = new PriorityBlockingQueue<>(50, 
-            Comparator.comparingInt(InferenceRequest::getPriority).reversed()
-                .thenComparing(InferenceRequest::getTimestamp)
-        );
-        
-        lowPriorityQueue = new PriorityBlockingQueue<>(100, 
-            Comparator.comparingInt(InferenceRequest::getPriority).reversed()
-                .thenComparing(InferenceRequest::getTimestamp)
-        );
-        
         // Initialize maps
         activeRequests = new ConcurrentHashMap<>();
         activeFutures = new ConcurrentHashMap<>();
@@ -164,9 +149,8 @@ public class ConcurrentModelExecutor {
         
         // Initialize components
         modelRegistry = new ModelRegistry();
-        cacheManager = new ModelCacheManager(config.maxCacheEntries, config.cacheSizeBytes);
+        resultCache = new InferenceResultCache(config.cacheSizeBytes, config.maxCacheEntries);
         executionDispatcher = new ExecutionDispatcher();
-        batchingOptimizer = new BatchingOptimizer();
         resourceMonitor = new ResourceMonitor();
         
         // Start monitor
@@ -227,6 +211,8 @@ public class ConcurrentModelExecutor {
      */
     public boolean unloadModel(String modelId) {
         try {
+            executionDispatcher.removeModel(modelId);
+            resultCache.removeModel(modelId);
             return modelRegistry.unregisterModel(modelId);
         } catch (Exception e) {
             Log.e(TAG, "Error unloading model: " + modelId, e);
@@ -338,29 +324,6 @@ public class ConcurrentModelExecutor {
         // Increment request count
         totalRequestsCount.incrementAndGet();
         
-        // Check cache first
-        CacheKey cacheKey = new CacheKey(request.modelId, request.input);
-        CacheEntry cachedResult = cacheManager.get(cacheKey);
-        
-        if (cachedResult != null) {
-            // Cache hit
-            cacheHitCount.incrementAndGet();
-            updateStats(request.modelId, 0, 0, SystemClock.elapsedRealtime() - startTime);
-            
-            @SuppressWarnings("unchecked")
-            InferenceResult<T> result = new InferenceResult<>(
-                request.requestId,
-                (T) cachedResult.output,
-                startTime,
-                SystemClock.elapsedRealtime(),
-                true, // From cache
-                cachedResult.confidence
-            );
-            
-            return result;
-        }
-        
-        // No cache hit, prepare for inference
         ModelInfo modelInfo = modelRegistry.getModelInfo(request.modelId);
         if (modelInfo == null) {
             throw new ModelExecutionException("Model not found: " + request.modelId);
@@ -371,9 +334,46 @@ public class ConcurrentModelExecutor {
         Object preprocessedInput = preprocessInput(request, modelInfo);
         long preprocessTime = SystemClock.elapsedRealtime() - preprocessStart;
         
-        // Execute inference
+        // Check cache, keyed on the content of the preprocessed input
+        boolean cacheable = preprocessedInput instanceof float[] || preprocessedInput instanceof ByteBuffer;
+        long inputHash = 0;
+        // Snapshot position and limit; inference advances the caller's buffer
+        Object cacheInput = preprocessedInput instanceof ByteBuffer
+            ? ((ByteBuffer) preprocessedInput).duplicate()
+            : preprocessedInput;
+        if (cacheable) {
+            inputHash = cacheInput instanceof float[]
+                ? InferenceResultCache.hashOf((float[]) cacheInput)
+                : InferenceResultCache.hashOf((ByteBuffer) cacheInput);
+            CacheEntry cachedResult = (CacheEntry) resultCache.get(request.modelId, inputHash, cacheInput);
+            
+            if (cachedResult != null) {
+                // Cache hit
+                cacheHitCount.incrementAndGet();
+                updateStats(request.modelId, 0, preprocessTime, SystemClock.elapsedRealtime() - startTime);
+                
+                @SuppressWarnings("unchecked")
+                InferenceResult<T> result = new InferenceResult<>(
+                    request.requestId,
+                    (T) cachedResult.output,
+                    startTime,
+                    SystemClock.elapsedRealtime(),
+                    true, // From cache
+                    cachedResult.confidence
+                );
+                
+                return result;
+            }
+        }
+        
+        // Execute inference, batched with other requests for the same model when possible
         long inferenceStart = SystemClock.elapsedRealtime();
-        Object rawOutput = executeInference(request.modelId, preprocessedInput);
+        Object rawOutput;
+        if (isBatchable(preprocessedInput, modelInfo)) {
+            rawOutput = awaitBatchedInference(request, (float[]) preprocessedInput, modelInfo);
+        } else {
+            rawOutput = executeInference(request.modelId, preprocessedInput);
+        }
         long inferenceTime = SystemClock.elapsedRealtime() - inferenceStart;
         
         // Postprocess output
@@ -383,7 +383,10 @@ public class ConcurrentModelExecutor {
         
         // Cache result
         float confidence = 1.0f; // This would be calculated based on the model output
-        cacheManager.put(cacheKey, new CacheEntry(output, confidence));
+        if (cacheable) {
+            resultCache.put(request.modelId, inputHash, cacheInput, new CacheEntry(output, confidence),
+                            InferenceResultCache.estimateBytes(output));
+        }
         
         // Update statistics
         long totalTime = SystemClock.elapsedRealtime() - startTime;
@@ -412,50 +415,155 @@ public class ConcurrentModelExecutor {
     }
     
     /**
-     * Execute inference on the appropriate device
+     * Check whether an input can be stacked into a batch: a single float
+     * sample for a model whose first input dimension is the batch dimension
      */
-    private Object executeInference(String modelId, Object input) throws ModelExecutionException {
+    private boolean isBatchable(Object input, ModelInfo modelInfo) {
+        ExecutorConfiguration current = config;
+        return current.enableBatching && current.maxBatchSize > 1
+            && input instanceof float[]
+            && modelInfo.inputShape.length > 1 && modelInfo.inputShape[0] == 1
+            && modelInfo.outputShape.length > 1 && modelInfo.outputShape[0] == 1
+            && ((float[]) input).length == modelInfo.inputSize;
+    }
+    
+    /**
+     * Queue a request with its model's batcher and wait for its slice of the batch output
+     */
+    private float[] awaitBatchedInference(InferenceRequest request, float[] input, ModelInfo modelInfo)
+        throws ModelExecutionException {
+        CompletableFuture<float[]> output = executionDispatcher.submit(request, input, modelInfo);
+        try {
+            return output.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModelExecutionException("Interrupted waiting for batched inference", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ModelExecutionException) {
+                throw (ModelExecutionException) cause;
+            }
+            throw new ModelExecutionException("Batched inference failed", cause);
+        }
+    }
+    
+    /**
+     * Resize the model's input to a batch size and reallocate its tensors if it changed.
+     * Must be called while holding the model's lock.
+     */
+    private void bindBatchSize(ModelInfo modelInfo, int batchSize) {
+        if (modelInfo.boundBatchSize == batchSize) {
+            return;
+        }
+        int[] shape = modelInfo.inputShape.clone();
+        shape[0] = batchSize;
+        modelInfo.interpreter.resizeInput(0, shape);
+        modelInfo.interpreter.allocateTensors();
+        modelInfo.boundBatchSize = batchSize;
+    }
+    
+    /**
+     * Run one interpreter call over a stacked batch of samples
+     * 
+     * @param modelInfo Model to run
+     * @param inputs One input sample per request, each inputSize floats
+     * @return One output sample per request, each outputSize floats
+     */
+    private float[][] executeBatchInference(ModelInfo modelInfo, List<float[]> inputs) throws ModelExecutionException {
         try {
             SecurityContext.enterSecureSection("model_inference");
             
-            ModelInfo modelInfo = modelRegistry.getModelInfo(modelId);
-            if (modelInfo == null || modelInfo.interpreter == null) {
-                throw new ModelExecutionException("Model not available: " + modelId);
+            if (modelInfo.interpreter == null) {
+                throw new ModelExecutionException("Model not available: " + modelInfo.id);
             }
             
-            // For demonstration, we're assuming input is a float array
-            // In a real implementation, this would handle multiple input types
+            int batchSize = inputs.size();
+            float[][] outputs = new float[batchSize][modelInfo.outputSize];
             
-            if (input instanceof float[]) {
-                float[] inputArray = (float[]) input;
-                float[][] outputArray = new float[1][modelInfo.outputSize];
+            // The interpreter is not thread-safe and its tensors are resized per batch size
+            synchronized (modelInfo) {
+                bindBatchSize(modelInfo, batchSize);
                 
-                // Run inference
-                modelInfo.interpreter.run(inputArray, outputArray);
-                
-                // Return first output array
-                return outputArray[0];
-            } 
-            else if (input instanceof ByteBuffer) {
-                ByteBuffer inputBuffer = (ByteBuffer) input;
-                ByteBuffer outputBuffer = ByteBuffer.allocateDirect(modelInfo.outputSize * 4);
-                outputBuffer.order(ByteOrder.nativeOrder());
+                ByteBuffer inputBuffer = modelInfo.batchInputBuffer(batchSize * modelInfo.inputSize);
+                FloatBuffer inputFloats = inputBuffer.asFloatBuffer();
+                for (float[] input : inputs) {
+                    inputFloats.put(input);
+                }
+                ByteBuffer outputBuffer = modelInfo.batchOutputBuffer(batchSize * modelInfo.outputSize);
                 
-                // Run inference
                 modelInfo.interpreter.run(inputBuffer, outputBuffer);
                 
-                // Reset position
+                // Split the batch output back into per-request samples
                 outputBuffer.rewind();
-                return outputBuffer;
+                FloatBuffer outputFloats = outputBuffer.asFloatBuffer();
+                for (float[] output : outputs) {
+                    outputFloats.get(output);
+                }
             }
-            else {
-                throw new ModelExecutionException("Unsupported input type: " + input.getClass().getName());
+            
+            return outputs;
+        } catch (RuntimeException e) {
+            throw new ModelExecutionException("Batch inference failed on model: " + modelInfo.id, e);
+        } finally {
+            SecurityContext.exitSecureSection("model_inference");
+        }
+    }
+    
+    /**
+     * Execute inference on the appropriate device
+     */
+    private Object executeInference(String modelId, Object input) throws ModelExecutionException {
+        try {
+            SecurityContext.enterSecureSection("model_inference");
+            
+            ModelInfo modelInfo = modelRegistry.getModelInfo(modelId);
+            if (modelInfo == null || modelInfo.interpreter == null) {
+                throw new ModelExecutionException("Model not available: " + modelId);
+            }
+            
+            synchronized (modelInfo) {
+                bindBatchSize(modelInfo, 1);
+                return runSingleInference(modelInfo, input);
             }
         } finally {
             SecurityContext.exitSecureSection("model_inference");
         }
     }
     
+    /**
+     * Run the interpreter on a single unbatched input
+     */
+    private Object runSingleInference(ModelInfo modelInfo, Object input) throws ModelExecutionException {
+        // For demonstration, we're assuming input is a float array
+        // In a real implementation, this would handle multiple input types
+        
+        if (input instanceof float[]) {
+            float[] inputArray = (float[]) input;
+            float[][] outputArray = new float[1][modelInfo.outputSize];
+            
+            // Run inference
+            modelInfo.interpreter.run(inputArray, outputArray);
+            
+            // Return first output array
+            return outputArray[0];
+        } 
+        else if (input instanceof ByteBuffer) {
+            ByteBuffer inputBuffer = (ByteBuffer) input;
+            ByteBuffer outputBuffer = ByteBuffer.allocateDirect(modelInfo.outputSize * 4);
+            outputBuffer.order(ByteOrder.nativeOrder());
+            
+            // Run inference
+            modelInfo.interpreter.run(inputBuffer, outputBuffer);
+            
+            // Reset position
+            outputBuffer.rewind();
+            return outputBuffer;
+        }
+        else {
+            throw new ModelExecutionException("Unsupported input type: " + input.getClass().getName());
+        }
+    }
+    
     /**
      * Postprocess raw output to desired format
      */
@@ -523,6 +631,17 @@ public class ConcurrentModelExecutor {
         stats.avgExecutionTime = (float) stats.totalExecutionTime.get() / count;
     }
     
+    /**
+     * Record an executed batch for a model
+     */
+    private void recordBatch(String modelId, int batchSize) {
+        ModelStatistics stats = modelStats.computeIfAbsent(modelId, k -> new ModelStatistics());
+        
+        int batches = stats.batchCount.incrementAndGet();
+        long batchedRequests = stats.batchedRequestCount.addAndGet(batchSize);
+        stats.avgBatchSize = (float) batchedRequests / batches;
+    }
+    
     /**
      * Get statistics for all models
      */
@@ -537,6 +656,23 @@ public class ConcurrentModelExecutor {
         return modelStats.get(modelId);
     }
     
+    /**
+     * Set how long cached results of a model stay valid
+     * 
+     * @param modelId Model ID
+     * @param ttlMs Time to live in milliseconds (0 for no expiry)
+     */
+    public void setModelCacheTtl(String modelId, long ttlMs) {
+        resultCache.setModelTtl(modelId, ttlMs);
+    }
+    
+    /**
+     * Get result cache statistics (hits, misses, evictions, bytes in use)
+     */
+    public Map<String, Object> getCacheStatistics() {
+        return resultCache.getStats();
+    }
+    
     /**
      * Update configuration
      */
@@ -546,7 +682,7 @@ public class ConcurrentModelExecutor {
             this.config = newConfig;
             
             // Update components
-            cacheManager.resize(config.maxCacheEntries, config.cacheSizeBytes);
+            resultCache.resize(config.cacheSizeBytes, config.maxCacheEntries);
             resourceMonitor.updateSettings(config.monitoringIntervalMs);
             
             // Log update
@@ -591,7 +727,7 @@ public class ConcurrentModelExecutor {
         modelRegistry.releaseAll();
         
         // Clear cache
-        cacheManager.clear();
+        resultCache.clear();
         
         Log.d(TAG, "Concurrent Model Executor shutdown");
     }
@@ -747,141 +883,14 @@ public class ConcurrentModelExecutor {
     }
     
     /**
-     * Cache manager for inference results
-     */
-    private class ModelCacheManager {
-        private LinkedHashMap<CacheKey, CacheEntry> cache;
-        private int maxEntries;
-        private long maxSizeBytes;
-        private long currentSizeBytes;
-        private ReadWriteLock cacheLock = new ReentrantReadWriteLock();
-        
-        /**
-         * Create cache manager with size limits
-         */
-        public ModelCacheManager(int maxEntries, long maxSizeBytes) {
-            this.maxEntries = maxEntries;
-            this.maxSizeBytes = maxSizeBytes;
-            this.currentSizeBytes = 0;
-            
-            // Create LRU cache
-            cache = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
-                    return size() > ModelCacheManager.this.maxEntries;
-                }
-            };
-        }
-        
-        /**
-         * Get cached entry
-         */
-        public CacheEntry get(CacheKey key) {
-            cacheLock.readLock().lock();
-            try {
-                return cache.get(key);
-            } finally {
-                cacheLock.readLock().unlock();
-            }
-        }
-        
-        /**
-         * Put entry in cache
-         */
-        public void put(CacheKey key, CacheEntry entry) {
-            cacheLock.writeLock().lock();
-            try {
-                // Check if key already exists
-                if (cache.containsKey(key)) {
-                    CacheEntry old = cache.get(key);
-                    currentSizeBytes -= estimateSize(old);
-                }
-                
-                // Estimate size of new entry
-                long entrySize = estimateSize(entry);
-                
-                // Check if we need to make room
-                if (currentSizeBytes + entrySize > maxSizeBytes) {
-                    // Remove entries until we have space
-                    while (!cache.isEmpty() && currentSizeBytes + entrySize > maxSizeBytes) {
-                        CacheKey oldestKey = cache.keySet().iterator().next();
-                        CacheEntry oldest = cache.remove(oldestKey);
-                        currentSizeBytes -= estimateSize(oldest);
-                    }
-                }
-                
-                // Add to cache
-                cache.put(key, entry);
-                currentSizeBytes += entrySize;
-            } finally {
-                cacheLock.writeLock().unlock();
-            }
-        }
-        
-        /**
-         * Estimate size of cache entry
-         */
-        private long estimateSize(CacheEntry entry) {
-            if (entry.output == null) {
-                return 0;
-            }
-            
-            if (entry.output instanceof float[]) {
-                return ((float[]) entry.output).length * 4L;
-            }
-            
-            if (entry.output instanceof ByteBuffer) {
-                return ((ByteBuffer) entry.output).capacity();
-            }
-            
-            // Rough estimate for other types
-            return 100;
-        }
-        
-        /**
-         * Clear cache
-         */
-        public void clear() {
-            cacheLock.writeLock().lock();
-            try {
-                cache.clear();
-                currentSizeBytes = 0;
-            } finally {
-                cacheLock.writeLock().unlock();
-            }
-        }
-        
-        /**
-         * Resize cache
-         */
-        public void resize(int maxEntries, long maxSizeBytes) {
-            cacheLock.writeLock().lock();
-            try {
-                this.maxEntries = maxEntries;
-                this.maxSizeBytes = maxSizeBytes;
-                
-                // Remove entries if we're over limit
-                while (!cache.isEmpty() && cache.size() > maxEntries) {
-                    CacheKey oldestKey = cache.keySet().iterator().next();
-                    CacheEntry oldest = cache.remove(oldestKey);
-                    currentSizeBytes -= estimateSize(oldest);
-                }
-                
-                while (!cache.isEmpty() && currentSizeBytes > maxSizeBytes) {
-                    CacheKey oldestKey = cache.keySet().iterator().next();
-                    CacheEntry oldest = cache.remove(oldestKey);
-                    currentSizeBytes -= estimateSize(oldest);
-                }
-            } finally {
-                cacheLock.writeLock().unlock();
-            }
-        }
-    }
-    
-    /**
-     * Execution dispatcher to manage queues and processing
+     * Execution dispatcher that owns the per-model batchers and flushes them
+     * when their max-wait deadline passes
      */
     private class ExecutionDispatcher {
+        // Longest the dispatcher sleeps when no batch deadline is pending
+        private static final long IDLE_PARK_NANOS = 10000000L;
+        
+        private final ConcurrentHashMap<String, ModelBatcher> batchers = new ConcurrentHashMap<>();
         private Thread dispatcherThread;
         private AtomicBoolean running = new AtomicBoolean(false);
         
@@ -896,39 +905,17 @@ public class ConcurrentModelExecutor {
                 
                 while (running.get() && isRunning.get()) {
                     try {
-                        // Process high priority queue first
-                        InferenceRequest request = highPriorityQueue.poll(10, TimeUnit.MILLISECONDS);
-                        
-                        if (request == null) {
-                            // Try medium priority queue
-                            request = mediumPriorityQueue.poll();
-                            
-                            if (request == null) {
-                                // Try low priority queue
-                                request = lowPriorityQueue.poll();
-                            }
+                        // Flush every batcher whose oldest request has waited long enough
+                        long now = System.nanoTime();
+                        long nextDeadline = now + IDLE_PARK_NANOS;
+                        for (ModelBatcher batcher : batchers.values()) {
+                            nextDeadline = Math.min(nextDeadline, batcher.flushIfDue(now));
                         }
                         
-                        if (request != null) {
-                            // Check if we can batch
-                            if (config.enableBatching) {
-                                List<InferenceRequest> batch = batchingOptimizer.createBatch(request);
-                                
-                                if (batch.size() > 1) {
-                                    // Process batch
-                                    batchProcessedCount.addAndGet(batch.size());
-                                    processBatch(batch);
-                                } else {
-                                    // Process single request
-                                    processSingleRequest(request);
-                                }
-                            } else {
-                                // Process single request
-                                processSingleRequest(request);
-                            }
+                        long parkNanos = nextDeadline - System.nanoTime();
+                        if (parkNanos > 0) {
+                            LockSupport.parkNanos(this, parkNanos);
                         }
-                    } catch (InterruptedException e) {
-                        // Interrupted
                     } catch (Exception e) {
                         Log.e(TAG, "Error in dispatcher", e);
                     }
@@ -943,13 +930,13 @@ public class ConcurrentModelExecutor {
         }
         
         /**
-         * Stop dispatcher
+         * Stop dispatcher and fail requests that are still waiting
          */
         public void stop() {
             running.set(false);
             
             if (dispatcherThread != null) {
-                dispatcherThread.interrupt();
+                LockSupport.unpark(dispatcherThread);
                 
                 try {
                     dispatcherThread.join(1000);
@@ -957,111 +944,211 @@ public class ConcurrentModelExecutor {
                     // Ignored
                 }
             }
+            
+            for (ModelBatcher batcher : batchers.values()) {
+                batcher.failPending(new ModelExecutionException("Executor shut down"));
+            }
+            batchers.clear();
         }
         
         /**
-         * Process a single request
+         * Queue a single-sample request for batched execution
          */
-        private void processSingleRequest(InferenceRequest request) {
-            // Submit to inference executor
-            inferenceExecutor.execute(() -> {
-                try {
-                    // Processing would happen here
-                    // This is just a placeholder since real processing is done in processRequest method
-                } catch (Exception e) {
-                    Log.e(TAG, "Error processing request: " + request.requestId, e);
-                }
-            });
+        public CompletableFuture<float[]> submit(InferenceRequest request, float[] input, ModelInfo modelInfo) {
+            ModelBatcher batcher = batchers.computeIfAbsent(modelInfo.id, k -> new ModelBatcher(modelInfo));
+            return batcher.enqueue(request, input);
         }
         
         /**
-         * Process a batch of requests
+         * Drop a model's batcher, failing its waiting requests
          */
-        private void processBatch(List<InferenceRequest> batch) {
-            // In a real implementation, this would batch requests for the same model
-            // For demonstration, we'll process them individually
-            for (InferenceRequest request : batch) {
-                processSingleRequest(request);
+        public void removeModel(String modelId) {
+            ModelBatcher batcher = batchers.remove(modelId);
+            if (batcher != null) {
+                batcher.failPending(new ModelExecutionException("Model unloaded: " + modelId));
             }
         }
+        
+        /**
+         * Wake the dispatcher so it picks up a new deadline
+         */
+        void wakeUp() {
+            Thread thread = dispatcherThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+    
+    /**
+     * Request waiting in a batcher together with its prepared input
+     */
+    private static class BatchEntry {
+        final InferenceRequest request;
+        final float[] input;
+        final long enqueueNanos;
+        final CompletableFuture<float[]> output = new CompletableFuture<>();
+        
+        BatchEntry(InferenceRequest request, float[] input, long enqueueNanos) {
+            this.request = request;
+            this.input = input;
+            this.enqueueNanos = enqueueNanos;
+        }
     }
     
     /**
-     * Batching optimizer to group similar requests
+     * Dynamic batcher for one model
+     * 
+     * Requests wait in priority order until either maxBatchSize of them are
+     * pending or the oldest has waited maxBatchWaitMicros; the batch is then
+     * stacked into a single interpreter call on the inference pool. At most
+     * one batch per model runs at a time: requests arriving meanwhile
+     * accumulate and are flushed as soon as the running batch completes.
      */
-    private class BatchingOptimizer {
+    private class ModelBatcher {
+        private final ModelInfo modelInfo;
+        private final PriorityQueue<BatchEntry> pending =
+            new PriorityQueue<>(16, (a, b) -> REQUEST_ORDER.compare(a.request, b.request));
+        private long flushDeadlineNanos = Long.MAX_VALUE;
+        private boolean running;
+        
+        ModelBatcher(ModelInfo modelInfo) {
+            this.modelInfo = modelInfo;
+        }
+        
         /**
-         * Create a batch from a seed request
+         * Add a request, flushing immediately if the batch is full
          */
-        public List<InferenceRequest> createBatch(InferenceRequest seed) {
-            List<InferenceRequest> batch = new ArrayList<>();
-            batch.add(seed);
-            
-            // Look for similar requests in queues
-            String modelId = seed.modelId;
-            int batchSize = 1;
+        CompletableFuture<float[]> enqueue(InferenceRequest request, float[] input) {
+            long now = System.nanoTime();
+            BatchEntry entry = new BatchEntry(request, input, now);
+            List<BatchEntry> batch = null;
+            boolean newDeadline = false;
             
-            // Check high priority queue first
-            batchSize = addFromQueue(batch, highPriorityQueue, modelId, batchSize);
-            
-            // Then medium priority
-            if (batchSize < config.maxBatchSize) {
-                batchSize = addFromQueue(batch, mediumPriorityQueue, modelId, batchSize);
+            synchronized (this) {
+                pending.add(entry);
+                if (!running && pending.size() >= config.maxBatchSize) {
+                    batch = takeBatch(now);
+                } else if (pending.size() == 1) {
+                    flushDeadlineNanos = now + config.maxBatchWaitMicros * 1000L;
+                    newDeadline = true;
+                }
             }
             
-            // Then low priority
-            if (batchSize < config.maxBatchSize) {
-                batchSize = addFromQueue(batch, lowPriorityQueue, modelId, batchSize);
+            if (batch != null) {
+                dispatch(batch);
+            } else if (newDeadline) {
+                executionDispatcher.wakeUp();
+            }
+            return entry.output;
+        }
+        
+        /**
+         * Flush the pending requests if their deadline has passed
+         * 
+         * @return The next deadline to check, in System.nanoTime() units
+         */
+        long flushIfDue(long now) {
+            List<BatchEntry> batch;
+            synchronized (this) {
+                if (running || pending.isEmpty()) {
+                    return Long.MAX_VALUE;
+                }
+                if (now < flushDeadlineNanos) {
+                    return flushDeadlineNanos;
+                }
+                batch = takeBatch(now);
+            }
+            dispatch(batch);
+            return Long.MAX_VALUE;
+        }
+        
+        /**
+         * Remove up to maxBatchSize requests and mark a batch as running.
+         * Must be called while holding this batcher's lock.
+         */
+        private List<BatchEntry> takeBatch(long now) {
+            int size = Math.min(pending.size(), Math.max(1, config.maxBatchSize));
+            List<BatchEntry> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(pending.poll());
             }
             
+            // Requests left behind keep the deadline of the oldest one
+            long oldest = Long.MAX_VALUE;
+            for (BatchEntry entry : pending) {
+                oldest = Math.min(oldest, entry.enqueueNanos);
+            }
+            flushDeadlineNanos = oldest == Long.MAX_VALUE
+                ? Long.MAX_VALUE : oldest + config.maxBatchWaitMicros * 1000L;
+            running = true;
             return batch;
         }
         
         /**
-         * Add requests from a queue to the batch
+         * Run a batch on the inference pool
          */
-        private int addFromQueue(List<InferenceRequest> batch, Queue<InferenceRequest> queue, 
-                               String modelId, int currentSize) {
-            int maxToAdd = config.maxBatchSize - currentSize;
-            if (maxToAdd <= 0) {
-                return currentSize;
+        private void dispatch(List<BatchEntry> batch) {
+            if (batch.size() > 1) {
+                batchProcessedCount.addAndGet(batch.size());
             }
-            
-            List<InferenceRequest> eligible = new ArrayList<>();
-            List<InferenceRequest> ineligible = new ArrayList<>();
-            
-            // Drain up to maxToAdd + some extra to check
-            int drained = 0;
-            InferenceRequest request;
-            while (drained < maxToAdd * 2 && (request = queue.poll()) != null) {
-                drained++;
+            try {
+                inferenceExecutor.execute(() -> runBatch(batch));
+            } catch (RuntimeException e) {
+                // Rejected after shutdown
+                for (BatchEntry entry : batch) {
+                    entry.output.completeExceptionally(new ModelExecutionException("Executor shut down", e));
+                }
+            }
+        }
+        
+        /**
+         * Execute a batch and hand each request its output
+         */
+        private void runBatch(List<BatchEntry> batch) {
+            try {
+                List<float[]> inputs = new ArrayList<>(batch.size());
+                for (BatchEntry entry : batch) {
+                    inputs.add(entry.input);
+                }
                 
-                if (request.modelId.equals(modelId) && canBeBatched(request)) {
-                    eligible.add(request);
-                    
-                    if (eligible.size() >= maxToAdd) {
-                        break;
+                float[][] outputs = executeBatchInference(modelInfo, inputs);
+                recordBatch(modelInfo.id, batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).output.complete(outputs[i]);
+                }
+            } catch (Exception e) {
+                for (BatchEntry entry : batch) {
+                    entry.output.completeExceptionally(e);
+                }
+            } finally {
+                // Requests that queued up during this batch go out right away
+                List<BatchEntry> next = null;
+                synchronized (this) {
+                    running = false;
+                    if (!pending.isEmpty()) {
+                        next = takeBatch(System.nanoTime());
                     }
-                } else {
-                    ineligible.add(request);
+                }
+                if (next != null) {
+                    dispatch(next);
                 }
             }
-            
-            // Add back ineligible requests
-            queue.addAll(ineligible);
-            
-            // Add eligible requests to batch
-            batch.addAll(eligible.subList(0, Math.min(eligible.size(), maxToAdd)));
-            
-            return currentSize + Math.min(eligible.size(), maxToAdd);
         }
         
         /**
-         * Check if a request can be batched
+         * Fail every waiting request
          */
-        private boolean canBeBatched(InferenceRequest request) {
-            // In a real implementation, would check input compatibility, etc.
-            return true;
+        void failPending(Exception error) {
+            List<BatchEntry> failed;
+            synchronized (this) {
+                failed = new ArrayList<>(pending);
+                pending.clear();
+                flushDeadlineNanos = Long.MAX_VALUE;
+            }
+            for (BatchEntry entry : failed) {
+                entry.output.completeExceptionally(error);
+            }
         }
     }
     
@@ -1162,6 +1249,11 @@ public class ConcurrentModelExecutor {
         public final int inputSize;
         public final int outputSize;
         
+        // Batch size the interpreter's input is currently resized to, guarded by this object
+        private int boundBatchSize = 1;
+        private ByteBuffer batchInput;
+        private ByteBuffer batchOutput;
+        
         public ModelInfo(String id, String name, String path, Interpreter interpreter, 
                       ExecutionDevice device, int[] inputShape, int[] outputShape, 
                       int inputSize, int outputSize) {
@@ -1175,6 +1267,31 @@ public class ConcurrentModelExecutor {
             this.inputSize = inputSize;
             this.outputSize = outputSize;
         }
+        
+        /**
+         * Get the reusable direct input buffer for a batch, cleared
+         */
+        ByteBuffer batchInputBuffer(int floats) {
+            batchInput = ensureCapacity(batchInput, floats);
+            return batchInput;
+        }
+        
+        /**
+         * Get the reusable direct output buffer for a batch, cleared
+         */
+        ByteBuffer batchOutputBuffer(int floats) {
+            batchOutput = ensureCapacity(batchOutput, floats);
+            return batchOutput;
+        }
+        
+        private static ByteBuffer ensureCapacity(ByteBuffer buffer, int floats) {
+            if (buffer == null || buffer.capacity() < floats * 4) {
+                buffer = ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder());
+            }
+            buffer.clear();
+            buffer.limit(floats * 4);
+            return buffer;
+        }
     }
     
     /**
@@ -1207,83 +1324,6 @@ public class ConcurrentModelExecutor {
         }
     }
     
-    /**
-     * Cache key for inference results
-     */
-    private static class CacheKey {
-        private final String modelId;
-        private final Object input;
-        private final int hashCode;
-        
-        public CacheKey(String modelId, Object input) {
-            this.modelId = modelId;
-            this.input = input;
-            
-            // Compute hash code
-            int result = modelId.hashCode();
-            
-            if (input instanceof float[]) {
-                result = 31 * result + Arrays.hashCode((float[]) input);
-            } else if (input instanceof ByteBuffer) {
-                ByteBuffer buffer = (ByteBuffer) input;
-                int position = buffer.position();
-                
-                result = 31 * result + buffer.hashCode();
-                
-                // Restore position
-                buffer.position(position);
-            } else if (input != null) {
-                result = 31 * result + input.hashCode();
-            }
-            
-            this.hashCode = result;
-        }
-        
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) return true;
-            if (obj == null || getClass() != obj.getClass()) return false;
-            
-            CacheKey other = (CacheKey) obj;
-            
-            if (!modelId.equals(other.modelId)) return false;
-            
-            if (input == null) return other.input == null;
-            if (other.input == null) return false;
-            
-            if (input instanceof float[] && other.input instanceof float[]) {
-                return Arrays.equals((float[]) input, (float[]) other.input);
-            }
-            
-            if (input instanceof ByteBuffer && other.input instanceof ByteBuffer) {
-                ByteBuffer b1 = (ByteBuffer) input;
-                ByteBuffer b2 = (ByteBuffer) other.input;
-                
-                if (b1.remaining() != b2.remaining()) return false;
-                
-                int p1 = b1.position();
-                int p2 = b2.position();
-                
-                try {
-                    for (int i = 0; i < b1.remaining(); i++) {
-                        if (b1.get(p1 + i) != b2.get(p2 + i)) return false;
-                    }
-                    return true;
-                } finally {
-                    b1.position(p1);
-                    b2.position(p2);
-                }
-            }
-            
-            return input.equals(other.input);
-        }
-        
-        @Override
-        public int hashCode() {
-            return hashCode;
-        }
-    }
-    
     /**
      * Cache entry for inference results
      */
@@ -1384,6 +1424,9 @@ public class ConcurrentModelExecutor {
         public float avgInferenceTime = 0.0f;
         public float avgProcessingTime = 0.0f;
         public float avgExecutionTime = 0.0f;
+        public AtomicInteger batchCount = new AtomicInteger(0);
+        public AtomicLong batchedRequestCount = new AtomicLong(0);
+        public float avgBatchSize = 0.0f;
     }
     
     /**
@@ -1396,7 +1439,11 @@ public class ConcurrentModelExecutor {
         public int maxCacheEntries = 100;
         public long cacheSizeBytes = 32 * 1024 * 1024; // 32 MB
         public boolean enableBatching = true;
-        public int maxBatchSize = 4;
+        // Dynamic batching: a model's pending requests run as one batch once
+        // maxBatchSize are queued or the oldest has waited maxBatchWaitMicros.
+        // Larger values raise throughput at the cost of added latency.
+        public int maxBatchSize = 8;
+        public long maxBatchWaitMicros = 2000;
         public long monitoringIntervalMs = 5000;
         public long logStatsIntervalMs = 60000;
     }
@@ -108,6 +108,7 @@ public class CentralAIOrchestrator extends Service {
         errorResolutionWorkflow.initialize(context);
         
         componentRegistry.setEventRouter(eventRouter);
+        componentRegistry.setHealthMonitor(healthMonitor);
         diffEngine.setEventRouter(eventRouter);
         healthMonitor.setEventRouter(eventRouter);
         scheduler.setDiffEngine(diffEngine);
@@ -179,10 +180,11 @@ public class CentralAIOrchestrator extends Service {
             handleComponentDegradation(event);
         });
         
-        eventRouter.subscribe("state.diff.detected", event -> {
+        // A newer diff of the same component supersedes one still queued
+        eventRouter.subscribeCoalescing("state.diff.detected", event -> {
             Log.i(TAG, "State diff detected: " + event.getData());
             handleStateDiff(event);
-        });
+        }, OrchestrationEvent::getSource, EventDispatcher.DEFAULT_CAPACITY);
         
         eventRouter.subscribe("health.check.failed", event -> {
             Log.e(TAG, "Health check failed: " + event.getSource());
@@ -292,6 +294,10 @@ public class CentralAIOrchestrator extends Service {
     public void onDestroy() {
         stop();
         
+        if (eventRouter != null) {
+            eventRouter.shutdown();
+        }
+        
         if (executorService != null) {
             executorService.shutdown();
         }
@@ -1,4 +1,4 @@
-package com.aiassistant.core/orchestration;
+package com.aiassistant.core.orchestration;
 
 import android.util.Log;
 
@@ -17,6 +17,7 @@ public class CircuitBreaker {
     private final AtomicInteger executionCount;
     
     private volatile State state;
+    private volatile String tripReason;
     
     public CircuitBreaker(String componentId, int failureThreshold, long cooldownPeriodMs) {
         this.componentId = componentId;
@@ -65,6 +66,21 @@ public class CircuitBreaker {
         if (failures >= failureThreshold && state != State.OPEN) {
             Log.w(TAG, "Circuit breaker for " + componentId + 
                   " OPEN - threshold reached (" + failures + "/" + failureThreshold + ")");
+            tripReason = "failures";
+            state = State.OPEN;
+        }
+    }
+    
+    /**
+     * Open the breaker regardless of the failure count, e.g. on a latency
+     * SLO violation; it half-opens after the usual cooldown
+     */
+    public void trip(String reason) {
+        lastFailureTime.set(System.currentTimeMillis());
+        
+        if (state != State.OPEN) {
+            Log.w(TAG, "Circuit breaker for " + componentId + " OPEN - " + reason);
+            tripReason = reason;
             state = State.OPEN;
         }
     }
@@ -79,6 +95,13 @@ public class CircuitBreaker {
         return state;
     }
     
+    /**
+     * @return Why the breaker last opened, or null if it never has
+     */
+    public String getTripReason() {
+        return tripReason;
+    }
+    
     public int getFailureCount() {
         return failureCount.get();
     }
@@ -3,17 +3,24 @@ package com.aiassistant.core.orchestration;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ComponentRegistry {
     private static final String TAG = "ComponentRegistry";
     
+    // Extra load charged to a provider whose breaker is probing recovery
+    private static final int HALF_OPEN_PENALTY = 8;
+    
     private final Map<String, RegisteredComponent> components;
-    private final Map<String, List<String>> capabilityMap;
+    private final Map<String, Providers> capabilityMap;
     private EventRouter eventRouter;
+    private HealthMonitor healthMonitor;
     
     public ComponentRegistry() {
         this.components = new ConcurrentHashMap<>();
@@ -24,6 +31,13 @@ public class ComponentRegistry {
         this.eventRouter = eventRouter;
     }
     
+    /**
+     * Source of circuit breaker state for routing
+     */
+    public void setHealthMonitor(HealthMonitor healthMonitor) {
+        this.healthMonitor = healthMonitor;
+    }
+    
     public void registerComponent(String componentId, String componentName, 
                                   List<String> capabilities) {
         RegisteredComponent component = new RegisteredComponent(
@@ -33,10 +47,13 @@ public class ComponentRegistry {
             System.currentTimeMillis()
         );
         
-        components.put(componentId, component);
+        RegisteredComponent previous = components.put(componentId, component);
+        if (previous != null) {
+            removeFromIndex(previous);
+        }
         
-        for (String capability : capabilities) {
-            capabilityMap.computeIfAbsent(capability, k -> new ArrayList<>()).add(componentId);
+        for (String capability : component.capabilities) {
+            capabilityMap.computeIfAbsent(capability, k -> new Providers()).add(component);
         }
         
         Log.i(TAG, "Registered component: " + componentName + " (" + componentId + 
@@ -59,12 +76,7 @@ public class ComponentRegistry {
         RegisteredComponent component = components.remove(componentId);
         
         if (component != null) {
-            for (String capability : component.capabilities) {
-                List<String> providers = capabilityMap.get(capability);
-                if (providers != null) {
-                    providers.remove(componentId);
-                }
-            }
+            removeFromIndex(component);
             
             Log.i(TAG, "Unregistered component: " + componentId);
             
@@ -114,8 +126,76 @@ public class ComponentRegistry {
     }
     
     public List<String> getComponentsByCapability(String capability) {
-        List<String> providers = capabilityMap.get(capability);
-        return providers != null ? new ArrayList<>(providers) : new ArrayList<>();
+        List<String> result = new ArrayList<>();
+        Providers providers = capabilityMap.get(capability);
+        if (providers != null) {
+            for (RegisteredComponent component : providers.components) {
+                result.add(component.componentId);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Pick the least-loaded healthy provider of a capability and count a
+     * call in flight on it; release the returned lease when the call ends.
+     * Providers with an open breaker are passed over, and those probing
+     * recovery (half-open) only win when the others are busy. Equal loads
+     * rotate between providers.
+     *
+     * @return Lease on the chosen provider, or null if no provider can take the call
+     */
+    public ProviderLease acquireProvider(String capability) {
+        Providers providers = capabilityMap.get(capability);
+        if (providers == null) {
+            return null;
+        }
+        RegisteredComponent[] candidates = providers.components;
+        int count = candidates.length;
+        if (count == 0) {
+            return null;
+        }
+        
+        int start = Math.floorMod(providers.cursor.getAndIncrement(), count);
+        long now = System.currentTimeMillis();
+        RegisteredComponent best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        boolean anyOpen = false;
+        
+        for (int i = 0; i < count; i++) {
+            RegisteredComponent component = candidates[(start + i) % count];
+            if (!isHealthy(component, now)) {
+                continue;
+            }
+            CircuitBreaker.State breakerState = breakerState(component.componentId);
+            if (breakerState == CircuitBreaker.State.OPEN) {
+                anyOpen = true;
+                continue;
+            }
+            int load = component.inFlight.get()
+                + (breakerState == CircuitBreaker.State.HALF_OPEN ? HALF_OPEN_PENALTY : 0);
+            if (load < bestLoad) {
+                best = component;
+                bestLoad = load;
+            }
+        }
+        
+        if (best == null && anyOpen) {
+            // Nothing else available: let a breaker past its cooldown probe
+            for (int i = 0; i < count && best == null; i++) {
+                RegisteredComponent component = candidates[(start + i) % count];
+                CircuitBreaker breaker = healthMonitor.getCircuitBreaker(component.componentId);
+                if (breaker != null && isHealthy(component, now) && breaker.allowExecution()) {
+                    best = component;
+                }
+            }
+        }
+        
+        if (best == null) {
+            return null;
+        }
+        best.inFlight.incrementAndGet();
+        return new ProviderLease(best);
     }
     
     public List<RegisteredComponent> getAllComponents() {
@@ -138,13 +218,30 @@ public class ComponentRegistry {
             return false;
         }
         
-        long currentTime = System.currentTimeMillis();
+        return isHealthy(component, System.currentTimeMillis());
+    }
+    
+    private boolean isHealthy(RegisteredComponent component, long currentTime) {
         long heartbeatAge = currentTime - component.lastHeartbeat;
         
         return component.status == ComponentStatus.ACTIVE && 
                heartbeatAge < 30000;
     }
     
+    private CircuitBreaker.State breakerState(String componentId) {
+        CircuitBreaker breaker = healthMonitor != null ? healthMonitor.getCircuitBreaker(componentId) : null;
+        return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+    
+    private void removeFromIndex(RegisteredComponent component) {
+        for (String capability : component.capabilities) {
+            Providers providers = capabilityMap.get(capability);
+            if (providers != null) {
+                providers.remove(component);
+            }
+        }
+    }
+    
     public enum ComponentStatus {
         INACTIVE,
         INITIALIZING,
@@ -165,6 +262,9 @@ public class ComponentRegistry {
         public long lastStatusUpdate;
         public Map<String, Object> metadata;
         
+        // Calls routed here through acquireProvider and not yet released
+        final AtomicInteger inFlight = new AtomicInteger();
+        
         public RegisteredComponent(String componentId, String componentName, 
                                   List<String> capabilities, long registrationTime) {
             this.componentId = componentId;
@@ -184,5 +284,62 @@ public class ComponentRegistry {
         public Object getMetadata(String key) {
             return metadata.get(key);
         }
+        
+        public int getInFlight() {
+            return inFlight.get();
+        }
+    }
+    
+    /**
+     * One call counted in flight by acquireProvider. Releasing decrements the
+     * component that was counted, even if its ID has since been re-registered.
+     */
+    public static class ProviderLease {
+        private final RegisteredComponent component;
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        ProviderLease(RegisteredComponent component) {
+            this.component = component;
+        }
+        
+        public String getComponentId() {
+            return component.componentId;
+        }
+        
+        /**
+         * End the call; releasing more than once has no effect
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                component.inFlight.updateAndGet(count -> Math.max(0, count - 1));
+            }
+        }
+    }
+    
+    /**
+     * Providers of one capability, copied on write so routing reads a
+     * stable array without locking
+     */
+    private static class Providers {
+        volatile RegisteredComponent[] components = new RegisteredComponent[0];
+        final AtomicInteger cursor = new AtomicInteger();
+        
+        synchronized void add(RegisteredComponent component) {
+            for (RegisteredComponent existing : components) {
+                if (existing == component) {
+                    return;
+                }
+            }
+            RegisteredComponent[] updated = Arrays.copyOf(components, components.length + 1);
+            updated[components.length] = component;
+            components = updated;
+        }
+        
+        synchronized void remove(RegisteredComponent component) {
+            List<RegisteredComponent> remaining = new ArrayList<>(Arrays.asList(components));
+            if (remaining.remove(component)) {
+                components = remaining.toArray(new RegisteredComponent[0]);
+            }
+        }
     }
 }
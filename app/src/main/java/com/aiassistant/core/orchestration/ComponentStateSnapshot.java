@@ -1,32 +1,113 @@
 package com.aiassistant.core.orchestration;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class ComponentStateSnapshot {
     private final String componentId;
     private final long timestamp;
     private final int version;
     private final Map<String, Object> state;
-    private final String stateHash;
+    
+    // Change tracking: a stamp per field from a per-snapshot change counter,
+    // the fields changed since the last drain, and a 64-bit hash kept as the
+    // sum of per-entry hashes so a put adjusts it in constant time
+    private final Map<String, Long> fieldVersions;
+    private final Set<String> dirtyFields;
+    private long changeCount;
+    private long structuralHash;
+    
+    private volatile ChangeListener changeListener;
+    
+    public interface ChangeListener {
+        void onStateChanged(ComponentStateSnapshot snapshot);
+    }
     
     public ComponentStateSnapshot(String componentId, int version, Map<String, Object> state) {
         this.componentId = componentId;
         this.version = version;
         this.timestamp = System.currentTimeMillis();
         this.state = state != null ? new HashMap<>(state) : new HashMap<>();
-        this.stateHash = calculateHash(this.state);
+        this.fieldVersions = new HashMap<>();
+        this.dirtyFields = new LinkedHashSet<>();
+        this.changeCount = 1;
+        for (Map.Entry<String, Object> entry : this.state.entrySet()) {
+            structuralHash += entryHash(entry.getKey(), entry.getValue());
+            fieldVersions.put(entry.getKey(), changeCount);
+            dirtyFields.add(entry.getKey());
+        }
+    }
+    
+    /**
+     * Set one field, updating its version stamp, the dirty set and the hash
+     * incrementally; the change listener is notified if the value changed
+     */
+    public void put(String key, Object value) {
+        synchronized (this) {
+            boolean present = state.containsKey(key);
+            Object previous = state.put(key, value);
+            if (present && Objects.equals(previous, value)) {
+                return;
+            }
+            if (present) {
+                structuralHash -= entryHash(key, previous);
+            }
+            structuralHash += entryHash(key, value);
+            markChanged(key);
+        }
+        notifyChanged();
     }
     
-    private String calculateHash(Map<String, Object> state) {
-        int hash = 17;
-        for (Map.Entry<String, Object> entry : state.entrySet()) {
-            hash = 31 * hash + entry.getKey().hashCode();
-            if (entry.getValue() != null) {
-                hash = 31 * hash + entry.getValue().hashCode();
+    public void remove(String key) {
+        synchronized (this) {
+            if (!state.containsKey(key)) {
+                return;
             }
+            structuralHash -= entryHash(key, state.remove(key));
+            markChanged(key);
         }
-        return String.valueOf(hash);
+        notifyChanged();
+    }
+    
+    public void putAll(Map<String, Object> values) {
+        boolean changed = false;
+        synchronized (this) {
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                String key = entry.getKey();
+                boolean present = state.containsKey(key);
+                Object previous = state.put(key, entry.getValue());
+                if (present && Objects.equals(previous, entry.getValue())) {
+                    continue;
+                }
+                if (present) {
+                    structuralHash -= entryHash(key, previous);
+                }
+                structuralHash += entryHash(key, entry.getValue());
+                markChanged(key);
+                changed = true;
+            }
+        }
+        if (changed) {
+            notifyChanged();
+        }
+    }
+    
+    /**
+     * Take the fields changed since the previous call (all fields the first time)
+     */
+    public synchronized List<String> drainDirtyFields() {
+        List<String> fields = new ArrayList<>(dirtyFields);
+        dirtyFields.clear();
+        return fields;
+    }
+    
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
     }
     
     public String getComponentId() {
@@ -41,16 +122,86 @@ public class ComponentStateSnapshot {
         return version;
     }
     
-    public Map<String, Object> getState() {
+    public synchronized Map<String, Object> getState() {
         return new HashMap<>(state);
     }
     
-    public Object getState(String key) {
+    public synchronized Object getState(String key) {
         return state.get(key);
     }
     
+    public synchronized boolean hasField(String key) {
+        return state.containsKey(key);
+    }
+    
+    /**
+     * @return Change counter value when the field last changed, 0 if absent from the start
+     */
+    public synchronized long getFieldVersion(String key) {
+        Long fieldVersion = fieldVersions.get(key);
+        return fieldVersion != null ? fieldVersion : 0;
+    }
+    
+    public synchronized long getChangeCount() {
+        return changeCount;
+    }
+    
+    /**
+     * Order-independent hash of the state. Different hashes mean the states
+     * differ; equal hashes do not prove they are equal.
+     */
+    public synchronized long getStructuralHash() {
+        return structuralHash;
+    }
+    
     public String getStateHash() {
-        return stateHash;
+        return Long.toHexString(getStructuralHash());
+    }
+    
+    private void markChanged(String key) {
+        fieldVersions.put(key, ++changeCount);
+        dirtyFields.add(key);
+    }
+    
+    private void notifyChanged() {
+        ChangeListener listener = changeListener;
+        if (listener != null) {
+            listener.onStateChanged(this);
+        }
+    }
+    
+    /**
+     * Mixed 64-bit hash of one entry; summing these makes the state hash
+     * independent of iteration order
+     */
+    private static long entryHash(String key, Object value) {
+        long h = hash64(key) * 0x9E3779B97F4A7C15L + hash64(value);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    private static long hash64(Object value) {
+        if (value == null) {
+            return 0x5BD1E995L;
+        }
+        if (value instanceof String) {
+            // Full 64-bit polynomial hash rather than String.hashCode's 32 bits
+            String text = (String) value;
+            long h = 0xCBF29CE484222325L;
+            for (int i = 0; i < text.length(); i++) {
+                h = (h ^ text.charAt(i)) * 0x100000001B3L;
+            }
+            return h;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return value instanceof Long ? (Long) value
+                    : Double.doubleToLongBits((Double) value);
+        }
+        return value.hashCode() * 0x9E3779B97F4A7C15L;
     }
     
     @Override
@@ -59,7 +210,7 @@ public class ComponentStateSnapshot {
                 "componentId='" + componentId + '\'' +
                 ", version=" + version +
                 ", timestamp=" + timestamp +
-                ", hash='" + stateHash + '\'' +
+                ", hash='" + getStateHash() + '\'' +
                 '}';
     }
 }
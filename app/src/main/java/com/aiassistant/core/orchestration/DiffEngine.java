@@ -5,136 +5,114 @@ import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DiffEngine {
     private static final String TAG = "DiffEngine";
     
     private final Context context;
-    private final Map<String, ComponentStateSnapshot> latestSnapshots;
-    private final Map<String, ComponentStateSnapshot> expectedSnapshots;
-    private final Map<String, Long> lastDiffCheck;
-    private final long THROTTLE_INTERVAL_MS = 5000;
+    private final Map<String, Tracker> trackers;
+    
+    // Statistics
+    private final AtomicLong fieldsCompared = new AtomicLong();
+    private final AtomicLong fullCompares = new AtomicLong();
+    private final AtomicLong diffsPublished = new AtomicLong();
     
     private EventRouter eventRouter;
     
     public DiffEngine(Context context) {
         this.context = context.getApplicationContext();
-        this.latestSnapshots = new ConcurrentHashMap<>();
-        this.expectedSnapshots = new ConcurrentHashMap<>();
-        this.lastDiffCheck = new ConcurrentHashMap<>();
+        this.trackers = new ConcurrentHashMap<>();
     }
     
     public void setEventRouter(EventRouter eventRouter) {
         this.eventRouter = eventRouter;
     }
     
+    /**
+     * Track a component's actual state. Later puts on the snapshot are
+     * diffed as they happen, touching only the changed fields.
+     */
     public void captureSnapshot(ComponentStateSnapshot snapshot) {
         String componentId = snapshot.getComponentId();
-        latestSnapshots.put(componentId, snapshot);
+        publishIfChanged(tracker(componentId).setActual(snapshot));
         
         Log.d(TAG, "Captured snapshot for " + componentId + " v" + snapshot.getVersion());
     }
     
     public void setExpectedState(ComponentStateSnapshot snapshot) {
         String componentId = snapshot.getComponentId();
-        expectedSnapshots.put(componentId, snapshot);
+        publishIfChanged(tracker(componentId).setExpected(snapshot));
         
         Log.d(TAG, "Set expected state for " + componentId + " v" + snapshot.getVersion());
     }
     
+    /**
+     * @return The component's current diff, or null if actual matches expected
+     */
     public StateDiff checkDiff(String componentId) {
-        long currentTime = System.currentTimeMillis();
-        Long lastCheck = lastDiffCheck.get(componentId);
-        
-        if (lastCheck != null && (currentTime - lastCheck) < THROTTLE_INTERVAL_MS) {
-            Log.d(TAG, "Throttling diff check for " + componentId);
-            return null;
-        }
-        
-        ComponentStateSnapshot expected = expectedSnapshots.get(componentId);
-        ComponentStateSnapshot actual = latestSnapshots.get(componentId);
-        
-        if (expected == null || actual == null) {
-            return null;
-        }
-        
-        lastDiffCheck.put(componentId, currentTime);
-        
-        if (expected.getStateHash().equals(actual.getStateHash())) {
+        Tracker tracker = trackers.get(componentId);
+        if (tracker == null) {
             return null;
         }
-        
-        StateDiff diff = computeDiff(expected, actual);
-        
-        if (diff != null && eventRouter != null) {
-            OrchestrationEvent event = new OrchestrationEvent(
-                "state.diff.detected",
-                componentId,
-                new HashMap<String, Object>() {{
-                    put("diff", diff);
-                    put("severity", diff.getSeverity().name());
-                }}
-            );
-            eventRouter.publish(event);
-        }
-        
-        return diff;
+        publishIfChanged(tracker.processDirtyFields());
+        return tracker.currentDiff();
     }
     
-    private StateDiff computeDiff(ComponentStateSnapshot expected, ComponentStateSnapshot actual) {
-        List<StateDiff.FieldDiff> fieldDiffs = new ArrayList<>();
-        Map<String, Object> expectedState = expected.getState();
-        Map<String, Object> actualState = actual.getState();
-        
-        for (Map.Entry<String, Object> entry : expectedState.entrySet()) {
-            String fieldName = entry.getKey();
-            Object expectedValue = entry.getValue();
-            Object actualValue = actualState.get(fieldName);
-            
-            if (expectedValue == null && actualValue == null) {
-                continue;
-            }
-            
-            if (expectedValue == null || actualValue == null || 
-                !expectedValue.equals(actualValue)) {
-                fieldDiffs.add(new StateDiff.FieldDiff(
-                    fieldName,
-                    expectedValue,
-                    actualValue,
-                    "value_mismatch"
-                ));
-            }
-        }
-        
-        for (String key : actualState.keySet()) {
-            if (!expectedState.containsKey(key)) {
-                fieldDiffs.add(new StateDiff.FieldDiff(
-                    key,
-                    null,
-                    actualState.get(key),
-                    "unexpected_field"
-                ));
-            }
+    /**
+     * Diffs are pushed as snapshots change; this only picks up fields
+     * changed while no listener was attached, so it costs O(dirty fields)
+     */
+    public void performPeriodicDiffCheck() {
+        for (Tracker tracker : trackers.values()) {
+            publishIfChanged(tracker.processDirtyFields());
         }
-        
-        if (fieldDiffs.isEmpty()) {
-            return null;
+    }
+    
+    public ComponentStateSnapshot getLatestSnapshot(String componentId) {
+        Tracker tracker = trackers.get(componentId);
+        return tracker != null ? tracker.actual : null;
+    }
+    
+    public ComponentStateSnapshot getExpectedSnapshot(String componentId) {
+        Tracker tracker = trackers.get(componentId);
+        return tracker != null ? tracker.expected : null;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("components", trackers.size());
+        stats.put("fieldsCompared", fieldsCompared.get());
+        stats.put("fullCompares", fullCompares.get());
+        stats.put("diffsPublished", diffsPublished.get());
+        return stats;
+    }
+    
+    private Tracker tracker(String componentId) {
+        return trackers.computeIfAbsent(componentId, Tracker::new);
+    }
+    
+    private void publishIfChanged(StateDiff diff) {
+        if (diff == null || eventRouter == null) {
+            return;
         }
-        
-        StateDiff.Severity severity = determineSeverity(fieldDiffs);
-        String description = "State mismatch detected: " + fieldDiffs.size() + " field(s) differ";
-        
-        return new StateDiff(
-            expected.getComponentId(),
-            severity,
-            description,
-            fieldDiffs,
-            expected,
-            actual
+        OrchestrationEvent event = new OrchestrationEvent(
+            "state.diff.detected",
+            diff.getComponentId(),
+            new HashMap<String, Object>() {{
+                put("diff", diff);
+                put("severity", diff.getSeverity().name());
+            }}
         );
+        eventRouter.publish(event);
+        diffsPublished.incrementAndGet();
     }
     
     private StateDiff.Severity determineSeverity(List<StateDiff.FieldDiff> diffs) {
@@ -155,25 +133,133 @@ public class DiffEngine {
     }
     
     private boolean isCriticalField(String fieldName) {
-        return fieldName.contains("error") || 
-               fieldName.contains("critical") || 
+        return fieldName.contains("error") ||
+               fieldName.contains("critical") ||
                fieldName.contains("health") ||
                fieldName.contains("status");
     }
     
-    public void performPeriodicDiffCheck() {
-        Log.d(TAG, "Performing periodic diff check");
+    /**
+     * Expected and actual state of one component and the fields where they
+     * currently differ, kept up to date from the snapshots' dirty fields
+     */
+    private class Tracker implements ComponentStateSnapshot.ChangeListener {
+        final String componentId;
+        final Map<String, StateDiff.FieldDiff> mismatches = new LinkedHashMap<>();
+        volatile ComponentStateSnapshot expected;
+        volatile ComponentStateSnapshot actual;
         
-        for (String componentId : latestSnapshots.keySet()) {
-            checkDiff(componentId);
+        Tracker(String componentId) {
+            this.componentId = componentId;
+        }
+        
+        synchronized StateDiff setActual(ComponentStateSnapshot snapshot) {
+            actual = replace(actual, snapshot);
+            return compareAll();
+        }
+        
+        synchronized StateDiff setExpected(ComponentStateSnapshot snapshot) {
+            expected = replace(expected, snapshot);
+            return compareAll();
+        }
+        
+        @Override
+        public void onStateChanged(ComponentStateSnapshot snapshot) {
+            publishIfChanged(processDirtyFields());
+        }
+        
+        /**
+         * Re-compare only the fields changed since the last call
+         *
+         * @return New diff to publish if the mismatches changed, else null
+         */
+        synchronized StateDiff processDirtyFields() {
+            boolean changed = false;
+            Set<String> fields = new HashSet<>();
+            if (expected != null) {
+                fields.addAll(expected.drainDirtyFields());
+            }
+            if (actual != null && actual != expected) {
+                fields.addAll(actual.drainDirtyFields());
+            }
+            if (expected == null || actual == null) {
+                return null;
+            }
+            for (String field : fields) {
+                changed |= compareField(field);
+            }
+            return changed ? currentDiff() : null;
+        }
+        
+        synchronized StateDiff currentDiff() {
+            if (mismatches.isEmpty() || expected == null || actual == null) {
+                return null;
+            }
+            List<StateDiff.FieldDiff> fieldDiffs = new ArrayList<>(mismatches.values());
+            StateDiff.Severity severity = determineSeverity(fieldDiffs);
+            String description = "State mismatch detected: " + fieldDiffs.size() + " field(s) differ";
+            return new StateDiff(componentId, severity, description, fieldDiffs, expected, actual);
+        }
+        
+        private ComponentStateSnapshot replace(ComponentStateSnapshot previous, ComponentStateSnapshot next) {
+            if (previous != null && previous != next) {
+                previous.setChangeListener(null);
+            }
+            next.setChangeListener(this);
+            return next;
+        }
+        
+        /**
+         * Full comparison, needed only when a snapshot object is replaced
+         */
+        private StateDiff compareAll() {
+            if (expected != null) {
+                expected.drainDirtyFields();
+            }
+            if (actual != null) {
+                actual.drainDirtyFields();
+            }
+            boolean hadMismatches = !mismatches.isEmpty();
+            mismatches.clear();
+            if (expected == null || actual == null) {
+                return null;
+            }
+            
+            // No shortcut on equal structural hashes: they can collide, and a
+            // skipped walk would hide a real mismatch
+            fullCompares.incrementAndGet();
+            Set<String> fields = new HashSet<>(expected.getState().keySet());
+            fields.addAll(actual.getState().keySet());
+            for (String field : fields) {
+                compareField(field);
+            }
+            return !mismatches.isEmpty() || hadMismatches ? currentDiff() : null;
+        }
+        
+        /**
+         * @return true if the field's mismatch entry was added, removed or changed
+         */
+        private boolean compareField(String field) {
+            fieldsCompared.incrementAndGet();
+            Object expectedValue = expected.getState(field);
+            Object actualValue = actual.getState(field);
+            
+            StateDiff.FieldDiff diff = null;
+            if (!expected.hasField(field)) {
+                if (actual.hasField(field)) {
+                    diff = new StateDiff.FieldDiff(field, null, actualValue, "unexpected_field");
+                }
+            } else if (!Objects.equals(expectedValue, actualValue)) {
+                diff = new StateDiff.FieldDiff(field, expectedValue, actualValue, "value_mismatch");
+            }
+            
+            StateDiff.FieldDiff previous = diff != null ? mismatches.put(field, diff) : mismatches.remove(field);
+            if (previous == null || diff == null) {
+                return previous != diff;
+            }
+            return !Objects.equals(previous.expectedValue, diff.expectedValue)
+                    || !Objects.equals(previous.actualValue, diff.actualValue)
+                    || !previous.diffType.equals(diff.diffType);
         }
-    }
-    
-    public ComponentStateSnapshot getLatestSnapshot(String componentId) {
-        return latestSnapshots.get(componentId);
-    }
-    
-    public ComponentStateSnapshot getExpectedSnapshot(String componentId) {
-        return expectedSnapshots.get(componentId);
     }
 }
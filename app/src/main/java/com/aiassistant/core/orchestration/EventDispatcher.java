@@ -0,0 +1,422 @@
+package com.aiassistant.core.orchestration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous event delivery for EventRouter.
+ *
+ * Every subscription owns a bounded MpscRingBuffer that any thread may
+ * publish into without locking. A fixed set of worker threads drains them;
+ * each subscription is pinned to one worker, so a subscriber sees its events
+ * in publish order, one batch at a time, and never concurrently. When a
+ * subscription's buffer is full its overflow policy decides: DROP discards
+ * the new event, BLOCK makes the publisher wait for room, and COALESCE keeps
+ * only the latest pending event per key (so it also collapses bursts before
+ * the buffer fills).
+ *
+ * Per event type it counts published, delivered, dropped and coalesced
+ * events, delivery batches, subscriber failures and publish-to-delivery
+ * latency.
+ */
+public class EventDispatcher {
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    // Largest batch handed to a subscriber at once
+    private static final int MAX_BATCH = 256;
+    
+    // Idle workers re-check their buffers at least this often
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    // Pause between retries of a blocked publisher
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    public enum OverflowPolicy {
+        DROP,
+        COALESCE,
+        BLOCK
+    }
+    
+    public interface Subscriber {
+        void onEvent(OrchestrationEvent event);
+        
+        /**
+         * Receive a batch of queued events, oldest first. Override to
+         * handle a burst at once; by default each event goes to onEvent.
+         */
+        default void onEvents(List<OrchestrationEvent> events) {
+            for (OrchestrationEvent event : events) {
+                onEvent(event);
+            }
+        }
+    }
+    
+    public interface KeyExtractor {
+        /**
+         * @return Coalescing key, or null to never coalesce this event
+         */
+        Object keyOf(OrchestrationEvent event);
+    }
+    
+    public interface ErrorHandler {
+        void onError(String eventType, Exception error);
+    }
+    
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final Worker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final ErrorHandler errorHandler;
+    private volatile boolean running = true;
+    
+    public EventDispatcher(int workerCount, ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+        this.workers = new Worker[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker("event-dispatch-" + (i + 1));
+            workers[i].start();
+        }
+    }
+    
+    /**
+     * @param capacity Events (or coalescing keys) buffered before the policy applies
+     * @param coalesceKey Key for COALESCE; ignored by the other policies
+     */
+    public void subscribe(String eventType, Subscriber subscriber,
+                          OverflowPolicy policy, int capacity, KeyExtractor coalesceKey) {
+        if (policy == OverflowPolicy.COALESCE && coalesceKey == null) {
+            throw new IllegalArgumentException("COALESCE needs a key extractor");
+        }
+        Topic topic = topics.computeIfAbsent(eventType, Topic::new);
+        Worker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+        Subscription subscription = new Subscription(topic, subscriber, policy, capacity, coalesceKey, worker);
+        topic.subscriptions.add(subscription);
+        worker.subscriptions.add(subscription);
+    }
+    
+    public boolean unsubscribe(String eventType, Subscriber subscriber) {
+        Topic topic = topics.get(eventType);
+        if (topic == null) {
+            return false;
+        }
+        for (Subscription subscription : topic.subscriptions) {
+            if (subscription.subscriber == subscriber) {
+                topic.subscriptions.remove(subscription);
+                subscription.worker.subscriptions.remove(subscription);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public int getSubscriberCount(String eventType) {
+        Topic topic = topics.get(eventType);
+        return topic != null ? topic.subscriptions.size() : 0;
+    }
+    
+    /**
+     * Queue an event for every subscriber of its type.
+     *
+     * @return Number of subscribers that accepted it (dropped events don't count)
+     */
+    public int dispatch(OrchestrationEvent event) {
+        Topic topic = topics.get(event.getEventType());
+        if (topic == null) {
+            return 0;
+        }
+        topic.stats.published.increment();
+        long now = System.nanoTime();
+        int accepted = 0;
+        for (Subscription subscription : topic.subscriptions) {
+            if (subscription.offer(event, now)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+    
+    /**
+     * Deliver an event to every subscriber of its type on the calling thread.
+     */
+    public void deliverNow(OrchestrationEvent event) {
+        Topic topic = topics.get(event.getEventType());
+        if (topic == null) {
+            return;
+        }
+        topic.stats.published.increment();
+        for (Subscription subscription : topic.subscriptions) {
+            try {
+                subscription.subscriber.onEvent(event);
+                topic.stats.delivered.increment();
+            } catch (Exception e) {
+                topic.stats.failures.increment();
+                errorHandler.onError(topic.eventType, e);
+            }
+        }
+    }
+    
+    /**
+     * @return Event type to counters; throughput is delivered events per
+     *         second since the type's first subscription
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new HashMap<>();
+        for (Topic topic : topics.values()) {
+            Map<String, Object> typeStats = topic.stats.snapshot();
+            int pending = 0;
+            for (Subscription subscription : topic.subscriptions) {
+                pending += subscription.buffer.size();
+            }
+            typeStats.put("subscribers", topic.subscriptions.size());
+            typeStats.put("pending", pending);
+            stats.put(topic.eventType, typeStats);
+        }
+        return stats;
+    }
+    
+    /**
+     * Stop the workers; events still buffered are discarded.
+     */
+    public void shutdown() {
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+    
+    private static class Topic {
+        final String eventType;
+        final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        final TypeStats stats = new TypeStats();
+        
+        Topic(String eventType) {
+            this.eventType = eventType;
+        }
+    }
+    
+    private static class TypeStats {
+        final long createdNanos = System.nanoTime();
+        final LongAdder published = new LongAdder();
+        final LongAdder delivered = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder batches = new LongAdder();
+        final LongAdder latencyNanos = new LongAdder();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+        
+        void recordBatch(int size, long latencySum, long latencyMax) {
+            delivered.add(size);
+            batches.increment();
+            latencyNanos.add(latencySum);
+            long max = maxLatencyNanos.get();
+            while (latencyMax > max && !maxLatencyNanos.compareAndSet(max, latencyMax)) {
+                max = maxLatencyNanos.get();
+            }
+        }
+        
+        Map<String, Object> snapshot() {
+            long deliveredCount = delivered.sum();
+            long batchCount = batches.sum();
+            double seconds = (System.nanoTime() - createdNanos) / 1e9;
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("published", published.sum());
+            stats.put("delivered", deliveredCount);
+            stats.put("dropped", dropped.sum());
+            stats.put("coalesced", coalesced.sum());
+            stats.put("failures", failures.sum());
+            stats.put("deliveredPerSec", seconds > 0 ? deliveredCount / seconds : 0.0);
+            stats.put("avgBatch", batchCount > 0 ? (double) deliveredCount / batchCount : 0.0);
+            stats.put("avgLatencyMicros", deliveredCount > 0 ? latencyNanos.sum() / 1e3 / deliveredCount : 0.0);
+            stats.put("maxLatencyMicros", maxLatencyNanos.get() / 1e3);
+            return stats;
+        }
+    }
+    
+    private class Subscription {
+        final Topic topic;
+        final Subscriber subscriber;
+        final OverflowPolicy policy;
+        final KeyExtractor coalesceKey;
+        final Worker worker;
+        
+        // Holds events, or for COALESCE the keys of pending events
+        final MpscRingBuffer<Object> buffer;
+        final Map<Object, OrchestrationEvent> latestByKey;
+        
+        Subscription(Topic topic, Subscriber subscriber, OverflowPolicy policy,
+                     int capacity, KeyExtractor coalesceKey, Worker worker) {
+            this.topic = topic;
+            this.subscriber = subscriber;
+            this.policy = policy;
+            this.coalesceKey = coalesceKey;
+            this.worker = worker;
+            this.buffer = new MpscRingBuffer<>(capacity);
+            this.latestByKey = policy == OverflowPolicy.COALESCE ? new ConcurrentHashMap<>() : null;
+        }
+        
+        boolean offer(OrchestrationEvent event, long now) {
+            boolean queued;
+            switch (policy) {
+                case COALESCE:
+                    queued = offerCoalesced(event, now);
+                    break;
+                case BLOCK:
+                    queued = offerBlocking(event, now);
+                    break;
+                default:
+                    queued = buffer.offer(event, now);
+                    break;
+            }
+            if (queued) {
+                worker.wake();
+            } else {
+                topic.stats.dropped.increment();
+            }
+            return queued;
+        }
+        
+        private boolean offerCoalesced(OrchestrationEvent event, long now) {
+            Object key = coalesceKey.keyOf(event);
+            if (key == null) {
+                // Events are only equal to themselves, so this one is never merged
+                key = event;
+            }
+            if (latestByKey.put(key, event) != null) {
+                // The key is already queued; the worker will pick up this event instead
+                topic.stats.coalesced.increment();
+                return true;
+            }
+            while (!buffer.offer(key, now)) {
+                // Producers that replaced the event meanwhile counted on the key
+                // being queued, so only remove the event we last saw; if it was
+                // replaced again, retry the offer for the newer one
+                OrchestrationEvent latest = latestByKey.get(key);
+                if (latest == null || latestByKey.remove(key, latest)) {
+                    // The latest event is dropped; any it replaced were counted as coalesced
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private boolean offerBlocking(OrchestrationEvent event, long now) {
+            int attempts = 0;
+            while (!buffer.offer(event, now)) {
+                // A worker waiting on its own buffer would never drain it
+                if (!running || Thread.currentThread() instanceof Worker) {
+                    return false;
+                }
+                worker.wake();
+                if (++attempts < 16) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Deliver one batch; worker thread only.
+         *
+         * @return false if the buffer was empty
+         */
+        boolean deliver(List<Object> raw, long[] stamps, List<OrchestrationEvent> batch) {
+            raw.clear();
+            int count = buffer.drain(raw, stamps, MAX_BATCH);
+            if (count == 0) {
+                return false;
+            }
+            
+            batch.clear();
+            long now = System.nanoTime();
+            long latencySum = 0;
+            long latencyMax = 0;
+            for (int i = 0; i < count; i++) {
+                OrchestrationEvent event;
+                if (latestByKey != null) {
+                    event = latestByKey.remove(raw.get(i));
+                    if (event == null) {
+                        continue;
+                    }
+                } else {
+                    event = (OrchestrationEvent) raw.get(i);
+                }
+                batch.add(event);
+                long latency = now - stamps[i];
+                latencySum += latency;
+                latencyMax = Math.max(latencyMax, latency);
+            }
+            if (batch.isEmpty()) {
+                return true;
+            }
+            
+            try {
+                subscriber.onEvents(batch);
+            } catch (Exception e) {
+                topic.stats.failures.increment();
+                errorHandler.onError(topic.eventType, e);
+            }
+            topic.stats.recordBatch(batch.size(), latencySum, latencyMax);
+            return true;
+        }
+    }
+    
+    private class Worker extends Thread {
+        final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        private volatile boolean sleeping;
+        
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+        
+        void wake() {
+            if (sleeping) {
+                LockSupport.unpark(this);
+            }
+        }
+        
+        @Override
+        public void run() {
+            List<Object> raw = new ArrayList<>(MAX_BATCH);
+            long[] stamps = new long[MAX_BATCH];
+            List<OrchestrationEvent> batch = new ArrayList<>(MAX_BATCH);
+            while (running) {
+                boolean delivered = false;
+                for (Subscription subscription : subscriptions) {
+                    delivered |= subscription.deliver(raw, stamps, batch);
+                }
+                if (delivered) {
+                    continue;
+                }
+                
+                // Announce the sleep before the last check so a publisher
+                // either sees the flag or its event is found here
+                sleeping = true;
+                if (!hasPending()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+        
+        private boolean hasPending() {
+            for (Subscription subscription : subscriptions) {
+                if (!subscription.buffer.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
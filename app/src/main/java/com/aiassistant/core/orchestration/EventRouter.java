@@ -5,39 +5,48 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class EventRouter {
     private static final String TAG = "EventRouter";
     
     private final Context context;
-    private final Map<String, List<EventSubscriber>> subscribers;
-    private final ExecutorService executorService;
+    private final EventDispatcher dispatcher;
     private final Handler mainHandler;
     
     public EventRouter(Context context) {
+        this(context, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+    
+    public EventRouter(Context context, int workerThreads) {
         this.context = context.getApplicationContext();
-        this.subscribers = new ConcurrentHashMap<>();
-        this.executorService = Executors.newCachedThreadPool();
+        this.dispatcher = new EventDispatcher(workerThreads,
+            (eventType, e) -> Log.e(TAG, "Error in subscriber for event " + eventType, e));
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
     
     public void subscribe(String eventType, EventSubscriber subscriber) {
-        subscribers.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+        subscribe(eventType, subscriber, EventDispatcher.OverflowPolicy.DROP, EventDispatcher.DEFAULT_CAPACITY);
+    }
+    
+    public void subscribe(String eventType, EventSubscriber subscriber,
+                          EventDispatcher.OverflowPolicy policy, int capacity) {
+        dispatcher.subscribe(eventType, subscriber, policy, capacity, null);
         Log.d(TAG, "Subscriber added for event type: " + eventType);
     }
     
+    /**
+     * Subscribe keeping only the latest pending event per key, e.g. per
+     * source for state snapshots where older events are superseded
+     */
+    public void subscribeCoalescing(String eventType, EventSubscriber subscriber,
+                                    EventDispatcher.KeyExtractor key, int capacity) {
+        dispatcher.subscribe(eventType, subscriber, EventDispatcher.OverflowPolicy.COALESCE, capacity, key);
+        Log.d(TAG, "Coalescing subscriber added for event type: " + eventType);
+    }
+    
     public void unsubscribe(String eventType, EventSubscriber subscriber) {
-        List<EventSubscriber> eventSubscribers = subscribers.get(eventType);
-        if (eventSubscribers != null) {
-            eventSubscribers.remove(subscriber);
-        }
+        dispatcher.unsubscribe(eventType, subscriber);
     }
     
     public void publish(OrchestrationEvent event) {
@@ -45,35 +54,10 @@ public class EventRouter {
     }
     
     public void publish(OrchestrationEvent event, boolean synchronous) {
-        String eventType = event.getEventType();
-        List<EventSubscriber> eventSubscribers = subscribers.get(eventType);
-        
-        if (eventSubscribers == null || eventSubscribers.isEmpty()) {
-            Log.d(TAG, "No subscribers for event: " + eventType);
-            return;
-        }
-        
-        Log.d(TAG, "Publishing event: " + eventType + " from " + event.getSource() + 
-              " to " + eventSubscribers.size() + " subscribers");
-        
         if (synchronous) {
-            for (EventSubscriber subscriber : eventSubscribers) {
-                try {
-                    subscriber.onEvent(event);
-                } catch (Exception e) {
-                    Log.e(TAG, "Error in subscriber for event " + eventType, e);
-                }
-            }
+            dispatcher.deliverNow(event);
         } else {
-            executorService.execute(() -> {
-                for (EventSubscriber subscriber : eventSubscribers) {
-                    try {
-                        subscriber.onEvent(event);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error in subscriber for event " + eventType, e);
-                    }
-                }
-            });
+            dispatcher.dispatch(event);
         }
     }
     
@@ -81,11 +65,17 @@ public class EventRouter {
         mainHandler.post(() -> publish(event, true));
     }
     
+    /**
+     * @return Per event type throughput, drop, coalescing and latency counters
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        return dispatcher.getStats();
+    }
+    
     public void shutdown() {
-        executorService.shutdown();
+        dispatcher.shutdown();
     }
     
-    public interface EventSubscriber {
-        void onEvent(OrchestrationEvent event);
+    public interface EventSubscriber extends EventDispatcher.Subscriber {
     }
 }
@@ -3,18 +3,31 @@ package com.aiassistant.core.orchestration;
 import android.content.Context;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HealthMonitor {
     private static final String TAG = "HealthMonitor";
     
+    // Latency windows of 6 x 10s slots, so percentiles cover the last minute
+    private static final int LATENCY_SLOTS = 6;
+    private static final long LATENCY_SLOT_MS = 10000;
+    
+    // Recording re-checks a component's SLOs at most this often
+    private static final long SLO_CHECK_INTERVAL_MS = 1000;
+    
     private final Context context;
     private final ComponentRegistry componentRegistry;
     private final Map<String, ComponentHealth> healthRecords;
     private final Map<String, CircuitBreaker> circuitBreakers;
+    private final Map<String, ComponentLatency> latencies;
     
     private EventRouter eventRouter;
     private boolean isRunning = false;
@@ -24,6 +37,7 @@ public class HealthMonitor {
         this.componentRegistry = componentRegistry;
         this.healthRecords = new ConcurrentHashMap<>();
         this.circuitBreakers = new ConcurrentHashMap<>();
+        this.latencies = new ConcurrentHashMap<>();
     }
     
     public void setEventRouter(EventRouter eventRouter) {
@@ -88,6 +102,130 @@ public class HealthMonitor {
         }
     }
     
+    /**
+     * Record how long one operation of a component took; lock-free
+     */
+    public void recordLatency(String componentId, String operation, long latencyNanos, boolean success) {
+        ComponentLatency latency = getOrCreateLatency(componentId);
+        latency.histogram(operation).record(latencyNanos, success);
+        
+        if (!latency.slos.isEmpty()) {
+            long now = System.currentTimeMillis();
+            long lastCheck = latency.lastSloCheck.get();
+            if (now - lastCheck >= SLO_CHECK_INTERVAL_MS && latency.lastSloCheck.compareAndSet(lastCheck, now)) {
+                checkLatencySlos(componentId, latency);
+            }
+        }
+    }
+    
+    /**
+     * Trip the component's circuit breaker when the operation violates the SLO
+     */
+    public void setLatencySlo(String componentId, String operation, LatencySlo slo) {
+        getOrCreateLatency(componentId).slos.put(operation, slo);
+    }
+    
+    /**
+     * @return Sliding-window latency per operation of the component
+     */
+    public Map<String, LatencyHistogram.Snapshot> getLatencySnapshots(String componentId) {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new HashMap<>();
+        ComponentLatency latency = latencies.get(componentId);
+        if (latency != null) {
+            for (Map.Entry<String, LatencyHistogram> entry : latency.operations.entrySet()) {
+                snapshots.put(entry.getKey(), entry.getValue().snapshot());
+            }
+        }
+        return snapshots;
+    }
+    
+    /**
+     * Compact latency and error view for the UI, slowest p99 first: one
+     * entry per "component/operation" with counts, rates, percentiles in
+     * milliseconds and the component's breaker state
+     */
+    public Map<String, Map<String, Object>> getLatencyReport() {
+        Map<String, Map<String, Object>> report = new LinkedHashMap<>();
+        for (LatencyEntry entry : collectLatencies()) {
+            LatencyHistogram.Snapshot snapshot = entry.snapshot;
+            CircuitBreaker breaker = circuitBreakers.get(entry.componentId);
+            
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", snapshot.count);
+            values.put("errorRate", snapshot.getErrorRate());
+            values.put("p50Ms", snapshot.p50Micros / 1000.0);
+            values.put("p95Ms", snapshot.p95Micros / 1000.0);
+            values.put("p99Ms", snapshot.p99Micros / 1000.0);
+            values.put("maxMs", snapshot.maxMicros / 1000.0);
+            values.put("breaker", breaker != null ? breaker.getState().name() : CircuitBreaker.State.CLOSED.name());
+            report.put(entry.componentId + "/" + entry.operation, values);
+        }
+        return report;
+    }
+    
+    /**
+     * @return One line per operation, slowest p99 first, for logs
+     */
+    public String formatLatencySummary(int limit) {
+        StringBuilder summary = new StringBuilder();
+        List<LatencyEntry> entries = collectLatencies();
+        for (int i = 0; i < Math.min(limit, entries.size()); i++) {
+            LatencyEntry entry = entries.get(i);
+            if (i > 0) {
+                summary.append('\n');
+            }
+            summary.append(entry.componentId).append('/').append(entry.operation)
+                   .append(": ").append(entry.snapshot);
+        }
+        return summary.toString();
+    }
+    
+    private List<LatencyEntry> collectLatencies() {
+        List<LatencyEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, ComponentLatency> component : latencies.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> operation : component.getValue().operations.entrySet()) {
+                LatencyHistogram.Snapshot snapshot = operation.getValue().snapshot();
+                if (snapshot.count > 0) {
+                    entries.add(new LatencyEntry(component.getKey(), operation.getKey(), snapshot));
+                }
+            }
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(b.snapshot.p99Micros, a.snapshot.p99Micros));
+        return entries;
+    }
+    
+    private void checkLatencySlos(String componentId, ComponentLatency latency) {
+        CircuitBreaker breaker = getOrCreateCircuitBreaker(componentId);
+        if (breaker.getState() == CircuitBreaker.State.OPEN) {
+            return;
+        }
+        
+        for (Map.Entry<String, LatencySlo> entry : latency.slos.entrySet()) {
+            LatencyHistogram histogram = latency.operations.get(entry.getKey());
+            if (histogram == null) {
+                continue;
+            }
+            
+            LatencySlo slo = entry.getValue();
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            String violation = slo.check(snapshot);
+            if (violation == null) {
+                continue;
+            }
+            
+            breaker.trip("SLO " + entry.getKey() + ": " + violation);
+            
+            if (eventRouter != null) {
+                Map<String, Object> data = new HashMap<>();
+                data.put("operation", entry.getKey());
+                data.put("violation", violation);
+                data.put("latency", snapshot.toString());
+                eventRouter.publish(new OrchestrationEvent("health.slo.violated", componentId, data));
+            }
+            return;
+        }
+    }
+    
     private void degradeComponent(String componentId) {
         componentRegistry.updateComponentStatus(
             componentId,
@@ -163,6 +301,18 @@ public class HealthMonitor {
                 degradeComponent(componentId);
             }
         }
+        
+        // Also catches components that stopped recording while in violation
+        for (Map.Entry<String, ComponentLatency> entry : latencies.entrySet()) {
+            if (!entry.getValue().slos.isEmpty()) {
+                checkLatencySlos(entry.getKey(), entry.getValue());
+            }
+        }
+        
+        String slowest = formatLatencySummary(3);
+        if (!slowest.isEmpty()) {
+            Log.d(TAG, "Slowest operations:\n" + slowest);
+        }
     }
     
     private float calculateErrorRate(ComponentHealth health) {
@@ -173,6 +323,10 @@ public class HealthMonitor {
         return (float) health.errorCount / total;
     }
     
+    private ComponentLatency getOrCreateLatency(String componentId) {
+        return latencies.computeIfAbsent(componentId, k -> new ComponentLatency());
+    }
+    
     private CircuitBreaker getOrCreateCircuitBreaker(String componentId) {
         return circuitBreakers.computeIfAbsent(
             componentId,
@@ -206,4 +360,69 @@ public class HealthMonitor {
             this.restartCount = 0;
         }
     }
+    
+    /**
+     * Latency objective for one operation: the chosen percentile (0.5, 0.95
+     * or 0.99) must stay under the threshold and the error rate under its
+     * maximum, judged once the window holds at least minSamples calls
+     */
+    public static class LatencySlo {
+        public final double quantile;
+        public final long thresholdMs;
+        public final float maxErrorRate;
+        public final int minSamples;
+        
+        public LatencySlo(double quantile, long thresholdMs, float maxErrorRate, int minSamples) {
+            this.quantile = quantile;
+            this.thresholdMs = thresholdMs;
+            this.maxErrorRate = maxErrorRate;
+            this.minSamples = minSamples;
+        }
+        
+        /**
+         * @return Description of the violation, or null if the SLO holds
+         */
+        public String check(LatencyHistogram.Snapshot snapshot) {
+            if (snapshot.count < minSamples) {
+                return null;
+            }
+            long percentileMicros = snapshot.getPercentileMicros(quantile);
+            if (percentileMicros > thresholdMs * 1000) {
+                return String.format("p%d %.1fms > %dms", Math.round(quantile * 100),
+                                     percentileMicros / 1000.0, thresholdMs);
+            }
+            if (snapshot.getErrorRate() > maxErrorRate) {
+                return String.format("error rate %.1f%% > %.1f%%",
+                                     snapshot.getErrorRate() * 100, maxErrorRate * 100);
+            }
+            return null;
+        }
+    }
+    
+    private static class ComponentLatency {
+        final Map<String, LatencyHistogram> operations = new ConcurrentHashMap<>();
+        final Map<String, LatencySlo> slos = new ConcurrentHashMap<>();
+        final AtomicLong lastSloCheck = new AtomicLong();
+        
+        LatencyHistogram histogram(String operation) {
+            LatencyHistogram histogram = operations.get(operation);
+            if (histogram == null) {
+                histogram = operations.computeIfAbsent(operation,
+                    k -> new LatencyHistogram(LATENCY_SLOTS, LATENCY_SLOT_MS));
+            }
+            return histogram;
+        }
+    }
+    
+    private static class LatencyEntry {
+        final String componentId;
+        final String operation;
+        final LatencyHistogram.Snapshot snapshot;
+        
+        LatencyEntry(String componentId, String operation, LatencyHistogram.Snapshot snapshot) {
+            this.componentId = componentId;
+            this.operation = operation;
+            this.snapshot = snapshot;
+        }
+    }
 }
@@ -0,0 +1,206 @@
+package com.aiassistant.core.orchestration;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sliding-window latency histogram with a fixed memory footprint.
+ *
+ * Latencies are kept in microseconds in log-linear buckets, HDR style:
+ * values below 64us are exact, above that each power of two is split into
+ * 32 buckets, so any recorded value is within about 3% of its bucket and
+ * the range up to about 19 hours fits in 1024 buckets. The window is a
+ * ring of time slots, each with its own buckets; a slot is cleared and
+ * reused once it falls out of the window.
+ *
+ * Recording is lock-free: a bucket increment and a few atomic counters.
+ * The only wait is while a recorder that rolled the window over clears the
+ * expired slot.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_LIMIT = SUB_BUCKETS * 2;
+    private static final int BUCKETS = 1024;
+    private static final long MAX_MICROS = (1L << 36) - 1;
+    
+    // Epoch of a slot that a recorder is clearing
+    private static final long RESETTING = Long.MIN_VALUE;
+    
+    private final Slot[] slots;
+    private final long slotNanos;
+    private final long originNanos = System.nanoTime();
+    
+    public LatencyHistogram(int slotCount, long slotMs) {
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+        this.slotNanos = slotMs * 1000000L;
+    }
+    
+    public void record(long latencyNanos, boolean success) {
+        long epoch = (System.nanoTime() - originNanos) / slotNanos;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        
+        long slotEpoch = slot.epoch.get();
+        while (slotEpoch != epoch) {
+            if (slotEpoch > epoch) {
+                // A later recorder already reused the slot; drop this late sample
+                return;
+            }
+            if (slotEpoch != RESETTING && slot.epoch.compareAndSet(slotEpoch, RESETTING)) {
+                slot.clear();
+                slot.epoch.set(epoch);
+                break;
+            }
+            Thread.yield();
+            slotEpoch = slot.epoch.get();
+        }
+        
+        long micros = Math.max(0, Math.min(MAX_MICROS, latencyNanos / 1000));
+        slot.counts.incrementAndGet(bucketOf(micros));
+        slot.count.incrementAndGet();
+        slot.sumMicros.addAndGet(micros);
+        if (!success) {
+            slot.errors.incrementAndGet();
+        }
+        long max = slot.maxMicros.get();
+        while (micros > max && !slot.maxMicros.compareAndSet(max, micros)) {
+            max = slot.maxMicros.get();
+        }
+    }
+    
+    /**
+     * Merge the slots still inside the window
+     */
+    public Snapshot snapshot() {
+        long epoch = (System.nanoTime() - originNanos) / slotNanos;
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        long errors = 0;
+        long sumMicros = 0;
+        long maxMicros = 0;
+        for (Slot slot : slots) {
+            long slotEpoch = slot.epoch.get();
+            if (slotEpoch == RESETTING || slotEpoch < 0 || slotEpoch <= epoch - slots.length) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += slot.counts.get(i);
+            }
+            count += slot.count.get();
+            errors += slot.errors.get();
+            sumMicros += slot.sumMicros.get();
+            maxMicros = Math.max(maxMicros, slot.maxMicros.get());
+        }
+        long windowMs = slots.length * slotNanos / 1000000L;
+        return new Snapshot(count, errors, sumMicros, maxMicros, windowMs,
+                percentile(counts, count, 0.50), percentile(counts, count, 0.95),
+                percentile(counts, count, 0.99));
+    }
+    
+    static int bucketOf(long micros) {
+        if (micros < EXACT_LIMIT) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return EXACT_LIMIT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    /**
+     * @return Midpoint of the bucket's value range, in microseconds
+     */
+    static long valueOf(int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        int magnitude = (bucket - EXACT_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (bucket - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return ((long) subBucket << shift) + (1L << (shift - 1));
+    }
+    
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(counts.length - 1);
+    }
+    
+    private static class Slot {
+        final AtomicLong epoch = new AtomicLong(-1);
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong sumMicros = new AtomicLong();
+        final AtomicLong maxMicros = new AtomicLong();
+        
+        void clear() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.set(0);
+            errors.set(0);
+            sumMicros.set(0);
+            maxMicros.set(0);
+        }
+    }
+    
+    public static class Snapshot {
+        public final long count;
+        public final long errors;
+        public final long windowMs;
+        public final long p50Micros;
+        public final long p95Micros;
+        public final long p99Micros;
+        public final long maxMicros;
+        public final long meanMicros;
+        
+        Snapshot(long count, long errors, long sumMicros, long maxMicros, long windowMs,
+                 long p50Micros, long p95Micros, long p99Micros) {
+            this.count = count;
+            this.errors = errors;
+            this.windowMs = windowMs;
+            // Bucket midpoints can overshoot the largest recorded value
+            this.p50Micros = Math.min(p50Micros, maxMicros);
+            this.p95Micros = Math.min(p95Micros, maxMicros);
+            this.p99Micros = Math.min(p99Micros, maxMicros);
+            this.maxMicros = maxMicros;
+            this.meanMicros = count > 0 ? sumMicros / count : 0;
+        }
+        
+        public float getErrorRate() {
+            return count > 0 ? (float) errors / count : 0.0f;
+        }
+        
+        /**
+         * @return p99 for quantiles from 0.99, p95 from 0.95, else p50
+         */
+        public long getPercentileMicros(double quantile) {
+            if (quantile >= 0.99) {
+                return p99Micros;
+            } else if (quantile >= 0.95) {
+                return p95Micros;
+            }
+            return p50Micros;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("n=%d err=%.1f%% p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                    count, getErrorRate() * 100, p50Micros / 1000.0, p95Micros / 1000.0,
+                    p99Micros / 1000.0, maxMicros / 1000.0);
+        }
+    }
+}
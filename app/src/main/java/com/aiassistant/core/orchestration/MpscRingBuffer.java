@@ -0,0 +1,106 @@
+package com.aiassistant.core.orchestration;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer.
+ *
+ * Producers claim a slot by advancing the tail with a CAS and publish it by
+ * writing the slot's sequence number; the consumer reads slots in order and
+ * hands them back by advancing their sequence one lap. Each slot also
+ * carries the nanoTime stamp given at offer, so the consumer can measure
+ * queueing latency without a wrapper object per element.
+ *
+ * @param <E> Element type
+ */
+public class MpscRingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final long[] stamps;
+    private final AtomicLong tail = new AtomicLong();
+    
+    // Only the consumer thread touches head; producers read it for size()
+    private volatile long head;
+    
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.stamps = new long[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * Add an element if there is room; safe from any thread.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element, long stamp) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(slot, element);
+                    stamps[slot] = stamp;
+                    // Volatile write publishes the element and stamp to the consumer
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer has not freed this slot yet
+                return false;
+            }
+            // Another producer claimed the slot first; retry
+        }
+    }
+    
+    /**
+     * Move up to max elements into out, oldest first; consumer thread only.
+     *
+     * @param outStamps Receives each element's offer stamp at the same index
+     *                  as its position in this call's output (may be null)
+     * @return Number of elements moved
+     */
+    public int drain(List<E> out, long[] outStamps, int max) {
+        long position = head;
+        int count = 0;
+        while (count < max) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                break;
+            }
+            out.add(elements.get(slot));
+            if (outStamps != null) {
+                outStamps[count] = stamps[slot];
+            }
+            elements.lazySet(slot, null);
+            // Free the slot for the producer one lap ahead
+            sequences.set(slot, position + mask + 1);
+            position++;
+            count++;
+        }
+        head = position;
+        return count;
+    }
+    
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+    
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head, mask + 1));
+    }
+    
+    public int capacity() {
+        return mask + 1;
+    }
+}
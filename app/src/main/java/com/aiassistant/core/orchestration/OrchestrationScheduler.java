@@ -7,17 +7,25 @@ import com.aiassistant.core.ErrorResolutionWorkflow;
 import com.aiassistant.core.FeedbackSystem;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class OrchestrationScheduler {
     private static final String TAG = "OrchestrationScheduler";
     
+    // Latency of pipeline stages is recorded under this operation name
+    public static final String STAGE_OPERATION = "pipeline_stage";
+    private static final float STAGE_MAX_ERROR_RATE = 0.5f;
+    private static final int STAGE_SLO_MIN_SAMPLES = 20;
+    
     private final Context context;
     private final ComponentRegistry componentRegistry;
     private final EventRouter eventRouter;
@@ -28,14 +36,15 @@ public class OrchestrationScheduler {
     private FeedbackSystem feedbackSystem;
     private ErrorResolutionWorkflow errorResolutionWorkflow;
     
-    private final ExecutorService parallelExecutor;
-    private final ExecutorService sequentialExecutor;
+    private final PipelineExecutor pipelineExecutor;
     private final ScheduledExecutorService scheduledExecutor;
     
     private final Map<String, OrchestrationPipeline> pipelines;
     private final Map<String, TriggerRule> triggerRules;
+    private final Map<String, Map<String, Object>> lastRunReports;
     
-    private boolean isRunning = false;
+    private ScheduledFuture<?> triggerPoll;
+    private volatile boolean isRunning = false;
     
     public OrchestrationScheduler(Context context, ComponentRegistry componentRegistry, 
                                  EventRouter eventRouter) {
@@ -43,12 +52,13 @@ public class OrchestrationScheduler {
         this.componentRegistry = componentRegistry;
         this.eventRouter = eventRouter;
         
-        this.parallelExecutor = Executors.newCachedThreadPool();
-        this.sequentialExecutor = Executors.newSingleThreadExecutor();
-        this.scheduledExecutor = Executors.newScheduledThreadPool(4);
+        this.pipelineExecutor = new PipelineExecutor(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+        this.scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
         
-        this.pipelines = new HashMap<>();
-        this.triggerRules = new HashMap<>();
+        this.pipelines = new ConcurrentHashMap<>();
+        this.triggerRules = new ConcurrentHashMap<>();
+        this.lastRunReports = new ConcurrentHashMap<>();
         
         initializeDefaultPipelines();
     }
@@ -59,6 +69,10 @@ public class OrchestrationScheduler {
     
     public void setHealthMonitor(HealthMonitor healthMonitor) {
         this.healthMonitor = healthMonitor;
+        
+        for (OrchestrationPipeline pipeline : pipelines.values()) {
+            registerStageSlos(pipeline);
+        }
     }
     
     public void setProblemSolvingBroker(ProblemSolvingBroker problemSolvingBroker) {
@@ -74,22 +88,25 @@ public class OrchestrationScheduler {
     }
     
     private void initializeDefaultPipelines() {
+        // Analysis and behavior detection both read the frame; recommendations need both
         OrchestrationPipeline gameAnalysisPipeline = new OrchestrationPipeline("game_analysis");
-        gameAnalysisPipeline.addStage("GameAnalyzer", true);
-        gameAnalysisPipeline.addStage("BehaviorDetector", true);
-        gameAnalysisPipeline.addStage("ActionRecommender", true);
+        gameAnalysisPipeline.addStage("GameAnalyzer", true, 100);
+        gameAnalysisPipeline.addStage("BehaviorDetector", true, 100);
+        gameAnalysisPipeline.addStage("ActionRecommender", true, 100, "GameAnalyzer", "BehaviorDetector");
         pipelines.put("game_analysis", gameAnalysisPipeline);
         
+        // Each voice stage consumes the previous one's output
         OrchestrationPipeline voicePipeline = new OrchestrationPipeline("voice_processing");
-        voicePipeline.addStage("VoiceRecognizer", true);
-        voicePipeline.addStage("VoiceCommandProcessor", true);
-        voicePipeline.addStage("VoiceResponseGenerator", true);
+        voicePipeline.addStage("VoiceRecognizer", true, 3000);
+        voicePipeline.addStage("VoiceCommandProcessor", true, 1000, "VoiceRecognizer");
+        voicePipeline.addStage("VoiceResponseGenerator", true, 2000, "VoiceCommandProcessor");
         pipelines.put("voice_processing", voicePipeline);
         
         OrchestrationPipeline monitoringPipeline = new OrchestrationPipeline("monitoring");
         monitoringPipeline.addStage("ScreenMonitor", false);
         monitoringPipeline.addStage("NetworkMonitor", false);
         monitoringPipeline.addStage("ContextAnalyzer", false);
+        monitoringPipeline.setParallel();
         pipelines.put("monitoring", monitoringPipeline);
         
         Log.i(TAG, "Initialized " + pipelines.size() + " default pipelines");
@@ -114,11 +131,16 @@ public class OrchestrationScheduler {
         
         isRunning = false;
         
+        if (triggerPoll != null) {
+            triggerPoll.cancel(false);
+            triggerPoll = null;
+        }
+        
         Log.i(TAG, "Orchestration Scheduler stopped");
     }
     
     private void scheduleTriggerRules() {
-        scheduledExecutor.scheduleAtFixedRate(() -> {
+        triggerPoll = scheduledExecutor.scheduleAtFixedRate(() -> {
             try {
                 evaluateTriggerRules();
             } catch (Exception e) {
@@ -131,112 +153,98 @@ public class OrchestrationScheduler {
         for (Map.Entry<String, TriggerRule> entry : triggerRules.entrySet()) {
             TriggerRule rule = entry.getValue();
             
-            if (rule.shouldTrigger()) {
+            if (rule.eventType == null && rule.shouldTrigger()) {
                 executePipeline(rule.pipelineName, rule.triggerData);
             }
         }
     }
     
-    public void executePipeline(String pipelineName, Map<String, Object> data) {
+    public PipelineExecutor.PipelineRun executePipeline(String pipelineName, Map<String, Object> data) {
         OrchestrationPipeline pipeline = pipelines.get(pipelineName);
         
         if (pipeline == null) {
             Log.w(TAG, "Pipeline not found: " + pipelineName);
-            return;
+            return null;
         }
         
         Log.i(TAG, "Executing pipeline: " + pipelineName);
         
-        long startTime = System.currentTimeMillis();
-        
-        if (pipeline.isSequential) {
-            executeSequential(pipeline, data);
-        } else {
-            executeParallel(pipeline, data);
-        }
-        
-        long executionTime = System.currentTimeMillis() - startTime;
-        Log.d(TAG, "Pipeline " + pipelineName + " completed in " + executionTime + "ms");
-    }
-    
-    private void executeSequential(OrchestrationPipeline pipeline, Map<String, Object> data) {
-        sequentialExecutor.execute(() -> {
-            Map<String, Object> stageData = new HashMap<>(data);
-            
-            for (PipelineStage stage : pipeline.stages) {
-                if (!isComponentHealthy(stage.componentId)) {
-                    Log.w(TAG, "Skipping unhealthy component: " + stage.componentId);
-                    continue;
-                }
-                
-                CircuitBreaker breaker = healthMonitor.getCircuitBreaker(stage.componentId);
-                if (breaker != null && !breaker.allowExecution()) {
-                    Log.w(TAG, "Circuit breaker blocking execution: " + stage.componentId);
-                    continue;
-                }
-                
-                try {
-                    Map<String, Object> result = executeStage(stage, stageData);
-                    
-                    if (result != null) {
-                        stageData.putAll(result);
-                        healthMonitor.recordSuccess(stage.componentId);
-                    } else {
-                        healthMonitor.recordError(stage.componentId, "execution_failed");
-                        break;
+        return pipelineExecutor.execute(pipelineName, pipeline.buildStages(), data,
+            new PipelineExecutor.StageTask() {
+                @Override
+                public boolean shouldRun(PipelineExecutor.Stage stage) {
+                    if (!isComponentHealthy(stage.name)) {
+                        Log.w(TAG, "Skipping unhealthy component: " + stage.name);
+                        return false;
                     }
                     
-                } catch (Exception e) {
-                    Log.e(TAG, "Error executing stage: " + stage.componentId, e);
-                    healthMonitor.recordError(stage.componentId, "exception");
-                    
-                    if (stage.critical) {
-                        break;
+                    CircuitBreaker breaker = healthMonitor.getCircuitBreaker(stage.name);
+                    if (breaker != null && !breaker.allowExecution()) {
+                        Log.w(TAG, "Circuit breaker blocking execution: " + stage.name);
+                        return false;
                     }
-                }
-            }
-        });
-    }
-    
-    private void executeParallel(OrchestrationPipeline pipeline, Map<String, Object> data) {
-        for (PipelineStage stage : pipeline.stages) {
-            parallelExecutor.execute(() -> {
-                if (!isComponentHealthy(stage.componentId)) {
-                    Log.w(TAG, "Skipping unhealthy component: " + stage.componentId);
-                    return;
+                    return true;
                 }
                 
-                CircuitBreaker breaker = healthMonitor.getCircuitBreaker(stage.componentId);
-                if (breaker != null && !breaker.allowExecution()) {
-                    Log.w(TAG, "Circuit breaker blocking execution: " + stage.componentId);
-                    return;
-                }
-                
-                try {
-                    Map<String, Object> result = executeStage(stage, data);
-                    
-                    if (result != null) {
-                        healthMonitor.recordSuccess(stage.componentId);
-                    } else {
-                        healthMonitor.recordError(stage.componentId, "execution_failed");
+                @Override
+                public Map<String, Object> run(PipelineExecutor.Stage stage, Map<String, Object> input) {
+                    long startNanos = System.nanoTime();
+                    try {
+                        Map<String, Object> result = executeStage(stage, input);
+                        
+                        healthMonitor.recordLatency(stage.name, STAGE_OPERATION, System.nanoTime() - startNanos, result != null);
+                        if (result != null) {
+                            healthMonitor.recordSuccess(stage.name);
+                        } else {
+                            healthMonitor.recordError(stage.name, "execution_failed");
+                        }
+                        return result;
+                        
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "Error executing stage: " + stage.name, e);
+                        healthMonitor.recordLatency(stage.name, STAGE_OPERATION, System.nanoTime() - startNanos, false);
+                        healthMonitor.recordError(stage.name, "exception");
+                        throw e;
                     }
-                    
-                } catch (Exception e) {
-                    Log.e(TAG, "Error executing stage: " + stage.componentId, e);
-                    healthMonitor.recordError(stage.componentId, "exception");
                 }
-            });
+            },
+            this::onPipelineComplete);
+    }
+    
+    private void onPipelineComplete(PipelineExecutor.PipelineRun run) {
+        Map<String, Object> report = run.getReport();
+        lastRunReports.put(run.getPipelineName(), report);
+        
+        for (Object entry : ((Map<?, ?>) report.get("stages")).entrySet()) {
+            Map.Entry<?, ?> stage = (Map.Entry<?, ?>) entry;
+            if (PipelineExecutor.StageStatus.TIMED_OUT.name().equals(((Map<?, ?>) stage.getValue()).get("status"))) {
+                healthMonitor.recordError((String) stage.getKey(), "timeout");
+            }
+        }
+        
+        if (run.isCancelled()) {
+            Log.w(TAG, "Pipeline " + run.getPipelineName() + " cancelled: " + report.get("cancelReason"));
         }
+        Log.d(TAG, String.format("Pipeline %s completed in %.1fms (critical path %s %.1fms, stages total %.1fms)",
+            run.getPipelineName(), (Double) report.get("wallMs"), report.get("criticalPath"),
+            (Double) report.get("criticalPathMs"), (Double) report.get("stageSumMs")));
+    }
+    
+    /**
+     * @return Timing report of the pipeline's most recent completed run, or null
+     */
+    public Map<String, Object> getLastRunReport(String pipelineName) {
+        return lastRunReports.get(pipelineName);
     }
     
-    private Map<String, Object> executeStage(PipelineStage stage, Map<String, Object> data) {
-        Log.d(TAG, "Executing stage: " + stage.componentId);
+    private Map<String, Object> executeStage(PipelineExecutor.Stage stage, Map<String, Object> data) {
+        Log.d(TAG, "Executing stage: " + stage.name);
         
-        healthMonitor.recordHeartbeat(stage.componentId);
+        healthMonitor.recordHeartbeat(stage.name);
         
         Map<String, Object> result = new HashMap<>();
         result.put("status", "success");
-        result.put("component", stage.componentId);
+        result.put("component", stage.name);
         result.put("timestamp", System.currentTimeMillis());
         
         return result;
@@ -256,17 +264,43 @@ public class OrchestrationScheduler {
     
     public void registerTriggerRule(String ruleId, TriggerRule rule) {
         triggerRules.put(ruleId, rule);
+        
+        // Event rules are evaluated when their event arrives instead of on the poll
+        if (rule.eventType != null) {
+            eventRouter.subscribe(rule.eventType, event -> {
+                if (isRunning && triggerRules.get(ruleId) == rule && rule.shouldTrigger()) {
+                    Map<String, Object> data = new HashMap<>(rule.triggerData);
+                    if (event.getData() != null) {
+                        data.putAll(event.getData());
+                    }
+                    executePipeline(rule.pipelineName, data);
+                }
+            });
+        }
         Log.i(TAG, "Registered trigger rule: " + ruleId);
     }
     
     public void registerPipeline(String pipelineName, OrchestrationPipeline pipeline) {
         pipelines.put(pipelineName, pipeline);
+        if (healthMonitor != null) {
+            registerStageSlos(pipeline);
+        }
         Log.i(TAG, "Registered pipeline: " + pipelineName);
     }
     
+    /**
+     * A stage whose p99 exceeds its deadline is timing out on more than 1%
+     * of runs, so trip its breaker rather than keep scheduling it
+     */
+    private void registerStageSlos(OrchestrationPipeline pipeline) {
+        for (PipelineStage stage : pipeline.stages) {
+            healthMonitor.setLatencySlo(stage.componentId, STAGE_OPERATION,
+                new HealthMonitor.LatencySlo(0.99, stage.timeoutMs, STAGE_MAX_ERROR_RATE, STAGE_SLO_MIN_SAMPLES));
+        }
+    }
+    
     public void shutdown() {
-        parallelExecutor.shutdown();
-        sequentialExecutor.shutdown();
+        pipelineExecutor.shutdown();
         scheduledExecutor.shutdown();
     }
     
@@ -281,42 +315,105 @@ public class OrchestrationScheduler {
             this.isSequential = true;
         }
         
+        /**
+         * Add a stage that runs after the previous one in a sequential
+         * pipeline, or independently in a parallel one
+         */
         public void addStage(String componentId, boolean critical) {
             stages.add(new PipelineStage(componentId, critical));
         }
         
+        /**
+         * Add a stage that starts once all the given stages have finished
+         */
+        public void addStage(String componentId, boolean critical, long timeoutMs, String... dependsOn) {
+            for (String dependency : dependsOn) {
+                if (findStage(dependency) == null) {
+                    throw new IllegalArgumentException("Unknown dependency " + dependency + " for " + componentId);
+                }
+            }
+            stages.add(new PipelineStage(componentId, critical, timeoutMs, Arrays.asList(dependsOn)));
+        }
+        
         public void setParallel() {
             this.isSequential = false;
         }
+        
+        public PipelineStage findStage(String componentId) {
+            for (PipelineStage stage : stages) {
+                if (stage.componentId.equals(componentId)) {
+                    return stage;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * @return Stages with dependencies resolved, stages added without
+         *         any depending on their predecessor when sequential
+         */
+        List<PipelineExecutor.Stage> buildStages() {
+            List<PipelineExecutor.Stage> built = new ArrayList<>(stages.size());
+            String previous = null;
+            for (PipelineStage stage : stages) {
+                List<String> dependencies = stage.dependsOn;
+                if (dependencies == null) {
+                    dependencies = isSequential && previous != null
+                        ? Collections.singletonList(previous) : Collections.<String>emptyList();
+                }
+                built.add(new PipelineExecutor.Stage(stage.componentId, stage.critical, stage.timeoutMs, dependencies));
+                previous = stage.componentId;
+            }
+            return built;
+        }
     }
     
     public static class PipelineStage {
         public final String componentId;
         public final boolean critical;
+        public final long timeoutMs;
+        
+        // Null means implied by the pipeline's sequential or parallel mode
+        public final List<String> dependsOn;
         
         public PipelineStage(String componentId, boolean critical) {
+            this(componentId, critical, PipelineExecutor.DEFAULT_STAGE_TIMEOUT_MS, null);
+        }
+        
+        public PipelineStage(String componentId, boolean critical, long timeoutMs, List<String> dependsOn) {
             this.componentId = componentId;
             this.critical = critical;
+            this.timeoutMs = timeoutMs;
+            this.dependsOn = dependsOn;
         }
     }
     
     public static class TriggerRule {
         public final String pipelineName;
         public final String condition;
+        public final String eventType;
         public Map<String, Object> triggerData;
         
         private long lastTriggerTime;
         private final long minimumInterval;
         
         public TriggerRule(String pipelineName, String condition, long minimumInterval) {
+            this(pipelineName, condition, minimumInterval, null);
+        }
+        
+        /**
+         * @param eventType Event that fires the rule, or null to poll it
+         */
+        public TriggerRule(String pipelineName, String condition, long minimumInterval, String eventType) {
             this.pipelineName = pipelineName;
             this.condition = condition;
             this.minimumInterval = minimumInterval;
+            this.eventType = eventType;
             this.lastTriggerTime = 0;
             this.triggerData = new HashMap<>();
         }
         
-        public boolean shouldTrigger() {
+        public synchronized boolean shouldTrigger() {
             long currentTime = System.currentTimeMillis();
             
             if (currentTime - lastTriggerTime < minimumInterval) {
@@ -0,0 +1,449 @@
+package com.aiassistant.core.orchestration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs pipelines declared as DAGs of stages for OrchestrationScheduler.
+ *
+ * A stage is submitted to a bounded work-stealing pool as soon as the last
+ * of its dependencies finishes, with the pipeline input plus everything its
+ * dependencies produced as input. Each stage has a deadline from when it
+ * starts; a stage that overruns is interrupted and marked TIMED_OUT. When a
+ * critical stage fails or times out the whole run is cancelled: pending
+ * stages never start and running ones are interrupted. A non-critical
+ * failure only loses that stage's output.
+ *
+ * Every run records per-stage timing and reports the critical path, the
+ * chain of stages that determined the run's wall time.
+ */
+public class PipelineExecutor {
+    public static final long DEFAULT_STAGE_TIMEOUT_MS = 2000;
+    
+    public enum StageStatus {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        TIMED_OUT,
+        SKIPPED,
+        CANCELLED
+    }
+    
+    public static class Stage {
+        public final String name;
+        public final boolean critical;
+        public final long timeoutMs;
+        public final List<String> dependencies;
+        
+        public Stage(String name, boolean critical, long timeoutMs, List<String> dependencies) {
+            this.name = name;
+            this.critical = critical;
+            this.timeoutMs = timeoutMs;
+            this.dependencies = Collections.unmodifiableList(new ArrayList<>(dependencies));
+        }
+    }
+    
+    public interface StageTask {
+        /**
+         * @return Stage output, or null if the stage failed
+         */
+        Map<String, Object> run(Stage stage, Map<String, Object> input) throws Exception;
+        
+        /**
+         * @return false to skip the stage; its dependents still run
+         */
+        default boolean shouldRun(Stage stage) {
+            return true;
+        }
+    }
+    
+    public interface RunListener {
+        void onRunComplete(PipelineRun run);
+    }
+    
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService timer;
+    
+    public PipelineExecutor(int parallelism) {
+        // Async mode: stages are independent tasks, so FIFO per worker
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        this.timer = timer;
+    }
+    
+    /**
+     * Start a run of the given stages. Dependencies must name stages that
+     * appear earlier in the list, which also rules out cycles.
+     */
+    public PipelineRun execute(String pipelineName, List<Stage> stages, Map<String, Object> input,
+                               StageTask task, RunListener listener) {
+        PipelineRun run = new PipelineRun(pipelineName, stages, input, task, listener);
+        run.start();
+        return run;
+    }
+    
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+    
+    public void shutdown() {
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+    
+    public class PipelineRun {
+        private final String pipelineName;
+        private final StageRun[] stageRuns;
+        private final Map<String, Object> input;
+        private final StageTask task;
+        private final RunListener listener;
+        private final AtomicInteger remaining;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final long startNanos = System.nanoTime();
+        private volatile long endNanos;
+        private volatile boolean cancelled;
+        private volatile String cancelReason;
+        
+        PipelineRun(String pipelineName, List<Stage> stages, Map<String, Object> input,
+                    StageTask task, RunListener listener) {
+            this.pipelineName = pipelineName;
+            this.input = input != null ? new HashMap<>(input) : new HashMap<>();
+            this.task = task;
+            this.listener = listener;
+            this.stageRuns = new StageRun[stages.size()];
+            this.remaining = new AtomicInteger(stages.size());
+            
+            Map<String, StageRun> byName = new HashMap<>();
+            for (int i = 0; i < stageRuns.length; i++) {
+                Stage stage = stages.get(i);
+                if (byName.containsKey(stage.name)) {
+                    throw new IllegalArgumentException("Duplicate stage " + stage.name);
+                }
+                StageRun stageRun = new StageRun(stage);
+                for (String dependency : stage.dependencies) {
+                    StageRun upstream = byName.get(dependency);
+                    if (upstream == null) {
+                        throw new IllegalArgumentException("Stage " + stage.name
+                                + " depends on unknown or later stage " + dependency);
+                    }
+                    stageRun.upstream.add(upstream);
+                    upstream.downstream.add(stageRun);
+                }
+                stageRun.pendingDependencies.set(stage.dependencies.size());
+                byName.put(stage.name, stageRun);
+                stageRuns[i] = stageRun;
+            }
+        }
+        
+        void start() {
+            if (stageRuns.length == 0) {
+                complete();
+                return;
+            }
+            for (StageRun stageRun : stageRuns) {
+                if (stageRun.upstream.isEmpty()) {
+                    submit(stageRun);
+                }
+            }
+        }
+        
+        public String getPipelineName() {
+            return pipelineName;
+        }
+        
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+        
+        public boolean isCancelled() {
+            return cancelled;
+        }
+        
+        /**
+         * @return true if the run finished within the timeout
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return done.await(timeout, unit);
+        }
+        
+        /**
+         * Stop the run: pending stages are cancelled, running ones interrupted
+         */
+        public void cancel(String reason) {
+            if (cancelled) {
+                return;
+            }
+            cancelReason = reason;
+            cancelled = true;
+            for (StageRun stageRun : stageRuns) {
+                if (stageRun.status.compareAndSet(StageStatus.PENDING, StageStatus.CANCELLED)) {
+                    finish(stageRun);
+                } else if (stageRun.interruptIfRunning(StageStatus.CANCELLED)) {
+                    finish(stageRun);
+                }
+            }
+        }
+        
+        public StageStatus getStageStatus(String stageName) {
+            StageRun stageRun = find(stageName);
+            return stageRun != null ? stageRun.status.get() : null;
+        }
+        
+        /**
+         * @return Input plus output of a finished stage, as passed to its dependents
+         */
+        public Map<String, Object> getStageOutput(String stageName) {
+            StageRun stageRun = find(stageName);
+            return stageRun != null ? stageRun.output : null;
+        }
+        
+        /**
+         * @return Stage names along the critical path, first stage first
+         */
+        public List<String> getCriticalPath() {
+            List<String> path = new ArrayList<>();
+            StageRun current = null;
+            for (StageRun stageRun : stageRuns) {
+                if (stageRun.startNanos != 0 && (current == null || stageRun.endNanos > current.endNanos)) {
+                    current = stageRun;
+                }
+            }
+            while (current != null) {
+                path.add(0, current.stage.name);
+                StageRun gating = null;
+                for (StageRun upstream : current.upstream) {
+                    if (upstream.startNanos != 0 && (gating == null || upstream.endNanos > gating.endNanos)) {
+                        gating = upstream;
+                    }
+                }
+                current = gating;
+            }
+            return path;
+        }
+        
+        /**
+         * @return Wall, critical path and summed stage times, plus status and
+         *         timing per stage; times in milliseconds from the run start
+         */
+        public Map<String, Object> getReport() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            report.put("pipeline", pipelineName);
+            report.put("done", isDone());
+            report.put("cancelled", cancelled);
+            if (cancelReason != null) {
+                report.put("cancelReason", cancelReason);
+            }
+            report.put("wallMs", toMillis(end - startNanos));
+            
+            double stageSumMs = 0;
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (StageRun stageRun : stageRuns) {
+                Map<String, Object> stageReport = new LinkedHashMap<>();
+                stageReport.put("status", stageRun.status.get().name());
+                if (stageRun.startNanos != 0) {
+                    long stageEnd = stageRun.endNanos != 0 ? stageRun.endNanos : end;
+                    double durationMs = toMillis(stageEnd - stageRun.startNanos);
+                    stageReport.put("startMs", toMillis(stageRun.startNanos - startNanos));
+                    stageReport.put("durationMs", durationMs);
+                    stageSumMs += durationMs;
+                }
+                if (stageRun.error != null) {
+                    stageReport.put("error", stageRun.error);
+                }
+                stages.put(stageRun.stage.name, stageReport);
+            }
+            
+            List<String> criticalPath = getCriticalPath();
+            double criticalPathMs = 0;
+            for (String name : criticalPath) {
+                Object durationMs = ((Map<?, ?>) stages.get(name)).get("durationMs");
+                criticalPathMs += durationMs != null ? (Double) durationMs : 0;
+            }
+            report.put("criticalPath", criticalPath);
+            report.put("criticalPathMs", criticalPathMs);
+            report.put("stageSumMs", stageSumMs);
+            report.put("stages", stages);
+            return report;
+        }
+        
+        private StageRun find(String stageName) {
+            for (StageRun stageRun : stageRuns) {
+                if (stageRun.stage.name.equals(stageName)) {
+                    return stageRun;
+                }
+            }
+            return null;
+        }
+        
+        private void submit(StageRun stageRun) {
+            Map<String, Object> stageInput = new HashMap<>(input);
+            for (StageRun upstream : stageRun.upstream) {
+                if (upstream.output != null) {
+                    stageInput.putAll(upstream.output);
+                }
+            }
+            try {
+                pool.execute(() -> runStage(stageRun, stageInput));
+            } catch (RuntimeException e) {
+                // Pool shut down
+                cancel("executor unavailable");
+            }
+        }
+        
+        private void runStage(StageRun stageRun, Map<String, Object> stageInput) {
+            stageRun.output = stageInput;
+            boolean shouldRun;
+            try {
+                shouldRun = task.shouldRun(stageRun.stage);
+            } catch (RuntimeException e) {
+                // Left PENDING, the stage would keep the run from ever completing
+                if (stageRun.status.compareAndSet(StageStatus.PENDING, StageStatus.FAILED)) {
+                    stageRun.error = "shouldRun failed: " + e;
+                    finish(stageRun);
+                }
+                return;
+            }
+            if (!shouldRun) {
+                if (stageRun.status.compareAndSet(StageStatus.PENDING, StageStatus.SKIPPED)) {
+                    finish(stageRun);
+                }
+                return;
+            }
+            
+            synchronized (stageRun) {
+                if (!stageRun.status.compareAndSet(StageStatus.PENDING, StageStatus.RUNNING)) {
+                    return;
+                }
+                stageRun.runner = Thread.currentThread();
+                stageRun.startNanos = System.nanoTime();
+            }
+            stageRun.deadline = timer.schedule(() -> {
+                if (stageRun.interruptIfRunning(StageStatus.TIMED_OUT)) {
+                    stageRun.error = "deadline of " + stageRun.stage.timeoutMs + "ms exceeded";
+                    finish(stageRun);
+                }
+            }, stageRun.stage.timeoutMs, TimeUnit.MILLISECONDS);
+            
+            StageStatus outcome;
+            Map<String, Object> output = stageInput;
+            try {
+                Map<String, Object> result = task.run(stageRun.stage, stageInput);
+                if (result != null) {
+                    output = new HashMap<>(stageInput);
+                    output.putAll(result);
+                    outcome = StageStatus.SUCCEEDED;
+                } else {
+                    stageRun.error = "no result";
+                    outcome = StageStatus.FAILED;
+                }
+            } catch (Exception e) {
+                stageRun.error = e.toString();
+                outcome = StageStatus.FAILED;
+            } finally {
+                synchronized (stageRun) {
+                    stageRun.runner = null;
+                }
+                // Drop an interrupt aimed at this stage before the worker moves on
+                Thread.interrupted();
+            }
+            if (stageRun.status.compareAndSet(StageStatus.RUNNING, outcome)) {
+                stageRun.output = output;
+                finish(stageRun);
+            }
+        }
+        
+        /**
+         * Called exactly once per stage, when it reaches a final status
+         */
+        private void finish(StageRun stageRun) {
+            if (stageRun.endNanos == 0 && stageRun.startNanos != 0) {
+                stageRun.endNanos = System.nanoTime();
+            }
+            ScheduledFuture<?> deadline = stageRun.deadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            
+            StageStatus status = stageRun.status.get();
+            if (stageRun.stage.critical && (status == StageStatus.FAILED || status == StageStatus.TIMED_OUT)) {
+                cancel("critical stage " + stageRun.stage.name + " " + status.name().toLowerCase());
+            }
+            
+            for (StageRun downstream : stageRun.downstream) {
+                if (downstream.pendingDependencies.decrementAndGet() == 0 && !cancelled) {
+                    submit(downstream);
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                complete();
+            }
+        }
+        
+        private void complete() {
+            endNanos = System.nanoTime();
+            done.countDown();
+            if (listener != null) {
+                listener.onRunComplete(this);
+            }
+        }
+    }
+    
+    private static class StageRun {
+        final Stage stage;
+        final List<StageRun> upstream = new ArrayList<>();
+        final List<StageRun> downstream = new ArrayList<>();
+        final AtomicInteger pendingDependencies = new AtomicInteger();
+        final AtomicReference<StageStatus> status = new AtomicReference<>(StageStatus.PENDING);
+        volatile Map<String, Object> output;
+        volatile ScheduledFuture<?> deadline;
+        volatile long startNanos;
+        volatile long endNanos;
+        volatile String error;
+        
+        // Guarded by this
+        Thread runner;
+        
+        StageRun(Stage stage) {
+            this.stage = stage;
+        }
+        
+        /**
+         * Move a running stage to the given final status and interrupt it
+         *
+         * @return true if the stage was running
+         */
+        synchronized boolean interruptIfRunning(StageStatus finalStatus) {
+            if (!status.compareAndSet(StageStatus.RUNNING, finalStatus)) {
+                return false;
+            }
+            endNanos = System.nanoTime();
+            if (runner != null) {
+                runner.interrupt();
+            }
+            return true;
+        }
+    }
+    
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+}
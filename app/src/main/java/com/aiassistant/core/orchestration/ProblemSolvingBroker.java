@@ -5,13 +5,13 @@ import android.util.Log;
 
 import com.aiassistant.services.GroqApiService;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ProblemSolvingBroker {
     private static final String TAG = "ProblemSolvingBroker";
@@ -19,45 +19,127 @@ public class ProblemSolvingBroker {
     private final Context context;
     private final GroqApiService groqApiService;
     private final Map<String, ProblemTicket> tickets;
-    private final ExecutorService executorService;
-    private final Semaphore rateLimiter;
+    private final Map<String, ProblemTicket> openTickets;
+    private final Map<String, List<ProblemTicket>> ticketsByComponent;
+    
+    // Queued tickets per problem (remedy) type; guarded by this
+    private final Map<String, RemedyLane> lanes;
+    private final Map<String, Integer> laneLimits;
+    private long nextSequence;
+    private int running;
+    private boolean isShutdown;
     
     private static final int MAX_CONCURRENT_REQUESTS = 3;
+    private static final int MAX_CONCURRENT_PER_TYPE = 2;
+    
+    // A queued ticket gains one priority level per interval waited, so low
+    // priority work still gets served under sustained load
+    private static final long PRIORITY_AGING_MS = 30000;
     
     public ProblemSolvingBroker(Context context) {
         this.context = context.getApplicationContext();
         this.groqApiService = GroqApiService.getInstance(context);
         this.tickets = new ConcurrentHashMap<>();
-        this.executorService = Executors.newCachedThreadPool();
-        this.rateLimiter = new Semaphore(MAX_CONCURRENT_REQUESTS);
+        this.openTickets = new ConcurrentHashMap<>();
+        this.ticketsByComponent = new ConcurrentHashMap<>();
+        this.lanes = new HashMap<>();
+        this.laneLimits = new HashMap<>();
     }
     
     public void submitProblem(ProblemTicket ticket) {
         tickets.put(ticket.getTicketId(), ticket);
+        openTickets.put(ticket.getTicketId(), ticket);
+        ticketsByComponent.computeIfAbsent(ticket.getComponentId(), k -> new CopyOnWriteArrayList<>()).add(ticket);
         ticket.setStatus(ProblemTicket.TicketStatus.IN_PROGRESS);
         
         Log.i(TAG, "Problem ticket submitted: " + ticket.getTicketId() + 
               " for component " + ticket.getComponentId());
         
-        executorService.execute(() -> solveProblem(ticket));
+        synchronized (this) {
+            if (isShutdown) {
+                return;
+            }
+            lanes.computeIfAbsent(laneOf(ticket), RemedyLane::new)
+                 .enqueue(new QueuedTicket(ticket, nextSequence++));
+        }
+        dispatch();
+    }
+    
+    /**
+     * Limit how many tickets of one problem type are solved at once
+     */
+    public synchronized void setRemedyConcurrency(String problemType, int maxConcurrent) {
+        laneLimits.put(problemType, Math.max(1, maxConcurrent));
+    }
+    
+    /**
+     * Start queued tickets while global and per-type slots are free. Each
+     * pick takes the head with the highest aged priority across the types
+     * that have room, oldest first on ties, so no type or priority starves.
+     */
+    private void dispatch() {
+        while (true) {
+            QueuedTicket next;
+            synchronized (this) {
+                if (isShutdown || running >= MAX_CONCURRENT_REQUESTS) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                RemedyLane bestLane = null;
+                QueuedTicket best = null;
+                long bestRank = Long.MIN_VALUE;
+                for (RemedyLane lane : lanes.values()) {
+                    if (lane.running >= laneLimit(lane.type)) {
+                        continue;
+                    }
+                    for (ArrayDeque<QueuedTicket> queue : lane.queues) {
+                        QueuedTicket head = queue.peekFirst();
+                        if (head == null) {
+                            continue;
+                        }
+                        long rank = head.priority + (now - head.enqueuedAt) / PRIORITY_AGING_MS;
+                        if (best == null || rank > bestRank || (rank == bestRank && head.sequence < best.sequence)) {
+                            bestLane = lane;
+                            best = head;
+                            bestRank = rank;
+                        }
+                    }
+                }
+                if (best == null) {
+                    return;
+                }
+                bestLane.queues[best.priority].pollFirst();
+                bestLane.running++;
+                running++;
+                next = best;
+            }
+            solveProblem(next.ticket);
+        }
+    }
+    
+    private void onTicketFinished(ProblemTicket ticket) {
+        openTickets.remove(ticket.getTicketId());
+        synchronized (this) {
+            RemedyLane lane = lanes.get(laneOf(ticket));
+            if (lane != null) {
+                lane.running--;
+            }
+            running--;
+        }
+        dispatch();
     }
     
     private void solveProblem(ProblemTicket ticket) {
+        String prompt = buildProblemPrompt(ticket);
+        
         try {
-            if (!rateLimiter.tryAcquire()) {
-                Log.w(TAG, "Rate limit reached, queuing ticket: " + ticket.getTicketId());
-                rateLimiter.acquire();
-            }
-            
-            String prompt = buildProblemPrompt(ticket);
-            
             groqApiService.chatCompletion(prompt, new GroqApiService.ChatCompletionCallback() {
                 @Override
                 public void onSuccess(String response) {
                     try {
                         handleSolution(ticket, response);
                     } finally {
-                        rateLimiter.release();
+                        onTicketFinished(ticket);
                     }
                 }
                 
@@ -66,19 +148,26 @@ public class ProblemSolvingBroker {
                     try {
                         handleError(ticket, error);
                     } finally {
-                        rateLimiter.release();
+                        onTicketFinished(ticket);
                     }
                 }
             });
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            Log.e(TAG, "Interrupted while waiting for rate limiter", e);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to start solving ticket " + ticket.getTicketId(), e);
             ticket.setStatus(ProblemTicket.TicketStatus.FAILED);
-            rateLimiter.release();
+            onTicketFinished(ticket);
         }
     }
     
+    private int laneLimit(String type) {
+        Integer limit = laneLimits.get(type);
+        return limit != null ? limit : MAX_CONCURRENT_PER_TYPE;
+    }
+    
+    private static String laneOf(ProblemTicket ticket) {
+        return ticket.getProblemType() != null ? ticket.getProblemType() : "unknown";
+    }
+    
     private String buildProblemPrompt(ProblemTicket ticket) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("You are an expert AI system troubleshooter. ");
@@ -148,27 +237,81 @@ public class ProblemSolvingBroker {
     }
     
     public List<ProblemTicket> getTicketsByComponent(String componentId) {
-        List<ProblemTicket> result = new ArrayList<>();
-        for (ProblemTicket ticket : tickets.values()) {
-            if (ticket.getComponentId().equals(componentId)) {
-                result.add(ticket);
-            }
-        }
-        return result;
+        List<ProblemTicket> result = ticketsByComponent.get(componentId);
+        return result != null ? new ArrayList<>(result) : new ArrayList<>();
     }
     
     public List<ProblemTicket> getOpenTickets() {
-        List<ProblemTicket> result = new ArrayList<>();
-        for (ProblemTicket ticket : tickets.values()) {
-            if (ticket.getStatus() == ProblemTicket.TicketStatus.OPEN ||
-                ticket.getStatus() == ProblemTicket.TicketStatus.IN_PROGRESS) {
-                result.add(ticket);
+        return new ArrayList<>(openTickets.values());
+    }
+    
+    /**
+     * @return Queued and running ticket counts per problem type
+     */
+    public synchronized Map<String, Map<String, Integer>> getQueueStats() {
+        Map<String, Map<String, Integer>> stats = new HashMap<>();
+        for (RemedyLane lane : lanes.values()) {
+            int queued = 0;
+            for (ArrayDeque<QueuedTicket> queue : lane.queues) {
+                queued += queue.size();
             }
+            Map<String, Integer> laneStats = new HashMap<>();
+            laneStats.put("queued", queued);
+            laneStats.put("running", lane.running);
+            laneStats.put("limit", laneLimit(lane.type));
+            stats.put(lane.type, laneStats);
         }
-        return result;
+        return stats;
     }
     
     public void shutdown() {
-        executorService.shutdown();
+        synchronized (this) {
+            isShutdown = true;
+            for (RemedyLane lane : lanes.values()) {
+                for (ArrayDeque<QueuedTicket> queue : lane.queues) {
+                    for (QueuedTicket queued : queue) {
+                        queued.ticket.setStatus(ProblemTicket.TicketStatus.OPEN);
+                    }
+                    queue.clear();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Tickets of one problem type: a FIFO per priority level and the
+     * number being solved
+     */
+    private static class RemedyLane {
+        final String type;
+        final ArrayDeque<QueuedTicket>[] queues;
+        int running;
+        
+        @SuppressWarnings("unchecked")
+        RemedyLane(String type) {
+            this.type = type;
+            this.queues = new ArrayDeque[ProblemTicket.PRIORITY_HIGH + 1];
+            for (int i = 0; i < queues.length; i++) {
+                queues[i] = new ArrayDeque<>();
+            }
+        }
+        
+        void enqueue(QueuedTicket queued) {
+            queues[queued.priority].addLast(queued);
+        }
+    }
+    
+    private static class QueuedTicket {
+        final ProblemTicket ticket;
+        final long sequence;
+        final int priority;
+        final long enqueuedAt;
+        
+        QueuedTicket(ProblemTicket ticket, long sequence) {
+            this.ticket = ticket;
+            this.sequence = sequence;
+            this.priority = ticket.getPriority();
+            this.enqueuedAt = System.currentTimeMillis();
+        }
     }
 }
@@ -6,6 +6,10 @@ import java.util.List;
 import java.util.Map;
 
 public class ProblemTicket {
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_HIGH = 2;
+    
     private final String ticketId;
     private final String componentId;
     private final String problemType;
@@ -14,6 +18,7 @@ public class ProblemTicket {
     private final Map<String, Object> context;
     private final List<String> attemptedRemedies;
     
+    private volatile int priority;
     private TicketStatus status;
     private String resolution;
     private long resolvedTime;
@@ -28,6 +33,7 @@ public class ProblemTicket {
         this.context = context != null ? new HashMap<>(context) : new HashMap<>();
         this.attemptedRemedies = new ArrayList<>();
         this.status = TicketStatus.OPEN;
+        this.priority = "CRITICAL".equals(this.context.get("severity")) ? PRIORITY_HIGH : PRIORITY_NORMAL;
     }
     
     private String generateTicketId() {
@@ -39,6 +45,17 @@ public class ProblemTicket {
         attemptedRemedies.add(remedy);
     }
     
+    /**
+     * @param priority PRIORITY_LOW to PRIORITY_HIGH; the broker serves higher first
+     */
+    public void setPriority(int priority) {
+        this.priority = Math.max(PRIORITY_LOW, Math.min(PRIORITY_HIGH, priority));
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
     public void setStatus(TicketStatus status) {
         this.status = status;
     }
@@ -6,6 +6,8 @@ import com.aiassistant.core.ai.actions.AIAction;
 import com.aiassistant.data.models.GameState;
 import com.aiassistant.data.models.UIElement;
 import com.aiassistant.learning.ReinforcementLearner.LearningAlgorithm;
+import com.aiassistant.learning.models.ExperienceReplay;
+import com.aiassistant.learning.models.PrioritizedExperienceReplay;
 
 import org.tensorflow.lite.Interpreter;
 
@@ -17,7 +19,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,8 +50,9 @@ public class DQNAgent implements LearningAlgorithm {
     private Interpreter targetInterpreter;
     
     // Memory replay buffer
-    private List<Experience> replayBuffer;
+    private ExperienceReplay replayBuffer;
     private int maxReplayBufferSize = 10000;
+    private boolean usePrioritizedReplay = false;
     
     // Action mapping
     private Map<Integer, AIAction.ActionType> actionMapping = new HashMap<>();
@@ -64,7 +66,7 @@ public class DQNAgent implements LearningAlgorithm {
      */
     public DQNAgent() {
         this.random = new Random();
-        this.replayBuffer = new ArrayList<>();
+        this.replayBuffer = createReplayBuffer();
         initializeActionMapping();
     }
     
@@ -79,6 +81,40 @@ public class DQNAgent implements LearningAlgorithm {
         actionMapping.put(4, AIAction.ActionType.CANCEL);
     }
     
+    /**
+     * Create the replay buffer for the configured sampling mode
+     * 
+     * @return The replay buffer
+     */
+    private ExperienceReplay createReplayBuffer() {
+        if (usePrioritizedReplay) {
+            return new PrioritizedExperienceReplay(maxReplayBufferSize, INPUT_SIZE);
+        }
+        return new ExperienceReplay(maxReplayBufferSize, INPUT_SIZE);
+    }
+    
+    /**
+     * Enable or disable prioritized experience replay.
+     * Switching modes discards the experiences collected so far.
+     * 
+     * @param enabled True to sample by TD-error priority, false for uniform sampling
+     */
+    public void setUsePrioritizedReplay(boolean enabled) {
+        if (enabled != usePrioritizedReplay) {
+            usePrioritizedReplay = enabled;
+            replayBuffer = createReplayBuffer();
+        }
+    }
+    
+    /**
+     * Check whether prioritized experience replay is enabled
+     * 
+     * @return True if sampling is prioritized
+     */
+    public boolean isUsingPrioritizedReplay() {
+        return usePrioritizedReplay;
+    }
+    
     @Override
     public void initialize() {
         createModel();
@@ -174,8 +210,7 @@ public class DQNAgent implements LearningAlgorithm {
         float[] nextStateVector = nextState != null ? nextState.toFeatureVector() : new float[INPUT_SIZE];
         
         // Add experience to replay buffer
-        Experience experience = new Experience(stateVector, actionIndex, reward, nextStateVector, done);
-        addExperience(experience);
+        replayBuffer.add(stateVector, actionIndex, reward, nextStateVector, done);
         
         // Increment step counter
         steps++;
@@ -191,18 +226,6 @@ public class DQNAgent implements LearningAlgorithm {
         }
     }
     
-    /**
-     * Add experience to replay buffer
-     * 
-     * @param experience The experience
-     */
-    private void addExperience(Experience experience) {
-        replayBuffer.add(experience);
-        if (replayBuffer.size() > maxReplayBufferSize) {
-            replayBuffer.remove(0);
-        }
-    }
-    
     /**
      * Train the model
      */
@@ -212,11 +235,14 @@ public class DQNAgent implements LearningAlgorithm {
         }
         
         // Sample batch from replay buffer
-        List<Experience> batch = sampleBatch();
+        ExperienceReplay.Batch batch = sampleBatch();
         
-        // In a real implementation, this would train the model using TensorFlow Lite
-        // For this implementation, we'll just log the action
-        Log.d(TAG, "Training DQN model with batch size " + batch.size());
+        // In a real implementation, this would train the model using TensorFlow Lite,
+        // scaling each sample's loss by its importance-sampling weight, and pass the
+        // resulting TD errors to replayBuffer.updatePriorities(). predict() returns
+        // random values, so priorities are left unchanged until a real Q-network
+        // exists; new transitions still enter at the maximum priority.
+        Log.d(TAG, "Training DQN model with batch size " + batch.size);
     }
     
     /**
@@ -224,13 +250,8 @@ public class DQNAgent implements LearningAlgorithm {
      * 
      * @return The batch
      */
-    private List<Experience> sampleBatch() {
-        List<Experience> batch = new ArrayList<>();
-        for (int i = 0; i < batchSize; i++) {
-            int index = random.nextInt(replayBuffer.size());
-            batch.add(replayBuffer.get(index));
-        }
-        return batch;
+    private ExperienceReplay.Batch sampleBatch() {
+        return replayBuffer.sample(batchSize);
     }
     
     /**
@@ -361,32 +382,4 @@ public class DQNAgent implements LearningAlgorithm {
         // For this implementation, we'll return a placeholder
         return new float[100];
     }
-    
-    /**
-     * Experience class for replay buffer
-     */
-    private static class Experience {
-        float[] state;
-        int action;
-        float reward;
-        float[] nextState;
-        boolean done;
-        
-        /**
-         * Constructor
-         * 
-         * @param state The state
-         * @param action The action
-         * @param reward The reward
-         * @param nextState The next state
-         * @param done Whether the experience is terminal
-         */
-        public Experience(float[] state, int action, float reward, float[] nextState, boolean done) {
-            this.state = state;
-            this.action = action;
-            this.reward = reward;
-            this.nextState = nextState;
-            this.done = done;
-        }
-    }
 }
@@ -3,6 +3,7 @@ package com.aiassistant.learning.memory;
 import android.content.Context;
 import android.util.Log;
 
+import com.aiassistant.core.memory.InvertedIndex;
 import com.aiassistant.security.AccessControl;
 
 import java.io.File;
@@ -35,6 +36,9 @@ public class MemoryStorage {
     // Memory indexing for faster retrieval
     private final Map<String, MemoryItem> memoryById;
     
+    // Full-text index over memory content, keyed by memory ID
+    private final InvertedIndex contentIndex;
+    
     // Thread safety
     private final ReadWriteLock memoryLock = new ReentrantReadWriteLock();
     
@@ -52,6 +56,7 @@ public class MemoryStorage {
         this.accessControl = accessControl;
         this.memoryByDomain = new ConcurrentHashMap<>();
         this.memoryById = new ConcurrentHashMap<>();
+        this.contentIndex = new InvertedIndex();
         
         // Load saved memories
         loadMemories();
@@ -82,8 +87,9 @@ public class MemoryStorage {
                     item.getDomainId(), k -> new ArrayList<>());
             domainMemories.add(item);
             
-            // Add to ID index
+            // Add to ID and content indexes
             memoryById.put(item.getId(), item);
+            contentIndex.add(item.getId(), item.getContent());
             
             // Update statistics
             totalMemoryItems++;
@@ -150,9 +156,10 @@ public class MemoryStorage {
     
     /**
      * Search memories using text query
+     * Results are ranked by BM25 relevance of their content to the query
      * @param query Search query
-     * @param maxResults Maximum number of results to return
-     * @return List of matching memory items
+     * @param maxResults Maximum number of results to return (0 or less for all matches)
+     * @return List of matching memory items, most relevant first
      */
     public List<MemoryItem> searchMemories(String query, int maxResults) {
         // Verify security permissions
@@ -166,31 +173,16 @@ public class MemoryStorage {
             return Collections.emptyList();
         }
         
-        // Normalize query
-        String normalizedQuery = query.toLowerCase().trim();
-        
-        try {
-            memoryLock.readLock().lock();
-            
-            // Search across all domains
-            List<MemoryItem> results = new ArrayList<>();
-            
-            for (List<MemoryItem> domainMemories : memoryByDomain.values()) {
-                for (MemoryItem item : domainMemories) {
-                    if (item.getContent().toLowerCase().contains(normalizedQuery)) {
-                        results.add(item);
-                        
-                        if (maxResults > 0 && results.size() >= maxResults) {
-                            return results;
-                        }
-                    }
-                }
+        // The index has its own lock, so the search does not block writers
+        List<MemoryItem> results = new ArrayList<>();
+        for (String memoryId : contentIndex.search(query, maxResults)) {
+            MemoryItem item = memoryById.get(memoryId);
+            if (item != null) {
+                results.add(item);
             }
-            
-            return results;
-        } finally {
-            memoryLock.readLock().unlock();
         }
+        
+        return results;
     }
     
     /**
@@ -214,6 +206,7 @@ public class MemoryStorage {
             if (item == null) {
                 return false;
             }
+            contentIndex.remove(memoryId);
             
             // Remove from domain list
             List<MemoryItem> domainMemories = memoryByDomain.get(item.getDomainId());
@@ -334,15 +327,17 @@ public class MemoryStorage {
                 // Clear current memories
                 memoryByDomain.clear();
                 memoryById.clear();
+                contentIndex.clear();
                 
                 // Copy loaded memories
                 for (Map.Entry<String, List<MemoryItem>> entry : loadedMemories.entrySet()) {
                     List<MemoryItem> memoryList = new ArrayList<>(entry.getValue());
                     memoryByDomain.put(entry.getKey(), memoryList);
                     
-                    // Rebuild ID index
+                    // Rebuild ID and content indexes
                     for (MemoryItem item : memoryList) {
                         memoryById.put(item.getId(), item);
+                        contentIndex.add(item.getId(), item.getContent());
                     }
                 }
                 
@@ -357,6 +352,7 @@ public class MemoryStorage {
                 // Reset on error
                 memoryByDomain.clear();
                 memoryById.clear();
+                contentIndex.clear();
                 totalMemoryItems = 0;
             }
             
@@ -1,92 +1,225 @@
 package com.aiassistant.learning.models;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * Experience replay buffer for storing and sampling transitions.
+ *
+ * Transitions are kept in a fixed-capacity circular store backed by contiguous
+ * primitive arrays, so inserting is O(1) and no per-transition objects are
+ * allocated. States and next states are stored row-major in flat float arrays
+ * of length capacity * stateSize.
  */
 public class ExperienceReplay {
     private final int capacity;
-    private final List<Transition> buffer;
+    private int stateSize;
+
+    // Struct-of-arrays storage
+    private float[] states;
+    private float[] nextStates;
+    private final int[] actions;
+    private final float[] rewards;
+    private final boolean[] dones;
+
+    // Ring buffer position
+    private int head;
+    private int size;
+
     private final Random random = new Random();
-    
+
+    // Reusable batch returned by sample(int)
+    private Batch batch;
+
     /**
-     * Constructor
+     * Constructor. The state size is taken from the first transition added.
      * @param capacity Maximum capacity of the buffer
      */
     public ExperienceReplay(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * Constructor
+     * @param capacity Maximum capacity of the buffer
+     * @param stateSize Length of each state vector
+     */
+    public ExperienceReplay(int capacity, int stateSize) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
         this.capacity = capacity;
-        this.buffer = new ArrayList<>(capacity);
+        this.actions = new int[capacity];
+        this.rewards = new float[capacity];
+        this.dones = new boolean[capacity];
+        if (stateSize > 0) {
+            allocateStateStorage(stateSize);
+        }
     }
-    
+
     /**
-     * Add a transition to the buffer
+     * Allocate the flat state arrays
+     * @param stateSize Length of each state vector
+     */
+    private void allocateStateStorage(int stateSize) {
+        this.stateSize = stateSize;
+        this.states = new float[capacity * stateSize];
+        this.nextStates = new float[capacity * stateSize];
+    }
+
+    /**
+     * Add a transition to the buffer, overwriting the oldest one when full
      * @param state Current state
      * @param action Action taken
      * @param reward Reward received
-     * @param nextState Next state
+     * @param nextState Next state (null is stored as zeros)
      * @param done Whether the episode is done
+     * @return Slot index the transition was written to
      */
-    public void add(float[] state, int action, float reward, float[] nextState, boolean done) {
-        // Create transition
-        Transition transition = new Transition(state, action, reward, nextState, done);
-        
-        // Add to buffer
-        if (buffer.size() >= capacity) {
-            // Replace oldest entry if at capacity
-            buffer.remove(0);
+    public int add(float[] state, int action, float reward, float[] nextState, boolean done) {
+        if (states == null) {
+            allocateStateStorage(Math.max(1, state != null ? state.length : 1));
         }
-        buffer.add(transition);
+
+        int slot = head;
+        int offset = slot * stateSize;
+        copyState(state, states, offset);
+        copyState(nextState, nextStates, offset);
+        actions[slot] = action;
+        rewards[slot] = reward;
+        dones[slot] = done;
+
+        head = (head + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+        return slot;
     }
-    
+
     /**
-     * Sample a batch of transitions
+     * Add many transitions at once from row-major arrays, overwriting the oldest
+     * ones when full. If count exceeds the capacity only the last capacity
+     * transitions are kept.
+     * @param states Row-major states, count * stateSize long
+     * @param actions Actions taken
+     * @param rewards Rewards received
+     * @param nextStates Row-major next states, count * stateSize long
+     * @param dones Whether each episode is done
+     * @param count Number of transitions
+     * @param stateSize Length of each state row in the input arrays
+     * @return Slot index the first kept transition was written to
+     */
+    public int addBatch(float[] states, int[] actions, float[] rewards, float[] nextStates,
+                        boolean[] dones, int count, int stateSize) {
+        if (this.states == null) {
+            allocateStateStorage(Math.max(1, stateSize));
+        }
+        if (stateSize != this.stateSize) {
+            throw new IllegalArgumentException("State size " + stateSize + " does not match buffer state size "
+                    + this.stateSize);
+        }
+
+        int skip = Math.max(0, count - capacity);
+        int first = head;
+        int row = skip;
+        while (row < count) {
+            // Copy the longest run that does not wrap past the end of the ring
+            int run = Math.min(count - row, capacity - head);
+            System.arraycopy(states, row * stateSize, this.states, head * stateSize, run * stateSize);
+            System.arraycopy(nextStates, row * stateSize, this.nextStates, head * stateSize, run * stateSize);
+            System.arraycopy(actions, row, this.actions, head, run);
+            System.arraycopy(rewards, row, this.rewards, head, run);
+            System.arraycopy(dones, row, this.dones, head, run);
+            row += run;
+            head = (head + run) % capacity;
+        }
+        size = Math.min(capacity, size + count - skip);
+        return first;
+    }
+
+    /**
+     * Copy a state vector into flat storage, truncating or zero-padding to stateSize
+     */
+    private void copyState(float[] source, float[] target, int offset) {
+        int length = source != null ? Math.min(source.length, stateSize) : 0;
+        if (length > 0) {
+            System.arraycopy(source, 0, target, offset, length);
+        }
+        if (length < stateSize) {
+            Arrays.fill(target, offset + length, offset + stateSize, 0.0f);
+        }
+    }
+
+    /**
+     * Sample a batch of transitions uniformly with replacement.
+     * The returned batch is owned by this buffer and is overwritten by the next call.
      * @param batchSize Size of batch to sample
      * @return Batch of transitions
      */
     public Batch sample(int batchSize) {
-        // Ensure we have enough samples
-        int actualBatchSize = Math.min(batchSize, buffer.size());
-        
-        // Batch arrays
-        float[][] states = new float[actualBatchSize][];
-        int[] actions = new int[actualBatchSize];
-        float[] rewards = new float[actualBatchSize];
-        float[][] nextStates = new float[actualBatchSize][];
-        boolean[] dones = new boolean[actualBatchSize];
-        
-        // Randomly sample transitions
+        if (batch == null || batch.maxSize < batchSize || batch.stateSize != stateSize) {
+            batch = new Batch(batchSize, stateSize);
+        }
+        sample(batchSize, batch);
+        return batch;
+    }
+
+    /**
+     * Sample a batch of transitions uniformly with replacement into a caller-owned batch
+     * @param batchSize Size of batch to sample
+     * @param out Batch to fill; must have room for batchSize transitions
+     */
+    public void sample(int batchSize, Batch out) {
+        int actualBatchSize = Math.min(Math.min(batchSize, size), out.maxSize);
         for (int i = 0; i < actualBatchSize; i++) {
-            int index = random.nextInt(buffer.size());
-            Transition transition = buffer.get(index);
-            
-            states[i] = transition.state;
-            actions[i] = transition.action;
-            rewards[i] = transition.reward;
-            nextStates[i] = transition.nextState;
-            dones[i] = transition.done;
+            copyToBatch(random.nextInt(size), out, i);
         }
-        
-        return new Batch(states, actions, rewards, nextStates, dones, actualBatchSize);
+        out.size = actualBatchSize;
     }
-    
+
+    /**
+     * Copy the transition in a slot into a batch row
+     * @param slot Slot index in this buffer
+     * @param out Batch to fill
+     * @param row Row in the batch
+     */
+    protected void copyToBatch(int slot, Batch out, int row) {
+        System.arraycopy(states, slot * stateSize, out.states, row * stateSize, stateSize);
+        System.arraycopy(nextStates, slot * stateSize, out.nextStates, row * stateSize, stateSize);
+        out.actions[row] = actions[slot];
+        out.rewards[row] = rewards[slot];
+        out.dones[row] = dones[slot];
+        out.indices[row] = slot;
+        out.weights[row] = 1.0f;
+    }
+
+    /**
+     * Update the priorities of sampled transitions from their TD errors.
+     * Uniform replay ignores priorities; see {@link PrioritizedExperienceReplay}.
+     * @param indices Slot indices from {@link Batch#indices}
+     * @param tdErrors TD error per sampled transition
+     * @param count Number of entries to update
+     */
+    public void updatePriorities(int[] indices, float[] tdErrors, int count) {
+        // No-op for uniform sampling
+    }
+
     /**
      * Get the current size of the buffer
      * @return Buffer size
      */
     public int size() {
-        return buffer.size();
+        return size;
     }
-    
+
     /**
      * Clear the buffer
      */
     public void clear() {
-        buffer.clear();
+        head = 0;
+        size = 0;
     }
-    
+
     /**
      * Get the capacity of the buffer
      * @return Buffer capacity
@@ -94,61 +227,68 @@ public class ExperienceReplay {
     public int getCapacity() {
         return capacity;
     }
-    
+
     /**
-     * Class representing a single transition
+     * Get the length of each stored state vector
+     * @return State size, or 0 if nothing has been added yet
      */
-    public static class Transition {
-        public final float[] state;
-        public final int action;
-        public final float reward;
-        public final float[] nextState;
-        public final boolean done;
-        
-        /**
-         * Constructor
-         * @param state Current state
-         * @param action Action taken
-         * @param reward Reward received
-         * @param nextState Next state
-         * @param done Whether the episode is done
-         */
-        public Transition(float[] state, int action, float reward, float[] nextState, boolean done) {
-            this.state = state;
-            this.action = action;
-            this.reward = reward;
-            this.nextState = nextState;
-            this.done = done;
-        }
+    public int getStateSize() {
+        return stateSize;
     }
-    
+
     /**
-     * Class representing a batch of transitions
+     * Class representing a batch of transitions.
+     *
+     * States are stored row-major: row i occupies [i * stateSize, (i + 1) * stateSize).
+     * Batches are preallocated and refilled in place by the sampler. The weights
+     * hold importance-sampling corrections (all 1 for uniform sampling).
      */
     public static class Batch {
-        public final float[][] states;
+        public final float[] states;
         public final int[] actions;
         public final float[] rewards;
-        public final float[][] nextStates;
+        public final float[] nextStates;
         public final boolean[] dones;
-        public final int size;
-        
+        public final int[] indices;
+        public final float[] weights;
+        public final int maxSize;
+        public final int stateSize;
+        public int size;
+
         /**
          * Constructor
-         * @param states Array of states
-         * @param actions Array of actions
-         * @param rewards Array of rewards
-         * @param nextStates Array of next states
-         * @param dones Array of done flags
-         * @param size Batch size
+         * @param maxSize Maximum number of transitions in the batch
+         * @param stateSize Length of each state vector
+         */
+        public Batch(int maxSize, int stateSize) {
+            this.maxSize = maxSize;
+            this.stateSize = stateSize;
+            this.states = new float[maxSize * stateSize];
+            this.actions = new int[maxSize];
+            this.rewards = new float[maxSize];
+            this.nextStates = new float[maxSize * stateSize];
+            this.dones = new boolean[maxSize];
+            this.indices = new int[maxSize];
+            this.weights = new float[maxSize];
+            Arrays.fill(weights, 1.0f);
+        }
+
+        /**
+         * Copy the state of a batch row into an array
+         * @param row Row in the batch
+         * @param out Array of at least stateSize elements
+         */
+        public void getState(int row, float[] out) {
+            System.arraycopy(states, row * stateSize, out, 0, stateSize);
+        }
+
+        /**
+         * Copy the next state of a batch row into an array
+         * @param row Row in the batch
+         * @param out Array of at least stateSize elements
          */
-        public Batch(float[][] states, int[] actions, float[] rewards, float[][] nextStates, boolean[] dones, int size) {
-            this.states = states;
-            this.actions = actions;
-            this.rewards = rewards;
-            this.nextStates = nextStates;
-            this.dones = dones;
-            this.size = size;
+        public void getNextState(int row, float[] out) {
+            System.arraycopy(nextStates, row * stateSize, out, 0, stateSize);
         }
     }
-}
\ No newline at end of file
+}
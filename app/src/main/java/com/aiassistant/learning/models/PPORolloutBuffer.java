@@ -0,0 +1,320 @@
+package com.aiassistant.learning.models;
+
+import java.util.Random;
+
+/**
+ * On-policy rollout storage for PPO.
+ *
+ * Steps from numEnvs environments are stored time-major in flat primitive
+ * arrays: the transition of environment e at step t lives at row
+ * t * numEnvs + e, and states are row-major with stateSize floats per row.
+ * Advantages are computed by one reverse pass of Generalized Advantage
+ * Estimation per environment column. Episodes that reach a terminal state
+ * bootstrap from zero; episodes cut off by a step limit (truncated) bootstrap
+ * from the value of their own final state, and in both cases the advantage
+ * does not carry over into the next episode. Minibatches are drawn through a shuffled
+ * index permutation, so epochs reuse the same storage without copying rows.
+ */
+public class PPORolloutBuffer {
+    private final int numSteps;
+    private final int numEnvs;
+    private final int stateSize;
+    private final int capacity;
+
+    // Struct-of-arrays storage
+    private final float[] states;
+    private final int[] actions;
+    private final float[] logProbs;
+    private final float[] values;
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final boolean[] truncated;
+    private final float[] finalValues;
+    private final float[] advantages;
+    private final float[] returns;
+
+    // Minibatch order and per-environment GAE accumulator
+    private final int[] permutation;
+    private final float[] runningAdvantage;
+
+    private int size;
+
+    /**
+     * Constructor
+     * @param numSteps Steps per environment the buffer holds
+     * @param numEnvs Number of environments stepped together
+     * @param stateSize Length of each state vector
+     */
+    public PPORolloutBuffer(int numSteps, int numEnvs, int stateSize) {
+        if (numSteps <= 0 || numEnvs <= 0 || stateSize <= 0) {
+            throw new IllegalArgumentException("Rollout buffer dimensions must be positive");
+        }
+        this.numSteps = numSteps;
+        this.numEnvs = numEnvs;
+        this.stateSize = stateSize;
+        this.capacity = numSteps * numEnvs;
+        this.states = new float[capacity * stateSize];
+        this.actions = new int[capacity];
+        this.logProbs = new float[capacity];
+        this.values = new float[capacity];
+        this.rewards = new float[capacity];
+        this.dones = new boolean[capacity];
+        this.truncated = new boolean[capacity];
+        this.finalValues = new float[capacity];
+        this.advantages = new float[capacity];
+        this.returns = new float[capacity];
+        this.permutation = new int[capacity];
+        this.runningAdvantage = new float[numEnvs];
+    }
+
+    /**
+     * Add one transition (single-environment buffers only)
+     * @param state State the action was taken in (truncated or zero-padded to stateSize)
+     * @param action Action taken
+     * @param logProb Log-probability of the action under the behaviour policy
+     * @param value Critic value of the state
+     * @param reward Reward received
+     * @param done Whether the episode reached a terminal state after this step
+     */
+    public void add(float[] state, int action, float logProb, float value, float reward, boolean done) {
+        if (numEnvs != 1) {
+            throw new IllegalStateException("add() requires a single-environment buffer; use addStep()");
+        }
+        if (isFull()) {
+            throw new IllegalStateException("Rollout buffer is full");
+        }
+        int row = size;
+        int offset = row * stateSize;
+        int length = state != null ? Math.min(state.length, stateSize) : 0;
+        if (length > 0) {
+            System.arraycopy(state, 0, states, offset, length);
+        }
+        for (int i = length; i < stateSize; i++) {
+            states[offset + i] = 0.0f;
+        }
+        actions[row] = action;
+        logProbs[row] = logProb;
+        values[row] = value;
+        rewards[row] = reward;
+        dones[row] = done;
+        truncated[row] = false;
+        size++;
+    }
+
+    /**
+     * Add one lockstep of all environments
+     * @param states Row-major states, numEnvs * stateSize long
+     * @param actions Action per environment
+     * @param logProbs Behaviour log-probability per environment
+     * @param values Critic value per environment
+     * @param rewards Reward per environment
+     * @param dones Terminal state flag per environment
+     */
+    public void addStep(float[] states, int[] actions, float[] logProbs, float[] values,
+                        float[] rewards, boolean[] dones) {
+        addStep(states, actions, logProbs, values, rewards, dones, null, null);
+    }
+
+    /**
+     * Add one lockstep of all environments, some of which may have been
+     * truncated by a step limit
+     * @param states Row-major states, numEnvs * stateSize long
+     * @param actions Action per environment
+     * @param logProbs Behaviour log-probability per environment
+     * @param values Critic value per environment
+     * @param rewards Reward per environment
+     * @param dones Terminal state flag per environment
+     * @param truncated Step-limit flag per environment (null if none)
+     * @param finalValues Critic value of the state each truncated episode
+     *                    ended in (read only where truncated)
+     */
+    public void addStep(float[] states, int[] actions, float[] logProbs, float[] values,
+                        float[] rewards, boolean[] dones, boolean[] truncated, float[] finalValues) {
+        if (isFull()) {
+            throw new IllegalStateException("Rollout buffer is full");
+        }
+        int row = size;
+        System.arraycopy(states, 0, this.states, row * stateSize, numEnvs * stateSize);
+        System.arraycopy(actions, 0, this.actions, row, numEnvs);
+        System.arraycopy(logProbs, 0, this.logProbs, row, numEnvs);
+        System.arraycopy(values, 0, this.values, row, numEnvs);
+        System.arraycopy(rewards, 0, this.rewards, row, numEnvs);
+        System.arraycopy(dones, 0, this.dones, row, numEnvs);
+        for (int e = 0; e < numEnvs; e++) {
+            boolean cut = truncated != null && truncated[e] && !dones[e];
+            this.truncated[row + e] = cut;
+            this.finalValues[row + e] = cut ? finalValues[e] : 0.0f;
+        }
+        size += numEnvs;
+    }
+
+    /**
+     * Compute GAE advantages and discounted returns in one reverse pass
+     * @param lastValues Critic value of the state following the last stored step,
+     *                   per environment (ignored where that step ended or
+     *                   truncated the episode)
+     * @param gamma Discount factor
+     * @param lambda GAE smoothing parameter
+     */
+    public void computeAdvantages(float[] lastValues, float gamma, float lambda) {
+        int steps = size / numEnvs;
+        for (int e = 0; e < numEnvs; e++) {
+            runningAdvantage[e] = 0.0f;
+        }
+        for (int t = steps - 1; t >= 0; t--) {
+            int rowBase = t * numEnvs;
+            for (int e = 0; e < numEnvs; e++) {
+                int row = rowBase + e;
+                float nextValue;
+                float carry;
+                if (dones[row]) {
+                    nextValue = 0.0f;
+                    carry = 0.0f;
+                } else if (truncated[row]) {
+                    // The following row belongs to the next episode
+                    nextValue = finalValues[row];
+                    carry = 0.0f;
+                } else {
+                    nextValue = (t == steps - 1) ? lastValues[e] : values[row + numEnvs];
+                    carry = runningAdvantage[e];
+                }
+                float delta = rewards[row] + gamma * nextValue - values[row];
+                float advantage = delta + gamma * lambda * carry;
+                runningAdvantage[e] = advantage;
+                advantages[row] = advantage;
+                returns[row] = advantage + values[row];
+            }
+        }
+    }
+
+    /**
+     * Shift and scale the advantages to zero mean and unit variance
+     */
+    public void normalizeAdvantages() {
+        if (size < 2) {
+            return;
+        }
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            sum += advantages[i];
+        }
+        float mean = (float) (sum / size);
+        double squares = 0.0;
+        for (int i = 0; i < size; i++) {
+            float centered = advantages[i] - mean;
+            squares += centered * centered;
+        }
+        float inverseStd = (float) (1.0 / (Math.sqrt(squares / size) + 1e-8));
+        for (int i = 0; i < size; i++) {
+            advantages[i] = (advantages[i] - mean) * inverseStd;
+        }
+    }
+
+    /**
+     * Reshuffle the minibatch order (Fisher-Yates over row indices)
+     * @param random Random source
+     */
+    public void shuffle(Random random) {
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+    }
+
+    /**
+     * Copy the states of a minibatch, in permutation order, into a row-major array
+     * @param start First position in the permutation
+     * @param count Number of rows
+     * @param out Array of at least count * stateSize elements
+     */
+    public void gatherStates(int start, int count, float[] out) {
+        for (int r = 0; r < count; r++) {
+            System.arraycopy(states, permutation[start + r] * stateSize, out, r * stateSize, stateSize);
+        }
+    }
+
+    /**
+     * Get the stored row at a position of the current permutation
+     * @param position Position in the permutation
+     * @return Row index for the per-row getters
+     */
+    public int rowAt(int position) {
+        return permutation[position];
+    }
+
+    public int getAction(int row) {
+        return actions[row];
+    }
+
+    public float getLogProb(int row) {
+        return logProbs[row];
+    }
+
+    public float getValue(int row) {
+        return values[row];
+    }
+
+    public float getReward(int row) {
+        return rewards[row];
+    }
+
+    public boolean isDone(int row) {
+        return dones[row];
+    }
+
+    public boolean isTruncated(int row) {
+        return truncated[row];
+    }
+
+    public float getAdvantage(int row) {
+        return advantages[row];
+    }
+
+    public float getReturn(int row) {
+        return returns[row];
+    }
+
+    /**
+     * Get the number of stored transitions
+     * @return Buffer size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether every step has been filled
+     * @return True if no more steps fit
+     */
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    /**
+     * Clear the buffer, keeping its storage
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getNumSteps() {
+        return numSteps;
+    }
+
+    public int getNumEnvs() {
+        return numEnvs;
+    }
+
+    public int getStateSize() {
+        return stateSize;
+    }
+}
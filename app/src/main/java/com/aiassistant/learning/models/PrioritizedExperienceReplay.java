@@ -0,0 +1,144 @@
+package com.aiassistant.learning.models;
+
+import java.util.Random;
+
+/**
+ * Prioritized experience replay (proportional variant).
+ *
+ * Transitions are sampled with probability p_i^alpha / sum(p^alpha), where p_i
+ * is the absolute TD error of the transition plus a small epsilon. A {@link SumTree}
+ * over the slot indices gives O(log n) sampling and priority updates. Each sampled
+ * row carries an importance-sampling weight (N * P(i))^-beta normalised by the
+ * largest weight, and beta is annealed linearly towards 1 as sampling proceeds.
+ */
+public class PrioritizedExperienceReplay extends ExperienceReplay {
+    private static final float DEFAULT_ALPHA = 0.6f;
+    private static final float DEFAULT_BETA_START = 0.4f;
+    private static final int DEFAULT_BETA_ANNEALING_STEPS = 100000;
+    private static final float PRIORITY_EPSILON = 1e-6f;
+
+    private final SumTree tree;
+    private final float alpha;
+    private final float betaStart;
+    private final int betaAnnealingSteps;
+    private final Random random = new Random();
+
+    private float maxPriority = 1.0f;
+    private int sampleSteps;
+
+    /**
+     * Constructor with default alpha, beta and annealing schedule
+     * @param capacity Maximum capacity of the buffer
+     * @param stateSize Length of each state vector (0 to infer from the first transition)
+     */
+    public PrioritizedExperienceReplay(int capacity, int stateSize) {
+        this(capacity, stateSize, DEFAULT_ALPHA, DEFAULT_BETA_START, DEFAULT_BETA_ANNEALING_STEPS);
+    }
+
+    /**
+     * Constructor
+     * @param capacity Maximum capacity of the buffer
+     * @param stateSize Length of each state vector (0 to infer from the first transition)
+     * @param alpha How strongly priorities shape sampling (0 = uniform)
+     * @param betaStart Initial importance-sampling exponent
+     * @param betaAnnealingSteps Number of sample() calls over which beta reaches 1
+     */
+    public PrioritizedExperienceReplay(int capacity, int stateSize, float alpha,
+                                       float betaStart, int betaAnnealingSteps) {
+        super(capacity, stateSize);
+        this.tree = new SumTree(capacity);
+        this.alpha = alpha;
+        this.betaStart = betaStart;
+        this.betaAnnealingSteps = Math.max(1, betaAnnealingSteps);
+    }
+
+    @Override
+    public int add(float[] state, int action, float reward, float[] nextState, boolean done) {
+        int slot = super.add(state, action, reward, nextState, done);
+        // New transitions get the highest priority seen so far so they are replayed at least once
+        tree.update(slot, Math.pow(maxPriority, alpha));
+        return slot;
+    }
+
+    @Override
+    public int addBatch(float[] states, int[] actions, float[] rewards, float[] nextStates,
+                        boolean[] dones, int count, int stateSize) {
+        int first = super.addBatch(states, actions, rewards, nextStates, dones, count, stateSize);
+        double priority = Math.pow(maxPriority, alpha);
+        int kept = Math.min(count, getCapacity());
+        for (int i = 0; i < kept; i++) {
+            tree.update((first + i) % getCapacity(), priority);
+        }
+        return first;
+    }
+
+    @Override
+    public void sample(int batchSize, Batch out) {
+        int actualBatchSize = Math.min(Math.min(batchSize, size()), out.maxSize);
+        out.size = actualBatchSize;
+        if (actualBatchSize == 0) {
+            return;
+        }
+
+        float beta = getBeta();
+        sampleSteps++;
+
+        double total = tree.total();
+        int count = size();
+        double segment = total / actualBatchSize;
+
+        // Largest possible weight comes from the smallest priority
+        double minProbability = tree.min() / total;
+        double maxWeight = Math.pow(count * minProbability, -beta);
+
+        for (int i = 0; i < actualBatchSize; i++) {
+            // Stratified sampling: one draw from each equal-mass segment
+            double target = (i + random.nextDouble()) * segment;
+            int slot = tree.find(target);
+            if (slot >= count) {
+                slot = count - 1;
+            }
+
+            copyToBatch(slot, out, i);
+
+            double probability = tree.get(slot) / total;
+            out.weights[i] = (float) (Math.pow(count * probability, -beta) / maxWeight);
+        }
+    }
+
+    @Override
+    public void updatePriorities(int[] indices, float[] tdErrors, int count) {
+        for (int i = 0; i < count; i++) {
+            float priority = Math.abs(tdErrors[i]) + PRIORITY_EPSILON;
+            if (priority > maxPriority) {
+                maxPriority = priority;
+            }
+            tree.update(indices[i], Math.pow(priority, alpha));
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        tree.clear();
+        maxPriority = 1.0f;
+        sampleSteps = 0;
+    }
+
+    /**
+     * Get the current importance-sampling exponent
+     * @return Beta in [betaStart, 1]
+     */
+    public float getBeta() {
+        float progress = Math.min(1.0f, (float) sampleSteps / betaAnnealingSteps);
+        return betaStart + (1.0f - betaStart) * progress;
+    }
+
+    /**
+     * Get the priority exponent
+     * @return Alpha
+     */
+    public float getAlpha() {
+        return alpha;
+    }
+}
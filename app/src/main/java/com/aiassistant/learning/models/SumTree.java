@@ -0,0 +1,118 @@
+package com.aiassistant.learning.models;
+
+import java.util.Arrays;
+
+/**
+ * Binary segment tree over non-negative priorities.
+ *
+ * Keeps both the sum and the minimum of every subtree so that proportional
+ * sampling (prefix-sum search), priority updates and the global minimum are
+ * all available in O(log n). Leaves are padded up to a power of two; unused
+ * leaves hold priority 0 and are never selected.
+ */
+public class SumTree {
+    private final int capacity;
+    private final int leafCount;
+    private final double[] sums;
+    private final double[] mins;
+
+    /**
+     * Constructor
+     * @param capacity Number of leaves that can hold a priority
+     */
+    public SumTree(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int leaves = 1;
+        while (leaves < capacity) {
+            leaves <<= 1;
+        }
+        this.capacity = capacity;
+        this.leafCount = leaves;
+        this.sums = new double[2 * leaves];
+        this.mins = new double[2 * leaves];
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Set the priority of a leaf
+     * @param index Leaf index in [0, capacity)
+     * @param priority Non-negative priority
+     */
+    public void update(int index, double priority) {
+        if (index < 0 || index >= capacity) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside capacity " + capacity);
+        }
+        int node = index + leafCount;
+        sums[node] = priority;
+        mins[node] = priority;
+        node >>= 1;
+        while (node >= 1) {
+            int left = node << 1;
+            sums[node] = sums[left] + sums[left + 1];
+            mins[node] = Math.min(mins[left], mins[left + 1]);
+            node >>= 1;
+        }
+    }
+
+    /**
+     * Get the priority of a leaf
+     * @param index Leaf index
+     * @return The priority
+     */
+    public double get(int index) {
+        return sums[index + leafCount];
+    }
+
+    /**
+     * Get the sum of all priorities
+     * @return Total priority
+     */
+    public double total() {
+        return sums[1];
+    }
+
+    /**
+     * Get the smallest priority that has been set
+     * @return Minimum priority, or positive infinity if no leaf is set
+     */
+    public double min() {
+        return mins[1];
+    }
+
+    /**
+     * Find the leaf whose cumulative priority range contains a value
+     * @param prefixSum Value in [0, total())
+     * @return Leaf index
+     */
+    public int find(double prefixSum) {
+        int node = 1;
+        while (node < leafCount) {
+            int left = node << 1;
+            if (prefixSum < sums[left] || sums[left + 1] <= 0.0) {
+                node = left;
+            } else {
+                prefixSum -= sums[left];
+                node = left + 1;
+            }
+        }
+        return node - leafCount;
+    }
+
+    /**
+     * Reset all priorities to zero
+     */
+    public void clear() {
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Get the number of leaves that can hold a priority
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,74 @@
+package com.aiassistant.utils;
+
+/**
+ * Frame pixels copied out of a Bitmap once, for analysis with {@link ImageKernels}
+ *
+ * Reading pixels one at a time through Bitmap.getPixel crosses into native
+ * code for every call; analysis code instead takes one getPixels copy per
+ * frame (see {@link BitmapUtils#readPixels}) and works on the array.
+ *
+ * Not thread-safe: the luma plane and region statistics are computed
+ * lazily on first use.
+ */
+public class ArgbImage {
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private byte[] luma;
+    private RegionStats regionStats;
+
+    /**
+     * Constructor
+     * @param pixels ARGB pixels, rows packed without padding (not copied)
+     * @param width Image width
+     * @param height Image height
+     */
+    public ArgbImage(int[] pixels, int width, int height) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel array too small for " + width + "x" + height);
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPixel(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    /**
+     * Get the luma plane, computing it on first use
+     * @return Luma values (0-255), one byte per pixel
+     */
+    public byte[] getLuma() {
+        if (luma == null) {
+            luma = ImageKernels.toLuma(pixels, width, height, null);
+        }
+        return luma;
+    }
+
+    /**
+     * Get region statistics, building them on first use or when a different
+     * cell size is requested
+     * @param cellSize Table resolution in pixels
+     * @return Region statistics for this image
+     */
+    public RegionStats getRegionStats(int cellSize) {
+        if (regionStats == null || regionStats.getCellSize() != Math.max(1, cellSize)) {
+            regionStats = new RegionStats(this, cellSize);
+        }
+        return regionStats;
+    }
+}
@@ -48,6 +48,19 @@ public class BitmapUtils {
         return bitmap;
     }
     
+    /**
+     * Copy all pixels of a bitmap into an array for analysis
+     * @param bitmap Source bitmap
+     * @return Bitmap pixels
+     */
+    public static ArgbImage readPixels(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        return new ArgbImage(pixels, width, height);
+    }
+    
     /**
      * Convert a bitmap to grayscale
      * @param source Source bitmap
@@ -130,13 +143,13 @@ public class BitmapUtils {
         long totalGreen = 0;
         long totalBlue = 0;
         
-        for (int y = top; y < bottom; y++) {
-            for (int x = left; x < right; x++) {
-                int pixel = bitmap.getPixel(x, y);
-                totalRed += Color.red(pixel);
-                totalGreen += Color.green(pixel);
-                totalBlue += Color.blue(pixel);
-            }
+        // One bulk copy of the region instead of a getPixel call per pixel
+        int[] pixels = new int[pixelCount];
+        bitmap.getPixels(pixels, 0, width, left, top, width, height);
+        for (int pixel : pixels) {
+            totalRed += (pixel >> 16) & 0xFF;
+            totalGreen += (pixel >> 8) & 0xFF;
+            totalBlue += pixel & 0xFF;
         }
         
         return Color.rgb(
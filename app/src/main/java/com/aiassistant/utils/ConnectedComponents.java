@@ -0,0 +1,297 @@
+package com.aiassistant.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connected-component labeling of binary masks
+ *
+ * One raster scan assigns provisional labels from the left and upper
+ * neighbours, records label equivalences in a union-find forest (path
+ * halving, smaller label as root) and accumulates bounding box, area and
+ * coordinate sums per provisional label. Resolving the forest then merges
+ * those statistics into one {@link Component} per region, so no second pass
+ * over the pixels is needed unless the label image is requested. Nothing
+ * recurses, so large regions cannot overflow the stack.
+ *
+ * Working buffers are kept between calls to avoid per-frame allocation, so
+ * an instance is not thread-safe.
+ */
+public class ConnectedComponents {
+    private final boolean eightConnected;
+
+    // Provisional label per pixel (0 = background) and union-find forest
+    private int[] labels = new int[0];
+    private int[] parent = new int[16];
+
+    // Statistics per provisional label
+    private int[] minX = new int[16];
+    private int[] minY = new int[16];
+    private int[] maxX = new int[16];
+    private int[] maxY = new int[16];
+    private int[] area = new int[16];
+    private long[] sumX = new long[16];
+    private long[] sumY = new long[16];
+
+    private int lastWidth;
+    private int lastHeight;
+    private int lastLabelCount;
+    private boolean labelsResolved;
+
+    // Statistics
+    private long frames;
+    private long componentsFound;
+    private long labelNanos;
+
+    /**
+     * One connected region of the mask
+     */
+    public static class Component {
+        public final int label;
+        public final int minX;
+        public final int minY;
+        public final int maxX;
+        public final int maxY;
+        public final int area;
+        public final float centroidX;
+        public final float centroidY;
+
+        Component(int label, int minX, int minY, int maxX, int maxY, int area, float centroidX, float centroidY) {
+            this.label = label;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.area = area;
+            this.centroidX = centroidX;
+            this.centroidY = centroidY;
+        }
+
+        /**
+         * Get the bounding box width
+         * @return Width in mask cells (maxX - minX + 1)
+         */
+        public int getWidth() {
+            return maxX - minX + 1;
+        }
+
+        /**
+         * Get the bounding box height
+         * @return Height in mask cells (maxY - minY + 1)
+         */
+        public int getHeight() {
+            return maxY - minY + 1;
+        }
+    }
+
+    /**
+     * Constructor for 4-connected labeling
+     */
+    public ConnectedComponents() {
+        this(false);
+    }
+
+    /**
+     * Constructor
+     * @param eightConnected Whether diagonal neighbours join regions
+     */
+    public ConnectedComponents(boolean eightConnected) {
+        this.eightConnected = eightConnected;
+    }
+
+    /**
+     * Label the foreground of a mask
+     * @param mask Row-major mask; any non-zero value is foreground
+     * @param width Mask width
+     * @param height Mask height
+     * @param minArea Smallest component returned, in mask cells
+     * @return Components in raster order of their first cell
+     */
+    public List<Component> label(byte[] mask, int width, int height, int minArea) {
+        long start = System.nanoTime();
+        int count = width * height;
+        if (labels.length < count) {
+            labels = new int[count];
+        }
+        int next = 1;
+
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int i = row + x;
+                if (mask[i] == 0) {
+                    labels[i] = 0;
+                    continue;
+                }
+
+                int left = x > 0 ? labels[i - 1] : 0;
+                int up = y > 0 ? labels[i - width] : 0;
+                int label = minPositive(left, up);
+                if (eightConnected && y > 0) {
+                    int upLeft = x > 0 ? labels[i - width - 1] : 0;
+                    int upRight = x < width - 1 ? labels[i - width + 1] : 0;
+                    label = minPositive(label, minPositive(upLeft, upRight));
+                    union(label, upLeft);
+                    union(label, upRight);
+                }
+
+                if (label == 0) {
+                    label = next++;
+                    ensureCapacity(next);
+                    parent[label] = label;
+                    minX[label] = x;
+                    minY[label] = y;
+                    maxX[label] = x;
+                    maxY[label] = y;
+                    area[label] = 0;
+                    sumX[label] = 0;
+                    sumY[label] = 0;
+                } else {
+                    union(label, left);
+                    union(label, up);
+                }
+
+                labels[i] = label;
+                if (x < minX[label]) {
+                    minX[label] = x;
+                }
+                if (x > maxX[label]) {
+                    maxX[label] = x;
+                }
+                maxY[label] = y;
+                area[label]++;
+                sumX[label] += x;
+                sumY[label] += y;
+            }
+        }
+
+        // Fold each provisional label's statistics into its root; roots have
+        // the smallest label of their set, so they are visited first
+        List<Component> components = new ArrayList<>();
+        int[] componentIndex = new int[next];
+        Arrays.fill(componentIndex, -1);
+        for (int label = 1; label < next; label++) {
+            int root = find(label);
+            parent[label] = root;
+            if (root != label) {
+                minX[root] = Math.min(minX[root], minX[label]);
+                minY[root] = Math.min(minY[root], minY[label]);
+                maxX[root] = Math.max(maxX[root], maxX[label]);
+                maxY[root] = Math.max(maxY[root], maxY[label]);
+                area[root] += area[label];
+                sumX[root] += sumX[label];
+                sumY[root] += sumY[label];
+            }
+        }
+        for (int label = 1; label < next; label++) {
+            if (parent[label] == label && area[label] >= minArea) {
+                componentIndex[label] = components.size();
+                components.add(new Component(components.size() + 1, minX[label], minY[label],
+                        maxX[label], maxY[label], area[label],
+                        (float) sumX[label] / area[label], (float) sumY[label] / area[label]));
+            }
+        }
+        for (int label = 1; label < next; label++) {
+            // Reuse parent[] to map provisional labels to returned component labels
+            parent[label] = componentIndex[parent[label]] + 1;
+        }
+
+        lastWidth = width;
+        lastHeight = height;
+        lastLabelCount = next;
+        labelsResolved = false;
+
+        frames++;
+        componentsFound += components.size();
+        labelNanos += System.nanoTime() - start;
+        return components;
+    }
+
+    /**
+     * Get the label image of the last {@link #label} call, resolving it on
+     * first use (the second pass over the mask)
+     * @return Component label per cell (0 for background and for components
+     *         below minArea); valid until the next label call
+     */
+    public int[] getLabelImage() {
+        if (!labelsResolved) {
+            int count = lastWidth * lastHeight;
+            for (int i = 0; i < count; i++) {
+                if (labels[i] != 0) {
+                    labels[i] = parent[labels[i]];
+                }
+            }
+            labelsResolved = true;
+        }
+        return labels;
+    }
+
+    /**
+     * Get the number of provisional labels used by the last call
+     * @return Provisional label count
+     */
+    public int getLastLabelCount() {
+        return lastLabelCount - 1;
+    }
+
+    /**
+     * Get labeling statistics
+     * @return Map of statistic name to value
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("frames", frames);
+        stats.put("avgComponents", frames > 0 ? (double) componentsFound / frames : 0.0);
+        stats.put("avgLabelMicros", frames > 0 ? labelNanos / 1000.0 / frames : 0.0);
+        return stats;
+    }
+
+    private int find(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    private void union(int a, int b) {
+        if (a == 0 || b == 0) {
+            return;
+        }
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    private static int minPositive(int a, int b) {
+        if (a == 0) {
+            return b;
+        }
+        if (b == 0) {
+            return a;
+        }
+        return Math.min(a, b);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= parent.length) {
+            return;
+        }
+        int capacity = Math.max(size, parent.length * 2);
+        parent = Arrays.copyOf(parent, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        area = Arrays.copyOf(area, capacity);
+        sumX = Arrays.copyOf(sumX, capacity);
+        sumY = Arrays.copyOf(sumY, capacity);
+    }
+}
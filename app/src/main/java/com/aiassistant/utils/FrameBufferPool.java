@@ -0,0 +1,245 @@
+package com.aiassistant.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed pool of reusable ARGB frame buffers
+ *
+ * Screen capture fills a pooled {@link Frame} straight from the captured
+ * image plane instead of allocating Bitmaps per frame. Frames are handed out
+ * as reference-counted leases: the acquirer holds one reference, every
+ * additional consumer calls {@link Frame#retain()}, and each holder calls
+ * {@link Frame#release()} when done. The last release returns the buffer to
+ * the pool. When every buffer is leased, acquire() returns null and the
+ * caller drops the frame rather than allocating.
+ */
+public class FrameBufferPool {
+    private final BlockingQueue<Frame> freeFrames;
+    private final int capacity;
+
+    // Statistics
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * Pooled frame: ARGB pixels (one int per pixel, rows packed without padding)
+     */
+    public static class Frame {
+        private final FrameBufferPool pool;
+        private final AtomicInteger refCount = new AtomicInteger();
+        private int[] pixels = new int[0];
+        private int width;
+        private int height;
+        private long timestampNanos;
+
+        Frame(FrameBufferPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * Get the pixel array; valid only while a lease is held
+         * @return ARGB pixels, at least width * height long
+         */
+        public int[] getPixels() {
+            return pixels;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getPixel(int x, int y) {
+            return pixels[y * width + x];
+        }
+
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        public void setTimestampNanos(long timestampNanos) {
+            this.timestampNanos = timestampNanos;
+        }
+
+        /**
+         * Take an additional lease on the frame
+         * @return This frame
+         * @throws IllegalStateException If the frame was already released
+         */
+        public Frame retain() {
+            while (true) {
+                int count = refCount.get();
+                if (count <= 0) {
+                    throw new IllegalStateException("Frame already released");
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    return this;
+                }
+            }
+        }
+
+        /**
+         * Give up a lease; the last release returns the frame to its pool
+         */
+        public void release() {
+            int count = refCount.decrementAndGet();
+            if (count == 0) {
+                if (pool != null) {
+                    pool.recycle(this);
+                }
+            } else if (count < 0) {
+                refCount.incrementAndGet();
+                throw new IllegalStateException("Frame released more often than leased");
+            }
+        }
+
+        /**
+         * Get the number of outstanding leases
+         * @return Lease count
+         */
+        public int getRefCount() {
+            return refCount.get();
+        }
+
+        /**
+         * Copy an RGBA_8888 image plane into this frame, dropping row padding
+         * @param plane Plane bytes starting at the first pixel (not modified)
+         * @param rowStride Bytes between the starts of consecutive rows
+         * @param pixelStride Bytes between consecutive pixels in a row
+         */
+        public void copyFromRgbaPlane(ByteBuffer plane, int rowStride, int pixelStride) {
+            ByteBuffer source = plane.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int base = source.position();
+            if (pixelStride == 4 && rowStride % 4 == 0) {
+                // Bulk-read each row as little-endian ints (A B G R from the top
+                // byte down), then swap red and blue into ARGB
+                IntBuffer words = source.asIntBuffer();
+                int rowWords = rowStride / 4;
+                for (int y = 0; y < height; y++) {
+                    words.position(y * rowWords);
+                    words.get(pixels, y * width, width);
+                }
+                int count = width * height;
+                for (int i = 0; i < count; i++) {
+                    int abgr = pixels[i];
+                    pixels[i] = (abgr & 0xFF00FF00) | ((abgr & 0xFF) << 16) | ((abgr >> 16) & 0xFF);
+                }
+                return;
+            }
+
+            for (int y = 0; y < height; y++) {
+                int rowStart = base + y * rowStride;
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    int p = rowStart + x * pixelStride;
+                    pixels[out + x] = ((source.get(p + 3) & 0xFF) << 24) | ((source.get(p) & 0xFF) << 16)
+                            | ((source.get(p + 1) & 0xFF) << 8) | (source.get(p + 2) & 0xFF);
+                }
+            }
+        }
+
+        /**
+         * Copy packed ARGB pixels into this frame
+         * @param argb Source pixels
+         * @param offset Index of the first pixel
+         * @param stride Pixels between the starts of consecutive rows
+         */
+        public void copyFromArgb(int[] argb, int offset, int stride) {
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(argb, offset + y * stride, pixels, y * width, width);
+            }
+        }
+
+        void prepare(int width, int height) {
+            if (pixels.length < width * height) {
+                pixels = new int[width * height];
+            }
+            this.width = width;
+            this.height = height;
+            this.timestampNanos = 0;
+            refCount.set(1);
+        }
+    }
+
+    /**
+     * Constructor
+     * @param capacity Number of frame buffers
+     */
+    public FrameBufferPool(int capacity) {
+        this.capacity = capacity;
+        this.freeFrames = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            freeFrames.add(new Frame(this));
+        }
+    }
+
+    /**
+     * Lease a free frame sized for the given dimensions; pixel contents are undefined
+     * @param width Frame width
+     * @param height Frame height
+     * @return Frame with one lease, or null if every frame is in use
+     */
+    public Frame acquire(int width, int height) {
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            exhausted.incrementAndGet();
+            return null;
+        }
+        frame.prepare(width, height);
+        acquired.incrementAndGet();
+        return frame;
+    }
+
+    /**
+     * Allocate a frame outside any pool, for callers that must not drop a frame
+     * @param width Frame width
+     * @param height Frame height
+     * @return Frame with one lease
+     */
+    public static Frame allocate(int width, int height) {
+        Frame frame = new Frame(null);
+        frame.prepare(width, height);
+        return frame;
+    }
+
+    private void recycle(Frame frame) {
+        freeFrames.offer(frame);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of frames not currently leased
+     * @return Free frame count
+     */
+    public int getFreeCount() {
+        return freeFrames.size();
+    }
+
+    /**
+     * Get the number of successful acquires
+     * @return Acquire count
+     */
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    /**
+     * Get the number of acquires that found no free frame
+     * @return Exhausted count
+     */
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,93 @@
+package com.aiassistant.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded hand-off of frame leases from capture to analysis
+ *
+ * When analysis falls behind and the queue is full, the oldest queued frame
+ * is dropped (its lease released back to the pool) so consumers always see
+ * the most recent frames and capture never blocks. The queue owns the lease
+ * of every frame it holds; a frame taken from it belongs to the taker.
+ */
+public class FrameQueue {
+    private final BlockingQueue<FrameBufferPool.Frame> frames;
+
+    // Statistics
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param capacity Maximum number of queued frames
+     */
+    public FrameQueue(int capacity) {
+        this.frames = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Queue a frame, dropping the oldest queued frames if full
+     * @param frame Frame whose lease passes to the queue
+     */
+    public void offer(FrameBufferPool.Frame frame) {
+        offered.incrementAndGet();
+        while (!frames.offer(frame)) {
+            FrameBufferPool.Frame oldest = frames.poll();
+            if (oldest != null) {
+                oldest.release();
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Wait for the next frame
+     * @param timeout Maximum wait
+     * @param unit Unit of timeout
+     * @return Frame whose lease passes to the caller, or null on timeout
+     */
+    public FrameBufferPool.Frame poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return frames.poll(timeout, unit);
+    }
+
+    /**
+     * Take the next frame without waiting
+     * @return Frame whose lease passes to the caller, or null if empty
+     */
+    public FrameBufferPool.Frame poll() {
+        return frames.poll();
+    }
+
+    /**
+     * Release every queued frame
+     */
+    public void clear() {
+        FrameBufferPool.Frame frame;
+        while ((frame = frames.poll()) != null) {
+            frame.release();
+        }
+    }
+
+    public int size() {
+        return frames.size();
+    }
+
+    /**
+     * Get the number of frames offered
+     * @return Offered count
+     */
+    public long getOfferedCount() {
+        return offered.get();
+    }
+
+    /**
+     * Get the number of frames dropped because analysis fell behind
+     * @return Dropped count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
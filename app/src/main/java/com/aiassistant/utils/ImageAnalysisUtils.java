@@ -2,7 +2,6 @@ package com.aiassistant.utils;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Color;
 import android.graphics.Rect;
 import android.util.Log;
 
@@ -12,6 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Utility methods for analyzing images and detecting UI elements
@@ -27,34 +27,78 @@ public class ImageAnalysisUtils {
     private static final float TEXT_DETECTION_THRESHOLD = 0.7f;
     private static final float ENEMY_DETECTION_THRESHOLD = 0.5f;
     
+    // Region statistics resolution; candidate windows are far larger than a cell
+    private static final int REGION_CELL_SIZE = 4;
+    
+    // Button window heights as fractions of the base grid size
+    private static final float[] BUTTON_SCALES = {0.5f, 1.0f, 1.5f};
+    
+    // Luma standard deviation at which a region no longer counts as a single color
+    private static final float MAX_UNIFORM_STD_DEV = 40.0f;
+    
+    // Regions flatter than this cannot contain text strokes
+    private static final float MIN_TEXT_STD_DEV = 12.0f;
+    
+    // Overlap allowed between two detections of the same type, and per-type caps
+    private static final float MAX_DETECTION_OVERLAP = 0.3f;
+    private static final int MAX_DETECTIONS_PER_TYPE = 40;
+    
+    // Results of recent screenshots, reused for near-identical screenshots
+    private static final PerceptualFrameCache<List<UIElement>> UI_FRAME_CACHE = new PerceptualFrameCache<>();
+    
     /**
      * Extract UI elements from a screenshot
      * @param screenshot Screenshot bitmap
      * @return List of detected UI elements
      */
     public static List<UIElement> detectUIElements(Bitmap screenshot) {
-        List<UIElement> elements = new ArrayList<>();
-        
         if (screenshot == null) {
-            return elements;
+            return new ArrayList<>();
         }
         
+        // Skip analysis when the screenshot matches a recent one
+        return new ArrayList<>(UI_FRAME_CACHE.getOrCompute(screenshot, ImageAnalysisUtils::analyzeUIElements));
+    }
+    
+    /**
+     * Set how different a screenshot may be from a recent one and still reuse its result
+     * @param maxDistance Maximum Hamming distance between frame hashes (0 disables near matches)
+     */
+    public static void setFrameCacheDistance(int maxDistance) {
+        UI_FRAME_CACHE.setMaxDistance(maxDistance);
+    }
+    
+    /**
+     * Get frame cache statistics for detectUIElements, including the fraction of screenshots skipped
+     * @return Frame cache statistics
+     */
+    public static Map<String, Object> getFrameCacheStats() {
+        return UI_FRAME_CACHE.getStats();
+    }
+    
+    /**
+     * Run full UI element detection on a screenshot
+     * @param screenshot Screenshot bitmap
+     * @return List of detected UI elements
+     */
+    private static List<UIElement> analyzeUIElements(Bitmap screenshot) {
+        List<UIElement> elements = new ArrayList<>();
+        
         // In a real implementation, this would use ML models to detect UI elements
         // For now, implement a simple heuristic algorithm to detect likely UI elements
         
         try {
-            // Get image dimensions
-            int width = screenshot.getWidth();
-            int height = screenshot.getHeight();
+            // Copy the pixels out once; every detector below reads the array
+            ArgbImage image = BitmapUtils.readPixels(screenshot);
             
             // Detect rectangular shapes that might be buttons or UI containers
-            detectRectangularShapes(screenshot, elements);
+            detectRectangularShapes(image, elements);
             
             // Detect text areas
-            detectTextAreas(screenshot, elements);
+            detectTextAreas(image, elements);
             
             // In a game-focused context, we might also want to detect:
-            detectGameElements(screenshot, elements);
+            detectGameElements(image, elements);
             
             Log.d(TAG, "Detected " + elements.size() + " UI elements");
             
@@ -81,27 +125,17 @@ public class ImageAnalysisUtils {
         // For now, implement a simple feature extraction algorithm
         
         try {
-            // Get image dimensions
-            int width = screenshot.getWidth();
-            int height = screenshot.getHeight();
-            
             // Resize for consistent feature extraction
             Bitmap scaledBitmap = Bitmap.createScaledBitmap(
                     screenshot, 8, 8, true);
             
-            // Calculate color features
-            int index = 0;
-            for (int y = 0; y < 8; y++) {
-                for (int x = 0; x < 8; x++) {
-                    if (index < FEATURE_VECTOR_SIZE) {
-                        int pixel = scaledBitmap.getPixel(x, y);
-                        // Use grayscale value as feature
-                        float gray = 0.299f * Color.red(pixel) +
-                                     0.587f * Color.green(pixel) +
-                                     0.114f * Color.blue(pixel);
-                        features[index++] = gray / 255.0f; // Normalize to 0-1
-                    }
-                }
+            int[] pixels = new int[8 * 8];
+            scaledBitmap.getPixels(pixels, 0, 8, 0, 0, 8, 8);
+            
+            // Use grayscale value as feature
+            int count = Math.min(pixels.length, FEATURE_VECTOR_SIZE);
+            for (int i = 0; i < count; i++) {
+                features[i] = ImageKernels.luma(pixels[i]) / 255.0f; // Normalize to 0-1
             }
             
         } catch (Exception e) {
@@ -144,45 +178,67 @@ public class ImageAnalysisUtils {
     
     /**
      * Detect rectangular shapes that might be buttons or UI containers
-     * @param screenshot Screenshot bitmap
+     * @param image Screenshot pixels
      * @param elements List to add detected elements to
      */
-    private static void detectRectangularShapes(Bitmap screenshot, List<UIElement> elements) {
-        int width = screenshot.getWidth();
-        int height = screenshot.getHeight();
+    private static void detectRectangularShapes(ArgbImage image, List<UIElement> elements) {
+        int width = image.getWidth();
+        int height = image.getHeight();
         
         // Simple algorithm to find rectangular areas with consistent color
         // This is a placeholder for a more sophisticated detection algorithm
         
-        // Divide the image into a grid and check for rectangles
+        // Windows score in constant time from region statistics, so search
+        // several scales at half-window steps rather than one coarse grid.
+        // Tiles run in parallel; each scores the windows centered in its core
+        RegionStats stats = image.getRegionStats(REGION_CELL_SIZE);
         int gridSize = Math.min(width, height) / 10;
-        
-        for (int startY = 0; startY < height; startY += gridSize) {
-            for (int startX = 0; startX < width; startX += gridSize) {
-                int endX = Math.min(startX + gridSize * 2, width);
-                int endY = Math.min(startY + gridSize, height);
-                
-                // Check if this looks like a button or container
-                float buttonConfidence = evaluateRectangleAsButton(
-                        screenshot, startX, startY, endX, endY);
+        int maxWindowWidth = Math.max(REGION_CELL_SIZE, (int) (gridSize * BUTTON_SCALES[BUTTON_SCALES.length - 1])) * 2;
+        
+        List<RegionStats.Candidate> detections = TiledFrameAnalyzer.getShared().analyze(
+                width, height, maxWindowWidth, (tile, out) -> {
+            for (float scale : BUTTON_SCALES) {
+                int windowHeight = Math.max(REGION_CELL_SIZE, (int) (gridSize * scale));
+                int windowWidth = windowHeight * 2;
+                int step = Math.max(REGION_CELL_SIZE, windowHeight / 2);
                 
-                if (buttonConfidence > BUTTON_DETECTION_THRESHOLD) {
-                    // Create a UI element
-                    UIElement element = new UIElement();
-                    element.setBounds(startX, startY, endX, endY);
-                    element.setType(UIElement.TYPE_BUTTON);
-                    element.setConfidence(buttonConfidence);
-                    element.setClickable(true);
-                    
-                    elements.add(element);
+                for (int startY = TiledFrameAnalyzer.Tile.alignUp(tile.top, 0, step);
+                        startY + windowHeight <= tile.bottom; startY += step) {
+                    for (int startX = TiledFrameAnalyzer.Tile.alignUp(tile.left, 0, step);
+                            startX + windowWidth <= tile.right; startX += step) {
+                        int endX = startX + windowWidth;
+                        int endY = startY + windowHeight;
+                        if (!tile.owns(startX, startY, endX, endY)) {
+                            continue;
+                        }
+                        
+                        // Check if this looks like a button or container
+                        float buttonConfidence = evaluateRectangleAsButton(
+                                stats, startX, startY, endX, endY);
+                        
+                        if (buttonConfidence > BUTTON_DETECTION_THRESHOLD) {
+                            out.add(new RegionStats.Candidate(startX, startY, endX, endY, buttonConfidence));
+                        }
+                    }
                 }
             }
+        }, MAX_DETECTION_OVERLAP, MAX_DETECTIONS_PER_TYPE);
+        
+        for (RegionStats.Candidate candidate : detections) {
+            // Create a UI element
+            UIElement element = new UIElement();
+            element.setBounds(candidate.left, candidate.top, candidate.right, candidate.bottom);
+            element.setType(UIElement.TYPE_BUTTON);
+            element.setConfidence(candidate.score);
+            element.setClickable(true);
+            
+            elements.add(element);
         }
     }
     
     /**
      * Evaluate if a rectangle might be a button
-     * @param screenshot Screenshot bitmap
+     * @param stats Region statistics of the screenshot
      * @param left Left coordinate
      * @param top Top coordinate
      * @param right Right coordinate
@@ -190,7 +246,7 @@ public class ImageAnalysisUtils {
      * @return Confidence score (0-1)
      */
     private static float evaluateRectangleAsButton(
-            Bitmap screenshot, int left, int top, int right, int bottom) {
+            RegionStats stats, int left, int top, int right, int bottom) {
         
         // In a real implementation, this would use ML to evaluate button-like characteristics
         // For now, use simple heuristics:
@@ -205,32 +261,11 @@ public class ImageAnalysisUtils {
         }
         
         // 2. Check color consistency (buttons often have a consistent color)
-        int centerX = (left + right) / 2;
-        int centerY = (top + bottom) / 2;
-        
-        int centerColor = screenshot.getPixel(centerX, centerY);
-        
-        // Sample points within the rectangle
-        int samplePoints = 10;
-        int consistentColorCount = 0;
-        
-        for (int i = 0; i < samplePoints; i++) {
-            int x = left + (int) (Math.random() * width);
-            int y = top + (int) (Math.random() * height);
-            
-            int sampleColor = screenshot.getPixel(x, y);
-            
-            // Check if colors are similar
-            if (colorDistance(centerColor, sampleColor) < 50) {
-                consistentColorCount++;
-            }
-        }
-        
-        float colorConsistency = (float) consistentColorCount / samplePoints;
+        float colorConsistency = evaluateColorConsistency(stats, left, top, right, bottom);
         
         // 3. Check for contrast with surroundings (buttons often stand out)
         float surroundingContrast = evaluateSurroundingContrast(
-                screenshot, left, top, right, bottom);
+                stats, left, top, right, bottom);
         
         // Combine factors for final confidence
         return (colorConsistency * 0.5f + surroundingContrast * 0.5f);
@@ -238,7 +273,7 @@ public class ImageAnalysisUtils {
     
     /**
      * Evaluate contrast between a rectangle and its surroundings
-     * @param screenshot Screenshot bitmap
+     * @param stats Region statistics of the screenshot
      * @param left Left coordinate
      * @param top Top coordinate
      * @param right Right coordinate
@@ -246,58 +281,13 @@ public class ImageAnalysisUtils {
      * @return Contrast score (0-1)
      */
     private static float evaluateSurroundingContrast(
-            Bitmap screenshot, int left, int top, int right, int bottom) {
-        
-        int width = screenshot.getWidth();
-        int height = screenshot.getHeight();
-        
-        // Calculate average color inside the rectangle
-        int centerX = (left + right) / 2;
-        int centerY = (top + bottom) / 2;
-        int insideColor = screenshot.getPixel(centerX, centerY);
-        
-        // Calculate average color outside the rectangle (in surrounding area)
-        int outsideLeft = Math.max(0, left - 10);
-        int outsideTop = Math.max(0, top - 10);
-        int outsideRight = Math.min(width - 1, right + 10);
-        int outsideBottom = Math.min(height - 1, bottom + 10);
-        
-        // Sample points in the surrounding area
-        int samplePoints = 10;
-        int totalColorDistance = 0;
-        
-        for (int i = 0; i < samplePoints; i++) {
-            // Randomly choose one of the four surrounding edges
-            int edge = (int) (Math.random() * 4);
-            int x, y;
-            
-            switch (edge) {
-                case 0: // Top edge
-                    x = left + (int) (Math.random() * (right - left));
-                    y = outsideTop;
-                    break;
-                case 1: // Right edge
-                    x = outsideRight;
-                    y = top + (int) (Math.random() * (bottom - top));
-                    break;
-                case 2: // Bottom edge
-                    x = left + (int) (Math.random() * (right - left));
-                    y = outsideBottom;
-                    break;
-                default: // Left edge
-                    x = outsideLeft;
-                    y = top + (int) (Math.random() * (bottom - top));
-                    break;
-            }
-            
-            int outsideColor = screenshot.getPixel(x, y);
-            totalColorDistance += colorDistance(insideColor, outsideColor);
-        }
+            RegionStats stats, int left, int top, int right, int bottom) {
         
-        // Normalize contrast score (max reasonable distance is 765 - full RGB difference)
-        float averageContrast = Math.min(1.0f, totalColorDistance / (float) (samplePoints * 100));
+        // Compare the average color inside the rectangle with the average of a
+        // 10 pixel ring around it; a distance of 100 or more scores 1
+        int contrast = stats.surroundColorContrast(left, top, right, bottom, 10);
         
-        return averageContrast;
+        return Math.min(1.0f, contrast / 100.0f);
     }
     
     /**
@@ -307,66 +297,76 @@ public class ImageAnalysisUtils {
      * @return Color distance
      */
     private static int colorDistance(int color1, int color2) {
-        int r1 = Color.red(color1);
-        int g1 = Color.green(color1);
-        int b1 = Color.blue(color1);
-        
-        int r2 = Color.red(color2);
-        int g2 = Color.green(color2);
-        int b2 = Color.blue(color2);
-        
         // Simple RGB distance
-        return Math.abs(r1 - r2) + Math.abs(g1 - g2) + Math.abs(b1 - b2);
+        return ImageKernels.colorDistance(color1, color2);
     }
     
     /**
      * Detect text areas
-     * @param screenshot Screenshot bitmap
+     * @param image Screenshot pixels
      * @param elements List to add detected elements to
      */
-    private static void detectTextAreas(Bitmap screenshot, List<UIElement> elements) {
+    private static void detectTextAreas(ArgbImage image, List<UIElement> elements) {
         // In a real implementation, this would use OCR or ML text detection
         // For now, just add simulated text elements
         
-        int width = screenshot.getWidth();
-        int height = screenshot.getHeight();
-        
-        // Look for areas that might contain text based on color patterns
-        int gridSize = Math.min(width, height) / 15;
-        
-        for (int startY = 0; startY < height; startY += gridSize) {
-            for (int startX = 0; startX < width; startX += gridSize * 3) {
-                int endX = Math.min(startX + gridSize * 3, width);
-                int endY = Math.min(startY + gridSize, height);
-                
-                // Check if this looks like text
-                float textConfidence = evaluateAreaAsText(
-                        screenshot, startX, startY, endX, endY);
-                
-                if (textConfidence > TEXT_DETECTION_THRESHOLD) {
-                    // Create a UI element
-                    UIElement element = new UIElement();
-                    element.setBounds(startX, startY, endX, endY);
-                    element.setType(UIElement.TYPE_TEXT);
-                    element.setConfidence(textConfidence);
-                    element.setClickable(false);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        
+        // Look for areas that might contain text based on color patterns.
+        // Flat windows are rejected in constant time from region statistics,
+        // which leaves budget for half-window steps
+        RegionStats stats = image.getRegionStats(REGION_CELL_SIZE);
+        int gridSize = Math.max(REGION_CELL_SIZE, Math.min(width, height) / 15);
+        int step = Math.max(REGION_CELL_SIZE, gridSize / 2);
+        
+        List<RegionStats.Candidate> detections = TiledFrameAnalyzer.getShared().analyze(
+                width, height, gridSize * 3, (tile, out) -> {
+            for (int startY = TiledFrameAnalyzer.Tile.alignUp(tile.top, 0, step); startY < tile.bottom; startY += step) {
+                for (int startX = TiledFrameAnalyzer.Tile.alignUp(tile.left, 0, step); startX < tile.right; startX += step) {
+                    int endX = Math.min(startX + gridSize * 3, width);
+                    int endY = Math.min(startY + gridSize, height);
+                    if (endX > tile.right || endY > tile.bottom || !tile.owns(startX, startY, endX, endY)) {
+                        continue;
+                    }
+                    
+                    if (stats.lumaStdDev(startX, startY, endX, endY) < MIN_TEXT_STD_DEV) {
+                        continue;
+                    }
+                    
+                    // Check if this looks like text
+                    float textConfidence = evaluateAreaAsText(
+                            image, startX, startY, endX, endY);
                     
-                    elements.add(element);
+                    if (textConfidence > TEXT_DETECTION_THRESHOLD) {
+                        out.add(new RegionStats.Candidate(startX, startY, endX, endY, textConfidence));
+                    }
                 }
             }
+        }, MAX_DETECTION_OVERLAP, MAX_DETECTIONS_PER_TYPE);
+        
+        for (RegionStats.Candidate candidate : detections) {
+            // Create a UI element
+            UIElement element = new UIElement();
+            element.setBounds(candidate.left, candidate.top, candidate.right, candidate.bottom);
+            element.setType(UIElement.TYPE_TEXT);
+            element.setConfidence(candidate.score);
+            element.setClickable(false);
+            
+            elements.add(element);
         }
     }
     
     /**
      * Evaluate if an area might contain text
-     * @param screenshot Screenshot bitmap
+     * @param image Screenshot pixels
      * @param left Left coordinate
      * @param top Top coordinate
      * @param right Right coordinate
      * @param bottom Bottom coordinate
      * @return Confidence score (0-1)
      */
-    private static float evaluateAreaAsText(Bitmap screenshot, int left, int top, int right, int bottom) {
+    private static float evaluateAreaAsText(ArgbImage image, int left, int top, int right, int bottom) {
         // In a real implementation, this would use OCR or text detection ML
         // For now, use a simple heuristic based on horizontal edges
         
@@ -386,7 +386,7 @@ public class ImageAnalysisUtils {
             
             for (int j = 0; j < samplePointsPerLine; j++) {
                 int x = left + (j + 1) * width / (samplePointsPerLine + 1);
-                int color = screenshot.getPixel(x, y);
+                int color = image.getPixel(x, y);
                 
                 // If there's a significant color change, count it as an edge
                 if (lastColor != -1 && colorDistance(color, lastColor) > 30) {
@@ -408,39 +408,53 @@ public class ImageAnalysisUtils {
     
     /**
      * Detect game-specific elements like enemies, items, etc.
-     * @param screenshot Screenshot bitmap
+     * @param image Screenshot pixels
      * @param elements List to add detected elements to
      */
-    private static void detectGameElements(Bitmap screenshot, List<UIElement> elements) {
+    private static void detectGameElements(ArgbImage image, List<UIElement> elements) {
         // In a real implementation, this would use game-specific ML detection
         // For now, add a few simulated game elements
         
-        int width = screenshot.getWidth();
-        int height = screenshot.getHeight();
+        int width = image.getWidth();
+        int height = image.getHeight();
         
         // Try to detect enemies (as objects that might be different from the background)
-        int gridSize = Math.min(width, height) / 8;
-        
-        for (int startY = gridSize; startY < height - gridSize; startY += gridSize) {
-            for (int startX = gridSize; startX < width - gridSize; startX += gridSize) {
-                int endX = Math.min(startX + gridSize, width);
-                int endY = Math.min(startY + gridSize, height);
-                
-                // Check if this might be an enemy
-                float enemyConfidence = evaluateAreaAsEnemy(
-                        screenshot, startX, startY, endX, endY);
-                
-                if (enemyConfidence > ENEMY_DETECTION_THRESHOLD) {
-                    // Create a UI element
-                    UIElement element = new UIElement();
-                    element.setBounds(startX, startY, endX, endY);
-                    element.setType(UIElement.TYPE_ENEMY);
-                    element.setConfidence(enemyConfidence);
-                    element.setClickable(true); // Enemies are usually interactive
+        RegionStats stats = image.getRegionStats(REGION_CELL_SIZE);
+        int gridSize = Math.max(REGION_CELL_SIZE, Math.min(width, height) / 8);
+        int step = Math.max(REGION_CELL_SIZE, gridSize / 2);
+        
+        List<RegionStats.Candidate> detections = TiledFrameAnalyzer.getShared().analyze(
+                width, height, gridSize, (tile, out) -> {
+            for (int startY = TiledFrameAnalyzer.Tile.alignUp(tile.top, gridSize, step);
+                    startY < height - gridSize && startY < tile.bottom; startY += step) {
+                for (int startX = TiledFrameAnalyzer.Tile.alignUp(tile.left, gridSize, step);
+                        startX < width - gridSize && startX < tile.right; startX += step) {
+                    int endX = Math.min(startX + gridSize, width);
+                    int endY = Math.min(startY + gridSize, height);
+                    if (endX > tile.right || endY > tile.bottom || !tile.owns(startX, startY, endX, endY)) {
+                        continue;
+                    }
                     
-                    elements.add(element);
+                    // Check if this might be an enemy
+                    float enemyConfidence = evaluateAreaAsEnemy(
+                            stats, startX, startY, endX, endY);
+                    
+                    if (enemyConfidence > ENEMY_DETECTION_THRESHOLD) {
+                        out.add(new RegionStats.Candidate(startX, startY, endX, endY, enemyConfidence));
+                    }
                 }
             }
+        }, MAX_DETECTION_OVERLAP, MAX_DETECTIONS_PER_TYPE);
+        
+        for (RegionStats.Candidate candidate : detections) {
+            // Create a UI element
+            UIElement element = new UIElement();
+            element.setBounds(candidate.left, candidate.top, candidate.right, candidate.bottom);
+            element.setType(UIElement.TYPE_ENEMY);
+            element.setConfidence(candidate.score);
+            element.setClickable(true); // Enemies are usually interactive
+            
+            elements.add(element);
         }
         
         // Add a simulated player (usually near center-bottom)
@@ -463,25 +477,25 @@ public class ImageAnalysisUtils {
     
     /**
      * Evaluate if an area might be an enemy
-     * @param screenshot Screenshot bitmap
+     * @param stats Region statistics of the screenshot
      * @param left Left coordinate
      * @param top Top coordinate
      * @param right Right coordinate
      * @param bottom Bottom coordinate
      * @return Confidence score (0-1)
      */
-    private static float evaluateAreaAsEnemy(Bitmap screenshot, int left, int top, int right, int bottom) {
+    private static float evaluateAreaAsEnemy(RegionStats stats, int left, int top, int right, int bottom) {
         // In a real implementation, this would use ML object detection
         // For now, use simple heuristics:
         
         // 1. Enemies often have distinctive colors different from background
-        float contrastScore = evaluateSurroundingContrast(screenshot, left, top, right, bottom);
+        float contrastScore = evaluateSurroundingContrast(stats, left, top, right, bottom);
         
         // 2. Enemies often have a consistent internal color or pattern
-        float colorConsistency = evaluateColorConsistency(screenshot, left, top, right, bottom);
+        float colorConsistency = evaluateColorConsistency(stats, left, top, right, bottom);
         
         // 3. In many games, enemies are often in the upper part of the screen
-        float positionScore = 1.0f - ((float) top / screenshot.getHeight());
+        float positionScore = 1.0f - ((float) top / stats.getHeight());
         
         // Combine factors
         return (contrastScore * 0.5f + colorConsistency * 0.3f + positionScore * 0.2f);
@@ -489,38 +503,18 @@ public class ImageAnalysisUtils {
     
     /**
      * Evaluate color consistency within an area
-     * @param screenshot Screenshot bitmap
+     * @param stats Region statistics of the screenshot
      * @param left Left coordinate
      * @param top Top coordinate
      * @param right Right coordinate
      * @param bottom Bottom coordinate
      * @return Consistency score (0-1)
      */
-    private static float evaluateColorConsistency(Bitmap screenshot, int left, int top, int right, int bottom) {
-        int width = right - left;
-        int height = bottom - top;
-        
-        int centerX = (left + right) / 2;
-        int centerY = (top + bottom) / 2;
-        int centerColor = screenshot.getPixel(centerX, centerY);
+    private static float evaluateColorConsistency(RegionStats stats, int left, int top, int right, int bottom) {
+        // A flat area scores 1, falling to 0 at MAX_UNIFORM_STD_DEV
+        float stdDev = stats.lumaStdDev(left, top, right, bottom);
         
-        // Sample points within the rectangle
-        int samplePoints = 10;
-        int consistentColorCount = 0;
-        
-        for (int i = 0; i < samplePoints; i++) {
-            int x = left + (int) (Math.random() * width);
-            int y = top + (int) (Math.random() * height);
-            
-            int sampleColor = screenshot.getPixel(x, y);
-            
-            // Check if colors are similar
-            if (colorDistance(centerColor, sampleColor) < 50) {
-                consistentColorCount++;
-            }
-        }
-        
-        return (float) consistentColorCount / samplePoints;
+        return Math.max(0.0f, 1.0f - stdDev / MAX_UNIFORM_STD_DEV);
     }
     
     /**
@@ -572,20 +566,14 @@ public class ImageAnalysisUtils {
             Bitmap scaledBitmap2 = Bitmap.createScaledBitmap(bitmap2, width, height, true);
             
             // Calculate pixel-by-pixel difference
-            int diffPixelCount = 0;
             int totalPixels = width * height;
+            int[] pixels1 = new int[totalPixels];
+            int[] pixels2 = new int[totalPixels];
+            scaledBitmap1.getPixels(pixels1, 0, width, 0, 0, width, height);
+            scaledBitmap2.getPixels(pixels2, 0, width, 0, 0, width, height);
             
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    int pixel1 = scaledBitmap1.getPixel(x, y);
-                    int pixel2 = scaledBitmap2.getPixel(x, y);
-                    
-                    int diff = colorDistance(pixel1, pixel2);
-                    if (diff > 50) { // Threshold for considering pixels different
-                        diffPixelCount++;
-                    }
-                }
-            }
+            // Threshold of 50 for considering pixels different
+            int diffPixelCount = ImageKernels.frameDifference(pixels1, pixels2, totalPixels, 50, null);
             
             // Return normalized difference score
             return (float) diffPixelCount / totalPixels;
@@ -0,0 +1,369 @@
+package com.aiassistant.utils;
+
+import java.util.Arrays;
+
+/**
+ * Whole-frame image kernels over packed pixel arrays
+ *
+ * Colour images are int[] ARGB (as returned by Bitmap.getPixels), grayscale
+ * images are byte[] luma read as unsigned 0-255, both row-major without
+ * padding. Output arrays may be passed in for reuse across frames; null
+ * allocates a new one. Luma uses integer BT.601 weights, matching
+ * {@link PerceptualFrameCache}.
+ */
+public final class ImageKernels {
+
+    private ImageKernels() {
+    }
+
+    /**
+     * Luma of one ARGB pixel
+     * @return Luma (0-255)
+     */
+    public static int luma(int argb) {
+        return (77 * ((argb >> 16) & 0xFF) + 150 * ((argb >> 8) & 0xFF) + 29 * (argb & 0xFF)) >> 8;
+    }
+
+    /**
+     * Sum of absolute RGB channel differences between two pixels
+     * @return Distance (0-765)
+     */
+    public static int colorDistance(int argb1, int argb2) {
+        return Math.abs(((argb1 >> 16) & 0xFF) - ((argb2 >> 16) & 0xFF))
+                + Math.abs(((argb1 >> 8) & 0xFF) - ((argb2 >> 8) & 0xFF))
+                + Math.abs((argb1 & 0xFF) - (argb2 & 0xFF));
+    }
+
+    /**
+     * Convert ARGB pixels to luma
+     * @param argb Source pixels
+     * @param width Image width
+     * @param height Image height
+     * @param out Destination, at least width * height long, or null
+     * @return Luma plane
+     */
+    public static byte[] toLuma(int[] argb, int width, int height, byte[] out) {
+        int count = width * height;
+        byte[] luma = out != null ? out : new byte[count];
+        for (int i = 0; i < count; i++) {
+            luma[i] = (byte) luma(argb[i]);
+        }
+        return luma;
+    }
+
+    /**
+     * Luma of every step-th pixel in each direction
+     * @param argb Source pixels
+     * @param width Image width
+     * @param height Image height
+     * @param step Sampling step (1 for every pixel)
+     * @param out Destination, at least ceil(width / step) * ceil(height / step) long, or null
+     * @return Sampled luma, ceil(width / step) columns by ceil(height / step) rows
+     */
+    public static byte[] sampleLuma(int[] argb, int width, int height, int step, byte[] out) {
+        int sampleWidth = (width + step - 1) / step;
+        int sampleHeight = (height + step - 1) / step;
+        byte[] luma = out != null ? out : new byte[sampleWidth * sampleHeight];
+        int i = 0;
+        for (int y = 0; y < height; y += step) {
+            int row = y * width;
+            for (int x = 0; x < width; x += step) {
+                luma[i++] = (byte) luma(argb[row + x]);
+            }
+        }
+        return luma;
+    }
+
+    /**
+     * Expand luma to opaque gray ARGB pixels
+     * @param luma Source luma
+     * @param count Number of pixels
+     * @param out Destination, at least count long, or null
+     * @return Gray ARGB pixels
+     */
+    public static int[] lumaToArgb(byte[] luma, int count, int[] out) {
+        int[] argb = out != null ? out : new int[count];
+        for (int i = 0; i < count; i++) {
+            int v = luma[i] & 0xFF;
+            argb[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+        return argb;
+    }
+
+    /**
+     * Sobel gradient magnitude (|Gx| + |Gy|) / 8, so a full black-to-white step
+     * scores 127 and the result always fits a byte; border pixels are 0
+     * @param luma Source luma
+     * @param width Image width
+     * @param height Image height
+     * @param out Destination, at least width * height long, or null
+     * @return Edge magnitude plane
+     */
+    public static byte[] sobel(byte[] luma, int width, int height, byte[] out) {
+        byte[] edges = out != null ? out : new byte[width * height];
+        if (width < 3 || height < 3) {
+            Arrays.fill(edges, 0, width * height, (byte) 0);
+            return edges;
+        }
+        Arrays.fill(edges, 0, width, (byte) 0);
+        Arrays.fill(edges, (height - 1) * width, height * width, (byte) 0);
+
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            edges[row] = 0;
+            edges[row + width - 1] = 0;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                int tl = luma[i - width - 1] & 0xFF;
+                int tc = luma[i - width] & 0xFF;
+                int tr = luma[i - width + 1] & 0xFF;
+                int ml = luma[i - 1] & 0xFF;
+                int mr = luma[i + 1] & 0xFF;
+                int bl = luma[i + width - 1] & 0xFF;
+                int bc = luma[i + width] & 0xFF;
+                int br = luma[i + width + 1] & 0xFF;
+
+                int gx = (tr + 2 * mr + br) - (tl + 2 * ml + bl);
+                int gy = (bl + 2 * bc + br) - (tl + 2 * tc + tr);
+                edges[i] = (byte) ((Math.abs(gx) + Math.abs(gy)) >> 3);
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Histogram of luma values
+     * @param luma Source luma
+     * @param count Number of pixels
+     * @param bins Number of bins (1-256), each covering 256 / bins values
+     * @return Pixel count per bin
+     */
+    public static int[] lumaHistogram(byte[] luma, int count, int bins) {
+        int[] histogram = new int[bins];
+        for (int i = 0; i < count; i++) {
+            histogram[(luma[i] & 0xFF) * bins >> 8]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Per-channel histograms of ARGB pixels
+     * @param argb Source pixels
+     * @param count Number of pixels
+     * @param bins Number of bins per channel (1-256)
+     * @return Red bins, then green bins, then blue bins
+     */
+    public static int[] rgbHistogram(int[] argb, int count, int bins) {
+        int[] histogram = new int[3 * bins];
+        for (int i = 0; i < count; i++) {
+            int pixel = argb[i];
+            histogram[((pixel >> 16) & 0xFF) * bins >> 8]++;
+            histogram[bins + (((pixel >> 8) & 0xFF) * bins >> 8)]++;
+            histogram[2 * bins + ((pixel & 0xFF) * bins >> 8)]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Summed-area table of luma: entry (x, y) of the (width + 1) x (height + 1)
+     * table holds the sum of all pixels above and left of (x, y). Fits an int
+     * for images up to about 8 million pixels.
+     * @param luma Source luma
+     * @param width Image width
+     * @param height Image height
+     * @return Summed-area table
+     */
+    public static int[] integral(byte[] luma, int width, int height) {
+        int stride = width + 1;
+        int[] table = new int[stride * (height + 1)];
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            int src = y * width;
+            int above = y * stride;
+            int dst = above + stride;
+            for (int x = 0; x < width; x++) {
+                rowSum += luma[src + x] & 0xFF;
+                table[dst + x + 1] = table[above + x + 1] + rowSum;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Summed-area table of squared luma, laid out like {@link #integral}
+     * @param luma Source luma
+     * @param width Image width
+     * @param height Image height
+     * @return Summed-area table of squares
+     */
+    public static long[] integralSquares(byte[] luma, int width, int height) {
+        int stride = width + 1;
+        long[] table = new long[stride * (height + 1)];
+        for (int y = 0; y < height; y++) {
+            long rowSum = 0;
+            int src = y * width;
+            int above = y * stride;
+            int dst = above + stride;
+            for (int x = 0; x < width; x++) {
+                int v = luma[src + x] & 0xFF;
+                rowSum += v * v;
+                table[dst + x + 1] = table[above + x + 1] + rowSum;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Sum over [left, right) x [top, bottom) from a summed-area table
+     * @param table Table from {@link #integral}
+     * @param width Width of the source image
+     * @return Sum of the rectangle
+     */
+    public static long rectSum(int[] table, int width, int left, int top, int right, int bottom) {
+        int stride = width + 1;
+        return (long) table[bottom * stride + right] - table[top * stride + right]
+                - table[bottom * stride + left] + table[top * stride + left];
+    }
+
+    /**
+     * Sum over [left, right) x [top, bottom) from a summed-area table
+     * @param table Table from {@link #integralSquares}
+     * @param width Width of the source image
+     * @return Sum of the rectangle
+     */
+    public static long rectSum(long[] table, int width, int left, int top, int right, int bottom) {
+        int stride = width + 1;
+        return table[bottom * stride + right] - table[top * stride + right]
+                - table[bottom * stride + left] + table[top * stride + left];
+    }
+
+    /**
+     * Mean over a (2 * radius + 1) square window, clipped at the image border;
+     * cost is independent of the radius
+     * @param luma Source luma
+     * @param width Image width
+     * @param height Image height
+     * @param radius Window radius in pixels
+     * @param out Destination, at least width * height long, or null
+     * @return Blurred luma
+     */
+    public static byte[] boxFilter(byte[] luma, int width, int height, int radius, byte[] out) {
+        byte[] blurred = out != null ? out : new byte[width * height];
+        int[] table = integral(luma, width, height);
+        for (int y = 0; y < height; y++) {
+            int top = Math.max(0, y - radius);
+            int bottom = Math.min(height, y + radius + 1);
+            for (int x = 0; x < width; x++) {
+                int left = Math.max(0, x - radius);
+                int right = Math.min(width, x + radius + 1);
+                long sum = rectSum(table, width, left, top, right, bottom);
+                blurred[y * width + x] = (byte) (sum / ((right - left) * (bottom - top)));
+            }
+        }
+        return blurred;
+    }
+
+    /**
+     * Count pixels whose colour changed between two frames
+     * @param previous Earlier frame
+     * @param current Later frame
+     * @param count Number of pixels
+     * @param threshold Minimum {@link #colorDistance} counted as a change
+     * @param mask Receives 1 for changed pixels and 0 otherwise, or null
+     * @return Number of changed pixels
+     */
+    public static int frameDifference(int[] previous, int[] current, int count, int threshold, byte[] mask) {
+        int changed = 0;
+        for (int i = 0; i < count; i++) {
+            boolean different = colorDistance(previous[i], current[i]) > threshold;
+            if (different) {
+                changed++;
+            }
+            if (mask != null) {
+                mask[i] = different ? (byte) 1 : 0;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Count pixels whose luma changed between two frames
+     * @param previous Earlier luma
+     * @param current Later luma
+     * @param count Number of pixels
+     * @param threshold Minimum absolute luma change counted
+     * @param mask Receives 1 for changed pixels and 0 otherwise, or null
+     * @return Number of changed pixels
+     */
+    public static int lumaDifference(byte[] previous, byte[] current, int count, int threshold, byte[] mask) {
+        int changed = 0;
+        for (int i = 0; i < count; i++) {
+            boolean different = Math.abs((previous[i] & 0xFF) - (current[i] & 0xFF)) > threshold;
+            if (different) {
+                changed++;
+            }
+            if (mask != null) {
+                mask[i] = different ? (byte) 1 : 0;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Mark values at or above a threshold
+     * @param values Source luma or other 8-bit plane
+     * @param count Number of values
+     * @param threshold Smallest value marked
+     * @param mask Receives 1 for marked values and 0 otherwise
+     * @return Number of marked values
+     */
+    public static int thresholdMask(byte[] values, int count, int threshold, byte[] mask) {
+        int marked = 0;
+        for (int i = 0; i < count; i++) {
+            boolean above = (values[i] & 0xFF) >= threshold;
+            if (above) {
+                marked++;
+            }
+            mask[i] = above ? (byte) 1 : 0;
+        }
+        return marked;
+    }
+
+    /**
+     * Mark pixels within a per-channel tolerance of a target colour, sampling
+     * every step-th pixel in each direction
+     * @param argb Source pixels
+     * @param width Image width
+     * @param height Image height
+     * @param step Sampling step (1 for every pixel)
+     * @param targetColor Colour to match
+     * @param tolerance Maximum absolute difference in each of R, G and B
+     * @param mask Receives 1 for matches and 0 otherwise, laid out as
+     *             ceil(width / step) columns by ceil(height / step) rows
+     * @return Number of matching samples
+     */
+    public static int colorMask(int[] argb, int width, int height, int step,
+                                int targetColor, int tolerance, byte[] mask) {
+        int targetR = (targetColor >> 16) & 0xFF;
+        int targetG = (targetColor >> 8) & 0xFF;
+        int targetB = targetColor & 0xFF;
+        int maskWidth = (width + step - 1) / step;
+        int matches = 0;
+
+        for (int y = 0, my = 0; y < height; y += step, my++) {
+            int row = y * width;
+            int maskRow = my * maskWidth;
+            for (int x = 0, mx = 0; x < width; x += step, mx++) {
+                int pixel = argb[row + x];
+                boolean match = Math.abs(((pixel >> 16) & 0xFF) - targetR) <= tolerance
+                        && Math.abs(((pixel >> 8) & 0xFF) - targetG) <= tolerance
+                        && Math.abs((pixel & 0xFF) - targetB) <= tolerance;
+                if (match) {
+                    matches++;
+                }
+                mask[maskRow + mx] = match ? (byte) 1 : 0;
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,292 @@
+package com.aiassistant.utils;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reuses analysis results for frames that look the same as a recent frame
+ *
+ * Each frame is reduced to a 64-bit difference hash (dHash): the frame is
+ * downsampled to a 9x8 grid of mean luma values and every bit records
+ * whether a cell is darker than its right neighbour. Frames whose hashes
+ * differ in at most maxDistance bits, and whose mean brightness and size
+ * match, are treated as the same screen and get the stored result instead
+ * of a new analysis. Only a few rows of the frame are read, so hashing
+ * costs a small fraction of a full analysis pass.
+ *
+ * Results are shared between callers and must not be modified.
+ */
+public class PerceptualFrameCache<T> {
+    // Hash grid: GRID_WIDTH columns give GRID_WIDTH - 1 comparisons per row
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    // Frame rows sampled per grid row, and samples per grid cell along a row
+    private static final int ROWS_PER_CELL = 4;
+    private static final int SAMPLES_PER_CELL = 16;
+
+    // dHash is blind to uniform brightness changes (a black and a white
+    // loading screen hash alike), so mean luma must also be this close
+    private static final int MAX_LUMA_DIFFERENCE = 12;
+
+    public static final int DEFAULT_CAPACITY = 8;
+    public static final int DEFAULT_MAX_DISTANCE = 4;
+    public static final long DEFAULT_MAX_AGE_MS = 2000;
+
+    /**
+     * Stored result for one frame fingerprint
+     */
+    private static class Entry<T> {
+        long hash;
+        int meanLuma;
+        int width;
+        int height;
+        long storedAt;
+        T result;
+    }
+
+    private final Entry<T>[] entries;
+    private int entryCount;
+    private int nextSlot;
+
+    private volatile int maxDistance;
+    private volatile long maxAgeMs;
+
+    // Statistics
+    private long lookups;
+    private long skips;
+    private long hashNanos;
+
+    /**
+     * Constructor with default settings
+     */
+    public PerceptualFrameCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_DISTANCE, DEFAULT_MAX_AGE_MS);
+    }
+
+    /**
+     * Constructor
+     * @param capacity Number of distinct frames remembered
+     * @param maxDistance Maximum Hamming distance between matching hashes (0-64)
+     * @param maxAgeMs How long a result may be reused (0 for no limit)
+     */
+    @SuppressWarnings("unchecked")
+    public PerceptualFrameCache(int capacity, int maxDistance, long maxAgeMs) {
+        this.entries = new Entry[Math.max(1, capacity)];
+        this.maxDistance = maxDistance;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Return the result of a matching recent frame, or analyze the frame and
+     * remember its result
+     * @param frame Frame to analyze
+     * @param analyzer Full analysis, run only on a miss
+     * @return Cached or newly computed result
+     */
+    public T getOrCompute(Bitmap frame, Function<Bitmap, T> analyzer) {
+        long hashStart = SystemClock.elapsedRealtimeNanos();
+        int[] luma = sampleLuma(frame);
+        long hash = dHash(luma);
+        int meanLuma = mean(luma);
+        long hashTime = SystemClock.elapsedRealtimeNanos() - hashStart;
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (this) {
+            lookups++;
+            hashNanos += hashTime;
+            Entry<T> match = findNearest(hash, meanLuma, width, height, now);
+            if (match != null) {
+                skips++;
+                return match.result;
+            }
+        }
+
+        // Analyze outside the lock; concurrent misses on the same screen both
+        // analyze and the later store simply refreshes the entry
+        T result = analyzer.apply(frame);
+        if (result != null) {
+            store(hash, meanLuma, width, height, now, result);
+        }
+        return result;
+    }
+
+    /**
+     * Set the Hamming distance within which frames count as the same
+     * @param maxDistance Distance in bits (0 for exact hash matches only)
+     */
+    public void setMaxDistance(int maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Set how long a result may be reused for matching frames
+     * @param maxAgeMs Maximum age in milliseconds (0 for no limit)
+     */
+    public void setMaxAge(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Forget all remembered frames
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        entryCount = 0;
+        nextSlot = 0;
+    }
+
+    /**
+     * Get the fraction of frames whose analysis was skipped
+     * @return Skip rate (0-1)
+     */
+    public synchronized float getSkipRate() {
+        return lookups > 0 ? (float) skips / lookups : 0.0f;
+    }
+
+    /**
+     * Get cache statistics
+     * @return Map of statistic name to value
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("frames", lookups);
+        stats.put("skipped", skips);
+        stats.put("skipRate", getSkipRate());
+        stats.put("avgHashMicros", lookups > 0 ? hashNanos / 1000.0 / lookups : 0.0);
+        stats.put("maxDistance", maxDistance);
+        stats.put("entries", entryCount);
+        return stats;
+    }
+
+    /**
+     * Compute the 64-bit difference hash of a frame
+     * @param frame Frame to hash
+     * @return Perceptual hash
+     */
+    public static long dHash(Bitmap frame) {
+        return dHash(sampleLuma(frame));
+    }
+
+    /**
+     * Count the bits in which two hashes differ
+     * @return Hamming distance (0-64)
+     */
+    public static int distance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+
+    private Entry<T> findNearest(long hash, int meanLuma, int width, int height, long now) {
+        Entry<T> nearest = null;
+        int nearestDistance = maxDistance + 1;
+        long maxAge = maxAgeMs;
+        for (int i = 0; i < entryCount; i++) {
+            Entry<T> entry = entries[i];
+            if (entry.width != width || entry.height != height
+                    || Math.abs(entry.meanLuma - meanLuma) > MAX_LUMA_DIFFERENCE
+                    || (maxAge > 0 && now - entry.storedAt > maxAge)) {
+                continue;
+            }
+            int d = distance(entry.hash, hash);
+            if (d < nearestDistance) {
+                nearest = entry;
+                nearestDistance = d;
+            }
+        }
+        return nearest;
+    }
+
+    private synchronized void store(long hash, int meanLuma, int width, int height, long now, T result) {
+        // Refresh an exact match in place, otherwise overwrite the oldest slot
+        Entry<T> entry = null;
+        for (int i = 0; i < entryCount; i++) {
+            if (entries[i].hash == hash && entries[i].width == width && entries[i].height == height) {
+                entry = entries[i];
+                break;
+            }
+        }
+        if (entry == null) {
+            entry = entries[nextSlot];
+            if (entry == null) {
+                entry = new Entry<>();
+                entries[nextSlot] = entry;
+                entryCount++;
+            }
+            nextSlot = (nextSlot + 1) % entries.length;
+        }
+        entry.hash = hash;
+        entry.meanLuma = meanLuma;
+        entry.width = width;
+        entry.height = height;
+        entry.storedAt = now;
+        entry.result = result;
+    }
+
+    /**
+     * Downsample a frame to GRID_WIDTH x GRID_HEIGHT mean luma values (0-255),
+     * reading only ROWS_PER_CELL rows per grid row
+     */
+    private static int[] sampleLuma(Bitmap frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int[] sums = new int[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        int[] row = new int[width];
+        int step = Math.max(1, width / (GRID_WIDTH * SAMPLES_PER_CELL));
+
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            int top = gy * height / GRID_HEIGHT;
+            int cellHeight = Math.max(1, (gy + 1) * height / GRID_HEIGHT - top);
+            for (int r = 0; r < ROWS_PER_CELL; r++) {
+                // Spread the sampled rows evenly through the cell
+                int y = Math.min(height - 1, top + (2 * r + 1) * cellHeight / (2 * ROWS_PER_CELL));
+                frame.getPixels(row, 0, width, 0, y, width, 1);
+                for (int x = step / 2; x < width; x += step) {
+                    int pixel = row[x];
+                    // Integer BT.601 luma: (77R + 150G + 29B) / 256
+                    int luma = (77 * ((pixel >> 16) & 0xFF) + 150 * ((pixel >> 8) & 0xFF)
+                            + 29 * (pixel & 0xFF)) >> 8;
+                    int cell = gy * GRID_WIDTH + x * GRID_WIDTH / width;
+                    sums[cell] += luma;
+                    counts[cell]++;
+                }
+            }
+        }
+
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = counts[i] > 0 ? sums[i] / counts[i] : 0;
+        }
+        return sums;
+    }
+
+    private static long dHash(int[] luma) {
+        long hash = 0;
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            for (int gx = 0; gx < GRID_WIDTH - 1; gx++) {
+                int cell = gy * GRID_WIDTH + gx;
+                hash <<= 1;
+                if (luma[cell] < luma[cell + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static int mean(int[] luma) {
+        int sum = 0;
+        for (int value : luma) {
+            sum += value;
+        }
+        return sum / luma.length;
+    }
+}
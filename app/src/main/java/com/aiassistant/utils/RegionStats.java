@@ -0,0 +1,353 @@
+package com.aiassistant.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Constant-time statistics for any rectangle of a frame
+ *
+ * Summed-area tables of luma, squared luma and the red, green and blue
+ * channels are built in one pass over the frame. Afterwards the mean,
+ * variance and surround contrast of a rectangle cost a handful of table
+ * lookups whatever its size, so detectors can score many more candidate
+ * windows (finer steps, more scales) than by sampling each one.
+ *
+ * Tables are kept per cell of cellSize x cellSize pixels to bound memory
+ * (a full-resolution 1080x1920 set would be ~48 MB); query rectangles are
+ * snapped to the nearest cell boundaries. Use a cell size of 1 for exact
+ * pixel rectangles.
+ */
+public class RegionStats {
+    private final int width;
+    private final int height;
+    private final int cellSize;
+    private final int cellsX;
+    private final int cellsY;
+
+    // Summed-area tables, (cellsX + 1) x (cellsY + 1)
+    private final int[] lumaSums;
+    private final long[] lumaSquareSums;
+    private final int[] redSums;
+    private final int[] greenSums;
+    private final int[] blueSums;
+
+    /**
+     * Candidate rectangle with a detector score, for {@link #suppressOverlaps}
+     */
+    public static class Candidate {
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+        public final float score;
+
+        public Candidate(int left, int top, int right, int bottom, float score) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.score = score;
+        }
+
+        int area() {
+            return Math.max(0, right - left) * Math.max(0, bottom - top);
+        }
+    }
+
+    /**
+     * Build the tables for an image
+     * @param image Frame pixels
+     * @param cellSize Table resolution in pixels (1 for exact rectangles)
+     */
+    public RegionStats(ArgbImage image, int cellSize) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.cellSize = Math.max(1, cellSize);
+        this.cellsX = (width + this.cellSize - 1) / this.cellSize;
+        this.cellsY = (height + this.cellSize - 1) / this.cellSize;
+
+        int stride = cellsX + 1;
+        int tableSize = stride * (cellsY + 1);
+        lumaSums = new int[tableSize];
+        lumaSquareSums = new long[tableSize];
+        redSums = new int[tableSize];
+        greenSums = new int[tableSize];
+        blueSums = new int[tableSize];
+
+        int[] pixels = image.getPixels();
+        int[] cellLuma = new int[cellsX];
+        long[] cellLumaSquares = new long[cellsX];
+        int[] cellRed = new int[cellsX];
+        int[] cellGreen = new int[cellsX];
+        int[] cellBlue = new int[cellsX];
+
+        for (int cy = 0; cy < cellsY; cy++) {
+            // Accumulate one row of cells
+            int rowEnd = Math.min(height, (cy + 1) * this.cellSize);
+            for (int y = cy * this.cellSize; y < rowEnd; y++) {
+                int row = y * width;
+                for (int cx = 0; cx < cellsX; cx++) {
+                    int end = row + Math.min(width, (cx + 1) * this.cellSize);
+                    int lumaSum = 0;
+                    int lumaSquares = 0;
+                    int redSum = 0;
+                    int greenSum = 0;
+                    int blueSum = 0;
+                    for (int i = row + cx * this.cellSize; i < end; i++) {
+                        int pixel = pixels[i];
+                        int r = (pixel >> 16) & 0xFF;
+                        int g = (pixel >> 8) & 0xFF;
+                        int b = pixel & 0xFF;
+                        int luma = (77 * r + 150 * g + 29 * b) >> 8;
+                        lumaSum += luma;
+                        lumaSquares += luma * luma;
+                        redSum += r;
+                        greenSum += g;
+                        blueSum += b;
+                    }
+                    cellLuma[cx] += lumaSum;
+                    cellLumaSquares[cx] += lumaSquares;
+                    cellRed[cx] += redSum;
+                    cellGreen[cx] += greenSum;
+                    cellBlue[cx] += blueSum;
+                }
+            }
+
+            // Fold the row of cells into the tables
+            int above = cy * stride;
+            int current = above + stride;
+            int rowLuma = 0;
+            long rowLumaSquares = 0;
+            int rowRed = 0;
+            int rowGreen = 0;
+            int rowBlue = 0;
+            for (int cx = 0; cx < cellsX; cx++) {
+                rowLuma += cellLuma[cx];
+                rowLumaSquares += cellLumaSquares[cx];
+                rowRed += cellRed[cx];
+                rowGreen += cellGreen[cx];
+                rowBlue += cellBlue[cx];
+                lumaSums[current + cx + 1] = lumaSums[above + cx + 1] + rowLuma;
+                lumaSquareSums[current + cx + 1] = lumaSquareSums[above + cx + 1] + rowLumaSquares;
+                redSums[current + cx + 1] = redSums[above + cx + 1] + rowRed;
+                greenSums[current + cx + 1] = greenSums[above + cx + 1] + rowGreen;
+                blueSums[current + cx + 1] = blueSums[above + cx + 1] + rowBlue;
+                cellLuma[cx] = 0;
+                cellLumaSquares[cx] = 0;
+                cellRed[cx] = 0;
+                cellGreen[cx] = 0;
+                cellBlue[cx] = 0;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Mean luma of a rectangle
+     * @return Mean luma (0-255), or 0 for an empty rectangle
+     */
+    public float meanLuma(int left, int top, int right, int bottom) {
+        int[] cells = snap(left, top, right, bottom);
+        int area = pixelArea(cells);
+        return area > 0 ? (float) sum(lumaSums, cells) / area : 0.0f;
+    }
+
+    /**
+     * Luma variance of a rectangle
+     * @return Variance (0-16256), or 0 for an empty rectangle
+     */
+    public float lumaVariance(int left, int top, int right, int bottom) {
+        int[] cells = snap(left, top, right, bottom);
+        int area = pixelArea(cells);
+        if (area == 0) {
+            return 0.0f;
+        }
+        double mean = (double) sum(lumaSums, cells) / area;
+        double meanSquare = (double) sum(lumaSquareSums, cells) / area;
+        return (float) Math.max(0.0, meanSquare - mean * mean);
+    }
+
+    /**
+     * Luma standard deviation of a rectangle
+     * @return Standard deviation (0-127.5)
+     */
+    public float lumaStdDev(int left, int top, int right, int bottom) {
+        return (float) Math.sqrt(lumaVariance(left, top, right, bottom));
+    }
+
+    /**
+     * Mean colour of a rectangle
+     * @return Opaque ARGB colour, or opaque black for an empty rectangle
+     */
+    public int meanColor(int left, int top, int right, int bottom) {
+        int[] cells = snap(left, top, right, bottom);
+        return meanColor(cells, pixelArea(cells), 0, 0, 0);
+    }
+
+    /**
+     * Colour contrast between a rectangle and the ring of pixels around it
+     * @param margin Ring width in pixels, clipped at the frame border
+     * @return Sum of absolute RGB differences of the two means (0-765), or 0
+     *         when the ring is empty
+     */
+    public int surroundColorContrast(int left, int top, int right, int bottom, int margin) {
+        int[] inner = snap(left, top, right, bottom);
+        int[] outer = snap(left - margin, top - margin, right + margin, bottom + margin);
+        int innerArea = pixelArea(inner);
+        int ringArea = pixelArea(outer) - innerArea;
+        if (innerArea == 0 || ringArea <= 0) {
+            return 0;
+        }
+        int innerColor = meanColor(inner, innerArea, 0, 0, 0);
+        int ringColor = meanColor(outer, ringArea, sum(redSums, inner), sum(greenSums, inner), sum(blueSums, inner));
+        return ImageKernels.colorDistance(innerColor, ringColor);
+    }
+
+    /**
+     * Luma contrast between a rectangle and the ring of pixels around it
+     * @param margin Ring width in pixels, clipped at the frame border
+     * @return Absolute difference of the two mean lumas (0-255), or 0 when
+     *         the ring is empty
+     */
+    public float surroundLumaContrast(int left, int top, int right, int bottom, int margin) {
+        int[] inner = snap(left, top, right, bottom);
+        int[] outer = snap(left - margin, top - margin, right + margin, bottom + margin);
+        int innerArea = pixelArea(inner);
+        int ringArea = pixelArea(outer) - innerArea;
+        if (innerArea == 0 || ringArea <= 0) {
+            return 0.0f;
+        }
+        long innerSum = sum(lumaSums, inner);
+        float innerMean = (float) innerSum / innerArea;
+        float ringMean = (float) (sum(lumaSums, outer) - innerSum) / ringArea;
+        return Math.abs(innerMean - ringMean);
+    }
+
+    /**
+     * Greedy non-maximum suppression: keep the best-scoring candidates and
+     * drop any candidate overlapping an already kept one too much. Equal
+     * scores are ordered by position and then size, so the result does not
+     * depend on the order candidates were found in
+     * @param candidates Candidates in any order (not modified)
+     * @param maxOverlap Largest allowed intersection-over-union with a kept candidate
+     * @param maxResults Maximum number of candidates to keep
+     * @return Kept candidates, best first
+     */
+    public static List<Candidate> suppressOverlaps(List<Candidate> candidates, float maxOverlap, int maxResults) {
+        List<Candidate> sorted = new ArrayList<>(candidates);
+        Collections.sort(sorted, RegionStats::compareCandidates);
+
+        List<Candidate> kept = new ArrayList<>();
+        for (Candidate candidate : sorted) {
+            if (kept.size() >= maxResults) {
+                break;
+            }
+            boolean overlaps = false;
+            for (Candidate other : kept) {
+                if (overlap(candidate, other) > maxOverlap) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (!overlaps) {
+                kept.add(candidate);
+            }
+        }
+        return kept;
+    }
+
+    private static int compareCandidates(Candidate a, Candidate b) {
+        int order = Float.compare(b.score, a.score);
+        if (order == 0) {
+            order = Integer.compare(a.top, b.top);
+        }
+        if (order == 0) {
+            order = Integer.compare(a.left, b.left);
+        }
+        if (order == 0) {
+            order = Integer.compare(a.area(), b.area());
+        }
+        if (order == 0) {
+            order = Integer.compare(a.right, b.right);
+        }
+        return order;
+    }
+
+    private static float overlap(Candidate a, Candidate b) {
+        int width = Math.min(a.right, b.right) - Math.max(a.left, b.left);
+        int height = Math.min(a.bottom, b.bottom) - Math.max(a.top, b.top);
+        if (width <= 0 || height <= 0) {
+            return 0.0f;
+        }
+        int intersection = width * height;
+        return (float) intersection / (a.area() + b.area() - intersection);
+    }
+
+    /**
+     * Snap a pixel rectangle to cell indices {left, top, right, bottom},
+     * clipped to the frame and at least one cell in each direction
+     */
+    private int[] snap(int left, int top, int right, int bottom) {
+        int half = cellSize / 2;
+        int cl = clamp((left + half) / cellSize, 0, cellsX);
+        int ct = clamp((top + half) / cellSize, 0, cellsY);
+        int cr = clamp((right + half) / cellSize, 0, cellsX);
+        int cb = clamp((bottom + half) / cellSize, 0, cellsY);
+        if (right > left && cr <= cl) {
+            cr = Math.min(cellsX, cl + 1);
+            cl = cr - 1;
+        }
+        if (bottom > top && cb <= ct) {
+            cb = Math.min(cellsY, ct + 1);
+            ct = cb - 1;
+        }
+        return new int[] { cl, ct, Math.max(cl, cr), Math.max(ct, cb) };
+    }
+
+    private int pixelArea(int[] cells) {
+        int pixelWidth = Math.min(width, cells[2] * cellSize) - cells[0] * cellSize;
+        int pixelHeight = Math.min(height, cells[3] * cellSize) - cells[1] * cellSize;
+        return Math.max(0, pixelWidth) * Math.max(0, pixelHeight);
+    }
+
+    private long sum(int[] table, int[] cells) {
+        int stride = cellsX + 1;
+        return (long) table[cells[3] * stride + cells[2]] - table[cells[1] * stride + cells[2]]
+                - table[cells[3] * stride + cells[0]] + table[cells[1] * stride + cells[0]];
+    }
+
+    private long sum(long[] table, int[] cells) {
+        int stride = cellsX + 1;
+        return table[cells[3] * stride + cells[2]] - table[cells[1] * stride + cells[2]]
+                - table[cells[3] * stride + cells[0]] + table[cells[1] * stride + cells[0]];
+    }
+
+    /**
+     * Mean colour of a snapped rectangle after subtracting excluded channel sums
+     */
+    private int meanColor(int[] cells, int area, long excludeRed, long excludeGreen, long excludeBlue) {
+        if (area <= 0) {
+            return 0xFF000000;
+        }
+        int r = (int) ((sum(redSums, cells) - excludeRed) / area);
+        int g = (int) ((sum(greenSums, cells) - excludeGreen) / area);
+        int b = (int) ((sum(blueSums, cells) - excludeBlue) / area);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
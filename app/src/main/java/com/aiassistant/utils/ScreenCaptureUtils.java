@@ -23,7 +23,6 @@ import androidx.annotation.NonNull;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -37,6 +36,9 @@ import java.util.concurrent.Executors;
 public class ScreenCaptureUtils {
     private static final String TAG = Constants.TAG_PREFIX + "ScreenCaptureUtils";
     
+    // Reusable frame buffers for converting captured images
+    private static final int FRAME_POOL_SIZE = 3;
+    
     // Singleton instance
     private static volatile ScreenCaptureUtils instance;
     
@@ -70,6 +72,9 @@ public class ScreenCaptureUtils {
     private Handler handler;
     private ExecutorService executor;
     
+    // Frame buffers filled from the image reader
+    private final FrameBufferPool framePool = new FrameBufferPool(FRAME_POOL_SIZE);
+    
     // Flags
     private boolean initialized = false;
     private boolean captureEnabled = false;
@@ -276,39 +281,65 @@ public class ScreenCaptureUtils {
         }
     }
     
+    /**
+     * Capture the latest screen image into a pooled frame buffer, without
+     * creating a Bitmap
+     * @return Frame lease the caller must release(), or null if no image is
+     *         available or every pooled frame is in use
+     */
+    public FrameBufferPool.Frame captureFrame() {
+        if (!initialized || !captureEnabled || imageReader == null) {
+            return null;
+        }
+        
+        Image image = imageReader.acquireLatestImage();
+        if (image == null) {
+            return null;
+        }
+        
+        try {
+            FrameBufferPool.Frame frame = framePool.acquire(image.getWidth(), image.getHeight());
+            if (frame != null) {
+                fillFrame(image, frame);
+            }
+            return frame;
+        } finally {
+            image.close();
+        }
+    }
+    
     /**
      * Convert image to bitmap
      * @param image Image
      * @return Bitmap
      */
     private Bitmap imageToBitmap(Image image) {
-        // Get image planes
-        Image.Plane[] planes = image.getPlanes();
-        ByteBuffer buffer = planes[0].getBuffer();
-        
-        // Calculate row stride
-        int pixelStride = planes[0].getPixelStride();
-        int rowStride = planes[0].getRowStride();
-        int rowPadding = rowStride - pixelStride * image.getWidth();
-        
-        // Create bitmap
-        Bitmap bitmap = Bitmap.createBitmap(
-                image.getWidth() + rowPadding / pixelStride,
-                image.getHeight(),
-                Bitmap.Config.ARGB_8888);
-        
-        // Copy buffer to bitmap
-        bitmap.copyPixelsFromBuffer(buffer);
-        
-        // Crop to correct size if needed
-        if (bitmap.getWidth() > image.getWidth() || bitmap.getHeight() > image.getHeight()) {
-            Bitmap croppedBitmap = Bitmap.createBitmap(
-                    bitmap, 0, 0, image.getWidth(), image.getHeight());
-            bitmap.recycle();
-            return croppedBitmap;
+        // Strip the row padding into a pooled buffer, then create the bitmap
+        // at its final size in one step
+        FrameBufferPool.Frame frame = framePool.acquire(image.getWidth(), image.getHeight());
+        if (frame == null) {
+            frame = FrameBufferPool.allocate(image.getWidth(), image.getHeight());
         }
         
-        return bitmap;
+        try {
+            fillFrame(image, frame);
+            Bitmap bitmap = Bitmap.createBitmap(image.getWidth(), image.getHeight(), Bitmap.Config.ARGB_8888);
+            bitmap.setPixels(frame.getPixels(), 0, image.getWidth(), 0, 0, image.getWidth(), image.getHeight());
+            return bitmap;
+        } finally {
+            frame.release();
+        }
+    }
+    
+    /**
+     * Copy an RGBA_8888 image into a frame, handling row and pixel stride
+     * @param image Image
+     * @param frame Frame sized to the image
+     */
+    private static void fillFrame(Image image, FrameBufferPool.Frame frame) {
+        Image.Plane plane = image.getPlanes()[0];
+        frame.copyFromRgbaPlane(plane.getBuffer(), plane.getRowStride(), plane.getPixelStride());
+        frame.setTimestampNanos(image.getTimestamp());
     }
     
     /**
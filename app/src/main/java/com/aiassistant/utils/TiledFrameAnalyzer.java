@@ -0,0 +1,357 @@
+package com.aiassistant.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs per-tile detection kernels over a frame on a fork/join pool
+ *
+ * The frame is split into square tiles of tileSize pixels (the tile's
+ * core); each tile is padded by an overlap on every side so a kernel can see
+ * detections that straddle a seam. A detection belongs to the tile whose
+ * core contains its center, which drops the copies neighbouring tiles find
+ * in their padding; the survivors of all tiles then go through the same
+ * overlap suppression as a single-threaded search, removing duplicates
+ * found at different window scales.
+ *
+ * Choose the overlap per search: at least half the largest window, or the
+ * largest object for mask-based kernels, so every detection fits whole in
+ * the tile that owns it.
+ *
+ * The pool is sized to the big cores (the cores with the highest maximum
+ * clock); tile size defaults per device class and can be changed.
+ *
+ * Kernels run concurrently and must only read shared state. Build any lazy
+ * per-frame data (luma, region statistics) before calling analyze().
+ */
+public class TiledFrameAnalyzer {
+    private static final String CPU_DIR = "/sys/devices/system/cpu";
+
+    private static volatile TiledFrameAnalyzer shared;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private volatile int tileSize;
+
+    // Statistics
+    private long frames;
+    private long tiles;
+    private long analyzeNanos;
+
+    /**
+     * Device classes with the tile size that balances scheduling overhead
+     * against load balance on them
+     */
+    public enum DeviceClass {
+        LOW_END(480),
+        MID_RANGE(360),
+        HIGH_END(270);
+
+        private final int tileSize;
+
+        DeviceClass(int tileSize) {
+            this.tileSize = tileSize;
+        }
+
+        public int getTileSize() {
+            return tileSize;
+        }
+
+        /**
+         * Classify the device by its number of big cores
+         * @param bigCores Cores running at the highest maximum clock
+         * @return Device class
+         */
+        public static DeviceClass forBigCores(int bigCores) {
+            if (bigCores <= 2) {
+                return LOW_END;
+            }
+            return bigCores <= 4 ? MID_RANGE : HIGH_END;
+        }
+    }
+
+    /**
+     * One tile: the core it owns and the padded area its kernel may scan
+     */
+    public static class Tile {
+        public final int coreLeft;
+        public final int coreTop;
+        public final int coreRight;
+        public final int coreBottom;
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+        private final int frameWidth;
+        private final int frameHeight;
+
+        Tile(int coreLeft, int coreTop, int coreRight, int coreBottom, int overlap, int frameWidth, int frameHeight) {
+            this.coreLeft = coreLeft;
+            this.coreTop = coreTop;
+            this.coreRight = coreRight;
+            this.coreBottom = coreBottom;
+            this.left = Math.max(0, coreLeft - overlap);
+            this.top = Math.max(0, coreTop - overlap);
+            this.right = Math.min(frameWidth, coreRight + overlap);
+            this.bottom = Math.min(frameHeight, coreBottom + overlap);
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+        }
+
+        /**
+         * Check whether a rectangle's center lies in this tile's core
+         * @return True if this tile owns the rectangle
+         */
+        public boolean owns(int left, int top, int right, int bottom) {
+            int centerX = (left + right) / 2;
+            int centerY = (top + bottom) / 2;
+            return centerX >= coreLeft && centerX < coreRight && centerY >= coreTop && centerY < coreBottom;
+        }
+
+        /**
+         * Check whether a rectangle touches an edge where the padded tile cuts
+         * the frame, meaning an object there may continue outside the tile
+         * @return True if the rectangle may be clipped by the tile
+         */
+        public boolean isClipped(int left, int top, int right, int bottom) {
+            return (left <= this.left && this.left > 0)
+                    || (top <= this.top && this.top > 0)
+                    || (right >= this.right && this.right < frameWidth)
+                    || (bottom >= this.bottom && this.bottom < frameHeight);
+        }
+
+        /**
+         * First position at or after start on a frame-wide lattice, so
+         * windows line up across tiles exactly as in a whole-frame scan
+         * @param start Scan start within the tile
+         * @param origin Lattice origin in frame coordinates
+         * @param step Lattice step
+         * @return First lattice position not before start
+         */
+        public static int alignUp(int start, int origin, int step) {
+            if (start <= origin) {
+                return origin;
+            }
+            return origin + ((start - origin + step - 1) / step) * step;
+        }
+    }
+
+    /**
+     * Detection kernel run once per tile
+     */
+    public interface TileKernel {
+        /**
+         * Find detections in a tile
+         * @param tile Tile bounds; scan within the padded bounds
+         * @param out Receives detections in frame coordinates
+         */
+        void analyze(Tile tile, List<RegionStats.Candidate> out);
+    }
+
+    /**
+     * Get the process-wide analyzer, sized to this device's big cores
+     * @return Shared analyzer
+     */
+    public static TiledFrameAnalyzer getShared() {
+        if (shared == null) {
+            synchronized (TiledFrameAnalyzer.class) {
+                if (shared == null) {
+                    int bigCores = countBigCores();
+                    shared = new TiledFrameAnalyzer(bigCores, DeviceClass.forBigCores(bigCores).getTileSize());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Constructor
+     * @param parallelism Number of worker threads
+     * @param tileSize Tile core size in pixels
+     */
+    public TiledFrameAnalyzer(int parallelism, int tileSize) {
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(this.parallelism);
+        this.tileSize = Math.max(16, tileSize);
+    }
+
+    /**
+     * Run a kernel over every tile of a frame and merge the detections
+     * @param width Frame width
+     * @param height Frame height
+     * @param overlap Padding around each tile core, in pixels
+     * @param kernel Detection kernel
+     * @param maxOverlap Largest intersection-over-union kept between merged detections
+     * @param maxResults Maximum detections returned
+     * @return Merged detections, best first
+     */
+    public List<RegionStats.Candidate> analyze(int width, int height, int overlap, TileKernel kernel,
+                                               float maxOverlap, int maxResults) {
+        long start = System.nanoTime();
+        int size = tileSize;
+        List<Tile> tileList = new ArrayList<>();
+        for (int y = 0; y < height; y += size) {
+            for (int x = 0; x < width; x += size) {
+                tileList.add(new Tile(x, y, Math.min(width, x + size), Math.min(height, y + size),
+                        overlap, width, height));
+            }
+        }
+
+        // One slot per tile, each written by exactly one task
+        List<List<RegionStats.Candidate>> results =
+                new ArrayList<>(Collections.nCopies(tileList.size(), (List<RegionStats.Candidate>) null));
+        if (parallelism == 1 || tileList.size() == 1) {
+            analyzeTiles(tileList, kernel, results, 0, tileList.size());
+        } else {
+            pool.invoke(new TileTask(tileList, kernel, results, 0, tileList.size()));
+        }
+
+        List<RegionStats.Candidate> merged = new ArrayList<>();
+        for (List<RegionStats.Candidate> result : results) {
+            merged.addAll(result);
+        }
+        List<RegionStats.Candidate> kept = RegionStats.suppressOverlaps(merged, maxOverlap, maxResults);
+
+        synchronized (this) {
+            frames++;
+            tiles += tileList.size();
+            analyzeNanos += System.nanoTime() - start;
+        }
+        return kept;
+    }
+
+    /**
+     * Set the tile core size
+     * @param tileSize Size in pixels (at least 16)
+     */
+    public void setTileSize(int tileSize) {
+        this.tileSize = Math.max(16, tileSize);
+    }
+
+    /**
+     * Use the default tile size of a device class
+     * @param deviceClass Device class
+     */
+    public void setDeviceClass(DeviceClass deviceClass) {
+        setTileSize(deviceClass.getTileSize());
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Get analysis statistics
+     * @return Map of statistic name to value
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("parallelism", parallelism);
+        stats.put("tileSize", tileSize);
+        stats.put("frames", frames);
+        stats.put("avgTiles", frames > 0 ? (double) tiles / frames : 0.0);
+        stats.put("avgAnalyzeMicros", frames > 0 ? analyzeNanos / 1000.0 / frames : 0.0);
+        return stats;
+    }
+
+    /**
+     * Count the cores with the highest maximum clock (the big or prime
+     * cores of a big.LITTLE CPU); all cores when clocks are unreadable
+     * @return Number of big cores, at least 1
+     */
+    public static int countBigCores() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        long[] maxFrequencies = new long[processors];
+        long lowest = Long.MAX_VALUE;
+        for (int cpu = 0; cpu < processors; cpu++) {
+            maxFrequencies[cpu] = readMaxFrequency(cpu);
+            if (maxFrequencies[cpu] <= 0) {
+                return processors;
+            }
+            lowest = Math.min(lowest, maxFrequencies[cpu]);
+        }
+
+        // Everything faster than the little cluster counts as big
+        int big = 0;
+        for (long frequency : maxFrequencies) {
+            if (frequency > lowest) {
+                big++;
+            }
+        }
+        return big > 0 ? big : processors;
+    }
+
+    private static long readMaxFrequency(int cpu) {
+        File file = new File(CPU_DIR + "/cpu" + cpu + "/cpufreq/cpuinfo_max_freq");
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            return line != null ? Long.parseLong(line.trim()) : -1;
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Splits the tile range in halves until single tiles remain
+     */
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Tile> tiles;
+        private final TileKernel kernel;
+        private final List<List<RegionStats.Candidate>> results;
+        private final int from;
+        private final int to;
+
+        TileTask(List<Tile> tiles, TileKernel kernel, List<List<RegionStats.Candidate>> results,
+                 int from, int to) {
+            this.tiles = tiles;
+            this.kernel = kernel;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(tiles, kernel, results, from, middle),
+                        new TileTask(tiles, kernel, results, middle, to));
+                return;
+            }
+            analyzeTiles(tiles, kernel, results, from, to);
+        }
+    }
+
+    private static void analyzeTiles(List<Tile> tiles, TileKernel kernel,
+                                     List<List<RegionStats.Candidate>> results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Tile tile = tiles.get(i);
+            List<RegionStats.Candidate> found = new ArrayList<>();
+            kernel.analyze(tile, found);
+
+            // Keep only what this tile owns; neighbours report the rest
+            List<RegionStats.Candidate> owned = new ArrayList<>(found.size());
+            for (RegionStats.Candidate candidate : found) {
+                if (tile.owns(candidate.left, candidate.top, candidate.right, candidate.bottom)) {
+                    owned.add(candidate);
+                }
+            }
+            results.set(i, owned);
+        }
+    }
+}